@@ -0,0 +1,63 @@
+package de.eisfeldj.augendiagnosefx.benchmark;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import javafx.application.Platform;
+
+/**
+ * Helper for running benchmark code on the JavaFX application thread, as required for canvas operations.
+ */
+public final class FxToolkit {
+	/**
+	 * Flag indicating if the JavaFX platform has been started.
+	 */
+	private static boolean mIsStarted = false;
+
+	/**
+	 * Hide default constructor.
+	 */
+	private FxToolkit() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Start the JavaFX platform, if not yet started.
+	 *
+	 * @throws InterruptedException thrown if interrupted while waiting for the startup.
+	 */
+	public static synchronized void startup() throws InterruptedException {
+		if (mIsStarted) {
+			return;
+		}
+		CountDownLatch latch = new CountDownLatch(1);
+		Platform.startup(latch::countDown);
+		Platform.setImplicitExit(false);
+		latch.await();
+		mIsStarted = true;
+	}
+
+	/**
+	 * Run a task on the JavaFX application thread and wait for its result.
+	 *
+	 * @param task The task.
+	 * @param <T> The result type.
+	 * @return The result.
+	 * @throws Exception thrown by the task.
+	 */
+	public static <T> T runAndWait(final Callable<T> task) throws Exception {
+		FutureTask<T> futureTask = new FutureTask<>(task);
+		Platform.runLater(futureTask);
+		try {
+			return futureTask.get();
+		}
+		catch (ExecutionException e) {
+			if (e.getCause() instanceof Exception) {
+				throw (Exception) e.getCause();
+			}
+			throw e;
+		}
+	}
+}
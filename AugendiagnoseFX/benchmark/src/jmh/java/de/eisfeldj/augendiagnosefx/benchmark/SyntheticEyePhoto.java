@@ -0,0 +1,161 @@
+package de.eisfeldj.augendiagnosefx.benchmark;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Provider of the input photos of the benchmarks. An input is either a number of megapixels, for which a synthetic eye
+ * photo of this size is generated, or the path of a real JPEG photo.
+ */
+public final class SyntheticEyePhoto {
+	/**
+	 * The aspect ratio (width / height) of the synthetic photos.
+	 */
+	private static final double ASPECT_RATIO = 4.0 / 3;
+	/**
+	 * The number of pixels of one megapixel.
+	 */
+	private static final double MEGAPIXEL = 1000000;
+	/**
+	 * The iris radius, relative to the minimum of width and height.
+	 */
+	private static final double IRIS_RADIUS = 0.3;
+	/**
+	 * The pupil radius, relative to the iris radius.
+	 */
+	private static final double PUPIL_RADIUS = 0.3;
+	/**
+	 * The seed for the pseudo random texture, so that all runs use the same photo.
+	 */
+	private static final long SEED = 4711;
+
+	/**
+	 * Hide default constructor.
+	 */
+	private SyntheticEyePhoto() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Get the JPEG file for an input. Synthetic photos are generated once and kept in the temp folder.
+	 *
+	 * @param input The number of megapixels, or the path of a JPEG photo.
+	 * @return The file.
+	 * @throws IOException thrown if the photo cannot be generated.
+	 */
+	public static File getFile(final String input) throws IOException {
+		if (!input.matches("\\d+")) {
+			File file = new File(input);
+			if (!file.isFile()) {
+				throw new IOException("Photo " + file.getAbsolutePath() + " not found");
+			}
+			return file;
+		}
+		File file = new File(System.getProperty("java.io.tmpdir"), String.format(Locale.ROOT, "augendiagnose-benchmark-%smp.jpg", input));
+		if (!file.isFile()) {
+			File tempFile = File.createTempFile("augendiagnose-benchmark", ".jpg");
+			ImageIO.write(createImage(Integer.parseInt(input)), "jpg", tempFile);
+			Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		return file;
+	}
+
+	/**
+	 * Get a temporary copy of the JPEG file for an input, which may be modified by the benchmark.
+	 *
+	 * @param input The number of megapixels, or the path of a JPEG photo.
+	 * @return The copy. It is deleted on exit.
+	 * @throws IOException thrown if the copy cannot be created.
+	 */
+	public static File getTempCopy(final String input) throws IOException {
+		File copy = File.createTempFile("augendiagnose-benchmark", ".jpg");
+		copy.deleteOnExit();
+		Files.copy(getFile(input).toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		return copy;
+	}
+
+	/**
+	 * Get the input as image.
+	 *
+	 * @param input The number of megapixels, or the path of a JPEG photo.
+	 * @return The image.
+	 * @throws IOException thrown if the photo cannot be read.
+	 */
+	public static BufferedImage getImage(final String input) throws IOException {
+		if (input.matches("\\d+")) {
+			return createImage(Integer.parseInt(input));
+		}
+		BufferedImage image = ImageIO.read(getFile(input));
+		if (image == null) {
+			throw new IOException("Photo " + input + " cannot be decoded");
+		}
+		return image;
+	}
+
+	/**
+	 * Create a synthetic eye photo: a dark pupil within a textured iris on bright sclera, with some noise.
+	 *
+	 * @param megapixels The size of the photo in megapixels.
+	 * @return The photo.
+	 */
+	public static BufferedImage createImage(final int megapixels) {
+		int width = (int) Math.round(Math.sqrt(megapixels * MEGAPIXEL * ASPECT_RATIO));
+		int height = (int) Math.round(width / ASPECT_RATIO);
+		double irisRadius = IRIS_RADIUS * Math.min(width, height);
+		double pupilRadius = PUPIL_RADIUS * irisRadius;
+		double irisX = 0.52 * width; // MAGIC_NUMBER
+		double irisY = 0.48 * height; // MAGIC_NUMBER
+		double pupilX = irisX + 0.05 * irisRadius; // MAGIC_NUMBER
+		double pupilY = irisY - 0.03 * irisRadius; // MAGIC_NUMBER
+
+		Random random = new Random(SEED);
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		int[] row = new int[width];
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				double irisDistance = Math.hypot(x - irisX, y - irisY);
+				int red;
+				int green;
+				int blue;
+				if (Math.hypot(x - pupilX, y - pupilY) < pupilRadius) {
+					red = 20; // MAGIC_NUMBER
+					green = 18; // MAGIC_NUMBER
+					blue = 18; // MAGIC_NUMBER
+				}
+				else if (irisDistance < irisRadius) {
+					// Radial fibres of the iris.
+					int fibre = (int) (40 * Math.sin(Math.atan2(y - irisY, x - irisX) * 90)); // MAGIC_NUMBER
+					red = 120 + fibre; // MAGIC_NUMBER
+					green = 85 + fibre; // MAGIC_NUMBER
+					blue = 50 + fibre / 2; // MAGIC_NUMBER
+				}
+				else {
+					red = 225; // MAGIC_NUMBER
+					green = 215; // MAGIC_NUMBER
+					blue = 205; // MAGIC_NUMBER
+				}
+				int noise = random.nextInt(16) - 8; // MAGIC_NUMBER
+				row[x] = clip(red + noise) << 16 | clip(green + noise) << 8 | clip(blue + noise); // MAGIC_NUMBER
+			}
+			image.setRGB(0, y, width, 1, row, 0, width);
+		}
+		return image;
+	}
+
+	/**
+	 * Clip a value to the range of a color channel.
+	 *
+	 * @param value The value.
+	 * @return The clipped value.
+	 */
+	private static int clip(final int value) {
+		return Math.max(0, Math.min(255, value)); // MAGIC_NUMBER
+	}
+}
@@ -0,0 +1,86 @@
+package de.eisfeldj.augendiagnosefx.util.imagefile;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javafx.scene.effect.FloatMap;
+
+/**
+ * Benchmark of the computation of the displacement map warping the overlay, per pixel and on the coarse mesh. This does
+ * not need the JavaFX platform.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DisplacementMapBenchmark {
+	/**
+	 * The size of the overlays (in pixels).
+	 */
+	private static final int OVERLAY_SIZE = 1024;
+	/**
+	 * The relative radius of the iris on the overlay.
+	 */
+	private static final float OVERLAY_CIRCLE_RATIO = 0.75f;
+	/**
+	 * The pupil size in the original overlay.
+	 */
+	private static final float ORIG_PUPIL_SIZE = 0.28f;
+	/**
+	 * The number of distinct pupil sizes used.
+	 */
+	private static final int PUPIL_SIZE_COUNT = 100;
+
+	/**
+	 * The number of the current invocation.
+	 */
+	private int mInvocation = 0;
+
+	/**
+	 * The pupil size of the current invocation.
+	 */
+	private float mPupilSize;
+
+	/**
+	 * Change the pupil size.
+	 */
+	@Setup(Level.Invocation)
+	public void changePupilSize() {
+		mPupilSize = 0.2f + (mInvocation++ % PUPIL_SIZE_COUNT) * 0.001f; // MAGIC_NUMBER
+	}
+
+	/**
+	 * Compute the displacement map per pixel.
+	 *
+	 * @return The displacement map.
+	 */
+	@Benchmark
+	public FloatMap exact() {
+		return new OverlayWarper(OVERLAY_SIZE, OVERLAY_CIRCLE_RATIO, ORIG_PUPIL_SIZE, 0.05f, -0.03f, mPupilSize) // MAGIC_NUMBER
+				.createExactFloatMap();
+	}
+
+	/**
+	 * Compute the displacement map by interpolation on the coarse mesh.
+	 *
+	 * @return The displacement map.
+	 */
+	@Benchmark
+	public FloatMap mesh() {
+		return new OverlayWarper(OVERLAY_SIZE, OVERLAY_CIRCLE_RATIO, ORIG_PUPIL_SIZE, 0.05f, -0.03f, mPupilSize) // MAGIC_NUMBER
+				.createFloatMap();
+	}
+}
@@ -0,0 +1,108 @@
+package de.eisfeldj.augendiagnosefx.util.imagefile;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.eisfeldj.augendiagnosefx.benchmark.FxToolkit;
+import de.eisfeldj.augendiagnosefx.benchmark.SyntheticEyePhoto;
+import de.eisfeldj.augendiagnosefx.util.imagefile.EyePhoto.RightLeft;
+import de.eisfeldj.augendiagnosefx.util.imagefile.ImageUtil.Resolution;
+
+import javafx.scene.image.Image;
+import javafx.scene.paint.Color;
+
+/**
+ * Benchmark of the color transformation of a photo, with and without drawing the overlay. The photo is used in full
+ * resolution.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ImageWithOverlayBenchmark {
+	/**
+	 * The brightness used for the transformation.
+	 */
+	private static final float BRIGHTNESS = 0.1f;
+	/**
+	 * The contrast used for the transformation.
+	 */
+	private static final float CONTRAST = 1.2f;
+	/**
+	 * The saturation used for the transformation.
+	 */
+	private static final float SATURATION = 1.1f;
+	/**
+	 * The color temperature used for the transformation.
+	 */
+	private static final float COLOR_TEMPERATURE = 0.2f;
+
+	/**
+	 * The input photo: megapixels of a synthetic photo, or the path of a real photo.
+	 */
+	@Param({"1", "12", "48"})
+	private String mInput;
+
+	/**
+	 * The photo.
+	 */
+	private Image mImage;
+
+	/**
+	 * The color transformer, reused between invocations as by the view.
+	 */
+	private ColorTransformer mTransformer;
+
+	/**
+	 * Start the JavaFX platform and load the photo.
+	 *
+	 * @throws Exception thrown if the photo cannot be loaded.
+	 */
+	@Setup(Level.Trial)
+	public void loadImage() throws Exception {
+		FxToolkit.startup();
+		mTransformer = new ColorTransformer();
+		mImage = ImageUtil.getImage(SyntheticEyePhoto.getFile(mInput), Resolution.FULL);
+		if (mImage.isError()) {
+			throw mImage.getException();
+		}
+	}
+
+	/**
+	 * Apply the color transformation.
+	 *
+	 * @return The transformed photo.
+	 * @throws Exception thrown if the transformation fails.
+	 */
+	@Benchmark
+	public Image colorTransform() throws Exception {
+		return FxToolkit.runAndWait(() -> ImageUtil.getImageWithOverlay(mImage, null, RightLeft.RIGHT, Color.RED,
+				0, 0, 1, 0, 0, 0.25f, BRIGHTNESS, CONTRAST, SATURATION, COLOR_TEMPERATURE, Resolution.FULL, mTransformer)); // MAGIC_NUMBER
+	}
+
+	/**
+	 * Apply the color transformation and draw the overlay.
+	 *
+	 * @return The transformed photo.
+	 * @throws Exception thrown if the transformation fails.
+	 */
+	@Benchmark
+	public Image colorTransformWithOverlay() throws Exception {
+		return FxToolkit.runAndWait(() -> ImageUtil.getImageWithOverlay(mImage, 1, RightLeft.RIGHT, Color.RED,
+				0.52f, 0.48f, 0.8f, 0, 0, 0.25f, BRIGHTNESS, CONTRAST, SATURATION, COLOR_TEMPERATURE, Resolution.FULL, mTransformer)); // MAGIC_NUMBER
+	}
+}
@@ -0,0 +1,111 @@
+package de.eisfeldj.augendiagnosefx.util.imagefile;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.eisfeldj.augendiagnosefx.benchmark.SyntheticEyePhoto;
+import de.eisfeldj.augendiagnosefx.util.imagefile.EyePhoto.RightLeft;
+
+/**
+ * Benchmark of reading and writing the metadata of a JPEG file. The benchmark works on a temporary copy of the input photo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class JpegMetadataBenchmark {
+	/**
+	 * The input photo: megapixels of a synthetic photo, or the path of a real photo.
+	 */
+	@Param({"1", "12", "48"})
+	private String mInput;
+
+	/**
+	 * The name of the temporary copy of the photo.
+	 */
+	private String mFileName;
+
+	/**
+	 * The metadata to be written.
+	 */
+	private JpegMetadata mMetadata;
+
+	/**
+	 * The number of the current invocation.
+	 */
+	private int mInvocation = 0;
+
+	/**
+	 * Create the copy of the photo and store metadata in it, as done by the app.
+	 *
+	 * @throws Exception thrown if the photo cannot be prepared.
+	 */
+	@Setup(Level.Trial)
+	public void prepareFile() throws Exception {
+		if (!JpegMetadataUtil.changeJpegAllowed()) {
+			throw new IllegalStateException("The store option preference does not allow to change JPEG files");
+		}
+		File file = SyntheticEyePhoto.getTempCopy(mInput);
+		mFileName = file.getAbsolutePath();
+
+		mMetadata = new JpegMetadata();
+		mMetadata.setTitle("Benchmark Patient");
+		mMetadata.setDescription("Benchmark description");
+		mMetadata.setComment("Benchmark comment");
+		mMetadata.setPerson("Benchmark Patient");
+		mMetadata.setRightLeft(RightLeft.RIGHT);
+		mMetadata.setXCenter(0.52f); // MAGIC_NUMBER
+		mMetadata.setYCenter(0.48f); // MAGIC_NUMBER
+		mMetadata.setOverlayScaleFactor(0.8f); // MAGIC_NUMBER
+		mMetadata.setPupilSize(0.3f); // MAGIC_NUMBER
+		mMetadata.setPupilXOffset(0.05f); // MAGIC_NUMBER
+		mMetadata.setPupilYOffset(-0.03f); // MAGIC_NUMBER
+		JpegMetadataUtil.changeMetadata(mFileName, mMetadata);
+	}
+
+	/**
+	 * Delete the copy of the photo.
+	 */
+	@TearDown(Level.Trial)
+	public void deleteFile() {
+		new File(mFileName).delete();
+	}
+
+	/**
+	 * Read the metadata.
+	 *
+	 * @return The metadata.
+	 * @throws Exception thrown if the metadata cannot be read.
+	 */
+	@Benchmark
+	public JpegMetadata getMetadata() throws Exception {
+		return JpegMetadataUtil.getMetadata(mFileName);
+	}
+
+	/**
+	 * Change the metadata, with a different comment on each invocation.
+	 *
+	 * @throws Exception thrown if the metadata cannot be written.
+	 */
+	@Benchmark
+	public void changeMetadata() throws Exception {
+		mMetadata.setComment("Benchmark comment " + mInvocation++);
+		JpegMetadataUtil.changeMetadata(mFileName, mMetadata);
+	}
+}
@@ -0,0 +1,85 @@
+package de.eisfeldj.augendiagnosefx.util.imagefile;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.eisfeldj.augendiagnosefx.benchmark.FxToolkit;
+import de.eisfeldj.augendiagnosefx.util.imagefile.EyePhoto.RightLeft;
+
+import javafx.scene.image.Image;
+import javafx.scene.paint.Color;
+
+/**
+ * Benchmark of the generation of the overlay warped by the displacement map for pupil size and position. The overlay size
+ * does not depend on the photo size, so there is no input photo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class OverlayImageBenchmark {
+	/**
+	 * The number of distinct pupil sizes used, each of them differing from the cached one.
+	 */
+	private static final int PUPIL_SIZE_COUNT = 100;
+
+	/**
+	 * The overlay type.
+	 */
+	@Param({"1", "2"})
+	private int mOverlayType;
+
+	/**
+	 * The number of the current invocation.
+	 */
+	private int mInvocation = 0;
+
+	/**
+	 * The pupil size of the current invocation.
+	 */
+	private float mPupilSize;
+
+	/**
+	 * Start the JavaFX platform.
+	 *
+	 * @throws InterruptedException thrown if interrupted while starting.
+	 */
+	@Setup(Level.Trial)
+	public void startup() throws InterruptedException {
+		FxToolkit.startup();
+	}
+
+	/**
+	 * Change the pupil size, so that the cached overlay is not used.
+	 */
+	@Setup(Level.Invocation)
+	public void changePupilSize() {
+		mPupilSize = 0.2f + (mInvocation++ % PUPIL_SIZE_COUNT) * 0.001f; // MAGIC_NUMBER
+	}
+
+	/**
+	 * Create the warped overlay.
+	 *
+	 * @return The overlay.
+	 * @throws Exception thrown if the overlay cannot be created.
+	 */
+	@Benchmark
+	public Image overlayDisplacementMap() throws Exception {
+		return FxToolkit.runAndWait(() -> ImageUtil.getOverlayImage(mOverlayType, RightLeft.RIGHT, Color.RED, 0.05f, -0.03f, // MAGIC_NUMBER
+				mPupilSize));
+	}
+}
@@ -0,0 +1,91 @@
+package de.eisfeldj.augendiagnosefx.util.imagefile;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.imaging.Imaging;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.eisfeldj.augendiagnosefx.benchmark.SyntheticEyePhoto;
+
+/**
+ * Benchmark of parsing and serializing the XMP metadata of a photo. The XMP packet is taken from the input photo after
+ * storing metadata in it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class XmpHandlerBenchmark {
+	/**
+	 * The input photo: megapixels of a synthetic photo, or the path of a real photo.
+	 */
+	@Param({"1", "12", "48"})
+	private String mInput;
+
+	/**
+	 * The XMP string of the photo.
+	 */
+	private String mXmpString;
+
+	/**
+	 * The parsed XMP data.
+	 */
+	private XmpHandler mXmpHandler;
+
+	/**
+	 * Extract the XMP string from the photo.
+	 *
+	 * @throws Exception thrown if the photo cannot be prepared.
+	 */
+	@Setup(Level.Trial)
+	public void prepareXmp() throws Exception {
+		File file = SyntheticEyePhoto.getTempCopy(mInput);
+		String fileName = file.getAbsolutePath();
+		JpegMetadata metadata = JpegMetadataUtil.getMetadata(fileName);
+		metadata.setTitle("Benchmark Patient");
+		metadata.setComment("Benchmark comment");
+		metadata.setXCenter(0.52f); // MAGIC_NUMBER
+		metadata.setYCenter(0.48f); // MAGIC_NUMBER
+		metadata.setOverlayScaleFactor(0.8f); // MAGIC_NUMBER
+		metadata.setPupilSize(0.3f); // MAGIC_NUMBER
+		JpegMetadataUtil.changeMetadata(fileName, metadata);
+		mXmpString = Imaging.getXmpXml(file);
+		file.delete();
+		mXmpHandler = new XmpHandler(mXmpString);
+	}
+
+	/**
+	 * Parse the XMP string.
+	 *
+	 * @return The parsed data.
+	 */
+	@Benchmark
+	public XmpHandler parse() {
+		return new XmpHandler(mXmpString);
+	}
+
+	/**
+	 * Serialize the XMP data.
+	 *
+	 * @return The XMP string.
+	 * @throws Exception thrown if the data cannot be serialized.
+	 */
+	@Benchmark
+	public String serialize() throws Exception {
+		return mXmpHandler.getXmpString();
+	}
+}
@@ -0,0 +1,158 @@
+package de.jeisfeld.irisdetection;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+import de.eisfeldj.augendiagnosefx.benchmark.SyntheticEyePhoto;
+import de.jeisfeld.irisdetection.PupilAndIrisDetector.Calibration;
+import de.jeisfeld.irisdetection.PupilAndIrisDetector.QuantileMode;
+
+/**
+ * Benchmark of the pupil and iris detection, end to end and per phase. The phases are run on a detector which has been
+ * brought into the state before the phase in an untimed setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PupilAndIrisDetectorBenchmark {
+	/**
+	 * The index of the 200 pixel resolution in the pupil search resolutions.
+	 */
+	private static final int RESOLUTION_INDEX_200 = 1;
+	/**
+	 * The index of the 600 pixel resolution in the pupil search resolutions.
+	 */
+	private static final int RESOLUTION_INDEX_600 = 2;
+
+	/**
+	 * The input photo: megapixels of a synthetic photo, or the path of a real photo.
+	 */
+	@Param({"1", "12", "48"})
+	private String mInput;
+
+	/**
+	 * The quantile mode.
+	 */
+	@Param({"EXACT", "FAST"})
+	private QuantileMode mQuantileMode;
+
+	/**
+	 * The image to be analyzed.
+	 */
+	private DetectionImage mImage;
+
+	/**
+	 * The detector prepared for running a single phase.
+	 */
+	private PupilAndIrisDetector mDetector;
+
+	/**
+	 * Load the input photo.
+	 *
+	 * @throws IOException thrown if the photo cannot be read.
+	 */
+	@Setup(Level.Trial)
+	public void loadImage() throws IOException {
+		mImage = new AwtDetectionImage(SyntheticEyePhoto.getImage(mInput));
+	}
+
+	/**
+	 * Run the full detection.
+	 *
+	 * @return The detector.
+	 * @throws IOException thrown if the image cannot be read.
+	 */
+	@Benchmark
+	public PupilAndIrisDetector detect() throws IOException {
+		return new PupilAndIrisDetector(mImage, mQuantileMode, 1);
+	}
+
+	/**
+	 * Run the initial search on the lowest resolution.
+	 *
+	 * @return The detector.
+	 */
+	@Benchmark
+	public PupilAndIrisDetector initialSearch() {
+		mDetector.determineInitialParameterValues();
+		return mDetector;
+	}
+
+	/**
+	 * Run the refinement of the pupil position at 200 pixels.
+	 *
+	 * @return The detector.
+	 */
+	@Benchmark
+	public PupilAndIrisDetector refinement200() {
+		mDetector.refinePupilPosition(RESOLUTION_INDEX_200);
+		return mDetector;
+	}
+
+	/**
+	 * Run the refinement of the pupil position at 600 pixels.
+	 *
+	 * @return The detector.
+	 */
+	@Benchmark
+	public PupilAndIrisDetector refinement600() {
+		mDetector.refinePupilPosition(RESOLUTION_INDEX_600);
+		return mDetector;
+	}
+
+	/**
+	 * Run the search for the iris boundary on the full resolution.
+	 *
+	 * @return The detector.
+	 * @throws IOException thrown if the image cannot be read.
+	 */
+	@Benchmark
+	public PupilAndIrisDetector irisBoundary() throws IOException {
+		mDetector.refineIrisPosition();
+		return mDetector;
+	}
+
+	/**
+	 * Prepare a detector in the state before the benchmarked phase.
+	 *
+	 * @param params The benchmark parameters.
+	 * @throws IOException thrown if the image cannot be read.
+	 */
+	@Setup(Level.Invocation)
+	public void prepareDetector(final BenchmarkParams params) throws IOException {
+		String benchmark = params.getBenchmark();
+		if (benchmark.endsWith(".detect")) {
+			return;
+		}
+		mDetector = new PupilAndIrisDetector(mImage, mQuantileMode, 1, Calibration.FX, false);
+		if (benchmark.endsWith(".initialSearch")) {
+			return;
+		}
+		mDetector.determineInitialParameterValues();
+		if (benchmark.endsWith(".refinement200")) {
+			return;
+		}
+		mDetector.refinePupilPosition(RESOLUTION_INDEX_200);
+		if (benchmark.endsWith(".refinement600")) {
+			return;
+		}
+		mDetector.refinePupilPosition(RESOLUTION_INDEX_600);
+	}
+}
@@ -37,6 +37,11 @@ public class Application extends javafx.application.Application {
 	 */
 	public static final String APPLICATION_NAME = "Augendiagnose";
 
+	/**
+	 * The time in milliseconds to wait for pending metadata saves on exit.
+	 */
+	private static final long EXIT_SAVE_TIMEOUT = 3000;
+
 	/**
 	 * The primary scene.
 	 */
@@ -52,6 +57,11 @@ public class Application extends javafx.application.Application {
 	 */
 	private static HostServices mHostServices;
 
+	/**
+	 * Flag indicating if pending metadata saves are being flushed before exit.
+	 */
+	private static boolean mIsFlushingForExit = false;
+
 	/**
 	 * Application method to start the application.
 	 *
@@ -110,14 +120,39 @@ public class Application extends javafx.application.Application {
 	}
 
 	/**
-	 * Exit the application after asking for confirmation if there are unsaved data.
+	 * Exit the application after asking for confirmation if there are unsaved data. Pending metadata saves are awaited in the
+	 * background, so that the FX application thread is not blocked. To be called in the FX application thread.
 	 */
 	public static void exitAfterConfirmation() {
-		if (JpegSynchronizationUtil.hasRunningSaveRequests()) {
-			DialogUtil.displayInfo(ResourceConstants.MESSAGE_INFO_SAVING_PHOTO);
+		if (mIsFlushingForExit) {
+			return;
+		}
+		if (!JpegSynchronizationUtil.hasRunningSaveRequests()) {
+			exitIfConfirmed();
 			return;
 		}
 
+		mIsFlushingForExit = true;
+		Thread flushThread = new Thread(() -> {
+			boolean isFlushed = JpegSynchronizationUtil.flush(EXIT_SAVE_TIMEOUT);
+			Platform.runLater(() -> {
+				mIsFlushingForExit = false;
+				if (isFlushed) {
+					exitIfConfirmed();
+				}
+				else {
+					DialogUtil.displayInfo(ResourceConstants.MESSAGE_INFO_SAVING_PHOTO);
+				}
+			});
+		}, "ExitFlush");
+		flushThread.setDaemon(true);
+		flushThread.start();
+	}
+
+	/**
+	 * Exit the application, after asking for confirmation if there are unsaved data.
+	 */
+	private static void exitIfConfirmed() {
 		if (MainController.hasDirtyBaseController()) {
 			ConfirmDialogListener listener = new ConfirmDialogListener() {
 				@Override
@@ -1,37 +1,29 @@
 package de.eisfeldj.augendiagnosefx.controller;
 
 import java.io.File;
-import java.io.FileFilter;
-import java.io.FilenameFilter;
 import java.net.URL;
-import java.text.CollationKey;
-import java.text.Collator;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.ResourceBundle;
 import java.util.TreeMap;
 
-import de.eisfeldj.augendiagnosefx.fxelements.EyePhotoPairNode;
+import de.eisfeldj.augendiagnosefx.fxelements.EyePhotoPairCell;
 import de.eisfeldj.augendiagnosefx.util.DialogUtil;
 import de.eisfeldj.augendiagnosefx.util.DialogUtil.ConfirmDialogListener;
-import de.eisfeldj.augendiagnosefx.util.DialogUtil.ProgressDialog;
 import de.eisfeldj.augendiagnosefx.util.Logger;
 import de.eisfeldj.augendiagnosefx.util.PreferenceUtil;
 import de.eisfeldj.augendiagnosefx.util.ResourceConstants;
 import de.eisfeldj.augendiagnosefx.util.ResourceUtil;
 import de.eisfeldj.augendiagnosefx.util.imagefile.EyePhoto;
 import de.eisfeldj.augendiagnosefx.util.imagefile.EyePhotoPair;
+import de.eisfeldj.augendiagnosefx.util.imagefile.PhotoCatalogue;
+import de.eisfeldj.augendiagnosefx.util.imagefile.ThumbnailCache;
 
 import javafx.application.Platform;
-import javafx.beans.value.ChangeListener;
-import javafx.beans.value.ObservableValue;
 import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
 import javafx.fxml.FXML;
@@ -44,16 +36,22 @@ import javafx.scene.control.TextField;
 import javafx.scene.input.KeyEvent;
 import javafx.scene.input.MouseButton;
 import javafx.scene.input.MouseEvent;
-import javafx.scene.layout.GridPane;
 import javafx.scene.layout.Pane;
 
 import static de.eisfeldj.augendiagnosefx.util.PreferenceUtil.KEY_FOLDER_PHOTOS;
 import static de.eisfeldj.augendiagnosefx.util.PreferenceUtil.KEY_LAST_NAME;
+import static de.eisfeldj.augendiagnosefx.util.PreferenceUtil.KEY_RECENT_NAMES;
+import static de.eisfeldj.augendiagnosefx.util.PreferenceUtil.KEY_THUMBNAIL_SIZE;
 
 /**
  * BaseController for the "Display Photos" page.
  */
 public class DisplayPhotosController extends BaseController implements Initializable {
+	/**
+	 * The number of recently opened names whose thumbnails are created in the background.
+	 */
+	private static final int RECENT_NAMES_COUNT = 10;
+
 	/**
 	 * The previous selected name.
 	 */
@@ -72,10 +70,10 @@ public class DisplayPhotosController extends BaseController implements Initializ
 	private ListView<String> mListNames;
 
 	/**
-	 * The list of names.
+	 * The list of eye photo pairs.
 	 */
 	@FXML
-	private ListView<GridPane> mListPhotos;
+	private ListView<EyePhotoPair> mListPhotos;
 
 	/**
 	 * The field for searching names.
@@ -85,7 +83,9 @@ public class DisplayPhotosController extends BaseController implements Initializ
 
 	@Override
 	public final void initialize(final URL location, final ResourceBundle resources) {
+		mListPhotos.setCellFactory(listView -> new EyePhotoPairCell(this));
 		initializeNames("", true);
+		prepopulateThumbnails();
 	}
 
 	/**
@@ -213,139 +213,82 @@ public class DisplayPhotosController extends BaseController implements Initializ
 	private void showPicturesForName(final String name) {
 		File nameFolder = new File(PreferenceUtil.getPreferenceString(KEY_FOLDER_PHOTOS), name);
 
-		ProgressDialog dialog =
-				DialogUtil.displayProgressDialog(ResourceConstants.MESSAGE_PROGRESS_LOADING_PHOTOS, name);
-
-		EyePhotoPair[] eyePhotos = createEyePhotoList(nameFolder);
-
-		ObservableList<GridPane> valuesPhotos = FXCollections.observableList(new ArrayList<GridPane>());
-
-		for (int i = 0; i < eyePhotos.length; i++) {
-			EyePhotoPairNode eyePhotoPairNode = new EyePhotoPairNode(eyePhotos[i], this);
-			valuesPhotos.add(eyePhotoPairNode);
-
-			// Workaround to ensure that the scrollbar is correctly resized after the images are loaded.
-			eyePhotoPairNode.getImagesLoadedProperty().addListener(new ChangeListener<Boolean>() {
-				@Override
-				public void changed(final ObservableValue<? extends Boolean> observable,
-						final Boolean oldValue,
-						final Boolean newValue) {
-					Platform.runLater(new Runnable() {
-						@Override
-						public void run() {
-							GridPane dummy = new GridPane();
-							valuesPhotos.add(dummy);
-							mListPhotos.layout();
-							valuesPhotos.remove(dummy);
-						}
-					});
-				}
-			});
-		}
+		mListPhotos.setItems(FXCollections.observableArrayList(createEyePhotoList(nameFolder)));
+		mListPhotos.scrollTo(0);
 
 		mPreviousName = name;
-
-		Platform.runLater(new Runnable() {
-			@Override
-			public void run() {
-				mListPhotos.setItems(valuesPhotos);
-				dialog.close();
-			}
-		});
+		addRecentName(name);
 	}
 
 	/**
-	 * Remove the item for one date from the list.
+	 * Store a name as most recently opened name.
 	 *
-	 * @param node The row to be removed.
+	 * @param name The name.
 	 */
-	public void removeItem(final EyePhotoPairNode node) {
-		mListPhotos.getItems().remove(node);
+	private static void addRecentName(final String name) {
+		List<String> recentNames = getRecentNames();
+		recentNames.remove(name);
+		recentNames.add(0, name);
+		while (recentNames.size() > RECENT_NAMES_COUNT) {
+			recentNames.remove(recentNames.size() - 1);
+		}
+		PreferenceUtil.setPreference(KEY_RECENT_NAMES, String.join("\n", recentNames));
 	}
 
-	// METHODS CLONED FROM ANDROID
-
 	/**
-	 * Get the list of subfolders, using getFileNameForSorting() for ordering.
+	 * Get the recently opened names, the most recent first.
 	 *
-	 * @param parentFolder
-	 *            The parent folder.
-	 * @param searchString
-	 *            A search String for the name.
-	 * @return The list of subfolders.
+	 * @return The recently opened names.
 	 */
-	public static final List<String> getFolderNames(final File parentFolder, final String searchString) {
-		File[] folders = parentFolder.listFiles(new FileFilter() {
-			@Override
-			public boolean accept(final File pathname) {
-				return pathname.isDirectory() && nameStartsWith(pathname.getName(), searchString);
+	private static List<String> getRecentNames() {
+		List<String> recentNames = new ArrayList<>();
+		for (String name : PreferenceUtil.getPreferenceString(KEY_RECENT_NAMES).split("\n")) {
+			if (name.length() > 0) {
+				recentNames.add(name);
 			}
-		});
-
-		List<String> folderNames = new ArrayList<>();
-		if (folders == null) {
-			return folderNames;
-		}
-
-		Collator collator = Collator.getInstance();
-		final Map<File, CollationKey> collationMap = new HashMap<>();
-		for (File folder : folders) {
-			collationMap.put(folder, collator.getCollationKey(getFilenameForSorting(folder)));
 		}
+		return recentNames;
+	}
 
-		Arrays.sort(folders, new Comparator<File>() {
-			@Override
-			public int compare(final File f1, final File f2) {
-				return collationMap.get(f1).compareTo(collationMap.get(f2));
+	/**
+	 * Create the thumbnails of the recently opened names in the background, so that these names open fast. Also the photo
+	 * files are listed in the background.
+	 */
+	private void prepopulateThumbnails() {
+		List<String> names = getRecentNames();
+		names.remove(mPreviousName);
+		File parentFolder = new File(PreferenceUtil.getPreferenceString(KEY_FOLDER_PHOTOS));
+		ThumbnailCache.prepopulate(() -> {
+			List<File> files = new ArrayList<>();
+			for (String name : names) {
+				files.addAll(PhotoCatalogue.getInstance().getPhotoFiles(parentFolder, name));
 			}
-		});
-		for (File f : folders) {
-			folderNames.add(f.getName());
-		}
-		return folderNames;
+			return files;
+		}, PreferenceUtil.getPreferenceInt(KEY_THUMBNAIL_SIZE));
 	}
 
 	/**
-	 * Check if a name part starts with the given String (case insensitive).
+	 * Remove the item for one date from the list.
 	 *
-	 * @param name
-	 *            The name.
-	 * @param searchString
-	 *            The search string.
-	 * @return True if a name part starts with the given String.
+	 * @param pair The eye photo pair to be removed.
 	 */
-	private static boolean nameStartsWith(final String name, final String searchString) {
-		String[] nameParts = name.toLowerCase().split(" ");
-		String searchStringCaseIndependent = searchString.toLowerCase();
-		for (int i = 0; i < nameParts.length; i++) {
-			if (nameParts[i].startsWith(searchStringCaseIndependent)) {
-				return true;
-			}
-		}
-		return false;
+	public void removeItem(final EyePhotoPair pair) {
+		mListPhotos.getItems().remove(pair);
 	}
 
+	// METHODS CLONED FROM ANDROID
+
 	/**
-	 * Helper method to return the name of the file for sorting.
+	 * Get the list of subfolders, sorted by name or last name. The names are served from the photo catalogue.
 	 *
-	 * @param f
-	 *            The file
-	 * @return The name for Sorting
+	 * @param parentFolder
+	 *            The parent folder.
+	 * @param searchString
+	 *            A search String for the name.
+	 * @return The list of subfolders.
 	 */
-	private static String getFilenameForSorting(final File f) {
-		String name = f.getName();
-
-		boolean sortByLastName = PreferenceUtil.getPreferenceBoolean(PreferenceUtil.KEY_SORT_BY_LAST_NAME);
-		if (sortByLastName) {
-			int index = name.lastIndexOf(' ');
-			if (index >= 0) {
-				String firstName = name.substring(0, index);
-				String lastName = name.substring(index + 1);
-				name = lastName + " " + firstName;
-			}
-		}
-
-		return name;
+	public static final List<String> getFolderNames(final File parentFolder, final String searchString) {
+		return PhotoCatalogue.getInstance().getNames(parentFolder, searchString);
 	}
 
 	/**
@@ -363,16 +306,7 @@ public class DisplayPhotosController extends BaseController implements Initializ
 			}
 		});
 
-		File[] files = folder.listFiles(new FilenameFilter() {
-			@Override
-			public boolean accept(final File dir, final String name) {
-				return name.toUpperCase().endsWith(".JPG");
-			}
-		});
-
-		if (files == null) {
-			return new EyePhotoPair[0];
-		}
+		List<File> files = PhotoCatalogue.getInstance().getPhotoFiles(folder.getParentFile(), folder.getName());
 
 		for (File f : files) {
 			EyePhoto eyePhoto = EyePhoto.fromFile(f);
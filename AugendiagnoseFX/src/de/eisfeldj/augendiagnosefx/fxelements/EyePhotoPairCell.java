@@ -0,0 +1,100 @@
+package de.eisfeldj.augendiagnosefx.fxelements;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import de.eisfeldj.augendiagnosefx.controller.DisplayPhotosController;
+import de.eisfeldj.augendiagnosefx.util.imagefile.EyePhoto;
+import de.eisfeldj.augendiagnosefx.util.imagefile.EyePhotoPair;
+
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+
+/**
+ * List cell displaying a pair of eye photos. The list creates cells only for the visible rows and reuses them while
+ * scrolling, so that only visible thumbnails are loaded. The thumbnails of the neighbouring rows are prefetched, so that
+ * they are available when they are scrolled into view.
+ */
+public class EyePhotoPairCell extends ListCell<EyePhotoPair> {
+	/**
+	 * The number of rows before and after the cell whose thumbnails are prefetched.
+	 */
+	private static final int PREFETCH_ROWS = 2;
+
+	/**
+	 * The node displaying the pair.
+	 */
+	private final EyePhotoPairNode mNode;
+
+	/**
+	 * The pending prefetches of the neighbouring rows.
+	 */
+	private final List<Future<?>> mPrefetches = new ArrayList<>();
+
+	/**
+	 * Create a cell.
+	 *
+	 * @param parentController
+	 *            The parent controller.
+	 */
+	public EyePhotoPairCell(final DisplayPhotosController parentController) {
+		mNode = new EyePhotoPairNode(parentController);
+	}
+
+	@Override
+	protected final void updateItem(final EyePhotoPair item, final boolean empty) {
+		super.updateItem(item, empty);
+		if (empty || item == null) {
+			mNode.setPair(null);
+			setGraphic(null);
+		}
+		else {
+			mNode.setPair(item);
+			setGraphic(mNode);
+		}
+		prefetchNeighbours(empty || item == null);
+	}
+
+	/**
+	 * Prefetch the thumbnails of the rows before and after this cell. Pending prefetches for the previous position of the
+	 * cell are cancelled.
+	 *
+	 * @param empty
+	 *            Flag indicating if the cell is empty, so that nothing is prefetched.
+	 */
+	private void prefetchNeighbours(final boolean empty) {
+		for (Future<?> prefetch : mPrefetches) {
+			ThumbnailLoader.cancel(prefetch);
+		}
+		mPrefetches.clear();
+
+		ListView<EyePhotoPair> listView = getListView();
+		if (empty || listView == null) {
+			return;
+		}
+		List<EyePhotoPair> items = listView.getItems();
+		int index = getIndex();
+		for (int i = Math.max(0, index - PREFETCH_ROWS); i <= Math.min(items.size() - 1, index + PREFETCH_ROWS); i++) {
+			if (i != index) {
+				prefetch(items.get(i).getRightEye());
+				prefetch(items.get(i).getLeftEye());
+			}
+		}
+	}
+
+	/**
+	 * Prefetch the thumbnail of an eye photo.
+	 *
+	 * @param eyePhoto
+	 *            The eye photo.
+	 */
+	private void prefetch(final EyePhoto eyePhoto) {
+		if (eyePhoto != null) {
+			Future<?> prefetch = ThumbnailLoader.prefetchThumbnail(eyePhoto.getFile());
+			if (prefetch != null) {
+				mPrefetches.add(prefetch);
+			}
+		}
+	}
+}
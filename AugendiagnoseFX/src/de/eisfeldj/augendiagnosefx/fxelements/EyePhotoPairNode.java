@@ -1,5 +1,7 @@
 package de.eisfeldj.augendiagnosefx.fxelements;
 
+import java.util.concurrent.Future;
+
 import de.eisfeldj.augendiagnosefx.controller.Controller;
 import de.eisfeldj.augendiagnosefx.controller.DisplayImageHolderController;
 import de.eisfeldj.augendiagnosefx.controller.DisplayImagePairController;
@@ -13,12 +15,9 @@ import de.eisfeldj.augendiagnosefx.util.PreferenceUtil;
 import de.eisfeldj.augendiagnosefx.util.ResourceConstants;
 import de.eisfeldj.augendiagnosefx.util.ResourceUtil;
 import de.eisfeldj.augendiagnosefx.util.imagefile.EyePhoto;
+import de.eisfeldj.augendiagnosefx.util.imagefile.EyePhoto.RightLeft;
 import de.eisfeldj.augendiagnosefx.util.imagefile.EyePhotoPair;
-import de.eisfeldj.augendiagnosefx.util.imagefile.ImageUtil.Resolution;
 
-import javafx.application.Platform;
-import javafx.beans.property.BooleanProperty;
-import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
 import javafx.event.ActionEvent;
@@ -28,7 +27,6 @@ import javafx.scene.Parent;
 import javafx.scene.control.ContextMenu;
 import javafx.scene.control.Label;
 import javafx.scene.control.MenuItem;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.input.MouseButton;
 import javafx.scene.input.MouseEvent;
@@ -81,41 +79,24 @@ public class EyePhotoPairNode extends GridPane implements Controller {
 	}
 
 	/**
-	 * A boolean property indicating if images are loaded.
+	 * The pending thumbnail loads of the displayed pair.
 	 */
-	private BooleanProperty mImagesLoadedProperty = new SimpleBooleanProperty(false);
+	private Future<?>[] mThumbnailLoads = new Future<?>[2];
 
 	/**
-	 * Get the property if images are loaded.
+	 * Constructor of an empty node. The displayed pair is set by {@link #setPair(EyePhotoPair)}, so that the node can be
+	 * reused for different rows of the list.
 	 *
-	 * @return The property if images are loaded.
-	 */
-	public final BooleanProperty getImagesLoadedProperty() {
-		return mImagesLoadedProperty;
-	}
-
-	/**
-	 * Constructor given a pair of eye photos.
-	 *
-	 * @param pair
-	 *            The eye photo pair.
 	 * @param initialParentController
 	 *            The parent controller.
 	 */
-	public EyePhotoPairNode(final EyePhotoPair pair, final DisplayPhotosController initialParentController) {
+	public EyePhotoPairNode(final DisplayPhotosController initialParentController) {
 		mParentController = initialParentController;
-		mPair = pair;
 
 		FxmlUtil.loadFromFxml(this, FxmlConstants.FXML_EYE_PHOTO_PAIR_NODE);
 
-		mLabelDate.setText(pair.getDateDisplayString());
-
-		if (pair.getRightEye() != null) {
-			mImageViewRight.setImageView(getImageView(pair.getRightEye()));
-		}
-		if (pair.getLeftEye() != null) {
-			mImageViewLeft.setImageView(getImageView(pair.getLeftEye()));
-		}
+		mImageViewRight.setImageView(createImageView(RightLeft.RIGHT));
+		mImageViewLeft.setImageView(createImageView(RightLeft.LEFT));
 
 		mLabelDate.setOnMouseClicked(new EventHandler<MouseEvent>() {
 			@Override
@@ -127,10 +108,10 @@ public class EyePhotoPairNode extends GridPane implements Controller {
 					return;
 				}
 
-				if (pair.isComplete()) {
+				if (mPair != null && mPair.isComplete()) {
 					DisplayImagePairController controller =
 							(DisplayImagePairController) FxmlUtil.displaySubpage(FxmlConstants.FXML_DISPLAY_IMAGE_PAIR, -1, true);
-					controller.setEyePhotos(pair);
+					controller.setEyePhotos(mPair);
 				}
 			}
 		});
@@ -138,6 +119,58 @@ public class EyePhotoPairNode extends GridPane implements Controller {
 		mLabelDate.setContextMenu(createDateContextMenu());
 	}
 
+	/**
+	 * Display a pair of eye photos. Pending thumbnail loads of the previous pair are cancelled.
+	 *
+	 * @param pair
+	 *            The eye photo pair, or null to clear the node.
+	 */
+	public final void setPair(final EyePhotoPair pair) {
+		if (pair == mPair) {
+			return;
+		}
+		for (int i = 0; i < mThumbnailLoads.length; i++) {
+			ThumbnailLoader.cancel(mThumbnailLoads[i]);
+			mThumbnailLoads[i] = null;
+		}
+		mPair = pair;
+		mHeightRight = 0;
+		mHeightLeft = 0;
+		mImageViewRight.getImageView().setImage(null);
+		mImageViewLeft.getImageView().setImage(null);
+
+		if (pair == null) {
+			mLabelDate.setText(null);
+			return;
+		}
+		mLabelDate.setText(pair.getDateDisplayString());
+		mThumbnailLoads[0] = loadThumbnail(pair, pair.getRightEye(), mImageViewRight.getImageView());
+		mThumbnailLoads[1] = loadThumbnail(pair, pair.getLeftEye(), mImageViewLeft.getImageView());
+	}
+
+	/**
+	 * Load the thumbnail of an eye photo into an image view.
+	 *
+	 * @param pair
+	 *            The eye photo pair being displayed.
+	 * @param eyePhoto
+	 *            The eye photo.
+	 * @param imageView
+	 *            The image view.
+	 * @return The future of the load.
+	 */
+	private Future<?> loadThumbnail(final EyePhotoPair pair, final EyePhoto eyePhoto, final ImageView imageView) {
+		if (eyePhoto == null) {
+			return null;
+		}
+		return ThumbnailLoader.loadThumbnail(eyePhoto.getFile(), image -> {
+			// The node may meanwhile display a different pair.
+			if (mPair == pair) {
+				imageView.setImage(image);
+			}
+		});
+	}
+
 	/**
 	 * Create the context menu for the date.
 	 *
@@ -156,8 +189,9 @@ public class EyePhotoPairNode extends GridPane implements Controller {
 
 					@Override
 					public void onDialogPositiveClick() {
-						mParentController.removeItem(EyePhotoPairNode.this);
-						mPair.delete();
+						EyePhotoPair pair = mPair;
+						mParentController.removeItem(pair);
+						pair.delete();
 					}
 
 					@Override
@@ -174,29 +208,25 @@ public class EyePhotoPairNode extends GridPane implements Controller {
 	}
 
 	/**
-	 * Get the image view for a thumbnail.
+	 * Create the image view for a thumbnail.
 	 *
-	 * @param eyePhoto
-	 *            The eye photo to be displayed.
+	 * @param rightLeft
+	 *            The side of the eye photos displayed in the view.
 	 * @return The image view.
 	 */
-	private ImageView getImageView(final EyePhoto eyePhoto) {
-		Image image = eyePhoto.getImage(Resolution.THUMB);
-		image.progressProperty().addListener(new ChangeListener<Number>() {
-			@Override
-			public void changed(final ObservableValue<? extends Number> observable, final Number oldValue,
-					final Number newValue) {
-				if (newValue.doubleValue() == 1) {
-					checkIfImagesLoaded();
-				}
-			}
-		});
-
-		ImageView imageView = new ImageView(image);
+	private ImageView createImageView(final RightLeft rightLeft) {
+		ImageView imageView = new ImageView();
 		imageView.setPreserveRatio(true);
 		imageView.setOnMouseClicked(new EventHandler<MouseEvent>() {
 			@Override
 			public void handle(final MouseEvent event) {
+				if (mPair == null) {
+					return;
+				}
+				EyePhoto eyePhoto = rightLeft == RightLeft.RIGHT ? mPair.getRightEye() : mPair.getLeftEye();
+				if (eyePhoto == null) {
+					return;
+				}
 				if (PreferenceUtil.getPreferenceBoolean(PreferenceUtil.KEY_SHOW_SPLIT_WINDOW)
 						&& !MainController.getInstance().isSplitPane()) {
 					MainController.getInstance().setSplitPane(FxmlConstants.FXML_DISPLAY_PHOTOS);
@@ -213,45 +243,29 @@ public class EyePhotoPairNode extends GridPane implements Controller {
 			@Override
 			public void changed(final ObservableValue<? extends Number> observable, final Number oldValue,
 					final Number newValue) {
-				switch (eyePhoto.getRightLeft()) {
-				case RIGHT:
+				if (rightLeft == RightLeft.RIGHT) {
 					mHeightRight = newValue.doubleValue();
-					break;
-				case LEFT:
+				}
+				else {
 					mHeightLeft = newValue.doubleValue();
-					break;
-				default:
 				}
-				setPrefHeight(Math.max(mHeightLeft, mHeightRight));
-				Platform.runLater(new Runnable() {
-					@Override
-					public void run() {
-						requestParentLayout();
-					}
-				});
+				requestLayout();
 			}
 		});
 		return imageView;
 	}
 
-	/**
-	 * Check if the images are loaded.
-	 *
-	 * @return true if the images are loaded.
-	 */
-	private boolean checkIfImagesLoaded() {
-		if (mImagesLoadedProperty.get()) {
-			return true;
-		}
-
-		Image imageRight = mImageViewRight.getImageView().getImage();
-		Image imageLeft = mImageViewRight.getImageView().getImage();
-
-		boolean loaded = imageRight.getProgress() == 1 && imageLeft.getProgress() == 1;
-		if (loaded) {
-			mImagesLoadedProperty.set(true);
+	@Override
+	protected final double computePrefHeight(final double width) {
+		double imageHeight = Math.max(mHeightLeft, mHeightRight);
+		if (imageHeight > 0) {
+			return imageHeight;
 		}
-		return loaded;
+		// Estimate the height from the layout in EyePhotoPairNode.fxml, so that the list can be sized before layout.
+		double dateColumnWidth = getColumnConstraints().get(0).getPrefWidth();
+		double imageGap = ((GridPane) mImageViewRight.getParent()).getHgap();
+		double imageWidth = (width - dateColumnWidth - getHgap() - imageGap) / 2;
+		return imageWidth > 0 ? imageWidth * ImageViewPane.DEFAULT_ASPECT_RATIO : super.computePrefHeight(width);
 	}
 
 }
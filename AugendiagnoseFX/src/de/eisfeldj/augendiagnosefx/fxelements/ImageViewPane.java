@@ -6,6 +6,7 @@ import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
 import javafx.geometry.HPos;
 import javafx.geometry.VPos;
+import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.Region;
 
@@ -13,6 +14,11 @@ import javafx.scene.layout.Region;
  * A custom pane holding an image view, so that the image size adapts to the pane size.
  */
 public class ImageViewPane extends Region {
+	/**
+	 * The aspect ratio (height by width) assumed as long as no image is displayed.
+	 */
+	public static final double DEFAULT_ASPECT_RATIO = 0.75;
+
 	/**
 	 * The contained ImageView, stored in a property.
 	 */
@@ -70,7 +76,9 @@ public class ImageViewPane extends Region {
 		ImageView imageView = mImageViewProperty.get();
 		if (imageView != null) {
 			imageView.setFitWidth(getWidth());
-			double newHeight = getWidth() * imageView.getImage().getHeight() / imageView.getImage().getWidth();
+			Image image = imageView.getImage();
+			double aspectRatio = image == null || image.getWidth() == 0 ? DEFAULT_ASPECT_RATIO : image.getHeight() / image.getWidth();
+			double newHeight = getWidth() * aspectRatio;
 			imageView.setFitHeight(newHeight);
 			layoutInArea(imageView, 0, 0, getWidth(), newHeight, 0, HPos.CENTER, VPos.CENTER);
 		}
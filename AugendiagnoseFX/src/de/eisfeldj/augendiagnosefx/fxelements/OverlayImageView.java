@@ -1,5 +1,7 @@
 package de.eisfeldj.augendiagnosefx.fxelements;
 
+import de.eisfeldj.augendiagnosefx.util.imagefile.ColorTransformer;
+import de.eisfeldj.augendiagnosefx.util.imagefile.EyePhoto;
 import de.eisfeldj.augendiagnosefx.util.imagefile.ImageUtil;
 import de.eisfeldj.augendiagnosefx.util.imagefile.ImageUtil.Resolution;
 import de.eisfeldj.augendiagnosefx.util.imagefile.JpegMetadata;
@@ -56,6 +58,11 @@ public class OverlayImageView extends SizableImageView {
 	 */
 	private double mCurrentImageWidth;
 
+	/**
+	 * The color transformer, reusing buffers and images between color changes.
+	 */
+	private final ColorTransformer mColorTransformer = new ColorTransformer();
+
 	/**
 	 * Display the overlay.
 	 *
@@ -126,21 +133,36 @@ public class OverlayImageView extends SizableImageView {
 	}
 
 	/**
-	 * Redisplay. (Can be used to switch between non-thumbnail and thumbnail view.
+	 * Redisplay. (Can be used to switch between non-thumbnail and thumbnail view.) The image is rendered asynchronously,
+	 * so that fast consecutive changes are coalesced and only the latest one is displayed.
 	 *
 	 * @param resolution
 	 *            Indicator of the resolution of the image.
 	 */
 	public final void redisplay(final Resolution resolution) {
-		Image newImage = ImageUtil.getImageForDisplay(getEyePhoto(), mOverlayType, mOverlayColor,
-				mBrightness, mContrast, mSaturation, mColorTemperature, resolution);
-		if (resolution != mCurrentResolution) {
-			multiplyZoomProperty(mCurrentImageWidth / newImage.getWidth());
-			mCurrentImageWidth = newImage.getWidth();
-			mCurrentResolution = resolution;
-		}
+		EyePhoto eyePhoto = getEyePhoto();
+		Integer overlayType = mOverlayType;
+		Color overlayColor = mOverlayColor;
+		float brightness = mBrightness;
+		float contrast = mContrast;
+		float saturation = mSaturation;
+		float colorTemperature = mColorTemperature;
+
+		getRenderScheduler().schedule(() -> {
+			Image image = ImageUtil.prepareImageForDisplay(eyePhoto, brightness, contrast, saturation, colorTemperature,
+					resolution, mColorTransformer);
+			return () -> {
+				Image newImage = ImageUtil.getImageForDisplay(image, eyePhoto, overlayType, overlayColor,
+						brightness, contrast, saturation, colorTemperature, resolution, mColorTransformer);
+				if (resolution != mCurrentResolution) {
+					multiplyZoomProperty(mCurrentImageWidth / newImage.getWidth());
+					mCurrentImageWidth = newImage.getWidth();
+					mCurrentResolution = resolution;
+				}
 
-		getImageView().setImage(newImage);
+				getImageView().setImage(newImage);
+			};
+		});
 	}
 
 	/*
@@ -153,8 +175,9 @@ public class OverlayImageView extends SizableImageView {
 	 */
 	@Override
 	protected final void displayImage(final Image image) {
+		getRenderScheduler().cancel();
 		Image enhancedImage = ImageUtil.getImageForDisplay(getEyePhoto(), mOverlayType, mOverlayColor,
-				mBrightness, mContrast, mSaturation, mColorTemperature, Resolution.NORMAL);
+				mBrightness, mContrast, mSaturation, mColorTemperature, Resolution.NORMAL, mColorTransformer);
 		mCurrentResolution = Resolution.NORMAL;
 		mCurrentImageWidth = enhancedImage.getWidth();
 
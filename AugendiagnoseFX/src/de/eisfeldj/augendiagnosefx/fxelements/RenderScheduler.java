@@ -0,0 +1,314 @@
+package de.eisfeldj.augendiagnosefx.fxelements;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import de.eisfeldj.augendiagnosefx.util.Logger;
+
+import javafx.application.Platform;
+
+/**
+ * Scheduler for rendering the image of a view outside the FX application thread. Requests arriving within a short delay
+ * are coalesced, so that only the latest one is rendered. At most one render per view is in progress, and a rendered frame
+ * which is already superseded by a newer request is dropped instead of being displayed. The result is published on the FX
+ * application thread.
+ */
+public final class RenderScheduler {
+	/**
+	 * The delay in milliseconds by which requests are coalesced.
+	 */
+	private static final long DEBOUNCE_DELAY = 15;
+	/**
+	 * The maximum time in milliseconds without publishing a frame. Superseded frames are still published after this time,
+	 * so that the view follows continuous changes.
+	 */
+	private static final long MAX_FRAME_INTERVAL = 100;
+	/**
+	 * The number of renders after which the statistics are logged.
+	 */
+	private static final int STATISTICS_INTERVAL = 100;
+	/**
+	 * Factor for converting nanoseconds into milliseconds.
+	 */
+	private static final double NANOS_PER_MILLI = 1000000.0;
+
+	/**
+	 * The executor shared by all views.
+	 */
+	private static final ScheduledExecutorService EXECUTOR;
+
+	static {
+		ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(2, runnable -> {
+			Thread thread = new Thread(runnable, "RenderScheduler");
+			thread.setDaemon(true);
+			return thread;
+		});
+		executor.setRemoveOnCancelPolicy(true);
+		EXECUTOR = executor;
+	}
+
+	/**
+	 * The request waiting to be rendered.
+	 */
+	private final AtomicReference<Request> mPendingRequest = new AtomicReference<>();
+
+	/**
+	 * Flag indicating if the processing of requests is scheduled or running.
+	 */
+	private final AtomicBoolean mIsProcessing = new AtomicBoolean(false);
+
+	/**
+	 * The generation of requests. Increased on cancellation, so that renders of older generations are not published.
+	 */
+	private volatile int mGeneration = 0;
+
+	/**
+	 * The time when the last frame was published.
+	 */
+	private long mLastPublishTime = 0;
+
+	/**
+	 * The number of published frames.
+	 */
+	private int mRenderCount = 0;
+
+	/**
+	 * The number of dropped frames.
+	 */
+	private int mDroppedCount = 0;
+
+	/**
+	 * The latency of the last published frame in nanoseconds.
+	 */
+	private long mLastLatency = 0;
+
+	/**
+	 * The maximum latency of a published frame in nanoseconds.
+	 */
+	private long mMaxLatency = 0;
+
+	/**
+	 * The total latency of all published frames in nanoseconds.
+	 */
+	private long mTotalLatency = 0;
+
+	/**
+	 * Request rendering. If a previous request has not yet been started, it is replaced.
+	 *
+	 * @param task The render task.
+	 */
+	public void schedule(final RenderTask task) {
+		long requestTime = System.nanoTime();
+		int generation = mGeneration;
+		// Keep the time of the first coalesced request, as this is the time the user waits.
+		mPendingRequest.updateAndGet(previous -> new Request(task,
+				previous != null && previous.mGeneration == generation ? previous.mRequestTime : requestTime, generation));
+		if (mIsProcessing.compareAndSet(false, true)) {
+			EXECUTOR.schedule(this::processRequests, DEBOUNCE_DELAY, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Cancel all requests which are not yet published.
+	 */
+	public void cancel() {
+		mGeneration++;
+		mPendingRequest.set(null);
+	}
+
+	/**
+	 * Render pending requests until there is no more request.
+	 */
+	private void processRequests() {
+		while (true) {
+			Request request = mPendingRequest.getAndSet(null);
+			if (request == null) {
+				mIsProcessing.set(false);
+				// A request may have come in before resetting the flag.
+				if (mPendingRequest.get() == null || !mIsProcessing.compareAndSet(false, true)) {
+					return;
+				}
+				continue;
+			}
+			if (request.mGeneration != mGeneration) {
+				continue;
+			}
+
+			Runnable publisher;
+			try {
+				publisher = request.mTask.render();
+			}
+			catch (RuntimeException e) {
+				Logger.error("Failed to render image", e);
+				continue;
+			}
+
+			if (isSuperseded()) {
+				synchronized (this) {
+					mDroppedCount++;
+				}
+				continue;
+			}
+			publish(request, publisher);
+		}
+	}
+
+	/**
+	 * Check if the frame being rendered is superseded by a newer request and may be dropped.
+	 *
+	 * @return true if the frame may be dropped.
+	 */
+	private boolean isSuperseded() {
+		return mPendingRequest.get() != null
+				&& System.nanoTime() - mLastPublishTime < MAX_FRAME_INTERVAL * NANOS_PER_MILLI;
+	}
+
+	/**
+	 * Publish a rendered frame on the FX application thread and wait until it is displayed.
+	 *
+	 * @param request The request.
+	 * @param publisher The publisher of the rendered frame.
+	 */
+	private void publish(final Request request, final Runnable publisher) {
+		if (publisher == null) {
+			return;
+		}
+		CountDownLatch latch = new CountDownLatch(1);
+		Platform.runLater(() -> {
+			try {
+				if (request.mGeneration == mGeneration) {
+					publisher.run();
+				}
+			}
+			catch (RuntimeException e) {
+				Logger.error("Failed to display image", e);
+			}
+			finally {
+				latch.countDown();
+			}
+		});
+		try {
+			latch.await();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		}
+
+		mLastPublishTime = System.nanoTime();
+		long latency = mLastPublishTime - request.mRequestTime;
+		int renderCount;
+		synchronized (this) {
+			renderCount = ++mRenderCount;
+			mLastLatency = latency;
+			mMaxLatency = Math.max(mMaxLatency, latency);
+			mTotalLatency += latency;
+		}
+		if (renderCount % STATISTICS_INTERVAL == 0) {
+			Logger.info(getStatistics());
+		}
+	}
+
+	/**
+	 * Get the render statistics as text.
+	 *
+	 * @return The statistics.
+	 */
+	public synchronized String getStatistics() {
+		return String.format("Rendered %d frames, dropped %d. Latency last %.1f ms, average %.1f ms, max %.1f ms", mRenderCount,
+				mDroppedCount, mLastLatency / NANOS_PER_MILLI, mTotalLatency / NANOS_PER_MILLI / Math.max(1, mRenderCount),
+				mMaxLatency / NANOS_PER_MILLI);
+	}
+
+	/**
+	 * Get the number of published frames.
+	 *
+	 * @return The number of published frames.
+	 */
+	public synchronized int getRenderCount() {
+		return mRenderCount;
+	}
+
+	/**
+	 * Get the number of dropped frames.
+	 *
+	 * @return The number of dropped frames.
+	 */
+	public synchronized int getDroppedCount() {
+		return mDroppedCount;
+	}
+
+	/**
+	 * Get the latency of the last published frame, from the first coalesced request until display.
+	 *
+	 * @return The latency in milliseconds.
+	 */
+	public synchronized double getLastLatency() {
+		return mLastLatency / NANOS_PER_MILLI;
+	}
+
+	/**
+	 * Get the average latency of the published frames.
+	 *
+	 * @return The average latency in milliseconds.
+	 */
+	public synchronized double getAverageLatency() {
+		return mTotalLatency / NANOS_PER_MILLI / Math.max(1, mRenderCount);
+	}
+
+	/**
+	 * Get the maximum latency of the published frames.
+	 *
+	 * @return The maximum latency in milliseconds.
+	 */
+	public synchronized double getMaxLatency() {
+		return mMaxLatency / NANOS_PER_MILLI;
+	}
+
+	/**
+	 * A task rendering the image of a view.
+	 */
+	public interface RenderTask {
+		/**
+		 * Do the rendering work which is possible outside the FX application thread.
+		 *
+		 * @return The runnable displaying the result, to be run on the FX application thread.
+		 */
+		Runnable render();
+	}
+
+	/**
+	 * A request for rendering.
+	 */
+	private static final class Request {
+		/**
+		 * The render task.
+		 */
+		private final RenderTask mTask;
+		/**
+		 * The time of the request.
+		 */
+		private final long mRequestTime;
+		/**
+		 * The generation of the request.
+		 */
+		private final int mGeneration;
+
+		/**
+		 * Create a request.
+		 *
+		 * @param task The render task.
+		 * @param requestTime The time of the request.
+		 * @param generation The generation of the request.
+		 */
+		private Request(final RenderTask task, final long requestTime, final int generation) {
+			mTask = task;
+			mRequestTime = requestTime;
+			mGeneration = generation;
+		}
+	}
+}
@@ -8,6 +8,7 @@ import de.eisfeldj.augendiagnosefx.util.DialogUtil;
 import de.eisfeldj.augendiagnosefx.util.DialogUtil.ProgressDialog;
 import de.eisfeldj.augendiagnosefx.util.ResourceConstants;
 import de.eisfeldj.augendiagnosefx.util.imagefile.EyePhoto;
+import de.eisfeldj.augendiagnosefx.util.imagefile.ImageUtil;
 import de.eisfeldj.augendiagnosefx.util.imagefile.ImageUtil.Resolution;
 import de.eisfeldj.augendiagnosefx.util.imagefile.JpegMetadata;
 
@@ -76,6 +77,11 @@ public class SizableImageView extends ScrollPane {
 	 */
 	private boolean mIsInitialized = false;
 
+	/**
+	 * Flag indicating if a preview is displayed while the image is loaded.
+	 */
+	private boolean mIsShowingPreview = false;
+
 	/**
 	 * The number of touch points on touch screen.
 	 */
@@ -123,6 +129,20 @@ public class SizableImageView extends ScrollPane {
 	 */
 	private double mCenterY;
 
+	/**
+	 * The scheduler for rendering the image outside the FX application thread.
+	 */
+	private final RenderScheduler mRenderScheduler = new RenderScheduler();
+
+	/**
+	 * Get the render scheduler.
+	 *
+	 * @return The render scheduler.
+	 */
+	protected final RenderScheduler getRenderScheduler() {
+		return mRenderScheduler;
+	}
+
 	/**
 	 * Constructor without initialization of image.
 	 */
@@ -288,6 +308,7 @@ public class SizableImageView extends ScrollPane {
 	 */
 	public final void setEyePhoto(final EyePhoto eyePhoto) {
 		mIsInitialized = false;
+		mRenderScheduler.cancel();
 		this.mEyePhoto = eyePhoto;
 
 		Image image = eyePhoto.getImage(Resolution.NORMAL);
@@ -306,6 +327,12 @@ public class SizableImageView extends ScrollPane {
 					.displayProgressDialog(ResourceConstants.MESSAGE_PROGRESS_LOADING_PHOTO,
 							eyePhoto.getFilename());
 
+			ImageUtil.loadPreviewImage(eyePhoto.getFile(), preview -> {
+				if (image.getProgress() < 1 && eyePhoto == mEyePhoto) {
+					displayPreviewImage(preview);
+				}
+			});
+
 			image.progressProperty().addListener(new ChangeListener<Number>() {
 				@Override
 				public void changed(final ObservableValue<? extends Number> observable, final Number oldValue,
@@ -332,7 +359,7 @@ public class SizableImageView extends ScrollPane {
 					final Number newValue) {
 				synchronized (mImageView) {
 					// Initialization after window is sized and image is loaded.
-					if (mImageView.getImage() != null && !mIsInitialized) {
+					if (mImageView.getImage() != null && !mIsInitialized && !mIsShowingPreview) {
 						doInitialScaling(eyePhoto.getImageMetadata());
 					}
 				}
@@ -349,6 +376,7 @@ public class SizableImageView extends ScrollPane {
 	 */
 	// OVERRIDABLE
 	protected void displayImage(final Image image) {
+		mIsShowingPreview = false;
 		mImageView.setImage(image);
 		synchronized (mImageView) {
 			// Initialization after window is sized and image is loaded.
@@ -358,6 +386,23 @@ public class SizableImageView extends ScrollPane {
 		}
 	}
 
+	/**
+	 * Display a preview while the image is loaded, fitting it into the view.
+	 *
+	 * @param preview
+	 *            The preview image.
+	 */
+	private void displayPreviewImage(final Image preview) {
+		if (getWidth() == 0 || getHeight() == 0 || mIsInitialized) {
+			return;
+		}
+		mIsShowingPreview = true;
+		mImageView.setImage(preview);
+		double scaleFactor = Math.min(getWidth() / preview.getWidth(), getHeight() / preview.getHeight());
+		mImageView.setFitWidth(scaleFactor * preview.getWidth());
+		mImageView.setFitHeight(scaleFactor * preview.getHeight());
+	}
+
 	/**
 	 * Display a pre-loaded image generated from an eye photo.
 	 *
@@ -368,6 +413,8 @@ public class SizableImageView extends ScrollPane {
 	 */
 	// OVERRIDABLE
 	public void setImage(final JpegMetadata metadata, final Image image) {
+		mRenderScheduler.cancel();
+		mIsShowingPreview = false;
 		mImageView.setImage(image);
 
 		synchronized (mImageView) {
@@ -0,0 +1,202 @@
+package de.eisfeldj.augendiagnosefx.fxelements;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import de.eisfeldj.augendiagnosefx.util.Logger;
+import de.eisfeldj.augendiagnosefx.util.PreferenceUtil;
+import de.eisfeldj.augendiagnosefx.util.imagefile.ImageCache;
+import de.eisfeldj.augendiagnosefx.util.imagefile.ImageUtil;
+import de.eisfeldj.augendiagnosefx.util.imagefile.ImageUtil.Resolution;
+import de.eisfeldj.augendiagnosefx.util.imagefile.ThumbnailCache;
+
+import javafx.application.Platform;
+import javafx.scene.image.Image;
+
+/**
+ * Loader of the thumbnails displayed in the photo list. Thumbnails are loaded by a bounded pool of threads, so that only
+ * the rows which are displayed load their images, and loads of rows which are scrolled out of view can be cancelled.
+ * Thumbnails of rows which are nearly displayed are prefetched by a separate thread with low priority. Each thumbnail is
+ * loaded only once at a time, so that a display load joins the running prefetch of the same file.
+ */
+public final class ThumbnailLoader {
+	/**
+	 * The number of loader threads.
+	 */
+	private static final int THREAD_COUNT = 3;
+
+	/**
+	 * The executor loading the thumbnails.
+	 */
+	private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(THREAD_COUNT, THREAD_COUNT, 0, TimeUnit.MILLISECONDS,
+			new LinkedBlockingQueue<>(), runnable -> {
+				Thread thread = new Thread(runnable, "ThumbnailLoader");
+				thread.setDaemon(true);
+				return thread;
+			});
+
+	/**
+	 * The executor prefetching thumbnails.
+	 */
+	private static final ThreadPoolExecutor PREFETCH_EXECUTOR = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+			new LinkedBlockingQueue<>(), runnable -> {
+				Thread thread = new Thread(runnable, "ThumbnailPrefetcher");
+				thread.setDaemon(true);
+				thread.setPriority(Thread.MIN_PRIORITY);
+				return thread;
+			});
+
+	/**
+	 * The running loads and prefetches, by the file whose thumbnail they load.
+	 */
+	private static final Map<File, Future<Image>> RUNNING_LOADS = new ConcurrentHashMap<>();
+
+	/**
+	 * Hide default constructor.
+	 */
+	private ThumbnailLoader() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Load the thumbnail of an image file. If the thumbnail is not yet cached, then the consumer first gets a preview image.
+	 * The consumer is called on the FX application thread.
+	 *
+	 * @param file The image file.
+	 * @param consumer The consumer of the loaded images.
+	 * @return The future of the load, which may be used for cancellation. null if the thumbnail was available immediately.
+	 */
+	public static Future<?> loadThumbnail(final File file, final Consumer<Image> consumer) {
+		Image cachedImage = ImageCache.getInstance().getCachedImage(file, Resolution.THUMB);
+		if (cachedImage != null) {
+			consumer.accept(cachedImage);
+			return null;
+		}
+
+		FutureTask<Image> task = new FutureTask<Image>(() -> null) {
+			@Override
+			public void run() {
+				if (isCancelled()) {
+					return;
+				}
+				Future<Image> runningLoad = RUNNING_LOADS.putIfAbsent(file, this);
+				try {
+					if (!ThumbnailCache.contains(file, PreferenceUtil.getPreferenceInt(PreferenceUtil.KEY_THUMBNAIL_SIZE))) {
+						// Display a preview while the thumbnail is created from the full image.
+						Image preview = ImageUtil.getPreviewImage(file);
+						if (preview != null && !isCancelled()) {
+							Platform.runLater(() -> consumer.accept(preview));
+						}
+					}
+					Image image = runningLoad == null ? null : awaitLoad(runningLoad);
+					if (image != null) {
+						set(image);
+					}
+					else if (!isCancelled()) {
+						set(ImageCache.getInstance().loadImage(file, Resolution.THUMB));
+					}
+				}
+				catch (RuntimeException e) {
+					setException(e);
+				}
+				finally {
+					RUNNING_LOADS.remove(file, this);
+				}
+			}
+
+			@Override
+			protected void done() {
+				if (isCancelled()) {
+					return;
+				}
+				try {
+					Image image = get();
+					Platform.runLater(() -> consumer.accept(image));
+				}
+				catch (InterruptedException | ExecutionException e) {
+					Logger.warning("Could not load thumbnail of " + file.getAbsolutePath() + ": " + e.getMessage());
+				}
+			}
+		};
+		EXECUTOR.execute(task);
+		return task;
+	}
+
+	/**
+	 * Prefetch the thumbnail of an image file into the image cache, so that it is available when it gets displayed.
+	 *
+	 * @param file The image file.
+	 * @return The future of the prefetch, which may be used for cancellation. null if the thumbnail is already cached.
+	 */
+	public static Future<?> prefetchThumbnail(final File file) {
+		if (ImageCache.getInstance().getCachedImage(file, Resolution.THUMB) != null) {
+			return null;
+		}
+
+		FutureTask<Image> task = new FutureTask<Image>(() -> null) {
+			@Override
+			public void run() {
+				if (isCancelled()) {
+					return;
+				}
+				// The thumbnail may meanwhile have been loaded by another prefetch, or it is being loaded for display.
+				Image cachedImage = ImageCache.getInstance().getCachedImage(file, Resolution.THUMB);
+				if (cachedImage != null || RUNNING_LOADS.putIfAbsent(file, this) != null) {
+					set(cachedImage);
+					return;
+				}
+				try {
+					set(ImageCache.getInstance().loadImage(file, Resolution.THUMB));
+				}
+				catch (RuntimeException e) {
+					setException(e);
+				}
+				finally {
+					RUNNING_LOADS.remove(file, this);
+				}
+			}
+		};
+		PREFETCH_EXECUTOR.execute(task);
+		return task;
+	}
+
+	/**
+	 * Wait for a running load or prefetch of a thumbnail.
+	 *
+	 * @param future The future of the load.
+	 * @return The loaded image, or null if the load was cancelled or failed.
+	 */
+	private static Image awaitLoad(final Future<Image> future) {
+		try {
+			return future.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		}
+		catch (ExecutionException | CancellationException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Cancel a load or prefetch, if it is not yet finished. Cancelled loads are removed from the queue.
+	 *
+	 * @param future The future of the load.
+	 */
+	public static void cancel(final Future<?> future) {
+		if (future != null && future.cancel(false)) {
+			EXECUTOR.remove((Runnable) future);
+			PREFETCH_EXECUTOR.remove((Runnable) future);
+		}
+	}
+}
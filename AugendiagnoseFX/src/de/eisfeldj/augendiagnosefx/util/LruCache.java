@@ -0,0 +1,189 @@
+package de.eisfeldj.augendiagnosefx.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * A cache holding entries up to a maximum total size, evicting the least recently used entries first. Subclasses define
+ * the size of an entry by overriding {@link #sizeOf(Object, Object)} - by default, each entry has size 1. Evicted entries
+ * are reported via {@link #entryEvicted(Object, Object)}.
+ *
+ * @param <K> The key type.
+ * @param <V> The value type.
+ */
+public class LruCache<K, V> {
+	/**
+	 * The cached entries, in access order.
+	 */
+	private final Map<K, V> mEntries = new LinkedHashMap<>(16, 0.75f, true); // MAGIC_NUMBER
+
+	/**
+	 * The maximum total size of the entries.
+	 */
+	private final long mMaxSize;
+
+	/**
+	 * The current total size of the entries.
+	 */
+	private long mSize = 0;
+
+	/**
+	 * The number of cache hits.
+	 */
+	private long mHitCount = 0;
+
+	/**
+	 * The number of cache misses.
+	 */
+	private long mMissCount = 0;
+
+	/**
+	 * The number of evicted entries.
+	 */
+	private long mEvictionCount = 0;
+
+	/**
+	 * Create a cache.
+	 *
+	 * @param maxSize The maximum total size of the entries.
+	 */
+	public LruCache(final long maxSize) {
+		mMaxSize = maxSize;
+	}
+
+	/**
+	 * Get the size of an entry.
+	 *
+	 * @param key The key.
+	 * @param value The value.
+	 * @return The size.
+	 */
+	protected long sizeOf(final K key, final V value) {
+		return 1;
+	}
+
+	/**
+	 * Callback for an entry evicted in order to respect the maximum size. Called while holding the lock of the cache.
+	 *
+	 * @param key The key.
+	 * @param value The value.
+	 */
+	protected void entryEvicted(final K key, final V value) {
+		// do nothing by default
+	}
+
+	/**
+	 * Get an entry from the cache, marking it as recently used.
+	 *
+	 * @param key The key.
+	 * @return The cached value, or null if not cached.
+	 */
+	public final synchronized V get(final K key) {
+		V value = mEntries.get(key);
+		if (value == null) {
+			mMissCount++;
+		}
+		else {
+			mHitCount++;
+		}
+		return value;
+	}
+
+	/**
+	 * Put an entry into the cache, evicting least recently used entries if the maximum size is exceeded. Entries larger
+	 * than the maximum size are not cached.
+	 *
+	 * @param key The key.
+	 * @param value The value.
+	 */
+	public final synchronized void put(final K key, final V value) {
+		V oldValue = mEntries.remove(key);
+		if (oldValue != null) {
+			mSize -= sizeOf(key, oldValue);
+		}
+		long size = sizeOf(key, value);
+		if (size > mMaxSize) {
+			return;
+		}
+		mEntries.put(key, value);
+		mSize += size;
+
+		Iterator<Entry<K, V>> iterator = mEntries.entrySet().iterator();
+		while (mSize > mMaxSize && iterator.hasNext()) {
+			Entry<K, V> eldest = iterator.next();
+			mSize -= sizeOf(eldest.getKey(), eldest.getValue());
+			iterator.remove();
+			mEvictionCount++;
+			entryEvicted(eldest.getKey(), eldest.getValue());
+		}
+	}
+
+	/**
+	 * Remove an entry from the cache.
+	 *
+	 * @param key The key.
+	 * @return The removed value, or null if not cached.
+	 */
+	public final synchronized V remove(final K key) {
+		V value = mEntries.remove(key);
+		if (value != null) {
+			mSize -= sizeOf(key, value);
+		}
+		return value;
+	}
+
+	/**
+	 * Remove all entries from the cache.
+	 */
+	public final synchronized void clear() {
+		mEntries.clear();
+		mSize = 0;
+	}
+
+	/**
+	 * Get the current total size of the entries.
+	 *
+	 * @return The size.
+	 */
+	public final synchronized long size() {
+		return mSize;
+	}
+
+	/**
+	 * Get the maximum total size of the entries.
+	 *
+	 * @return The maximum size.
+	 */
+	public final long maxSize() {
+		return mMaxSize;
+	}
+
+	/**
+	 * Get the number of cache hits.
+	 *
+	 * @return The hit count.
+	 */
+	public final synchronized long hitCount() {
+		return mHitCount;
+	}
+
+	/**
+	 * Get the number of cache misses.
+	 *
+	 * @return The miss count.
+	 */
+	public final synchronized long missCount() {
+		return mMissCount;
+	}
+
+	/**
+	 * Get the number of evicted entries.
+	 *
+	 * @return The eviction count.
+	 */
+	public final synchronized long evictionCount() {
+		return mEvictionCount;
+	}
+}
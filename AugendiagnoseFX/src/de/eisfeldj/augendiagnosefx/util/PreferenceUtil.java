@@ -53,6 +53,11 @@ public final class PreferenceUtil {
 	 */
 	public static final String KEY_LAST_NAME = "key_last_name";
 
+	/**
+	 * Preference key for the recently opened names, separated by line breaks.
+	 */
+	public static final String KEY_RECENT_NAMES = "key_recent_names";
+
 	/**
 	 * Preference key for the eye photos folder.
 	 */
@@ -117,6 +122,7 @@ public final class PreferenceUtil {
 		DEFAULT_MAP.put(KEY_SHOW_OVERLAY_PANE, true);
 		DEFAULT_MAP.put(KEY_SHOW_SPLIT_WINDOW, true);
 		DEFAULT_MAP.put(KEY_LAST_NAME, null);
+		DEFAULT_MAP.put(KEY_RECENT_NAMES, "");
 		DEFAULT_MAP.put(KEY_FOLDER_PHOTOS, "D:\\");
 		DEFAULT_MAP.put(KEY_MAX_BITMAP_SIZE, 2048); // MAGIC_NUMBER
 		DEFAULT_MAP.put(KEY_THUMBNAIL_SIZE, 1024); // MAGIC_NUMBER
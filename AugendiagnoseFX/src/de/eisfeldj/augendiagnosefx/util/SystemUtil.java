@@ -31,6 +31,19 @@ public final class SystemUtil {
 		return new File(new File(System.getProperty("java.io.tmpdir")), Application.APPLICATION_NAME);
 	}
 
+	/**
+	 * Get the application cache directory, which is kept between sessions.
+	 *
+	 * @return The cache directory.
+	 */
+	public static File getCacheDir() {
+		String localAppData = System.getenv("LOCALAPPDATA");
+		File baseDir = localAppData == null
+				? new File(System.getProperty("user.home"), ".cache")
+				: new File(localAppData);
+		return new File(baseDir, Application.APPLICATION_NAME);
+	}
+
 	/**
 	 * Get the path of the JVM.
 	 *
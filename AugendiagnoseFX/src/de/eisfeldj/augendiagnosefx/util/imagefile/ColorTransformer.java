@@ -0,0 +1,321 @@
+package de.eisfeldj.augendiagnosefx.util.imagefile;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import javafx.scene.canvas.Canvas;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.image.WritablePixelFormat;
+import javafx.scene.paint.Color;
+
+/**
+ * Engine for changing brightness, contrast, saturation and color temperature of an image. The color change is a 3x3
+ * matrix plus offset, which is applied via lookup tables, processing bands of rows in parallel.
+ *
+ * <p>An instance is intended to be used by a single view. It keeps the pixels of the last source image and reuses its
+ * buffers and target images, so that repeated changes of the same image do not allocate new memory. The returned images
+ * are reused on the next call. The pixel calculation may be done in advance outside the FX application thread via
+ * {@link #prepare(Image, float, float, float, float)}.
+ */
+public final class ColorTransformer {
+	/**
+	 * The number of bytes per pixel.
+	 */
+	private static final int FOUR = 4;
+	/**
+	 * The size of a byte.
+	 */
+	private static final int BYTE = 0xFF;
+	/**
+	 * The number of values of a color channel.
+	 */
+	private static final int CHANNEL_VALUES = 256;
+	/**
+	 * The number of fractional bits of the fixed point lookup table values.
+	 */
+	private static final int FIXED_POINT_SHIFT = 12;
+	/**
+	 * The number of rows up to which a task does not split further.
+	 */
+	private static final int ROWS_PER_TASK = 64;
+
+	/**
+	 * The pixel format used for processing.
+	 */
+	private static final WritablePixelFormat<ByteBuffer> PIXEL_FORMAT = PixelFormat.getByteBgraInstance();
+
+	/**
+	 * The source image whose pixels are stored in the source buffer. Only set for fully loaded images.
+	 */
+	private Image mSourceImage;
+	/**
+	 * The BGRA pixels of the source image.
+	 */
+	private byte[] mSourceBuffer;
+	/**
+	 * The BGRA pixels of the transformed image.
+	 */
+	private byte[] mTargetBuffer;
+	/**
+	 * The color parameters for which the target buffer was calculated.
+	 */
+	private float[] mTargetParameters;
+	/**
+	 * The transformed image.
+	 */
+	private WritableImage mTargetImage;
+	/**
+	 * The canvas used for drawing overlays.
+	 */
+	private Canvas mCanvas;
+	/**
+	 * The image receiving the snapshot of the canvas.
+	 */
+	private WritableImage mSnapshotImage;
+
+	/**
+	 * Change the colors of an image.
+	 *
+	 * @param sourceImage The source image.
+	 * @param brightness The brightness.
+	 * @param contrast The contrast.
+	 * @param saturation The saturation.
+	 * @param colorTemperature The color temperature.
+	 * @return The image with changed colors. This image is reused on the next call.
+	 */
+	public synchronized WritableImage transform(final Image sourceImage, final float brightness, final float contrast,
+			final float saturation, final float colorTemperature) {
+		prepare(sourceImage, brightness, contrast, saturation, colorTemperature);
+
+		int width = (int) sourceImage.getWidth();
+		int height = (int) sourceImage.getHeight();
+		if (mTargetImage == null || (int) mTargetImage.getWidth() != width || (int) mTargetImage.getHeight() != height) {
+			mTargetImage = new WritableImage(width, height);
+		}
+		mTargetImage.getPixelWriter().setPixels(0, 0, width, height, PIXEL_FORMAT, mTargetBuffer, 0, FOUR * width);
+		return mTargetImage;
+	}
+
+	/**
+	 * Calculate the changed pixels of an image, without writing them into an image. This may be called outside the FX
+	 * application thread for a fully loaded image. A subsequent call of transform with the same parameters then only needs
+	 * to write the pixels.
+	 *
+	 * @param sourceImage The source image.
+	 * @param brightness The brightness.
+	 * @param contrast The contrast.
+	 * @param saturation The saturation.
+	 * @param colorTemperature The color temperature.
+	 */
+	public synchronized void prepare(final Image sourceImage, final float brightness, final float contrast,
+			final float saturation, final float colorTemperature) {
+		float[] parameters = {brightness, contrast, saturation, colorTemperature};
+		if (sourceImage == mSourceImage && Arrays.equals(parameters, mTargetParameters)) {
+			return;
+		}
+
+		int width = (int) sourceImage.getWidth();
+		int height = (int) sourceImage.getHeight();
+
+		if (sourceImage != mSourceImage) {
+			if (mSourceBuffer == null || mSourceBuffer.length != FOUR * width * height) {
+				mSourceBuffer = new byte[FOUR * width * height];
+				mTargetBuffer = new byte[FOUR * width * height];
+			}
+			sourceImage.getPixelReader().getPixels(0, 0, width, height, PIXEL_FORMAT, mSourceBuffer, 0, FOUR * width);
+			// Pixels of an image which is still loading may change, so that they are read again on the next call.
+			mSourceImage = sourceImage.getProgress() == 1 ? sourceImage : null;
+		}
+
+		int[] lookupTable = createLookupTable(brightness, contrast, saturation, colorTemperature);
+		ForkJoinPool.commonPool().invoke(new BandTransformation(mSourceBuffer, mTargetBuffer, lookupTable, width, 0, height));
+		mTargetParameters = parameters;
+	}
+
+	/**
+	 * Get a canvas of the given size for drawing overlays. The canvas is reused on the next call.
+	 *
+	 * @param width The width.
+	 * @param height The height.
+	 * @return The canvas.
+	 */
+	public synchronized Canvas getCanvas(final int width, final int height) {
+		if (mCanvas == null || (int) mCanvas.getWidth() != width || (int) mCanvas.getHeight() != height) {
+			mCanvas = new Canvas(width, height);
+		}
+		return mCanvas;
+	}
+
+	/**
+	 * Get an image of the given size for receiving a snapshot of the canvas. The image is reused on the next call.
+	 *
+	 * @param width The width.
+	 * @param height The height.
+	 * @return The image.
+	 */
+	public synchronized WritableImage getSnapshotImage(final int width, final int height) {
+		if (mSnapshotImage == null || (int) mSnapshotImage.getWidth() != width || (int) mSnapshotImage.getHeight() != height) {
+			mSnapshotImage = new WritableImage(width, height);
+		}
+		return mSnapshotImage;
+	}
+
+	/**
+	 * Create the lookup tables for the color change. For each output channel (blue, green, red), there is one table per
+	 * input channel containing the fixed point contribution of each input value. The offset is contained in the first table.
+	 *
+	 * @param brightness The brightness.
+	 * @param contrast The contrast.
+	 * @param saturation The saturation.
+	 * @param colorTemperature The color temperature.
+	 * @return The lookup tables, concatenated.
+	 */
+	private static int[] createLookupTable(final float brightness, final float contrast, final float saturation,
+			final float colorTemperature) {
+		// logic of brightness and contrast does not work very well. Therefore, simulating logic from android
+		// OverlayPinghImageView.changeBitmapContrastBrightness
+		Color temperatureColor = convertTemperatureToColor(colorTemperature);
+		float factorBlue = 1 / (float) temperatureColor.getBlue();
+		float factorGreen = 1 / (float) temperatureColor.getGreen();
+		float factorRed = 1 / (float) temperatureColor.getRed();
+		float correctionFactor = (float) Math.pow(factorRed * factorGreen * factorBlue, -1f / 3); // MAGIC_NUMBER
+		factorBlue *= correctionFactor * contrast;
+		factorGreen *= correctionFactor * contrast;
+		factorRed *= correctionFactor * contrast;
+		float offset = BYTE / 2f * (1 - contrast + brightness * contrast + brightness);
+		float oppositeSaturation = (1 - saturation) / 2;
+
+		float[][] matrix = {
+				{saturation * factorBlue, oppositeSaturation * factorGreen, oppositeSaturation * factorRed},
+				{oppositeSaturation * factorBlue, saturation * factorGreen, oppositeSaturation * factorRed},
+				{oppositeSaturation * factorBlue, oppositeSaturation * factorGreen, saturation * factorRed}};
+
+		int[] lookupTable = new int[3 * 3 * CHANNEL_VALUES]; // MAGIC_NUMBER
+		for (int output = 0; output < 3; output++) { // MAGIC_NUMBER
+			for (int input = 0; input < 3; input++) { // MAGIC_NUMBER
+				int tableStart = (3 * output + input) * CHANNEL_VALUES; // MAGIC_NUMBER
+				float tableOffset = input == 0 ? offset : 0;
+				for (int value = 0; value < CHANNEL_VALUES; value++) {
+					lookupTable[tableStart + value] = Math.round((matrix[output][input] * value + tableOffset) * (1 << FIXED_POINT_SHIFT));
+				}
+			}
+		}
+		return lookupTable;
+	}
+
+	/**
+	 * Convert a temperature into a color value representing the color of this temperature.
+	 *
+	 * @param temperature The temperature value (in the range -1..1).
+	 * @return The color value.
+	 */
+	private static Color convertTemperatureToColor(final double temperature) {
+		if (temperature >= 0) {
+			return Color.rgb((int) (BYTE - 150 * temperature), (int) (BYTE - 105 * temperature), BYTE); // MAGIC_NUMBER
+		}
+		else {
+			return Color.rgb(BYTE, (int) (BYTE + 80 * temperature), (int) (BYTE + 145 * temperature)); // MAGIC_NUMBER
+		}
+	}
+
+	/**
+	 * Task applying the lookup tables to a band of rows.
+	 */
+	private static final class BandTransformation extends RecursiveAction {
+		/**
+		 * The serial version UID.
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * The source pixels.
+		 */
+		private final byte[] mSource;
+		/**
+		 * The target pixels.
+		 */
+		private final byte[] mTarget;
+		/**
+		 * The lookup tables.
+		 */
+		private final int[] mLookupTable;
+		/**
+		 * The image width.
+		 */
+		private final int mWidth;
+		/**
+		 * The first row of the band (inclusive).
+		 */
+		private final int mFromRow;
+		/**
+		 * The last row of the band (exclusive).
+		 */
+		private final int mToRow;
+
+		/**
+		 * Create a task for a band of rows.
+		 *
+		 * @param source The source pixels.
+		 * @param target The target pixels.
+		 * @param lookupTable The lookup tables.
+		 * @param width The image width.
+		 * @param fromRow The first row of the band (inclusive).
+		 * @param toRow The last row of the band (exclusive).
+		 */
+		private BandTransformation(final byte[] source, final byte[] target, final int[] lookupTable, final int width,
+				final int fromRow, final int toRow) {
+			mSource = source;
+			mTarget = target;
+			mLookupTable = lookupTable;
+			mWidth = width;
+			mFromRow = fromRow;
+			mToRow = toRow;
+		}
+
+		@Override
+		protected void compute() {
+			if (mToRow - mFromRow <= ROWS_PER_TASK) {
+				transformRows();
+			}
+			else {
+				int middleRow = (mFromRow + mToRow) / 2;
+				invokeAll(new BandTransformation(mSource, mTarget, mLookupTable, mWidth, mFromRow, middleRow),
+						new BandTransformation(mSource, mTarget, mLookupTable, mWidth, middleRow, mToRow));
+			}
+		}
+
+		/**
+		 * Apply the lookup tables to the rows of this band.
+		 */
+		private void transformRows() {
+			final int[] table = mLookupTable;
+			final int end = FOUR * mWidth * mToRow;
+			for (int i = FOUR * mWidth * mFromRow; i < end; i += FOUR) {
+				int blue = mSource[i] & BYTE;
+				int green = (mSource[i + 1] & BYTE) + CHANNEL_VALUES;
+				int red = (mSource[i + 2] & BYTE) + 2 * CHANNEL_VALUES;
+
+				mTarget[i] = toColorByte(table[blue] + table[green] + table[red]);
+				mTarget[i + 1] = toColorByte(table[3 * CHANNEL_VALUES + blue] // MAGIC_NUMBER
+						+ table[3 * CHANNEL_VALUES + green] + table[3 * CHANNEL_VALUES + red]); // MAGIC_NUMBER
+				mTarget[i + 2] = toColorByte(table[6 * CHANNEL_VALUES + blue] // MAGIC_NUMBER
+						+ table[6 * CHANNEL_VALUES + green] + table[6 * CHANNEL_VALUES + red]); // MAGIC_NUMBER
+				mTarget[i + 3] = mSource[i + 3]; // MAGIC_NUMBER
+			}
+		}
+
+		/**
+		 * Convert a fixed point value into a byte (ensuring the appropriate range).
+		 *
+		 * @param value The fixed point value.
+		 * @return The resulting byte.
+		 */
+		private static byte toColorByte(final int value) {
+			return (byte) Math.min(BYTE, Math.max(0, value >> FIXED_POINT_SHIFT));
+		}
+	}
+}
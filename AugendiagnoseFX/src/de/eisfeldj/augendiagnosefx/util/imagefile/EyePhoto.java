@@ -2,10 +2,8 @@ package de.eisfeldj.augendiagnosefx.util.imagefile;
 
 import java.io.File;
 import java.lang.ref.WeakReference;
-import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Locale;
 
 import de.eisfeldj.augendiagnosefx.util.DateUtil;
@@ -24,10 +22,6 @@ public class EyePhoto {
 	 * The date format used for the file name.
 	 */
 	private static final String DATE_FORMAT = "yyyy-MM-dd";
-	/**
-	 * The maximum size of the image cache.
-	 */
-	private static final int MAX_IMAGE_CACHE = 4;
 
 	/**
 	 * Indicator if the file has already a formatted name.
@@ -64,21 +58,6 @@ public class EyePhoto {
 	 */
 	private String mSuffix;
 
-	/**
-	 * A cache of the bitmap (to avoid too frequent generation).
-	 */
-	private Image mCachedImage;
-
-	/**
-	 * A cache of the thumbnail.
-	 */
-	private Image mCachedThumbnail;
-
-	/**
-	 * The list of eye photos having a cached image.
-	 */
-	private static final List<WeakReference<EyePhoto>> CACHED_EYE_PHOTOS = new ArrayList<>();
-
 	/**
 	 * A map from path to EyePhoto objects - for reuse.
 	 *
@@ -316,6 +295,7 @@ public class EyePhoto {
 	 * @return true if the deletion was successful.
 	 */
 	public final boolean delete() {
+		ImageCache.getInstance().remove(getFile());
 		return getFile().delete();
 	}
 
@@ -332,6 +312,7 @@ public class EyePhoto {
 			return false;
 		}
 
+		ImageCache.getInstance().remove(getFile());
 		return getFile().renameTo(target.getFile());
 	}
 
@@ -382,51 +363,7 @@ public class EyePhoto {
 	 * @return the Image
 	 */
 	public final Image getImage(final Resolution resolution) {
-		switch (resolution) {
-		case THUMB:
-			if (mCachedThumbnail == null) {
-				mCachedThumbnail = ImageUtil.getImage(getFile(), Resolution.THUMB);
-			}
-			return mCachedThumbnail;
-		case NORMAL:
-			Image result = mCachedImage;
-			if (result == null) {
-				result = ImageUtil.getImage(getFile(), Resolution.NORMAL);
-				synchronized (CACHED_EYE_PHOTOS) {
-					mCachedImage = result;
-					CACHED_EYE_PHOTOS.add(new WeakReference<>(this));
-					// Ensure that not too many images are cached
-					if (CACHED_EYE_PHOTOS.size() > MAX_IMAGE_CACHE) {
-						EyePhoto firstInList = CACHED_EYE_PHOTOS.get(0).get();
-						if (firstInList != null) {
-							firstInList.mCachedImage = null;
-						}
-						CACHED_EYE_PHOTOS.remove(0);
-					}
-				}
-			}
-			else {
-				synchronized (CACHED_EYE_PHOTOS) {
-					int index = -1;
-					for (int i = 0; i < CACHED_EYE_PHOTOS.size(); i++) {
-						if (CACHED_EYE_PHOTOS.get(i).get() == this) {
-							index = i;
-							break;
-						}
-					}
-					if (index >= 0) {
-						CACHED_EYE_PHOTOS.remove(index);
-						CACHED_EYE_PHOTOS.add(new WeakReference<>(this));
-					}
-				}
-			}
-			return result;
-		case FULL:
-			// Full size image is not cached.
-			return ImageUtil.getImage(getFile(), Resolution.FULL);
-		default:
-			return null;
-		}
+		return ImageCache.getInstance().getImage(getFile(), resolution);
 	}
 
 	/**
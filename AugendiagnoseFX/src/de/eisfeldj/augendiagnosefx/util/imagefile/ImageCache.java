@@ -0,0 +1,223 @@
+package de.eisfeldj.augendiagnosefx.util.imagefile;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import de.eisfeldj.augendiagnosefx.util.LruCache;
+import de.eisfeldj.augendiagnosefx.util.imagefile.ImageUtil.Resolution;
+
+import javafx.scene.image.Image;
+
+/**
+ * Cache of loaded images, shared by all eye photos. Images are cached per file path and resolution, and the least recently
+ * used images are evicted if the total size exceeds a fraction of the available memory. Images loading in the background
+ * are kept separately until they are loaded, as their size is known only then.
+ */
+public final class ImageCache {
+	/**
+	 * The fraction of the available memory which may be used by the cache.
+	 */
+	private static final int MEMORY_FRACTION = 4;
+	/**
+	 * The number of bytes per pixel.
+	 */
+	private static final int BYTES_PER_PIXEL = 4;
+
+	/**
+	 * The singleton instance.
+	 */
+	private static volatile ImageCache mSingleton;
+
+	/**
+	 * The loaded images, by path and resolution.
+	 */
+	private final LruCache<String, Image> mImages =
+			new LruCache<String, Image>(Runtime.getRuntime().maxMemory() / MEMORY_FRACTION) {
+				@Override
+				protected long sizeOf(final String key, final Image value) {
+					return (long) BYTES_PER_PIXEL * (long) value.getWidth() * (long) value.getHeight();
+				}
+			};
+
+	/**
+	 * The images which are still loading, by path and resolution.
+	 */
+	private final Map<String, Image> mLoadingImages = new ConcurrentHashMap<>();
+
+	/**
+	 * Hide default constructor.
+	 */
+	private ImageCache() {
+	}
+
+	/**
+	 * Get the cache instance.
+	 *
+	 * @return The cache.
+	 */
+	public static ImageCache getInstance() {
+		if (mSingleton == null) {
+			synchronized (ImageCache.class) {
+				if (mSingleton == null) {
+					mSingleton = new ImageCache();
+				}
+			}
+		}
+		return mSingleton;
+	}
+
+	/**
+	 * Get an image of a file, loading it if it is not cached.
+	 *
+	 * @param file The image file.
+	 * @param resolution The resolution of the image.
+	 * @return The image, which may still be loading in the background.
+	 */
+	public Image getImage(final File file, final Resolution resolution) {
+		String key = getKey(file, resolution);
+		Image image = mImages.get(key);
+		if (image != null) {
+			return image;
+		}
+		image = mLoadingImages.get(key);
+		if (image != null) {
+			return image;
+		}
+
+		Image newImage = ImageUtil.getImage(file, resolution);
+		image = mLoadingImages.putIfAbsent(key, newImage);
+		if (image != null) {
+			// Another thread started loading the same image in parallel.
+			newImage.cancel();
+			return image;
+		}
+
+		// Add the listeners before checking the progress, so that completion of loading cannot be missed.
+		newImage.progressProperty().addListener((observable, oldValue, newValue) -> {
+			if (newValue.doubleValue() == 1) {
+				finishLoading(key, newImage);
+			}
+		});
+		newImage.errorProperty().addListener((observable, oldValue, newValue) -> {
+			if (newValue) {
+				mLoadingImages.remove(key, newImage);
+			}
+		});
+		if (newImage.getProgress() == 1 || newImage.isError()) {
+			finishLoading(key, newImage);
+		}
+		return newImage;
+	}
+
+	/**
+	 * Move an image to the cache after it has been loaded. Only the first call for an image has an effect, so that this
+	 * may be called both from the listeners and from getImage.
+	 *
+	 * @param key The cache key.
+	 * @param image The loaded image.
+	 */
+	private void finishLoading(final String key, final Image image) {
+		if (mLoadingImages.remove(key, image) && !image.isError()) {
+			mImages.put(key, image);
+		}
+	}
+
+	/**
+	 * Get an image of a file from the cache, without loading it.
+	 *
+	 * @param file The image file.
+	 * @param resolution The resolution of the image.
+	 * @return The image, or null if it is not cached or still loading.
+	 */
+	public Image getCachedImage(final File file, final Resolution resolution) {
+		return mImages.get(getKey(file, resolution));
+	}
+
+	/**
+	 * Get an image of a file, loading it in the current thread if it is not cached. To be called outside the FX application
+	 * thread.
+	 *
+	 * @param file The image file.
+	 * @param resolution The resolution of the image.
+	 * @return The fully loaded image.
+	 */
+	public Image loadImage(final File file, final Resolution resolution) {
+		String key = getKey(file, resolution);
+		Image image = mImages.get(key);
+		if (image != null) {
+			return image;
+		}
+		image = mLoadingImages.get(key);
+		if (image != null && image.getProgress() == 1) {
+			return image;
+		}
+
+		image = ImageUtil.getImage(file, resolution, false);
+		if (!image.isError()) {
+			mImages.put(key, image);
+		}
+		return image;
+	}
+
+	/**
+	 * Remove all images of a file from the cache, e.g. after the file was moved or deleted.
+	 *
+	 * @param file The image file.
+	 */
+	public void remove(final File file) {
+		for (Resolution resolution : Resolution.values()) {
+			String key = getKey(file, resolution);
+			mImages.remove(key);
+			mLoadingImages.remove(key);
+		}
+	}
+
+	/**
+	 * Get the number of cache hits.
+	 *
+	 * @return The hit count.
+	 */
+	public long getHitCount() {
+		return mImages.hitCount();
+	}
+
+	/**
+	 * Get the number of cache misses.
+	 *
+	 * @return The miss count.
+	 */
+	public long getMissCount() {
+		return mImages.missCount();
+	}
+
+	/**
+	 * Get the number of evicted images.
+	 *
+	 * @return The eviction count.
+	 */
+	public long getEvictionCount() {
+		return mImages.evictionCount();
+	}
+
+	/**
+	 * Get the cache statistics as text.
+	 *
+	 * @return The statistics.
+	 */
+	public String getStatistics() {
+		return "Image cache: " + mImages.size() / 1024 / 1024 + " of " + mImages.maxSize() / 1024 / 1024 + " MB, hits " // MAGIC_NUMBER
+				+ getHitCount() + ", misses " + getMissCount() + ", evictions " + getEvictionCount();
+	}
+
+	/**
+	 * Get the cache key of an image.
+	 *
+	 * @param file The image file.
+	 * @param resolution The resolution of the image.
+	 * @return The cache key.
+	 */
+	private static String getKey(final File file, final Resolution resolution) {
+		return file.getAbsolutePath() + "|" + resolution;
+	}
+}
@@ -1,15 +1,21 @@
 package de.eisfeldj.augendiagnosefx.util.imagefile;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
 import de.eisfeldj.augendiagnosefx.util.Logger;
+import de.eisfeldj.augendiagnosefx.util.LruCache;
 import de.eisfeldj.augendiagnosefx.util.PreferenceUtil;
 import de.eisfeldj.augendiagnosefx.util.ResourceUtil;
 import de.eisfeldj.augendiagnosefx.util.imagefile.EyePhoto.RightLeft;
 
+import javafx.application.Platform;
 import javafx.scene.SnapshotParameters;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
@@ -20,7 +26,7 @@ import javafx.scene.effect.DisplacementMap;
 import javafx.scene.effect.FloatMap;
 import javafx.scene.image.Image;
 import javafx.scene.image.PixelFormat;
-import javafx.scene.image.WritablePixelFormat;
+import javafx.scene.image.WritableImage;
 import javafx.scene.paint.Color;
 
 import static de.eisfeldj.augendiagnosefx.util.ResourceConstants.OVERLAY_10_PREFIX;
@@ -59,24 +65,68 @@ public final class ImageUtil {
 	 * The number four.
 	 */
 	private static final int FOUR = 4;
+
 	/**
-	 * The size of a byte.
+	 * The maximum size of preview images (in pixels).
 	 */
-	private static final int BYTE = 0xFF;
+	private static final int PREVIEW_SIZE = 256;
 
 	/**
-	 * A cache of one overlay - to prevent frequent recalculation while sliding brightness and contrast.
+	 * The executor for loading preview images.
 	 */
-	// JAVADOC:OFF
-	private static Image mCachedOverlay;
-	private static Integer mCachedOverlayType = null;
-	private static RightLeft mCachedOverlaySide;
-	private static Color mCachedOverlayColor;
-	private static float mCachedPupilSize;
-	private static float mCachedPupilXOffset;
-	private static float mCachedPupilYOffset;
+	private static final ExecutorService PREVIEW_EXECUTOR = Executors.newFixedThreadPool(2, runnable -> {
+		Thread thread = new Thread(runnable, "PreviewLoader");
+		thread.setDaemon(true);
+		return thread;
+	});
 
-	// JAVADOC:ON
+	/**
+	 * The number of steps per unit to which pupil size and offsets are rounded for caching of overlays.
+	 */
+	private static final int PUPIL_PARAMETER_STEPS = 1000;
+	/**
+	 * The memory available for caching deformed overlays (in bytes).
+	 */
+	private static final long OVERLAY_CACHE_SIZE = 64 * 1024 * 1024;
+	/**
+	 * The memory available for caching colored overlays before deformation (in bytes).
+	 */
+	private static final long COLORED_OVERLAY_CACHE_SIZE = 32 * 1024 * 1024;
+	/**
+	 * The memory available for caching displacement maps (in bytes).
+	 */
+	private static final long DISPLACEMENT_MAP_CACHE_SIZE = 64 * 1024 * 1024;
+
+	/**
+	 * A cache of deformed overlays - to prevent recalculation while sliding brightness and contrast, or when displaying
+	 * multiple eyes.
+	 */
+	private static final LruCache<OverlayKey, Image> OVERLAY_CACHE = new LruCache<OverlayKey, Image>(OVERLAY_CACHE_SIZE) {
+		@Override
+		protected long sizeOf(final OverlayKey key, final Image value) {
+			return getByteCount(value);
+		}
+	};
+	/**
+	 * A cache of colored overlays before deformation - to prevent reloading when only pupil parameters change.
+	 */
+	private static final LruCache<OverlayKey, Image> COLORED_OVERLAY_CACHE =
+			new LruCache<OverlayKey, Image>(COLORED_OVERLAY_CACHE_SIZE) {
+				@Override
+				protected long sizeOf(final OverlayKey key, final Image value) {
+					return getByteCount(value);
+				}
+			};
+	/**
+	 * A cache of the color independent displacement maps - to prevent recalculation when only the color changes.
+	 */
+	private static final LruCache<OverlayKey, DisplacementMap> DISPLACEMENT_MAP_CACHE =
+			new LruCache<OverlayKey, DisplacementMap>(DISPLACEMENT_MAP_CACHE_SIZE) {
+				@Override
+				protected long sizeOf(final OverlayKey key, final DisplacementMap value) {
+					return (long) FOUR * 2 * value.getMapData().getWidth() * value.getMapData().getHeight();
+				}
+			};
 
 	/**
 	 * Do not allow instantiation.
@@ -86,7 +136,7 @@ public final class ImageUtil {
 	}
 
 	/**
-	 * Get an image from a file.
+	 * Get an image from a file. Images which do not need rotation are loaded in the background.
 	 *
 	 * @param file
 	 *            The image file.
@@ -95,6 +145,46 @@ public final class ImageUtil {
 	 * @return the image.
 	 */
 	public static Image getImage(final File file, final Resolution resolution) {
+		return getImage(file, resolution, true);
+	}
+
+	/**
+	 * Get an image from a file.
+	 *
+	 * @param file
+	 *            The image file.
+	 * @param resolution
+	 *            Indicator of the resolution in which the image should be returned.
+	 * @param backgroundLoading
+	 *            Flag indicating if the image may be loaded in the background. Otherwise, it is fully loaded on return.
+	 * @return the image.
+	 */
+	public static Image getImage(final File file, final Resolution resolution, final boolean backgroundLoading) {
+		if (resolution != Resolution.THUMB) {
+			return loadImage(file, resolution, backgroundLoading);
+		}
+
+		int thumbnailSize = PreferenceUtil.getPreferenceInt(PreferenceUtil.KEY_THUMBNAIL_SIZE);
+		Image image = ThumbnailCache.getThumbnail(file, thumbnailSize, backgroundLoading);
+		if (image == null) {
+			image = loadImage(file, resolution, backgroundLoading);
+			ThumbnailCache.storeThumbnail(file, thumbnailSize, image);
+		}
+		return image;
+	}
+
+	/**
+	 * Load an image from a file, applying the EXIF orientation.
+	 *
+	 * @param file
+	 *            The image file.
+	 * @param resolution
+	 *            Indicator of the resolution in which the image should be returned.
+	 * @param backgroundLoading
+	 *            Flag indicating if the image may be loaded in the background.
+	 * @return the image.
+	 */
+	private static Image loadImage(final File file, final Resolution resolution, final boolean backgroundLoading) {
 		URL url = null;
 		try {
 			url = file.toURI().toURL();
@@ -115,7 +205,7 @@ public final class ImageUtil {
 				return new Image(url.toExternalForm());
 			}
 			else {
-				return new Image(url.toExternalForm(), maxSize, maxSize, true, true, true);
+				return new Image(url.toExternalForm(), maxSize, maxSize, true, true, backgroundLoading);
 			}
 		}
 		else {
@@ -128,37 +218,113 @@ public final class ImageUtil {
 				image = new Image(url.toExternalForm(), maxSize, maxSize, true, true);
 			}
 
-			double width = image.getWidth();
-			double height = image.getHeight();
+			return rotateImage(image, rotation);
+		}
+	}
 
-			Canvas canvas;
-			GraphicsContext gc;
+	/**
+	 * Get a low resolution preview of an image file, to be displayed while the image is loaded. The embedded EXIF
+	 * thumbnail is used if available, otherwise the file is decoded in reduced size. This may be called outside the FX
+	 * application thread.
+	 *
+	 * @param file
+	 *            The image file.
+	 * @return The preview image, or null if it cannot be created.
+	 */
+	public static Image getPreviewImage(final File file) {
+		Image image = null;
+		byte[] thumbnailData = JpegMetadataUtil.getExifThumbnailData(file);
+		if (thumbnailData != null) {
+			image = new Image(new ByteArrayInputStream(thumbnailData));
+		}
+		if (image == null || image.isError()) {
+			image = new Image(file.toURI().toString(), PREVIEW_SIZE, PREVIEW_SIZE, true, false, false);
+		}
+		if (image.isError()) {
+			return null;
+		}
+		return rotateImage(image, JpegMetadataUtil.getExifOrientationAngle(file));
+	}
 
-			switch (rotation) {
-			case 90: // MAGIC_NUMBER
-				canvas = new Canvas(height, width);
-				gc = canvas.getGraphicsContext2D();
-				gc.setTransform(0, 1, -1, 0, height, 0);
-				break;
-			case 180: // MAGIC_NUMBER
-				canvas = new Canvas(width, height);
-				gc = canvas.getGraphicsContext2D();
-				gc.setTransform(-1, 0, 0, -1, width, height);
-				break;
-			case 270: // MAGIC_NUMBER
-				canvas = new Canvas(height, width);
-				gc = canvas.getGraphicsContext2D();
-				gc.setTransform(0, -1, 1, 0, 0, width);
-				break;
-			default:
-				canvas = new Canvas(width, height);
-				gc = canvas.getGraphicsContext2D();
+	/**
+	 * Load the preview of an image file in the background.
+	 *
+	 * @param file
+	 *            The image file.
+	 * @param consumer
+	 *            The consumer of the preview image, called in the FX application thread if the preview could be created.
+	 */
+	public static void loadPreviewImage(final File file, final Consumer<Image> consumer) {
+		PREVIEW_EXECUTOR.execute(() -> {
+			Image image = getPreviewImage(file);
+			if (image != null) {
+				Platform.runLater(() -> consumer.accept(image));
 			}
+		});
+	}
 
-			gc.drawImage(image, 0, 0);
+	/**
+	 * Rotate an image clockwise by the given angle, via its pixels. This may be called outside the FX application thread.
+	 *
+	 * @param image
+	 *            The loaded image.
+	 * @param rotation
+	 *            The rotation angle (0, 90, 180 or 270).
+	 * @return The rotated image.
+	 */
+	static Image rotateImage(final Image image, final int rotation) {
+		if (rotation != 90 && rotation != 180 && rotation != 270) { // MAGIC_NUMBER
+			return image;
+		}
+		int width = (int) image.getWidth();
+		int height = (int) image.getHeight();
+		int[] pixels = new int[width * height];
+		image.getPixelReader().getPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), pixels, 0, width);
+
+		boolean isTransposed = rotation != 180; // MAGIC_NUMBER
+		int targetWidth = isTransposed ? height : width;
+		int targetHeight = isTransposed ? width : height;
+		WritableImage result = new WritableImage(targetWidth, targetHeight);
+		result.getPixelWriter().setPixels(0, 0, targetWidth, targetHeight, PixelFormat.getIntArgbInstance(),
+				rotatePixels(pixels, width, height, rotation), 0, targetWidth);
+		return result;
+	}
 
-			return canvas.snapshot(null, null);
+	/**
+	 * Rotate ARGB pixels clockwise by the given angle.
+	 *
+	 * @param pixels
+	 *            The pixels.
+	 * @param width
+	 *            The width of the image.
+	 * @param height
+	 *            The height of the image.
+	 * @param rotation
+	 *            The rotation angle (0, 90, 180 or 270).
+	 * @return The rotated pixels. For 90 and 270 degrees, width and height are exchanged.
+	 */
+	static int[] rotatePixels(final int[] pixels, final int width, final int height, final int rotation) {
+		if (rotation != 90 && rotation != 180 && rotation != 270) { // MAGIC_NUMBER
+			return pixels;
 		}
+		int[] result = new int[pixels.length];
+		for (int y = 0; y < height; y++) {
+			int rowStart = y * width;
+			for (int x = 0; x < width; x++) {
+				switch (rotation) {
+				case 90: // MAGIC_NUMBER
+					result[x * height + height - 1 - y] = pixels[rowStart + x];
+					break;
+				case 180: // MAGIC_NUMBER
+					result[(height - 1 - y) * width + width - 1 - x] = pixels[rowStart + x];
+					break;
+				default:
+					result[(width - 1 - x) * height + y] = pixels[rowStart + x];
+					break;
+				}
+			}
+		}
+		return result;
 	}
 
 	/**
@@ -246,6 +412,12 @@ public final class ImageUtil {
 	 * @return The overlay image.
 	 */
 	private static Image getOverlayImage(final int overlayType, final RightLeft side, final Color color) {
+		OverlayKey key = new OverlayKey(overlayType, side, color, 0, 0, 0);
+		Image cachedImage = COLORED_OVERLAY_CACHE.get(key);
+		if (cachedImage != null) {
+			return cachedImage;
+		}
+
 		URL imageUrl = ClassLoader.getSystemResource("overlay/" + getOverlayFileName(overlayType, side));
 
 		Image image = new Image(imageUrl.toExternalForm());
@@ -272,11 +444,14 @@ public final class ImageUtil {
 		SnapshotParameters parameters = new SnapshotParameters();
 		parameters.setFill(Color.TRANSPARENT);
 
-		return canvas.snapshot(parameters, null);
+		Image result = canvas.snapshot(parameters, null);
+		COLORED_OVERLAY_CACHE.put(key, result);
+		return result;
 	}
 
 	/**
-	 * Retrieve an overlay image, warped due to pupil size and position.
+	 * Retrieve an overlay image, warped due to pupil size and position. The result is cached, with pupil size and offsets
+	 * rounded to 1/1000.
 	 *
 	 * @param overlayType
 	 *            The overlay type.
@@ -292,86 +467,56 @@ public final class ImageUtil {
 	 *            The relative size of the pupil.
 	 * @return The overlay image.
 	 */
-	private static Image getOverlayImage(final int overlayType, final RightLeft side, final Color color,
+	static Image getOverlayImage(final int overlayType, final RightLeft side, final Color color,
 			final float pupilXOffset, final float pupilYOffset, final float pupilSize) {
-		if (mCachedOverlayType != null && overlayType == mCachedOverlayType // BOOLEAN_EXPRESSION_COMPLEXITY
-				&& side == mCachedOverlaySide && color.equals(mCachedOverlayColor)
-				&& pupilXOffset == mCachedPupilXOffset && pupilYOffset == mCachedPupilYOffset && pupilSize == mCachedPupilSize) {
-			return mCachedOverlay;
+		int pupilXOffsetSteps = Math.round(pupilXOffset * PUPIL_PARAMETER_STEPS);
+		int pupilYOffsetSteps = Math.round(pupilYOffset * PUPIL_PARAMETER_STEPS);
+		int pupilSizeSteps = Math.round(pupilSize * PUPIL_PARAMETER_STEPS);
+		OverlayKey key = new OverlayKey(overlayType, side, color, pupilXOffsetSteps, pupilYOffsetSteps, pupilSizeSteps);
+		Image cachedOverlay = OVERLAY_CACHE.get(key);
+		if (cachedOverlay != null) {
+			return cachedOverlay;
+		}
+
+		OverlayKey displacementKey = new OverlayKey(overlayType, null, null, pupilXOffsetSteps, pupilYOffsetSteps, pupilSizeSteps);
+		DisplacementMap displacementMap = DISPLACEMENT_MAP_CACHE.get(displacementKey);
+		if (displacementMap == null) {
+			displacementMap = createDisplacementMap(overlayType, (float) pupilXOffsetSteps / PUPIL_PARAMETER_STEPS,
+					(float) pupilYOffsetSteps / PUPIL_PARAMETER_STEPS, (float) pupilSizeSteps / PUPIL_PARAMETER_STEPS);
+			DISPLACEMENT_MAP_CACHE.put(displacementKey, displacementMap);
 		}
 
 		Image originalImage = getOverlayImage(overlayType, side, color);
 		Canvas canvas = new Canvas(OVERLAY_SIZE, OVERLAY_SIZE);
-
-		int overlayHalfSize = OVERLAY_SIZE / 2;
-		int irisRadius = (int) (OVERLAY_CIRCLE_RATIO * overlayHalfSize);
-		long irisRadiusSquare = irisRadius * irisRadius;
-		float pupilXCenter = OVERLAY_SIZE * OVERLAY_CIRCLE_RATIO * pupilXOffset / (1 - pupilSize);
-		float pupilYCenter = OVERLAY_SIZE * OVERLAY_CIRCLE_RATIO * pupilYOffset / (1 - pupilSize);
-		float origPupilSize = ORIG_PUPIL_SIZES[overlayType];
-		float linTransM = pupilSize == 1 ? 0 : (1 - origPupilSize) / (1 - pupilSize);
-		float linTransB = 1 - linTransM;
-
-		FloatMap floatMap = new FloatMap(OVERLAY_SIZE, OVERLAY_SIZE);
-		for (int x = 0; x < OVERLAY_SIZE; x++) {
-			int xPos = x - overlayHalfSize;
-			float xPosP = xPos - pupilXCenter;
-
-			for (int y = 0; y < OVERLAY_SIZE; y++) {
-				int yPos = y - overlayHalfSize;
-				float yPosP = yPos - pupilYCenter;
-
-				long centerDistSquare = xPos * xPos + yPos * yPos;
-				float pupilCenterDistSquare = xPosP * xPosP + yPosP * yPosP;
-
-				if (centerDistSquare >= irisRadiusSquare) {
-					floatMap.setSamples(x, y, 0, 0);
-				}
-				else if (pupilCenterDistSquare == 0) {
-					floatMap.setSamples(x, y, -xPos / OVERLAY_SIZE, -yPos / OVERLAY_SIZE);
-				}
-				else {
-					// Determine corresponding iris boundary point via quadratic equation
-					float plusMinusTerm = (float) Math.sqrt(2 * xPosP * yPosP * pupilXCenter * pupilYCenter
-							+ irisRadius * irisRadius * pupilCenterDistSquare
-							- (pupilXCenter * pupilXCenter * yPosP * yPosP)
-							- (pupilYCenter * pupilYCenter * xPosP * xPosP));
-
-					float xBound = (yPosP * yPosP * pupilXCenter - yPosP * xPosP * pupilYCenter + xPosP * plusMinusTerm) / pupilCenterDistSquare;
-					float yBound = (xPosP * xPosP * pupilYCenter - xPosP * yPosP * pupilXCenter + yPosP * plusMinusTerm) / pupilCenterDistSquare;
-
-					// distance of the current point from the center - 1 corresponds to iris boundary
-					float relativeDistance = (float) Math.sqrt(pupilCenterDistSquare
-							/ ((xBound - pupilXCenter) * (xBound - pupilXCenter) + (yBound - pupilYCenter) * (yBound - pupilYCenter)));
-
-					float sourceRelativeDistance = linTransM * relativeDistance + linTransB;
-					if (relativeDistance < pupilSize) {
-						sourceRelativeDistance -= linTransB * Math.pow(1 - relativeDistance / pupilSize, 1.1f); // MAGIC_NUMBER
-					}
-
-					float sourceX = xBound * sourceRelativeDistance;
-					float sourceY = yBound * sourceRelativeDistance;
-
-					floatMap.setSamples(x, y, (sourceX - xPos) / OVERLAY_SIZE, (sourceY - yPos) / OVERLAY_SIZE);
-				}
-
-			}
-		}
-		DisplacementMap displacementMap = new DisplacementMap(floatMap);
 		canvas.getGraphicsContext2D().setEffect(displacementMap);
 		canvas.getGraphicsContext2D().drawImage(originalImage, 0, 0, OVERLAY_SIZE, OVERLAY_SIZE);
 
 		SnapshotParameters parameters = new SnapshotParameters();
 		parameters.setFill(Color.TRANSPARENT);
 
-		mCachedOverlay = canvas.snapshot(parameters, null);
-		mCachedOverlayType = overlayType;
-		mCachedOverlaySide = side;
-		mCachedOverlayColor = color;
-		mCachedPupilSize = pupilSize;
-		mCachedPupilXOffset = pupilXOffset;
-		mCachedPupilYOffset = pupilYOffset;
-		return mCachedOverlay;
+		Image overlay = canvas.snapshot(parameters, null);
+		OVERLAY_CACHE.put(key, overlay);
+		return overlay;
+	}
+
+	/**
+	 * Create the displacement map which warps an overlay due to pupil size and position.
+	 *
+	 * @param overlayType
+	 *            The overlay type.
+	 * @param pupilXOffset
+	 *            The horizontal offset of the pupil.
+	 * @param pupilYOffset
+	 *            The vertical offset of the pupil.
+	 * @param pupilSize
+	 *            The relative size of the pupil.
+	 * @return The displacement map.
+	 */
+	private static DisplacementMap createDisplacementMap(final int overlayType, final float pupilXOffset, final float pupilYOffset,
+			final float pupilSize) {
+		FloatMap floatMap = new OverlayWarper(OVERLAY_SIZE, OVERLAY_CIRCLE_RATIO, ORIG_PUPIL_SIZES[overlayType],
+				pupilXOffset, pupilYOffset, pupilSize).createFloatMap();
+		return new DisplacementMap(floatMap);
 	}
 
 	/**
@@ -407,100 +552,80 @@ public final class ImageUtil {
 	 *            The color temperature of the imabe.
 	 * @param resolution
 	 *            Indicator of the resolution of the image.
+	 * @param transformer
+	 *            The color transformer of the view, reusing its buffers and images.
 	 * @return The image with overlay.
 	 */
-	private static Image getImageWithOverlay( // SUPPRESS_CHECKSTYLE Too many parameters
+	static Image getImageWithOverlay( // SUPPRESS_CHECKSTYLE Too many parameters
 			final Image baseImage, final Integer overlayType, final RightLeft side,
 			final Color color, final float xPosition, final float yPosition, final float scaleFactor,
 			final float pupilXOffset, final float pupilYOffset, final float pupilSize,
 			final float brightness, final float contrast,
-			final float saturation, final float colorTemperature, final Resolution resolution) {
+			final float saturation, final float colorTemperature, final Resolution resolution,
+			final ColorTransformer transformer) {
 		boolean hasOriginalColors = brightness == 0 && contrast == 1 && saturation == 1 && colorTemperature == 0;
 		if (hasOriginalColors && overlayType == null) {
 			return baseImage;
 		}
 
+		Image colorImage = hasOriginalColors ? baseImage
+				: transformer.transform(baseImage, brightness, contrast, saturation, colorTemperature);
+		if (overlayType == null) {
+			return colorImage;
+		}
+
 		int width = (int) baseImage.getWidth();
 		int height = (int) baseImage.getHeight();
 		double overlaySize = Math.max(width, height) * scaleFactor;
 
-		// logic of brightness and contrast does not work very well. Therefore, simulating logic from android
-		// OverlayPinghImageView.changeBitmapContrastBrightness
-		Canvas canvas = new Canvas(width, height);
+		Canvas canvas = transformer.getCanvas(width, height);
 		GraphicsContext gc = canvas.getGraphicsContext2D();
+		gc.clearRect(0, 0, width, height);
+		gc.drawImage(colorImage, 0, 0, width, height);
 
-		if (hasOriginalColors) {
-			gc.drawImage(baseImage, 0, 0, width, height);
-		}
-		else {
-			Color temperatureColor = convertTemperatureToColor(colorTemperature);
-			float factorBlue = 1 / (float) temperatureColor.getBlue();
-			float factorGreen = 1 / (float) temperatureColor.getGreen();
-			float factorRed = 1 / (float) temperatureColor.getRed();
-			float correctionFactor = (float) Math.pow(factorRed * factorGreen * factorBlue, -1f / 3); // MAGIC_NUMBER
-			factorBlue *= correctionFactor * contrast;
-			factorGreen *= correctionFactor * contrast;
-			factorRed *= correctionFactor * contrast;
-			float offset = BYTE / 2f * (1 - contrast + brightness * contrast + brightness);
-			float oppositeSaturation = (1 - saturation) / 2;
-
-			WritablePixelFormat<ByteBuffer> pixelFormat = PixelFormat.getByteBgraInstance();
-			byte[] buffer = new byte[FOUR * width * height];
-
-			baseImage.getPixelReader().getPixels(0, 0, width, height, pixelFormat, buffer, 0, FOUR * width);
-
-			for (int i = 0; i < buffer.length; i += FOUR) {
-				float blueIn = (buffer[i] & BYTE) * factorBlue;
-				float greenIn = (buffer[i + 1] & BYTE) * factorGreen;
-				float redIn = (buffer[i + 2] & BYTE) * factorRed;
-
-				buffer[i] = toColorByte(saturation * blueIn + oppositeSaturation * greenIn + oppositeSaturation * redIn + offset);
-				buffer[i + 1] = toColorByte(oppositeSaturation * blueIn + saturation * greenIn + oppositeSaturation * redIn + offset);
-				buffer[i + 2] = toColorByte(oppositeSaturation * blueIn + oppositeSaturation * greenIn + saturation * redIn + offset);
-			}
+		Image overlayImage = getOverlayImage(overlayType, side, color, pupilXOffset, pupilYOffset, pupilSize);
+		gc.drawImage(overlayImage, xPosition * width - overlaySize / 2,
+				yPosition * height - overlaySize / 2, overlaySize, overlaySize);
 
-			gc.getPixelWriter().setPixels(0, 0, width, height, pixelFormat, buffer, 0, FOUR * width);
-		}
-
-		if (overlayType != null) {
-			Image overlayImage = getOverlayImage(overlayType, side, color, pupilXOffset, pupilYOffset, pupilSize);
-			gc.setEffect(null);
-			gc.setGlobalBlendMode(BlendMode.SRC_OVER);
-			gc.drawImage(overlayImage, xPosition * width - overlaySize / 2,
-					yPosition * height - overlaySize / 2, overlaySize, overlaySize);
-		}
-
-		return canvas.snapshot(null, null);
-	}
-
-	/**
-	 * Convert a number into a byte (ensuring the appropriate range).
-	 *
-	 * @param number The number.
-	 * @return The resulting byte.
-	 */
-	private static byte toColorByte(final float number) {
-		return (byte) Math.min(BYTE, Math.max(0, number));
+		return canvas.snapshot(null, transformer.getSnapshotImage(width, height));
 	}
 
 	/**
-	 * Convert a temperature into a color value representing the color of this temperature.
+	 * Get an eye photo image with a displayed overlay, positioned via the metadata.
 	 *
-	 * @param temperature The temperature value (in the range -1..1).
-	 * @return The color value.
+	 * @param eyePhoto
+	 *            The eye photo image.
+	 * @param overlayType
+	 *            The overlay type.
+	 * @param color
+	 *            The overlay color.
+	 * @param brightness
+	 *            The brightness of the image.
+	 * @param contrast
+	 *            The contrast of the image.
+	 * @param saturation
+	 *            The saturation of the image.
+	 * @param colorTemperature
+	 *            The color temperature of the image.
+	 * @param resolution
+	 *            Indicator of the resolution of the image.
+	 * @param transformer
+	 *            The color transformer of the view, reusing its buffers and images.
+	 * @return The image with overlay.
 	 */
-	private static Color convertTemperatureToColor(final double temperature) {
-		if (temperature >= 0) {
-			return Color.rgb((int) (BYTE - 150 * temperature), (int) (BYTE - 105 * temperature), BYTE); // MAGIC_NUMBER
-		}
-		else {
-			return Color.rgb(BYTE, (int) (BYTE + 80 * temperature), (int) (BYTE + 145 * temperature)); // MAGIC_NUMBER
-		}
+	public static Image getImageForDisplay(final EyePhoto eyePhoto, // SUPPRESS_CHECKSTYLE Too many parameters
+			final Integer overlayType, final Color color, final float brightness, final float contrast,
+			final float saturation, final float colorTemperature, final Resolution resolution,
+			final ColorTransformer transformer) {
+		return getImageForDisplay(eyePhoto.getImage(resolution), eyePhoto, overlayType, color, brightness, contrast, saturation,
+				colorTemperature, resolution, transformer);
 	}
 
 	/**
-	 * Get an eye photo image with a displayed overlay, positioned via the metadata.
+	 * Get an eye photo image with a displayed overlay, positioned via the metadata, starting from an already loaded image.
 	 *
+	 * @param image
+	 *            The loaded image of the eye photo in the given resolution.
 	 * @param eyePhoto
 	 *            The eye photo image.
 	 * @param overlayType
@@ -517,12 +642,14 @@ public final class ImageUtil {
 	 *            The color temperature of the image.
 	 * @param resolution
 	 *            Indicator of the resolution of the image.
+	 * @param transformer
+	 *            The color transformer of the view, reusing its buffers and images.
 	 * @return The image with overlay.
 	 */
-	public static Image getImageForDisplay(final EyePhoto eyePhoto, // SUPPRESS_CHECKSTYLE Too many parameters
-			final Integer overlayType, final Color color, final float brightness, final float contrast,
-			final float saturation, final float colorTemperature, final Resolution resolution) {
-		Image image = eyePhoto.getImage(resolution);
+	public static Image getImageForDisplay(final Image image, // SUPPRESS_CHECKSTYLE Too many parameters
+			final EyePhoto eyePhoto, final Integer overlayType, final Color color, final float brightness, final float contrast,
+			final float saturation, final float colorTemperature, final Resolution resolution,
+			final ColorTransformer transformer) {
 		JpegMetadata metadata = eyePhoto.getImageMetadata();
 		if (resolution == Resolution.FULL) {
 			// Full resolution does not allow use of Canvas to set brightness, contrast and overlay.
@@ -532,21 +659,51 @@ public final class ImageUtil {
 			if (metadata.getPupilSize() == null) {
 				return ImageUtil.getImageWithOverlay(image, overlayType, eyePhoto.getRightLeft(), color,
 						metadata.getXCenter(), metadata.getYCenter(), metadata.getOverlayScaleFactor(),
-						0, 0, 0.25f, brightness, contrast, saturation, colorTemperature, resolution); // MAGIC_NUMBER
+						0, 0, 0.25f, brightness, contrast, saturation, colorTemperature, resolution, transformer); // MAGIC_NUMBER
 			}
 			else {
 				return ImageUtil.getImageWithOverlay(image, overlayType, eyePhoto.getRightLeft(), color,
 						metadata.getXCenter(), metadata.getYCenter(), metadata.getOverlayScaleFactor(),
 						metadata.getPupilXOffset(), metadata.getPupilYOffset(), metadata.getPupilSize(),
-						brightness, contrast, saturation, colorTemperature, resolution);
+						brightness, contrast, saturation, colorTemperature, resolution, transformer);
 			}
 		}
 		else {
 			return ImageUtil.getImageWithOverlay(image, null, eyePhoto.getRightLeft(), color,
-					0, 0, 1, 0, 0, 0.25f, brightness, contrast, saturation, colorTemperature, resolution); // MAGIC_NUMBER
+					0, 0, 1, 0, 0, 0.25f, brightness, contrast, saturation, colorTemperature, resolution, transformer); // MAGIC_NUMBER
 		}
 	}
 
+	/**
+	 * Do the work for displaying an eye photo which is possible outside the FX application thread: load the image and
+	 * calculate its changed colors. The remaining work is done by getImageForDisplay on the FX application thread.
+	 *
+	 * @param eyePhoto
+	 *            The eye photo image.
+	 * @param brightness
+	 *            The brightness of the image.
+	 * @param contrast
+	 *            The contrast of the image.
+	 * @param saturation
+	 *            The saturation of the image.
+	 * @param colorTemperature
+	 *            The color temperature of the image.
+	 * @param resolution
+	 *            Indicator of the resolution of the image.
+	 * @param transformer
+	 *            The color transformer of the view, reusing its buffers and images.
+	 * @return The image.
+	 */
+	public static Image prepareImageForDisplay(final EyePhoto eyePhoto, final float brightness, final float contrast,
+			final float saturation, final float colorTemperature, final Resolution resolution, final ColorTransformer transformer) {
+		Image loadedImage = eyePhoto.getImage(resolution);
+		boolean hasOriginalColors = brightness == 0 && contrast == 1 && saturation == 1 && colorTemperature == 0;
+		if (resolution != Resolution.FULL && !hasOriginalColors && loadedImage.getProgress() == 1 && !loadedImage.isError()) {
+			transformer.prepare(loadedImage, brightness, contrast, saturation, colorTemperature);
+		}
+		return loadedImage;
+	}
+
 	/**
 	 * Resize an image to the given size.
 	 *
@@ -578,6 +735,82 @@ public final class ImageUtil {
 		return canvas.snapshot(null, null);
 	}
 
+	/**
+	 * Get the memory used by the pixels of an image.
+	 *
+	 * @param image The image.
+	 * @return The number of bytes.
+	 */
+	private static long getByteCount(final Image image) {
+		return (long) FOUR * (long) image.getWidth() * (long) image.getHeight();
+	}
+
+	/**
+	 * The key of a cached overlay or displacement map.
+	 */
+	private static final class OverlayKey {
+		/**
+		 * The overlay type.
+		 */
+		private final int mOverlayType;
+		/**
+		 * The side of the eye, or null if not relevant.
+		 */
+		private final RightLeft mSide;
+		/**
+		 * The overlay color, or null if not relevant.
+		 */
+		private final Color mColor;
+		/**
+		 * The horizontal offset of the pupil, in steps.
+		 */
+		private final int mPupilXOffset;
+		/**
+		 * The vertical offset of the pupil, in steps.
+		 */
+		private final int mPupilYOffset;
+		/**
+		 * The relative size of the pupil, in steps.
+		 */
+		private final int mPupilSize;
+
+		/**
+		 * Create a key.
+		 *
+		 * @param overlayType The overlay type.
+		 * @param side The side of the eye.
+		 * @param color The overlay color.
+		 * @param pupilXOffset The horizontal offset of the pupil, in steps.
+		 * @param pupilYOffset The vertical offset of the pupil, in steps.
+		 * @param pupilSize The relative size of the pupil, in steps.
+		 */
+		private OverlayKey(final int overlayType, final RightLeft side, final Color color, final int pupilXOffset,
+				final int pupilYOffset, final int pupilSize) {
+			mOverlayType = overlayType;
+			mSide = side;
+			mColor = color;
+			mPupilXOffset = pupilXOffset;
+			mPupilYOffset = pupilYOffset;
+			mPupilSize = pupilSize;
+		}
+
+		@Override
+		public boolean equals(final Object other) {
+			if (!(other instanceof OverlayKey)) {
+				return false;
+			}
+			OverlayKey otherKey = (OverlayKey) other;
+			return mOverlayType == otherKey.mOverlayType && mSide == otherKey.mSide // BOOLEAN_EXPRESSION_COMPLEXITY
+					&& Objects.equals(mColor, otherKey.mColor) && mPupilXOffset == otherKey.mPupilXOffset
+					&& mPupilYOffset == otherKey.mPupilYOffset && mPupilSize == otherKey.mPupilSize;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(mOverlayType, mSide, mColor, mPupilXOffset, mPupilYOffset, mPupilSize);
+		}
+	}
+
 	/**
 	 * Enumeration indicating the resolution with which the image should be displayed.
 	 */
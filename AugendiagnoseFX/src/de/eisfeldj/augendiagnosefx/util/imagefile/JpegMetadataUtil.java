@@ -1,10 +1,7 @@
 package de.eisfeldj.augendiagnosefx.util.imagefile;
 
-import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.util.List;
 
 import com.adobe.xmp.XMPException;
@@ -17,8 +14,6 @@ import org.apache.commons.imaging.ImageWriteException;
 import org.apache.commons.imaging.Imaging;
 import org.apache.commons.imaging.common.IImageMetadata;
 import org.apache.commons.imaging.formats.jpeg.JpegImageMetadata;
-import org.apache.commons.imaging.formats.jpeg.exif.ExifRewriter;
-import org.apache.commons.imaging.formats.jpeg.xmp.JpegXmpRewriter;
 import org.apache.commons.imaging.formats.tiff.TiffField;
 import org.apache.commons.imaging.formats.tiff.TiffImageMetadata;
 import org.apache.commons.imaging.formats.tiff.constants.ExifTagConstants;
@@ -29,7 +24,6 @@ import org.apache.commons.imaging.formats.tiff.taginfos.TagInfo;
 import org.apache.commons.imaging.formats.tiff.taginfos.TagInfoShort;
 import org.apache.commons.imaging.formats.tiff.write.TiffOutputDirectory;
 import org.apache.commons.imaging.formats.tiff.write.TiffOutputSet;
-import org.apache.commons.imaging.util.IoUtils;
 
 /**
  * Helper clase to retrieve and save metadata in a JPEG file.
@@ -143,6 +137,28 @@ public final class JpegMetadataUtil {
 
 	}
 
+	/**
+	 * Retrieve the thumbnail embedded in the EXIF data of a file.
+	 *
+	 * @param imageFile
+	 *            the image file.
+	 * @return the JPEG data of the thumbnail, or null if there is no thumbnail.
+	 */
+	public static byte[] getExifThumbnailData(final File imageFile) {
+		try {
+			final IImageMetadata metadata = Imaging.getMetadata(imageFile);
+			if (metadata instanceof JpegImageMetadata) {
+				return ((JpegImageMetadata) metadata).getEXIFThumbnailData();
+			}
+			else {
+				return null;
+			}
+		}
+		catch (Exception e) {
+			return null;
+		}
+	}
+
 	/**
 	 * Log all XML data of the file.
 	 *
@@ -179,7 +195,7 @@ public final class JpegMetadataUtil {
 	}
 
 	/**
-	 * Retrieve the relevant metadata of an image file.
+	 * Retrieve the relevant metadata of an image file. The file is read only up to the start of the image data.
 	 *
 	 * @param jpegImageFileName
 	 *            the file for which metadata should be retrieved.
@@ -190,12 +206,11 @@ public final class JpegMetadataUtil {
 	 *             thrown in case of other errors while reading metadata.
 	 */
 	public static JpegMetadata getMetadata(final String jpegImageFileName) throws ImageReadException, IOException {
-		checkJpeg(jpegImageFileName);
 		JpegMetadata result = new JpegMetadata();
-		final File imageFile = new File(jpegImageFileName);
+		JpegSegmentRewriter reader = new JpegSegmentRewriter(new File(jpegImageFileName));
 
 		// Retrieve XMP data
-		String xmpString = Imaging.getXmpXml(imageFile);
+		String xmpString = reader.getXmpXml();
 		XmpHandler parser = new XmpHandler(xmpString);
 
 		// Standard fields are pre-filled with custom data
@@ -242,16 +257,8 @@ public final class JpegMetadataUtil {
 
 		// Retrieve EXIF data
 		try {
-			final IImageMetadata metadata = Imaging.getMetadata(imageFile);
-
-			TiffImageMetadata tiffImageMetadata = null;
-			if (metadata instanceof JpegImageMetadata) {
-				tiffImageMetadata = ((JpegImageMetadata) metadata).getExif();
-			}
-			else if (metadata instanceof TiffImageMetadata) {
-				tiffImageMetadata = (TiffImageMetadata) metadata;
-			}
-			else {
+			TiffImageMetadata tiffImageMetadata = reader.getExifMetadata();
+			if (tiffImageMetadata == null) {
 				return result;
 			}
 
@@ -303,7 +310,8 @@ public final class JpegMetadataUtil {
 	}
 
 	/**
-	 * Change metadata of the image (EXIF and XMP as far as applicable).
+	 * Change metadata of the image (EXIF and XMP as far as applicable). If only the XMP data changes and fits into the
+	 * padding of the existing XMP packet, then it is patched in place. Otherwise, the file is rewritten in a single pass.
 	 *
 	 * @param jpegImageFileName
 	 *            the file for which metadata should be changed.
@@ -321,184 +329,167 @@ public final class JpegMetadataUtil {
 	public static void changeMetadata(final String jpegImageFileName, final JpegMetadata metadata) throws IOException,
 			ImageReadException, ImageWriteException, XMPException {
 		if (changeJpegAllowed()) {
-			checkJpeg(jpegImageFileName);
-			changeXmpMetadata(jpegImageFileName, metadata);
-
-			if (changeExifAllowed()) {
-				changeExifMetadata(jpegImageFileName, metadata);
-			}
-		}
-	}
+			File jpegImageFile = new File(jpegImageFileName);
+			String tempFileName = jpegImageFileName + ".temp";
+			File tempFile = new File(tempFileName);
 
-	/**
-	 * Change the EXIF metadata.
-	 *
-	 * @param jpegImageFileName
-	 *            the file for which metadata should be changed.
-	 * @param metadata
-	 *            the new metadata
-	 * @throws ImageReadException
-	 *             thrown if the metadata cannot be read.
-	 * @throws ImageWriteException
-	 *             thrown if the metadata cannot be written.
-	 * @throws IOException
-	 *             thrown in case of other errors while reading metadata.
-	 */
-	@SuppressWarnings("resource")
-	private static void changeExifMetadata(final String jpegImageFileName, final JpegMetadata metadata)
-			throws IOException, ImageReadException, ImageWriteException {
-		File jpegImageFile = new File(jpegImageFileName);
-		String tempFileName = jpegImageFileName + ".temp";
-		File tempFile = new File(tempFileName);
-
-		verifyTempFile(tempFile);
-
-		OutputStream os = null;
-		try {
-			TiffOutputSet outputSet = null;
-
-			// note that metadata might be null if no metadata is found.
-			final IImageMetadata imageMetadata = Imaging.getMetadata(jpegImageFile);
-			final JpegImageMetadata jpegMetadata = (JpegImageMetadata) imageMetadata;
-			if (jpegMetadata != null) {
-				// note that exif might be null if no Exif metadata is found.
-				final TiffImageMetadata exif = jpegMetadata.getExif();
+			JpegSegmentRewriter rewriter = new JpegSegmentRewriter(jpegImageFile);
+			String xmpString = getChangedXmpString(rewriter.getXmpXml(), metadata);
+			boolean changeExif = changeExifAllowed() && !isExifUpToDate(rewriter, metadata);
 
-				if (exif != null) {
-					outputSet = exif.getOutputSet();
-				}
-			}
-
-			if (outputSet == null) {
-				outputSet = new TiffOutputSet();
+			if (!changeExif && rewriter.updateXmpInPlace(xmpString)) {
+				return;
 			}
 
-			final TiffOutputDirectory rootDirectory = outputSet.getOrCreateRootDirectory();
-			final TiffOutputDirectory exifDirectory = outputSet.getOrCreateExifDirectory();
-
-			if (metadata.getTitle() != null) {
-				rootDirectory.removeField(MicrosoftTagConstants.EXIF_TAG_XPTITLE);
-				rootDirectory.add(MicrosoftTagConstants.EXIF_TAG_XPTITLE, metadata.getTitle());
-
-				rootDirectory.removeField(TiffTagConstants.TIFF_TAG_IMAGE_DESCRIPTION);
-				rootDirectory.add(TiffTagConstants.TIFF_TAG_IMAGE_DESCRIPTION, metadata.getTitle());
-			}
+			verifyTempFile(tempFile);
+			rewriter.setXmpXml(xmpString);
 
-			if (metadata.getComment() != null) {
-				rootDirectory.removeField(MicrosoftTagConstants.EXIF_TAG_XPCOMMENT);
-				rootDirectory.add(MicrosoftTagConstants.EXIF_TAG_XPCOMMENT, metadata.getComment());
-				exifDirectory.removeField(ExifTagConstants.EXIF_TAG_USER_COMMENT);
-				exifDirectory.add(ExifTagConstants.EXIF_TAG_USER_COMMENT, metadata.getComment());
-			}
-
-			if (metadata.getSubject() != null) {
-				rootDirectory.removeField(MicrosoftTagConstants.EXIF_TAG_XPSUBJECT);
-				rootDirectory.add(MicrosoftTagConstants.EXIF_TAG_XPSUBJECT, metadata.getSubject());
-			}
-
-			try {
-				os = new FileOutputStream(tempFile);
-				os = new BufferedOutputStream(os);
-				new ExifRewriter().updateExifMetadataLossless(jpegImageFile, os, outputSet);
-			}
-			catch (Exception e) {
-				Logger.warning("Error storing EXIF data lossless - try lossy approach");
-				os = new FileOutputStream(tempFile);
-				os = new BufferedOutputStream(os);
-				new ExifRewriter().updateExifMetadataLossy(jpegImageFile, os, outputSet);
+			if (changeExif) {
+				// note that the output set is null if no EXIF metadata is found.
+				TiffOutputSet outputSet = rewriter.getExifOutputSet();
+				if (outputSet == null) {
+					outputSet = new TiffOutputSet();
+				}
+				changeExifMetadata(outputSet, metadata);
+				rewriter.setExif(outputSet);
 			}
 
-			IoUtils.closeQuietly(true, os);
+			rewriter.write(tempFile);
 
 			if (!FileUtil.moveFile(tempFile, jpegImageFile)) {
 				throw new IOException("Failed to rename file " + tempFileName + " to " + jpegImageFileName);
 			}
 		}
-		finally {
-			IoUtils.closeQuietly(false, os);
-		}
-
 	}
 
 	/**
-	 * Change the XMP metadata.
+	 * Check if the EXIF data of the file already contains the metadata, so that it does not need to be changed.
 	 *
-	 * @param jpegImageFileName
-	 *            the file for which metadata should be changed.
+	 * @param rewriter
+	 *            the rewriter of the file.
 	 * @param metadata
 	 *            the new metadata.
+	 * @return true if the EXIF data contains the metadata.
+	 */
+	private static boolean isExifUpToDate(final JpegSegmentRewriter rewriter, final JpegMetadata metadata) {
+		try {
+			TiffImageMetadata exif = rewriter.getExifMetadata();
+			return exif != null
+					&& hasExifValue(exif, MicrosoftTagConstants.EXIF_TAG_XPTITLE, metadata.getTitle())
+					&& hasExifValue(exif, TiffTagConstants.TIFF_TAG_IMAGE_DESCRIPTION, metadata.getTitle())
+					&& hasExifValue(exif, MicrosoftTagConstants.EXIF_TAG_XPCOMMENT, metadata.getComment())
+					&& hasExifValue(exif, ExifTagConstants.EXIF_TAG_USER_COMMENT, metadata.getComment())
+					&& hasExifValue(exif, MicrosoftTagConstants.EXIF_TAG_XPSUBJECT, metadata.getSubject());
+		}
+		catch (Exception e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Check if an EXIF field has a certain value.
 	 *
+	 * @param exif
+	 *            the EXIF data.
+	 * @param tagInfo
+	 *            the tag of the field.
+	 * @param value
+	 *            the value. Null values are not stored and hence always match.
+	 * @return true if the field has the value.
 	 * @throws ImageReadException
-	 *             thrown if the metadata cannot be read.
+	 *             thrown if the field cannot be read.
+	 */
+	private static boolean hasExifValue(final TiffImageMetadata exif, final TagInfo tagInfo, final String value) throws ImageReadException {
+		if (value == null) {
+			return true;
+		}
+		TiffField field = exif.findField(tagInfo);
+		return field != null && value.equals(field.getStringValue());
+	}
+
+	/**
+	 * Change the EXIF metadata.
+	 *
+	 * @param outputSet
+	 *            the EXIF data to be changed.
+	 * @param metadata
+	 *            the new metadata
 	 * @throws ImageWriteException
 	 *             thrown if the metadata cannot be written.
-	 * @throws IOException
-	 *             thrown in case of other errors while reading metadata.
-	 * @throws XMPException
-	 *             thrown in case of issues with XML handling.
 	 */
-	@SuppressWarnings("resource")
-	private static void changeXmpMetadata(final String jpegImageFileName, final JpegMetadata metadata)
-			throws IOException, ImageReadException, ImageWriteException, XMPException {
-		File jpegImageFile = new File(jpegImageFileName);
-		String tempFileName = jpegImageFileName + ".temp";
-		File tempFile = new File(tempFileName);
+	private static void changeExifMetadata(final TiffOutputSet outputSet, final JpegMetadata metadata) throws ImageWriteException {
+		final TiffOutputDirectory rootDirectory = outputSet.getOrCreateRootDirectory();
+		final TiffOutputDirectory exifDirectory = outputSet.getOrCreateExifDirectory();
 
-		verifyTempFile(tempFile);
+		if (metadata.getTitle() != null) {
+			rootDirectory.removeField(MicrosoftTagConstants.EXIF_TAG_XPTITLE);
+			rootDirectory.add(MicrosoftTagConstants.EXIF_TAG_XPTITLE, metadata.getTitle());
 
-		OutputStream os = null;
-		try {
-			final String xmpString = Imaging.getXmpXml(jpegImageFile);
+			rootDirectory.removeField(TiffTagConstants.TIFF_TAG_IMAGE_DESCRIPTION);
+			rootDirectory.add(TiffTagConstants.TIFF_TAG_IMAGE_DESCRIPTION, metadata.getTitle());
+		}
 
-			XmpHandler parser = new XmpHandler(xmpString);
+		if (metadata.getComment() != null) {
+			rootDirectory.removeField(MicrosoftTagConstants.EXIF_TAG_XPCOMMENT);
+			rootDirectory.add(MicrosoftTagConstants.EXIF_TAG_XPCOMMENT, metadata.getComment());
+			exifDirectory.removeField(ExifTagConstants.EXIF_TAG_USER_COMMENT);
+			exifDirectory.add(ExifTagConstants.EXIF_TAG_USER_COMMENT, metadata.getComment());
+		}
 
-			if (changeExifAllowed()) {
-				// Change standard fields only if EXIF allowed
-				parser.setDcTitle(metadata.getTitle());
-				parser.setDcDescription(metadata.getDescription());
-				parser.setDcSubject(metadata.getSubject());
-				parser.setUserComment(metadata.getComment());
-				parser.setMicrosoftPerson(metadata.getPerson());
-			}
+		if (metadata.getSubject() != null) {
+			rootDirectory.removeField(MicrosoftTagConstants.EXIF_TAG_XPSUBJECT);
+			rootDirectory.add(MicrosoftTagConstants.EXIF_TAG_XPSUBJECT, metadata.getSubject());
+		}
+	}
 
-			parser.setJeItem(XmpHandler.ITEM_TITLE, metadata.getTitle());
-			parser.setJeItem(XmpHandler.ITEM_DESCRIPTION, metadata.getDescription());
-			parser.setJeItem(XmpHandler.ITEM_SUBJECT, metadata.getSubject());
-			parser.setJeItem(XmpHandler.ITEM_COMMENT, metadata.getComment());
-			parser.setJeItem(XmpHandler.ITEM_PERSON, metadata.getPerson());
-
-			parser.setJeItem(XmpHandler.ITEM_X_CENTER, metadata.getXCenterString());
-			parser.setJeItem(XmpHandler.ITEM_Y_CENTER, metadata.getYCenterString());
-			parser.setJeItem(XmpHandler.ITEM_OVERLAY_SCALE_FACTOR, metadata.getOverlayScaleFactorString());
-			parser.setJeItem(XmpHandler.ITEM_X_POSITION, metadata.getXPositionString());
-			parser.setJeItem(XmpHandler.ITEM_Y_POSITION, metadata.getYPositionString());
-			parser.setJeItem(XmpHandler.ITEM_ZOOM_FACTOR, metadata.getZoomFactorString());
-			parser.setJeDate(XmpHandler.ITEM_ORGANIZE_DATE, metadata.getOrganizeDate());
-			parser.setJeItem(XmpHandler.ITEM_RIGHT_LEFT, metadata.getRightLeftString());
-			parser.setJeItem(XmpHandler.ITEM_BRIGHTNESS, metadata.getBrightnessString());
-			parser.setJeItem(XmpHandler.ITEM_CONTRAST, metadata.getContrastString());
-			parser.setJeItem(XmpHandler.ITEM_SATURATION, metadata.getSaturationString());
-			parser.setJeItem(XmpHandler.ITEM_COLOR_TEMPERATURE, metadata.getColorTemperatureString());
-			parser.setJeItem(XmpHandler.ITEM_OVERLAY_COLOR, metadata.getOverlayColorString());
-			parser.setJeItem(XmpHandler.ITEM_PUPIL_SIZE, metadata.getPupilSizeString());
-			parser.setJeItem(XmpHandler.ITEM_PUPIL_X_OFFSET, metadata.getPupilXOffsetString());
-			parser.setJeItem(XmpHandler.ITEM_PUPIL_Y_OFFSET, metadata.getPupilYOffsetString());
-			parser.setJeInt(XmpHandler.ITEM_FLAGS, metadata.getFlags());
-
-			os = new FileOutputStream(tempFile);
-			os = new BufferedOutputStream(os);
-
-			new JpegXmpRewriter().updateXmpXml(jpegImageFile, os, parser.getXmpString());
-
-			IoUtils.closeQuietly(true, os);
+	/**
+	 * Change the XMP metadata.
+	 *
+	 * @param xmpString
+	 *            the existing XMP data, or null if there is none.
+	 * @param metadata
+	 *            the new metadata.
+	 * @return the changed XMP data.
+	 * @throws XMPException
+	 *             thrown in case of issues with XML handling.
+	 */
+	private static String getChangedXmpString(final String xmpString, final JpegMetadata metadata) throws XMPException {
+		XmpHandler parser = new XmpHandler(xmpString);
 
-			if (!FileUtil.moveFile(tempFile, jpegImageFile)) {
-				throw new IOException("Failed to rename file " + tempFileName + " to " + jpegImageFileName);
-			}
-		}
-		finally {
-			IoUtils.closeQuietly(false, os);
+		if (changeExifAllowed()) {
+			// Change standard fields only if EXIF allowed
+			parser.setDcTitle(metadata.getTitle());
+			parser.setDcDescription(metadata.getDescription());
+			parser.setDcSubject(metadata.getSubject());
+			parser.setUserComment(metadata.getComment());
+			parser.setMicrosoftPerson(metadata.getPerson());
 		}
+
+		parser.setJeItem(XmpHandler.ITEM_TITLE, metadata.getTitle());
+		parser.setJeItem(XmpHandler.ITEM_DESCRIPTION, metadata.getDescription());
+		parser.setJeItem(XmpHandler.ITEM_SUBJECT, metadata.getSubject());
+		parser.setJeItem(XmpHandler.ITEM_COMMENT, metadata.getComment());
+		parser.setJeItem(XmpHandler.ITEM_PERSON, metadata.getPerson());
+
+		parser.setJeItem(XmpHandler.ITEM_X_CENTER, metadata.getXCenterString());
+		parser.setJeItem(XmpHandler.ITEM_Y_CENTER, metadata.getYCenterString());
+		parser.setJeItem(XmpHandler.ITEM_OVERLAY_SCALE_FACTOR, metadata.getOverlayScaleFactorString());
+		parser.setJeItem(XmpHandler.ITEM_X_POSITION, metadata.getXPositionString());
+		parser.setJeItem(XmpHandler.ITEM_Y_POSITION, metadata.getYPositionString());
+		parser.setJeItem(XmpHandler.ITEM_ZOOM_FACTOR, metadata.getZoomFactorString());
+		parser.setJeDate(XmpHandler.ITEM_ORGANIZE_DATE, metadata.getOrganizeDate());
+		parser.setJeItem(XmpHandler.ITEM_RIGHT_LEFT, metadata.getRightLeftString());
+		parser.setJeItem(XmpHandler.ITEM_BRIGHTNESS, metadata.getBrightnessString());
+		parser.setJeItem(XmpHandler.ITEM_CONTRAST, metadata.getContrastString());
+		parser.setJeItem(XmpHandler.ITEM_SATURATION, metadata.getSaturationString());
+		parser.setJeItem(XmpHandler.ITEM_COLOR_TEMPERATURE, metadata.getColorTemperatureString());
+		parser.setJeItem(XmpHandler.ITEM_OVERLAY_COLOR, metadata.getOverlayColorString());
+		parser.setJeItem(XmpHandler.ITEM_PUPIL_SIZE, metadata.getPupilSizeString());
+		parser.setJeItem(XmpHandler.ITEM_PUPIL_X_OFFSET, metadata.getPupilXOffsetString());
+		parser.setJeItem(XmpHandler.ITEM_PUPIL_Y_OFFSET, metadata.getPupilYOffsetString());
+		parser.setJeInt(XmpHandler.ITEM_FLAGS, metadata.getFlags());
+
+		return parser.getXmpString();
 	}
 
 	/**
@@ -1,19 +1,46 @@
 package de.eisfeldj.augendiagnosefx.util.imagefile;
 
+import java.io.File;
 import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import de.eisfeldj.augendiagnosefx.controller.MainController;
 import de.eisfeldj.augendiagnosefx.util.DialogUtil;
 import de.eisfeldj.augendiagnosefx.util.Logger;
+import de.eisfeldj.augendiagnosefx.util.LruCache;
 import de.eisfeldj.augendiagnosefx.util.ResourceConstants;
 
 import javafx.application.Platform;
 
 /**
  * Utility class to help storing metadata in jpg files in a synchronized way, preventing to store the same file twice in
- * parallel.
+ * parallel. Metadata are written behind by a bounded pool of workers. Requests on the same file which are not yet started
+ * are coalesced, so that only the last one is written. Metadata read from files is cached as long as the file is unchanged.
  */
 public final class JpegSynchronizationUtil {
+	/**
+	 * The number of worker threads writing metadata.
+	 */
+	private static final int WORKER_COUNT = 2;
+	/**
+	 * The maximum number of files waiting to be written. Further requests wait until there is space in the queue. Requests from
+	 * the FX application thread, which must not wait, are rejected instead.
+	 */
+	private static final int MAX_QUEUED_REQUESTS = 64;
+	/**
+	 * The number of writes after which the statistics are logged.
+	 */
+	private static final int STATISTICS_INTERVAL = 100;
+	/**
+	 * Factor for converting nanoseconds into milliseconds.
+	 */
+	private static final double NANOS_PER_MILLI = 1000000.0;
+	/**
+	 * The maximum number of files for which metadata is cached.
+	 */
+	private static final int METADATA_CACHE_SIZE = 500;
 
 	/**
 	 * Hide default constructor.
@@ -22,19 +49,67 @@ public final class JpegSynchronizationUtil {
 		throw new UnsupportedOperationException();
 	}
 
+	/**
+	 * The lock for the request maps and statistics.
+	 */
+	private static final Object LOCK = new Object();
+	/**
+	 * The executor writing the metadata.
+	 */
+	private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(WORKER_COUNT, runnable -> {
+		Thread thread = new Thread(runnable, "JpegSaver");
+		thread.setDaemon(true);
+		return thread;
+	});
+
 	/**
 	 * Storage for currently running save tasks.
 	 */
-	private static HashMap<String, JpegMetadata> mRunningSaveRequests = new HashMap<>();
+	private static Map<String, JpegMetadata> mRunningSaveRequests = new HashMap<>();
 	/**
 	 * Storage for queued save tasks.
 	 */
-	private static HashMap<String, JpegMetadata> mQueuedSaveRequests = new HashMap<>();
+	private static Map<String, JpegMetadata> mQueuedSaveRequests = new HashMap<>();
+
+	/**
+	 * The metadata read from files, by path.
+	 */
+	private static final LruCache<String, CachedMetadata> METADATA_CACHE = new LruCache<>(METADATA_CACHE_SIZE);
+	/**
+	 * Counter of cache invalidations, preventing that metadata read before an invalidation is cached.
+	 */
+	private static long mCacheGeneration = 0;
+
+	/**
+	 * The number of successful writes.
+	 */
+	private static int mWriteCount = 0;
+	/**
+	 * The number of failed writes.
+	 */
+	private static int mFailureCount = 0;
+	/**
+	 * The number of requests replaced by a later request on the same file.
+	 */
+	private static int mCoalescedCount = 0;
+	/**
+	 * The number of requests rejected due to a full queue.
+	 */
+	private static int mRejectedCount = 0;
+	/**
+	 * The total duration of all writes in nanoseconds.
+	 */
+	private static long mTotalWriteTime = 0;
+	/**
+	 * The maximum duration of a write in nanoseconds.
+	 */
+	private static long mMaxWriteTime = 0;
 
 	/**
 	 * This method handles a request to retrieve metadata for a file. If there is no running async task to update
 	 * metadata for this file, then the data is taken directly from the file. Otherwise, it is taken from the last
-	 * metadata to be stored for this file.
+	 * metadata to be stored for this file. Metadata read from the file is cached until the file changes, and a copy is
+	 * returned.
 	 *
 	 * @param pathname
 	 *            the path of the jpg file.
@@ -42,42 +117,55 @@ public final class JpegSynchronizationUtil {
 	 */
 	public static JpegMetadata getJpegMetadata(final String pathname) {
 		JpegMetadata cachedMetadata = null;
+		File file = new File(pathname);
+		long lastModified = file.lastModified();
+		long length = file.length();
+		long cacheGeneration;
 
-		try {
-			JpegMetadataUtil.checkJpeg(pathname);
-		}
-		catch (Exception e) {
-			Logger.warning(e.getMessage());
-			return null;
-		}
-
-		synchronized (JpegSynchronizationUtil.class) {
+		synchronized (LOCK) {
 			if (mQueuedSaveRequests.containsKey(pathname)) {
 				cachedMetadata = mQueuedSaveRequests.get(pathname);
 			}
 			else if (mRunningSaveRequests.containsKey(pathname)) {
 				cachedMetadata = mRunningSaveRequests.get(pathname);
 			}
+			else {
+				CachedMetadata cacheEntry = METADATA_CACHE.get(pathname);
+				if (cacheEntry != null && cacheEntry.mLastModified == lastModified && cacheEntry.mLength == length) {
+					return cacheEntry.mMetadata.copy();
+				}
+			}
+			cacheGeneration = mCacheGeneration;
 		}
 
 		if (cachedMetadata != null) {
 			Logger.info("Retrieve cached metadata for file " + pathname);
 			return cachedMetadata;
 		}
-		else {
-			try {
-				return JpegMetadataUtil.getMetadata(pathname);
-			}
-			catch (Exception e) {
-				Logger.error("Failed to retrieve metadata for file " + pathname, e);
-				return new JpegMetadata();
+
+		try {
+			JpegMetadata metadata = JpegMetadataUtil.getMetadata(pathname);
+			synchronized (LOCK) {
+				if (cacheGeneration == mCacheGeneration) {
+					METADATA_CACHE.put(pathname, new CachedMetadata(metadata.copy(), lastModified, length));
+				}
 			}
+			return metadata;
+		}
+		catch (JpegSegmentRewriter.NoJpegException e) {
+			Logger.warning(e.getMessage());
+			return null;
+		}
+		catch (Exception e) {
+			Logger.error("Failed to retrieve metadata for file " + pathname, e);
+			return new JpegMetadata();
 		}
 	}
 
 	/**
-	 * This method handles a request to update metadata on a file. If no such request on the file is in process, then an
-	 * async task is started to update the metadata. Otherwise, it is put on the queue.
+	 * This method handles a request to update metadata on a file. If there is already a queued request on the file, then
+	 * it is replaced. Otherwise, the request is queued. If the queue is full, the method waits until there is space. If
+	 * called in the FX application thread, the request is rejected instead, and an error is displayed.
 	 *
 	 * @param pathname
 	 *            the path of the jpg file.
@@ -93,16 +181,54 @@ public final class JpegSynchronizationUtil {
 			return;
 		}
 
-		synchronized (JpegSynchronizationUtil.class) {
-			MainController.setSaveIconVisibility(true);
+		boolean wasIdle;
+		synchronized (LOCK) {
+			// The FX application thread does not wait.
+			boolean mayWait = !Platform.isFxApplicationThread();
+			while (mayWait && isQueueFull(pathname)) {
+				try {
+					LOCK.wait();
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+			}
+
+			if (isQueueFull(pathname)) {
+				mRejectedCount++;
+				Logger.warning("Rejected to save file " + pathname + ", as the save queue is full.");
+				DialogUtil.displayError(ResourceConstants.MESSAGE_ERROR_FAILED_TO_STORE_METADATA, pathname);
+				return;
+			}
 
-			if (mRunningSaveRequests.containsKey(pathname)) {
+			invalidateCache(pathname);
+			if (mQueuedSaveRequests.containsKey(pathname)) {
 				mQueuedSaveRequests.put(pathname, metadata);
+				mCoalescedCount++;
+				return;
 			}
-			else {
-				triggerJpegSaverTask(pathname, metadata);
+
+			wasIdle = !hasRunningSaveRequests();
+			mQueuedSaveRequests.put(pathname, metadata);
+			if (!mRunningSaveRequests.containsKey(pathname)) {
+				EXECUTOR.execute(() -> save(pathname));
 			}
 		}
+		if (wasIdle) {
+			updateSaveIcon();
+		}
+	}
+
+	/**
+	 * Check if the queue has no space for a request on a file. Must be called within the lock.
+	 *
+	 * @param pathname
+	 *            The path of the jpg file.
+	 * @return true if the request can neither be queued nor replace a queued request.
+	 */
+	private static boolean isQueueFull(final String pathname) {
+		return !mQueuedSaveRequests.containsKey(pathname) && mQueuedSaveRequests.size() >= MAX_QUEUED_REQUESTS;
 	}
 
 	/**
@@ -111,89 +237,205 @@ public final class JpegSynchronizationUtil {
 	 * @return true if there is a running or pending save request.
 	 */
 	public static boolean hasRunningSaveRequests() {
-		return mRunningSaveRequests.size() > 0 || mQueuedSaveRequests.size() > 0;
+		synchronized (LOCK) {
+			return mRunningSaveRequests.size() > 0 || mQueuedSaveRequests.size() > 0;
+		}
 	}
 
 	/**
-	 * Do cleanup from the last JpegSaverThread and trigger the next task on the same file, if existing.
+	 * Wait until all running and pending save requests are finished.
+	 *
+	 * @param timeout
+	 *            The maximum time to wait in milliseconds.
+	 * @return true if all requests are finished.
+	 */
+	public static boolean flush(final long timeout) {
+		long endTime = System.currentTimeMillis() + timeout;
+		synchronized (LOCK) {
+			while (hasRunningSaveRequests()) {
+				long remainingTime = endTime - System.currentTimeMillis();
+				if (remainingTime <= 0) {
+					return false;
+				}
+				try {
+					LOCK.wait(remainingTime);
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Save the last queued metadata of a file.
 	 *
 	 * @param pathname
 	 *            The path of the jpg file.
 	 */
-	private static void triggerNextFromQueue(final String pathname) {
-		synchronized (JpegSynchronizationUtil.class) {
+	private static void save(final String pathname) {
+		JpegMetadata metadata;
+		synchronized (LOCK) {
+			metadata = mQueuedSaveRequests.remove(pathname);
+			if (metadata == null) {
+				return;
+			}
+			mRunningSaveRequests.put(pathname, metadata);
+			LOCK.notifyAll();
+		}
+
+		Logger.info("Starting to save file " + pathname);
+		long startTime = System.nanoTime();
+		boolean success;
+		try {
+			JpegMetadataUtil.changeMetadata(pathname, metadata);
+			Logger.info("Successfully saved file " + pathname);
+			success = true;
+		}
+		catch (Exception e) {
+			Logger.error("Failed to save file " + pathname, e);
+			DialogUtil.displayError(ResourceConstants.MESSAGE_ERROR_FAILED_TO_STORE_METADATA, pathname);
+			success = false;
+		}
+		long writeTime = System.nanoTime() - startTime;
+
+		boolean isIdle;
+		boolean logStatistics = false;
+		synchronized (LOCK) {
 			mRunningSaveRequests.remove(pathname);
+			invalidateCache(pathname);
 			if (mQueuedSaveRequests.containsKey(pathname)) {
 				Logger.info("Executing queued store request for file " + pathname);
-				JpegMetadata newMetadata = mQueuedSaveRequests.get(pathname);
-				mQueuedSaveRequests.remove(pathname);
-				triggerJpegSaverTask(pathname, newMetadata);
+				EXECUTOR.execute(() -> save(pathname));
 			}
-			if (!hasRunningSaveRequests()) {
-				Platform.runLater(new Runnable() {
-					@Override
-					public void run() {
-						MainController.setSaveIconVisibility(false);
-					}
-				});
+			if (success) {
+				mWriteCount++;
+				mTotalWriteTime += writeTime;
+				mMaxWriteTime = Math.max(mMaxWriteTime, writeTime);
+				logStatistics = mWriteCount % STATISTICS_INTERVAL == 0;
+			}
+			else {
+				mFailureCount++;
 			}
+			isIdle = !hasRunningSaveRequests();
+			LOCK.notifyAll();
+		}
+		if (isIdle) {
+			updateSaveIcon();
+		}
+		if (logStatistics) {
+			Logger.info(getStatistics());
 		}
 	}
 
 	/**
-	 * Utility method to start the JpegSaverThread so save a jpg file with metadata.
+	 * Remove the cached metadata of a file. Must be called within the lock.
 	 *
 	 * @param pathname
-	 *            the path of the jpg file.
-	 * @param metadata
-	 *            the metadata.
+	 *            The path of the jpg file.
+	 */
+	private static void invalidateCache(final String pathname) {
+		METADATA_CACHE.remove(pathname);
+		mCacheGeneration++;
+	}
+
+	/**
+	 * Update the save icon, so that it is visible while there are save requests.
 	 */
-	private static void triggerJpegSaverTask(final String pathname, final JpegMetadata metadata) {
-		mRunningSaveRequests.put(pathname, metadata);
-		JpegSaverThread thread = new JpegSaverThread(pathname, metadata);
-		thread.start();
+	private static void updateSaveIcon() {
+		Platform.runLater(() -> MainController.setSaveIconVisibility(hasRunningSaveRequests()));
 	}
 
 	/**
-	 * Thread to save a JPEG file asynchronously with changed metadata.
+	 * Get the number of files waiting to be written.
+	 *
+	 * @return The queue length.
 	 */
-	private static final class JpegSaverThread extends Thread {
+	public static int getQueueLength() {
+		synchronized (LOCK) {
+			return mQueuedSaveRequests.size();
+		}
+	}
+
+	/**
+	 * Get the number of successful writes.
+	 *
+	 * @return The number of writes.
+	 */
+	public static int getWriteCount() {
+		synchronized (LOCK) {
+			return mWriteCount;
+		}
+	}
+
+	/**
+	 * Get the number of failed writes.
+	 *
+	 * @return The number of failures.
+	 */
+	public static int getFailureCount() {
+		synchronized (LOCK) {
+			return mFailureCount;
+		}
+	}
+
+	/**
+	 * Get the average duration of a successful write.
+	 *
+	 * @return The average write latency in milliseconds.
+	 */
+	public static double getAverageWriteLatency() {
+		synchronized (LOCK) {
+			return mTotalWriteTime / NANOS_PER_MILLI / Math.max(1, mWriteCount);
+		}
+	}
+
+	/**
+	 * Get the write statistics as text.
+	 *
+	 * @return The statistics.
+	 */
+	public static String getStatistics() {
+		synchronized (LOCK) {
+			return String.format("Saved %d files, failed %d, coalesced %d, rejected %d, queued %d. Write latency average %.1f ms, max %.1f ms",
+					mWriteCount, mFailureCount, mCoalescedCount, mRejectedCount, mQueuedSaveRequests.size(), getAverageWriteLatency(),
+					mMaxWriteTime / NANOS_PER_MILLI);
+		}
+	}
+
+	/**
+	 * Metadata read from a file, together with the file properties at the time of reading.
+	 */
+	private static final class CachedMetadata {
 		/**
-		 * The path of the jpg file.
+		 * The metadata.
 		 */
-		private String mPathname;
+		private final JpegMetadata mMetadata;
 		/**
-		 * The changed metadata.
+		 * The modification time of the file.
 		 */
-		private JpegMetadata mMetadata;
+		private final long mLastModified;
+		/**
+		 * The length of the file.
+		 */
+		private final long mLength;
 
 		/**
-		 * Constructor for the task.
+		 * Constructor.
 		 *
-		 * @param pathname
-		 *            the path of the jpg file.
 		 * @param metadata
-		 *            the metadata.
+		 *            The metadata.
+		 * @param lastModified
+		 *            The modification time of the file.
+		 * @param length
+		 *            The length of the file.
 		 */
-		private JpegSaverThread(final String pathname, final JpegMetadata metadata) {
-			this.mPathname = pathname;
-			this.mMetadata = metadata;
-		}
-
-		@Override
-		public void run() {
-			Logger.info("Starting thread to save file " + mPathname);
-
-			try {
-				JpegMetadataUtil.changeMetadata(mPathname, mMetadata);
-				Logger.info("Successfully saved file " + mPathname);
-			}
-			catch (Exception e) {
-				Logger.error("Failed to save file " + mPathname, e);
-				DialogUtil.displayError(ResourceConstants.MESSAGE_ERROR_FAILED_TO_STORE_METADATA, mPathname);
-			}
-			triggerNextFromQueue(mPathname);
+		private CachedMetadata(final JpegMetadata metadata, final long lastModified, final long length) {
+			mMetadata = metadata;
+			mLastModified = lastModified;
+			mLength = length;
 		}
 	}
-
 }
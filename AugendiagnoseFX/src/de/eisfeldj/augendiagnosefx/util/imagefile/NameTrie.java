@@ -0,0 +1,103 @@
+package de.eisfeldj.augendiagnosefx.util.imagefile;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Trie of the lower case parts of names. Each node holds the names having a name part starting with the prefix of the
+ * node, so that the names matching a search string are found in time proportional to the length of the search string.
+ */
+final class NameTrie {
+	/**
+	 * The root node.
+	 */
+	private final Node mRoot = new Node();
+
+	/**
+	 * Add a name to the trie.
+	 *
+	 * @param name The name.
+	 */
+	void add(final String name) {
+		for (String namePart : getNameParts(name)) {
+			Node node = mRoot;
+			for (int i = 0; i < namePart.length(); i++) {
+				node = node.mChildren.computeIfAbsent(namePart.charAt(i), key -> new Node());
+				node.mNames.add(name);
+			}
+		}
+	}
+
+	/**
+	 * Remove a name from the trie. Nodes without names are removed.
+	 *
+	 * @param name The name.
+	 */
+	void remove(final String name) {
+		for (String namePart : getNameParts(name)) {
+			Node node = mRoot;
+			for (int i = 0; i < namePart.length(); i++) {
+				Node child = node.mChildren.get(namePart.charAt(i));
+				if (child == null) {
+					break;
+				}
+				child.mNames.remove(name);
+				if (child.mNames.isEmpty()) {
+					// The names of a node are contained in the names of its parent, so the subtree is empty.
+					node.mChildren.remove(namePart.charAt(i));
+					break;
+				}
+				node = child;
+			}
+		}
+	}
+
+	/**
+	 * Get the names having a name part starting with a prefix.
+	 *
+	 * @param prefix The lower case prefix.
+	 * @return The matching names.
+	 */
+	Set<String> getNames(final String prefix) {
+		Node node = mRoot;
+		for (int i = 0; i < prefix.length() && node != null; i++) {
+			node = node.mChildren.get(prefix.charAt(i));
+		}
+		return node == null ? Collections.emptySet() : Collections.unmodifiableSet(node.mNames);
+	}
+
+	/**
+	 * Remove all names.
+	 */
+	void clear() {
+		mRoot.mChildren.clear();
+		mRoot.mNames.clear();
+	}
+
+	/**
+	 * Get the lower case parts of a name.
+	 *
+	 * @param name The name.
+	 * @return The name parts.
+	 */
+	private static String[] getNameParts(final String name) {
+		return name.toLowerCase().split(" ");
+	}
+
+	/**
+	 * A node of the trie.
+	 */
+	private static final class Node {
+		/**
+		 * The child nodes, by the next character.
+		 */
+		private final Map<Character, Node> mChildren = new HashMap<>();
+		/**
+		 * The names having a name part starting with the prefix of this node.
+		 */
+		private final Set<String> mNames = new HashSet<>();
+	}
+}
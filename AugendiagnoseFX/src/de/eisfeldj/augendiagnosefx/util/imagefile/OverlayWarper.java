@@ -0,0 +1,365 @@
+package de.eisfeldj.augendiagnosefx.util.imagefile;
+
+import javafx.scene.effect.FloatMap;
+
+/**
+ * Computation of the displacement map which warps an overlay due to pupil size and position.
+ *
+ * <p>As the deformation is smooth within the iris, it is evaluated exactly only on a coarse mesh and interpolated bilinearly
+ * within the mesh tiles. Tiles at the iris boundary, and tiles where the interpolation deviates from the exact value by more
+ * than a tolerance, are evaluated per pixel.
+ */
+final class OverlayWarper {
+	/**
+	 * The size of the mesh tiles (in pixels).
+	 */
+	private static final int TILE_SIZE = 16;
+	/**
+	 * The maximum deviation of the interpolation from the exact displacement (in pixels).
+	 */
+	private static final float TOLERANCE = 0.25f;
+	/**
+	 * The positions within a tile where the interpolation is checked, relative to the tile size.
+	 */
+	private static final float[][] CHECK_POSITIONS = {{0.5f, 0.5f}, {0.25f, 0.25f}, {0.75f, 0.25f}, {0.25f, 0.75f}, {0.75f, 0.75f}};
+
+	/**
+	 * The size of the overlay (in pixels).
+	 */
+	private final int mSize;
+	/**
+	 * Half the size of the overlay.
+	 */
+	private final int mHalfSize;
+	/**
+	 * The radius of the iris on the overlay (in pixels).
+	 */
+	private final int mIrisRadius;
+	/**
+	 * The square of the iris radius.
+	 */
+	private final long mIrisRadiusSquare;
+	/**
+	 * The horizontal position of the pupil center relative to the overlay center (in pixels).
+	 */
+	private final float mPupilXCenter;
+	/**
+	 * The vertical position of the pupil center relative to the overlay center (in pixels).
+	 */
+	private final float mPupilYCenter;
+	/**
+	 * The relative size of the pupil.
+	 */
+	private final float mPupilSize;
+	/**
+	 * Slope of the linear transformation of relative distances.
+	 */
+	private final float mLinTransM;
+	/**
+	 * Offset of the linear transformation of relative distances.
+	 */
+	private final float mLinTransB;
+
+	/**
+	 * Create a warper for given pupil parameters.
+	 *
+	 * @param size
+	 *            The size of the overlay (in pixels).
+	 * @param circleRatio
+	 *            The relative radius of the iris on the overlay.
+	 * @param origPupilSize
+	 *            The pupil size in the original overlay.
+	 * @param pupilXOffset
+	 *            The horizontal offset of the pupil.
+	 * @param pupilYOffset
+	 *            The vertical offset of the pupil.
+	 * @param pupilSize
+	 *            The relative size of the pupil.
+	 */
+	OverlayWarper(final int size, final float circleRatio, final float origPupilSize, final float pupilXOffset,
+			final float pupilYOffset, final float pupilSize) {
+		mSize = size;
+		mHalfSize = size / 2;
+		mIrisRadius = (int) (circleRatio * mHalfSize);
+		mIrisRadiusSquare = mIrisRadius * mIrisRadius;
+		mPupilXCenter = size * circleRatio * pupilXOffset / (1 - pupilSize);
+		mPupilYCenter = size * circleRatio * pupilYOffset / (1 - pupilSize);
+		mPupilSize = pupilSize;
+		mLinTransM = pupilSize == 1 ? 0 : (1 - origPupilSize) / (1 - pupilSize);
+		mLinTransB = 1 - mLinTransM;
+	}
+
+	/**
+	 * Create the displacement map, interpolating within the mesh tiles where possible.
+	 *
+	 * @return The displacement map.
+	 */
+	FloatMap createFloatMap() {
+		FloatMap floatMap = new FloatMap(mSize, mSize);
+		int meshSize = (mSize + TILE_SIZE - 1) / TILE_SIZE;
+
+		// Exact displacement at the mesh vertices.
+		float[][] meshX = new float[meshSize + 1][meshSize + 1];
+		float[][] meshY = new float[meshSize + 1][meshSize + 1];
+		float[] displacement = new float[2];
+		for (int i = 0; i <= meshSize; i++) {
+			for (int j = 0; j <= meshSize; j++) {
+				getDisplacement(i * TILE_SIZE, j * TILE_SIZE, displacement);
+				meshX[i][j] = displacement[0];
+				meshY[i][j] = displacement[1];
+			}
+		}
+
+		for (int i = 0; i < meshSize; i++) {
+			for (int j = 0; j < meshSize; j++) {
+				int left = i * TILE_SIZE;
+				int top = j * TILE_SIZE;
+				int right = Math.min(left + TILE_SIZE, mSize);
+				int bottom = Math.min(top + TILE_SIZE, mSize);
+
+				switch (getTilePosition(left, top)) {
+				case OUTSIDE:
+					// FloatMap is initialized with zero displacement.
+					break;
+				case INSIDE:
+					if (isInterpolationAccurate(left, top, meshX, meshY, i, j)) {
+						interpolateTile(floatMap, left, top, right, bottom, meshX, meshY, i, j);
+					}
+					else {
+						fillTileExactly(floatMap, left, top, right, bottom);
+					}
+					break;
+				default:
+					fillTileExactly(floatMap, left, top, right, bottom);
+					break;
+				}
+			}
+		}
+		return floatMap;
+	}
+
+	/**
+	 * Create the displacement map, evaluating each pixel exactly.
+	 *
+	 * @return The displacement map.
+	 */
+	FloatMap createExactFloatMap() {
+		FloatMap floatMap = new FloatMap(mSize, mSize);
+		fillTileExactly(floatMap, 0, 0, mSize, mSize);
+		return floatMap;
+	}
+
+	/**
+	 * Determine the position of a tile (including its lower right mesh vertex) relative to the iris.
+	 *
+	 * @param left
+	 *            The left pixel of the tile.
+	 * @param top
+	 *            The top pixel of the tile.
+	 * @return The position of the tile.
+	 */
+	private TilePosition getTilePosition(final int left, final int top) {
+		int minX = left - mHalfSize;
+		int maxX = minX + TILE_SIZE;
+		int minY = top - mHalfSize;
+		int maxY = minY + TILE_SIZE;
+
+		long nearestX = minX > 0 ? minX : maxX < 0 ? maxX : 0;
+		long nearestY = minY > 0 ? minY : maxY < 0 ? maxY : 0;
+		if (nearestX * nearestX + nearestY * nearestY >= mIrisRadiusSquare) {
+			return TilePosition.OUTSIDE;
+		}
+		long farthestX = Math.max(-minX, maxX);
+		long farthestY = Math.max(-minY, maxY);
+		if (farthestX * farthestX + farthestY * farthestY >= mIrisRadiusSquare) {
+			return TilePosition.BOUNDARY;
+		}
+		return TilePosition.INSIDE;
+	}
+
+	/**
+	 * Check if bilinear interpolation within a tile is accurate enough, by comparing with the exact displacement at some
+	 * points.
+	 *
+	 * @param left
+	 *            The left pixel of the tile.
+	 * @param top
+	 *            The top pixel of the tile.
+	 * @param meshX
+	 *            The horizontal displacements at the mesh vertices.
+	 * @param meshY
+	 *            The vertical displacements at the mesh vertices.
+	 * @param i
+	 *            The horizontal index of the tile.
+	 * @param j
+	 *            The vertical index of the tile.
+	 * @return true if the interpolation is within the tolerance.
+	 */
+	private boolean isInterpolationAccurate(final int left, final int top, final float[][] meshX, final float[][] meshY,
+			final int i, final int j) {
+		float[] displacement = new float[2];
+		for (float[] position : CHECK_POSITIONS) {
+			int x = left + (int) (position[0] * TILE_SIZE);
+			int y = top + (int) (position[1] * TILE_SIZE);
+			float fx = (float) (x - left) / TILE_SIZE;
+			float fy = (float) (y - top) / TILE_SIZE;
+			getDisplacement(x, y, displacement);
+			if (Math.abs(interpolate(meshX, i, j, fx, fy) - displacement[0]) * mSize > TOLERANCE
+					|| Math.abs(interpolate(meshY, i, j, fx, fy) - displacement[1]) * mSize > TOLERANCE) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Fill a tile by bilinear interpolation of the mesh vertices.
+	 *
+	 * @param floatMap
+	 *            The displacement map.
+	 * @param left
+	 *            The left pixel of the tile.
+	 * @param top
+	 *            The top pixel of the tile.
+	 * @param right
+	 *            The right end of the tile (exclusive).
+	 * @param bottom
+	 *            The bottom end of the tile (exclusive).
+	 * @param meshX
+	 *            The horizontal displacements at the mesh vertices.
+	 * @param meshY
+	 *            The vertical displacements at the mesh vertices.
+	 * @param i
+	 *            The horizontal index of the tile.
+	 * @param j
+	 *            The vertical index of the tile.
+	 */
+	private void interpolateTile(final FloatMap floatMap, // SUPPRESS_CHECKSTYLE Too many parameters
+			final int left, final int top, final int right, final int bottom,
+			final float[][] meshX, final float[][] meshY, final int i, final int j) {
+		for (int y = top; y < bottom; y++) {
+			float fy = (float) (y - top) / TILE_SIZE;
+			for (int x = left; x < right; x++) {
+				float fx = (float) (x - left) / TILE_SIZE;
+				floatMap.setSamples(x, y, interpolate(meshX, i, j, fx, fy), interpolate(meshY, i, j, fx, fy));
+			}
+		}
+	}
+
+	/**
+	 * Interpolate bilinearly between the four vertices of a tile.
+	 *
+	 * @param mesh
+	 *            The values at the mesh vertices.
+	 * @param i
+	 *            The horizontal index of the tile.
+	 * @param j
+	 *            The vertical index of the tile.
+	 * @param fx
+	 *            The relative horizontal position within the tile.
+	 * @param fy
+	 *            The relative vertical position within the tile.
+	 * @return The interpolated value.
+	 */
+	private static float interpolate(final float[][] mesh, final int i, final int j, final float fx, final float fy) {
+		float upper = mesh[i][j] + fx * (mesh[i + 1][j] - mesh[i][j]);
+		float lower = mesh[i][j + 1] + fx * (mesh[i + 1][j + 1] - mesh[i][j + 1]);
+		return upper + fy * (lower - upper);
+	}
+
+	/**
+	 * Fill a tile with the exact displacement of each pixel.
+	 *
+	 * @param floatMap
+	 *            The displacement map.
+	 * @param left
+	 *            The left pixel of the tile.
+	 * @param top
+	 *            The top pixel of the tile.
+	 * @param right
+	 *            The right end of the tile (exclusive).
+	 * @param bottom
+	 *            The bottom end of the tile (exclusive).
+	 */
+	private void fillTileExactly(final FloatMap floatMap, final int left, final int top, final int right, final int bottom) {
+		float[] displacement = new float[2];
+		for (int y = top; y < bottom; y++) {
+			for (int x = left; x < right; x++) {
+				getDisplacement(x, y, displacement);
+				floatMap.setSamples(x, y, displacement[0], displacement[1]);
+			}
+		}
+	}
+
+	/**
+	 * Get the exact displacement of a pixel.
+	 *
+	 * @param x
+	 *            The x coordinate of the pixel.
+	 * @param y
+	 *            The y coordinate of the pixel.
+	 * @param result
+	 *            Array in which horizontal and vertical displacement (relative to the overlay size) are returned.
+	 */
+	private void getDisplacement(final int x, final int y, final float[] result) {
+		int xPos = x - mHalfSize;
+		int yPos = y - mHalfSize;
+		float xPosP = xPos - mPupilXCenter;
+		float yPosP = yPos - mPupilYCenter;
+
+		long centerDistSquare = xPos * xPos + yPos * yPos;
+		float pupilCenterDistSquare = xPosP * xPosP + yPosP * yPosP;
+
+		if (centerDistSquare >= mIrisRadiusSquare) {
+			result[0] = 0;
+			result[1] = 0;
+		}
+		else if (pupilCenterDistSquare == 0) {
+			result[0] = -xPos / mSize;
+			result[1] = -yPos / mSize;
+		}
+		else {
+			// Determine corresponding iris boundary point via quadratic equation
+			float plusMinusTerm = (float) Math.sqrt(2 * xPosP * yPosP * mPupilXCenter * mPupilYCenter
+					+ mIrisRadius * mIrisRadius * pupilCenterDistSquare
+					- (mPupilXCenter * mPupilXCenter * yPosP * yPosP)
+					- (mPupilYCenter * mPupilYCenter * xPosP * xPosP));
+
+			float xBound = (yPosP * yPosP * mPupilXCenter - yPosP * xPosP * mPupilYCenter + xPosP * plusMinusTerm) / pupilCenterDistSquare;
+			float yBound = (xPosP * xPosP * mPupilYCenter - xPosP * yPosP * mPupilXCenter + yPosP * plusMinusTerm) / pupilCenterDistSquare;
+
+			// distance of the current point from the center - 1 corresponds to iris boundary
+			float relativeDistance = (float) Math.sqrt(pupilCenterDistSquare
+					/ ((xBound - mPupilXCenter) * (xBound - mPupilXCenter) + (yBound - mPupilYCenter) * (yBound - mPupilYCenter)));
+
+			float sourceRelativeDistance = mLinTransM * relativeDistance + mLinTransB;
+			if (relativeDistance < mPupilSize) {
+				sourceRelativeDistance -= mLinTransB * Math.pow(1 - relativeDistance / mPupilSize, 1.1f); // MAGIC_NUMBER
+			}
+
+			float sourceX = xBound * sourceRelativeDistance;
+			float sourceY = yBound * sourceRelativeDistance;
+
+			result[0] = (sourceX - xPos) / mSize;
+			result[1] = (sourceY - yPos) / mSize;
+		}
+	}
+
+	/**
+	 * The position of a mesh tile relative to the iris.
+	 */
+	private enum TilePosition {
+		/**
+		 * The tile is completely outside the iris.
+		 */
+		OUTSIDE,
+		/**
+		 * The tile intersects the iris boundary.
+		 */
+		BOUNDARY,
+		/**
+		 * The tile is completely inside the iris.
+		 */
+		INSIDE
+	}
+}
@@ -0,0 +1,420 @@
+package de.eisfeldj.augendiagnosefx.util.imagefile;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import de.eisfeldj.augendiagnosefx.util.Logger;
+import de.eisfeldj.augendiagnosefx.util.PreferenceUtil;
+import de.eisfeldj.augendiagnosefx.util.SystemUtil;
+
+/**
+ * Catalogue of the names and photo files in the eye photo folder. The catalogue is persisted in the cache directory and
+ * kept in sync by comparing the modification times of the folders, so that folders are listed again only after they have
+ * changed. Names are searched via an in-memory index of their parts.
+ */
+public final class PhotoCatalogue {
+	/**
+	 * The file storing the catalogue.
+	 */
+	private static final File CATALOGUE_FILE = new File(SystemUtil.getCacheDir(), "catalogue.txt");
+
+	/**
+	 * The time in milliseconds after a modification in which further modifications may not change the modification time.
+	 * Folders modified this recently are listed on every access.
+	 */
+	private static final long MODIFICATION_TIME_GRANULARITY = 2000;
+
+	/**
+	 * The separator of the fields in the catalogue file.
+	 */
+	private static final String SEPARATOR = "\t";
+
+	/**
+	 * The executor for storing the catalogue in the background.
+	 */
+	private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "PhotoCatalogue");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/**
+	 * The singleton instance.
+	 */
+	private static volatile PhotoCatalogue mSingleton;
+
+	/**
+	 * The eye photo folder.
+	 */
+	private File mRootFolder = null;
+
+	/**
+	 * The modification time of the eye photo folder when it was last listed.
+	 */
+	private long mRootLastModified = 0;
+
+	/**
+	 * The names in the catalogue.
+	 */
+	private final Map<String, NameEntry> mNames = new HashMap<>();
+
+	/**
+	 * The index of name parts.
+	 */
+	private final NameTrie mNameTrie = new NameTrie();
+
+	/**
+	 * The sorted names, or null if they need to be sorted.
+	 */
+	private List<String> mSortedNames = null;
+
+	/**
+	 * The positions of the names in the sorted list.
+	 */
+	private final Map<String, Integer> mSortPositions = new HashMap<>();
+
+	/**
+	 * The sort order used for the sorted names.
+	 */
+	private boolean mSortByLastName = false;
+
+	/**
+	 * The lower case search string of the last search.
+	 */
+	private String mLastSearchString = null;
+
+	/**
+	 * The sorted result of the last search, or null if it is outdated.
+	 */
+	private List<String> mLastResult = null;
+
+	/**
+	 * Hide default constructor.
+	 */
+	private PhotoCatalogue() {
+	}
+
+	/**
+	 * Get the catalogue instance.
+	 *
+	 * @return The catalogue.
+	 */
+	public static PhotoCatalogue getInstance() {
+		if (mSingleton == null) {
+			synchronized (PhotoCatalogue.class) {
+				if (mSingleton == null) {
+					mSingleton = new PhotoCatalogue();
+				}
+			}
+		}
+		return mSingleton;
+	}
+
+	/**
+	 * Get the names in the eye photo folder which have a name part starting with the given search string, sorted for
+	 * display.
+	 *
+	 * @param rootFolder The eye photo folder.
+	 * @param searchString The search string (case insensitive).
+	 * @return The matching names.
+	 */
+	public synchronized List<String> getNames(final File rootFolder, final String searchString) {
+		refresh(rootFolder);
+		List<String> sortedNames = getSortedNames();
+		if (searchString == null || searchString.length() == 0) {
+			return new ArrayList<>(sortedNames);
+		}
+
+		String prefix = searchString.toLowerCase();
+		Set<String> matches = mNameTrie.getNames(prefix);
+		List<String> result;
+		if (mLastResult != null && prefix.startsWith(mLastSearchString)) {
+			// The search is narrowed, so filter the last result, keeping its order.
+			result = new ArrayList<>();
+			for (String name : mLastResult) {
+				if (matches.contains(name)) {
+					result.add(name);
+				}
+			}
+		}
+		else {
+			result = new ArrayList<>(matches);
+			result.sort((name1, name2) -> Integer.compare(mSortPositions.get(name1), mSortPositions.get(name2)));
+		}
+		mLastSearchString = prefix;
+		mLastResult = result;
+		return new ArrayList<>(result);
+	}
+
+	/**
+	 * Get the JPG files in the folder of a name.
+	 *
+	 * @param rootFolder The eye photo folder.
+	 * @param name The name.
+	 * @return The photo files.
+	 */
+	public synchronized List<File> getPhotoFiles(final File rootFolder, final String name) {
+		refresh(rootFolder);
+		NameEntry entry = mNames.get(name);
+		if (entry == null) {
+			return new ArrayList<>();
+		}
+
+		File folder = new File(rootFolder, name);
+		long lastModified = folder.lastModified();
+		if (entry.mFileNames == null || lastModified != entry.mLastModified || isRecent(lastModified)) {
+			String[] fileNames = folder.list((dir, fileName) -> fileName.toUpperCase().endsWith(".JPG"));
+			if (fileNames == null) {
+				fileNames = new String[0];
+			}
+			boolean changed = lastModified != entry.mLastModified || !Arrays.equals(fileNames, entry.mFileNames);
+			entry.mFileNames = fileNames;
+			entry.mLastModified = lastModified;
+			if (changed) {
+				store();
+			}
+		}
+
+		List<File> files = new ArrayList<>();
+		for (String fileName : entry.mFileNames) {
+			files.add(new File(folder, fileName));
+		}
+		return files;
+	}
+
+	/**
+	 * Update the list of names if the eye photo folder has changed.
+	 *
+	 * @param rootFolder The eye photo folder.
+	 */
+	private void refresh(final File rootFolder) {
+		if (!rootFolder.equals(mRootFolder)) {
+			clear();
+			mRootFolder = rootFolder;
+			load();
+		}
+
+		long lastModified = rootFolder.lastModified();
+		if (lastModified == mRootLastModified && !isRecent(lastModified)) {
+			return;
+		}
+
+		File[] folders = rootFolder.listFiles(File::isDirectory);
+		Set<String> folderNames = new HashSet<>();
+		if (folders != null) {
+			for (File folder : folders) {
+				folderNames.add(folder.getName());
+			}
+		}
+		boolean changed = false;
+		for (String name : new ArrayList<>(mNames.keySet())) {
+			if (!folderNames.contains(name)) {
+				removeName(name);
+				changed = true;
+			}
+		}
+		for (String name : folderNames) {
+			if (!mNames.containsKey(name)) {
+				addName(name, new NameEntry());
+				changed = true;
+			}
+		}
+		if (changed || lastModified != mRootLastModified) {
+			mRootLastModified = lastModified;
+			store();
+		}
+	}
+
+	/**
+	 * Get the sorted list of names, sorting them if required.
+	 *
+	 * @return The sorted names.
+	 */
+	private List<String> getSortedNames() {
+		boolean sortByLastName = PreferenceUtil.getPreferenceBoolean(PreferenceUtil.KEY_SORT_BY_LAST_NAME);
+		if (mSortedNames != null && sortByLastName == mSortByLastName) {
+			return mSortedNames;
+		}
+
+		Collator collator = Collator.getInstance();
+		for (Map.Entry<String, NameEntry> nameEntry : mNames.entrySet()) {
+			NameEntry entry = nameEntry.getValue();
+			if (entry.mCollationKey == null || sortByLastName != mSortByLastName) {
+				entry.mCollationKey = collator.getCollationKey(getNameForSorting(nameEntry.getKey(), sortByLastName));
+			}
+		}
+		List<String> sortedNames = new ArrayList<>(mNames.keySet());
+		sortedNames.sort((name1, name2) -> mNames.get(name1).mCollationKey.compareTo(mNames.get(name2).mCollationKey));
+
+		mSortPositions.clear();
+		for (int i = 0; i < sortedNames.size(); i++) {
+			mSortPositions.put(sortedNames.get(i), i);
+		}
+		mSortedNames = Collections.unmodifiableList(sortedNames);
+		mSortByLastName = sortByLastName;
+		mLastResult = null;
+		return mSortedNames;
+	}
+
+	/**
+	 * Helper method to return the name for sorting.
+	 *
+	 * @param name The name.
+	 * @param sortByLastName Flag indicating if names should be sorted by last name.
+	 * @return The name for sorting.
+	 */
+	private static String getNameForSorting(final String name, final boolean sortByLastName) {
+		if (sortByLastName) {
+			int index = name.lastIndexOf(' ');
+			if (index >= 0) {
+				String firstName = name.substring(0, index);
+				String lastName = name.substring(index + 1);
+				return lastName + " " + firstName;
+			}
+		}
+		return name;
+	}
+
+	/**
+	 * Check if a modification time is so recent that further modifications may not be visible.
+	 *
+	 * @param lastModified The modification time.
+	 * @return true if the modification time is recent.
+	 */
+	private static boolean isRecent(final long lastModified) {
+		return System.currentTimeMillis() - lastModified < MODIFICATION_TIME_GRANULARITY;
+	}
+
+	/**
+	 * Add a name to the catalogue and the name index.
+	 *
+	 * @param name The name.
+	 * @param entry The catalogue entry of the name.
+	 */
+	private void addName(final String name, final NameEntry entry) {
+		mNames.put(name, entry);
+		mNameTrie.add(name);
+		mSortedNames = null;
+	}
+
+	/**
+	 * Remove a name from the catalogue and the name index.
+	 *
+	 * @param name The name.
+	 */
+	private void removeName(final String name) {
+		mNames.remove(name);
+		mNameTrie.remove(name);
+		mSortedNames = null;
+	}
+
+	/**
+	 * Clear the catalogue.
+	 */
+	private void clear() {
+		mNames.clear();
+		mNameTrie.clear();
+		mSortedNames = null;
+		mRootLastModified = 0;
+	}
+
+	/**
+	 * Load the catalogue from the catalogue file, if it belongs to the current eye photo folder.
+	 */
+	private void load() {
+		if (!CATALOGUE_FILE.exists()) {
+			return;
+		}
+		try (BufferedReader reader = Files.newBufferedReader(CATALOGUE_FILE.toPath(), StandardCharsets.UTF_8)) {
+			String[] header = reader.readLine().split(SEPARATOR);
+			if (!header[0].equals(mRootFolder.getAbsolutePath())) {
+				return;
+			}
+			long rootLastModified = Long.parseLong(header[1]);
+
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] fields = line.split(SEPARATOR);
+				NameEntry entry = new NameEntry();
+				entry.mLastModified = Long.parseLong(fields[1]);
+				if (entry.mLastModified != 0) {
+					entry.mFileNames = Arrays.copyOfRange(fields, 2, fields.length);
+				}
+				addName(fields[0], entry);
+			}
+			mRootLastModified = rootLastModified;
+		}
+		catch (IOException | RuntimeException e) {
+			Logger.warning("Could not read photo catalogue: " + e.getMessage());
+			clear();
+		}
+	}
+
+	/**
+	 * Store the catalogue in the catalogue file in the background.
+	 */
+	private void store() {
+		StringBuilder builder = new StringBuilder();
+		builder.append(mRootFolder.getAbsolutePath()).append(SEPARATOR).append(mRootLastModified).append('\n');
+		for (Map.Entry<String, NameEntry> nameEntry : mNames.entrySet()) {
+			NameEntry entry = nameEntry.getValue();
+			builder.append(nameEntry.getKey()).append(SEPARATOR).append(entry.mFileNames == null ? 0 : entry.mLastModified);
+			if (entry.mFileNames != null) {
+				for (String fileName : entry.mFileNames) {
+					builder.append(SEPARATOR).append(fileName);
+				}
+			}
+			builder.append('\n');
+		}
+		String content = builder.toString();
+
+		EXECUTOR.execute(() -> {
+			File tempFile = new File(CATALOGUE_FILE.getParentFile(), CATALOGUE_FILE.getName() + ".tmp");
+			try {
+				CATALOGUE_FILE.getParentFile().mkdirs();
+				try (BufferedWriter writer = Files.newBufferedWriter(tempFile.toPath(), StandardCharsets.UTF_8)) {
+					writer.write(content);
+				}
+				Files.move(tempFile.toPath(), CATALOGUE_FILE.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			catch (IOException e) {
+				Logger.warning("Could not store photo catalogue: " + e.getMessage());
+			}
+		});
+	}
+
+	/**
+	 * The catalogue entry of a name.
+	 */
+	private static final class NameEntry {
+		/**
+		 * The modification time of the folder when it was last listed.
+		 */
+		private long mLastModified = 0;
+		/**
+		 * The names of the photo files in the folder, or null if the folder has not yet been listed.
+		 */
+		private String[] mFileNames = null;
+		/**
+		 * The collation key of the name for sorting, or null if not yet determined.
+		 */
+		private CollationKey mCollationKey = null;
+	}
+}
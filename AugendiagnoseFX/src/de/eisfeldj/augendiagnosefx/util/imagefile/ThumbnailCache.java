@@ -0,0 +1,272 @@
+package de.eisfeldj.augendiagnosefx.util.imagefile;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+import de.eisfeldj.augendiagnosefx.util.Logger;
+import de.eisfeldj.augendiagnosefx.util.LruCache;
+import de.eisfeldj.augendiagnosefx.util.SystemUtil;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+
+/**
+ * Persistent cache of thumbnails, stored as JPEG files in the cache directory. The file name is a hash of path, size and
+ * modification time of the original file, so that thumbnails of changed files are not found any more. The least recently
+ * used thumbnails are deleted if the cache exceeds its maximum size.
+ */
+public final class ThumbnailCache {
+	/**
+	 * The maximum total size of the cached thumbnails in bytes.
+	 */
+	private static final long THUMBNAIL_CACHE_SIZE = 256 * 1024 * 1024;
+	/**
+	 * The JPEG quality of the cached thumbnails.
+	 */
+	private static final float JPEG_QUALITY = 0.9f;
+	/**
+	 * The file suffix of the cached thumbnails.
+	 */
+	private static final String SUFFIX = ".jpg";
+
+	/**
+	 * The directory of the cached thumbnails.
+	 */
+	private static final File CACHE_DIR = new File(SystemUtil.getCacheDir(), "thumbnails");
+
+	/**
+	 * The executor for writing thumbnails in the background.
+	 */
+	private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "ThumbnailCache");
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MIN_PRIORITY);
+		return thread;
+	});
+
+	/**
+	 * The index of the cached thumbnails, mapping file names to file sizes.
+	 */
+	private static LruCache<String, Long> mIndex = null;
+
+	/**
+	 * Hide default constructor.
+	 */
+	private ThumbnailCache() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Get a thumbnail from the cache.
+	 *
+	 * @param file The original image file.
+	 * @param size The maximum size of the thumbnail.
+	 * @param backgroundLoading Flag indicating if the thumbnail may be loaded in the background.
+	 * @return The thumbnail, or null if it is not cached.
+	 */
+	public static Image getThumbnail(final File file, final int size, final boolean backgroundLoading) {
+		String cacheFileName = getCacheFileName(file, size);
+		if (cacheFileName == null) {
+			return null;
+		}
+		File cacheFile = new File(CACHE_DIR, cacheFileName);
+		if (!cacheFile.exists()) {
+			return null;
+		}
+		getIndex().get(cacheFileName);
+		cacheFile.setLastModified(System.currentTimeMillis());
+
+		Image image = new Image(cacheFile.toURI().toString(), backgroundLoading);
+		image.errorProperty().addListener((observable, oldValue, newValue) -> {
+			if (newValue) {
+				Logger.warning("Removing corrupt thumbnail " + cacheFile.getAbsolutePath());
+				getIndex().remove(cacheFileName);
+				cacheFile.delete();
+			}
+		});
+		return image;
+	}
+
+	/**
+	 * Check if a thumbnail is cached.
+	 *
+	 * @param file The original image file.
+	 * @param size The maximum size of the thumbnail.
+	 * @return true if the thumbnail is cached.
+	 */
+	public static boolean contains(final File file, final int size) {
+		String cacheFileName = getCacheFileName(file, size);
+		return cacheFileName != null && new File(CACHE_DIR, cacheFileName).exists();
+	}
+
+	/**
+	 * Store a thumbnail in the cache. Storing is done in the background after the image is loaded.
+	 *
+	 * @param file The original image file.
+	 * @param size The maximum size of the thumbnail.
+	 * @param image The thumbnail, in the orientation in which it is displayed.
+	 */
+	public static void storeThumbnail(final File file, final int size, final Image image) {
+		if (image.getProgress() == 1) {
+			if (!image.isError()) {
+				EXECUTOR.execute(() -> writeThumbnail(file, size, image, 0));
+			}
+		}
+		else {
+			image.progressProperty().addListener((observable, oldValue, newValue) -> {
+				if (newValue.doubleValue() == 1 && !image.isError()) {
+					EXECUTOR.execute(() -> writeThumbnail(file, size, image, 0));
+				}
+			});
+		}
+	}
+
+	/**
+	 * Create the thumbnails of the given files in the background, if they are not yet cached.
+	 *
+	 * @param files The supplier of the original image files. It is called in the background, as listing the files may
+	 *            access the disk.
+	 * @param size The maximum size of the thumbnails.
+	 */
+	public static void prepopulate(final Supplier<List<File>> files, final int size) {
+		EXECUTOR.execute(() -> {
+			for (File file : files.get()) {
+				String cacheFileName = getCacheFileName(file, size);
+				if (cacheFileName == null || new File(CACHE_DIR, cacheFileName).exists()) {
+					continue;
+				}
+				Image image = new Image(file.toURI().toString(), size, size, true, true, false);
+				if (!image.isError()) {
+					writeThumbnail(file, size, image, JpegMetadataUtil.getExifOrientationAngle(file));
+				}
+			}
+		});
+	}
+
+	/**
+	 * Get the index of the cached thumbnails, initializing it from the cache directory if required.
+	 *
+	 * @return The index.
+	 */
+	private static synchronized LruCache<String, Long> getIndex() {
+		if (mIndex == null) {
+			mIndex = new LruCache<String, Long>(THUMBNAIL_CACHE_SIZE) {
+				@Override
+				protected long sizeOf(final String key, final Long value) {
+					return value;
+				}
+
+				@Override
+				protected void entryEvicted(final String key, final Long value) {
+					new File(CACHE_DIR, key).delete();
+				}
+			};
+
+			File[] cacheFiles = CACHE_DIR.listFiles((dir, name) -> name.endsWith(SUFFIX));
+			if (cacheFiles != null) {
+				Arrays.sort(cacheFiles, Comparator.comparingLong(File::lastModified));
+				for (File cacheFile : cacheFiles) {
+					mIndex.put(cacheFile.getName(), cacheFile.length());
+				}
+			}
+		}
+		return mIndex;
+	}
+
+	/**
+	 * Write a thumbnail into the cache.
+	 *
+	 * @param file The original image file.
+	 * @param size The maximum size of the thumbnail.
+	 * @param image The loaded thumbnail.
+	 * @param rotation The rotation angle to be applied to the image.
+	 */
+	private static void writeThumbnail(final File file, final int size, final Image image, final int rotation) {
+		String cacheFileName = getCacheFileName(file, size);
+		if (cacheFileName == null) {
+			return;
+		}
+		File cacheFile = new File(CACHE_DIR, cacheFileName);
+		if (cacheFile.exists()) {
+			return;
+		}
+
+		int width = (int) image.getWidth();
+		int height = (int) image.getHeight();
+		int[] pixels = new int[width * height];
+		image.getPixelReader().getPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), pixels, 0, width);
+		boolean isTransposed = rotation == 90 || rotation == 270; // MAGIC_NUMBER
+		int[] rotatedPixels = ImageUtil.rotatePixels(pixels, width, height, rotation);
+
+		BufferedImage bufferedImage = isTransposed
+				? new BufferedImage(height, width, BufferedImage.TYPE_INT_RGB)
+				: new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		bufferedImage.setRGB(0, 0, bufferedImage.getWidth(), bufferedImage.getHeight(), rotatedPixels, 0, bufferedImage.getWidth());
+
+		File tempFile = new File(CACHE_DIR, cacheFileName + ".tmp");
+		ImageWriter writer = ImageIO.getImageWritersByFormatName("jpg").next();
+		try {
+			CACHE_DIR.mkdirs();
+			try (ImageOutputStream output = ImageIO.createImageOutputStream(tempFile)) {
+				ImageWriteParam param = writer.getDefaultWriteParam();
+				param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+				param.setCompressionQuality(JPEG_QUALITY);
+				writer.setOutput(output);
+				writer.write(null, new IIOImage(bufferedImage, null, null), param);
+			}
+			if (tempFile.renameTo(cacheFile)) {
+				getIndex().put(cacheFileName, cacheFile.length());
+			}
+		}
+		catch (IOException e) {
+			Logger.warning("Could not store thumbnail of " + file.getAbsolutePath() + ": " + e.getMessage());
+		}
+		finally {
+			writer.dispose();
+			tempFile.delete();
+		}
+	}
+
+	/**
+	 * Get the name of the cache file of a thumbnail.
+	 *
+	 * @param file The original image file.
+	 * @param size The maximum size of the thumbnail.
+	 * @return The cache file name, or null if the original file does not exist.
+	 */
+	private static String getCacheFileName(final File file, final int size) {
+		long lastModified = file.lastModified();
+		if (lastModified == 0) {
+			return null;
+		}
+		String key = file.getAbsolutePath() + "|" + size + "|" + lastModified + "|" + file.length();
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes(StandardCharsets.UTF_8));
+			StringBuilder builder = new StringBuilder();
+			for (byte b : digest) {
+				builder.append(String.format("%02x", b));
+			}
+			return builder.append(SUFFIX).toString();
+		}
+		catch (NoSuchAlgorithmException e) {
+			Logger.error("Could not create thumbnail cache key", e);
+			return null;
+		}
+	}
+}
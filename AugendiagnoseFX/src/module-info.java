@@ -3,6 +3,7 @@ module de.eisfeldj.augendiagnosefx {
     requires javafx.controls;
     requires javafx.fxml;
     requires javafx.graphics;
+    requires java.desktop;
     requires java.xml;
     requires java.logging;
     requires java.prefs;
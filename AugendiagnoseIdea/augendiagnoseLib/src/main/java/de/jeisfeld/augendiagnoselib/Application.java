@@ -18,6 +18,9 @@ import java.util.Locale;
 import androidx.annotation.Nullable;
 import de.jeisfeld.augendiagnoselib.activities.SettingsActivity;
 import de.jeisfeld.augendiagnoselib.util.PreferenceUtil;
+import de.jeisfeld.augendiagnoselib.util.imagefile.ImageCache;
+import de.jeisfeld.augendiagnoselib.util.imagefile.OverlayCache;
+import de.jeisfeld.augendiagnoselib.util.imagefile.TilePyramid;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
 /**
@@ -86,6 +89,23 @@ public class Application extends android.app.Application {
 
 	}
 
+	// OVERRIDABLE
+	@Override
+	public void onTrimMemory(final int level) {
+		super.onTrimMemory(level);
+		// Log the cache usage when the system runs low on memory.
+		ImageCache.logStatistics();
+		OverlayCache.logStatistics();
+
+		if (level >= TRIM_MEMORY_UI_HIDDEN) {
+			// The cached bitmaps can be recreated when needed. Release all of them if the app may be killed soon.
+			boolean releaseAll = level >= TRIM_MEMORY_MODERATE;
+			ImageCache.trimMemory(releaseAll);
+			OverlayCache.trimMemory(releaseAll);
+			TilePyramid.trimMemory(releaseAll);
+		}
+	}
+
 	/**
 	 * Define custom ExceptionHandler which takes action on OutOfMemoryError.
 	 */
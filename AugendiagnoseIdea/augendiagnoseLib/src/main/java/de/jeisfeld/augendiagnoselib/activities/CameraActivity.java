@@ -488,6 +488,7 @@ public class CameraActivity extends StandardActivity {
 					// Analyze next required step
 					if (mCurrentRightLeft == RIGHT) {
 						if (mRightEyeFile != null && mRightEyeFile.exists()) {
+							PupilAndIrisDetector.notifyFileDelete(mRightEyeFile.getAbsolutePath());
 							// noinspection ResultOfMethodCallIgnored
 							mRightEyeFile.delete();
 						}
@@ -505,6 +506,7 @@ public class CameraActivity extends StandardActivity {
 					}
 					else {
 						if (mLeftEyeFile != null && mLeftEyeFile.exists()) {
+							PupilAndIrisDetector.notifyFileDelete(mLeftEyeFile.getAbsolutePath());
 							// noinspection ResultOfMethodCallIgnored
 							mLeftEyeFile.delete();
 						}
@@ -3,10 +3,11 @@ package de.jeisfeld.augendiagnoselib.components;
 import android.app.Activity;
 import android.app.FragmentManager;
 import android.content.Context;
-import android.content.res.TypedArray;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
 import android.graphics.drawable.LayerDrawable;
@@ -14,7 +15,6 @@ import android.net.Uri;
 import android.os.Bundle;
 import android.os.Parcelable;
 import android.util.AttributeSet;
-import android.util.Log;
 import android.view.MotionEvent;
 import android.view.ScaleGestureDetector;
 
@@ -25,15 +25,16 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import de.jeisfeld.augendiagnoselib.Application;
 import de.jeisfeld.augendiagnoselib.R;
+import de.jeisfeld.augendiagnoselib.fragments.DisplayImageFragment;
 import de.jeisfeld.augendiagnoselib.fragments.DisplayImageFragment.OverlayStatus;
+import de.jeisfeld.augendiagnoselib.util.PreferenceUtil;
 import de.jeisfeld.augendiagnoselib.util.imagefile.EyePhoto;
-import de.jeisfeld.augendiagnoselib.util.imagefile.EyePhoto.RightLeft;
 import de.jeisfeld.augendiagnoselib.util.imagefile.ImageUtil;
 import de.jeisfeld.augendiagnoselib.util.imagefile.JpegMetadata;
 import de.jeisfeld.augendiagnoselib.util.imagefile.MediaStoreUtil;
+import de.jeisfeld.augendiagnoselib.util.imagefile.OverlayCache;
+import de.jeisfeld.augendiagnoselib.util.imagefile.TilePyramid;
 
-import static de.jeisfeld.augendiagnoselib.components.OverlayPinchImageView.Resolution.FULL;
-import static de.jeisfeld.augendiagnoselib.components.OverlayPinchImageView.Resolution.FULL_HIGH;
 import static de.jeisfeld.augendiagnoselib.components.OverlayPinchImageView.Resolution.HIGH;
 import static de.jeisfeld.augendiagnoselib.components.OverlayPinchImageView.Resolution.LOW;
 
@@ -185,26 +186,6 @@ public class OverlayPinchImageView extends PinchImageView {
 	 */
 	private Bitmap mBitmapSmall;
 
-	/**
-	 * The partial bitmap with full resolution.
-	 */
-	private Bitmap mPartialBitmapFullResolution;
-
-	/**
-	 * The partial bitmap with full resolution, including brightness.
-	 */
-	private Bitmap mPartialBitmapFullResolutionWithBrightness;
-
-	/**
-	 * Flag indicating if currently the full resolution snapshot is displayed.
-	 */
-	private boolean mShowingFullResolution = false;
-
-	/**
-	 * The full bitmap (full resolution).
-	 */
-	private Bitmap mBitmapFull = null;
-
 	/**
 	 * The metadata of the image.
 	 */
@@ -226,19 +207,25 @@ public class OverlayPinchImageView extends PinchImageView {
 	private boolean mNeedsBitmapRefresh = false;
 
 	/**
-	 * Last height of the view. Used to make sure that full resolution is abandoned as soon as view size changes.
+	 * Flag indicating if the display in full resolution has been requested manually.
+	 */
+	private boolean mIsFullResolutionRequested = false;
+
+	/**
+	 * The color filter applying the color settings, or null if the colors are unchanged.
 	 */
-	private int mLastHeight;
+	@Nullable
+	private ColorFilter mColorFilter = null;
 
 	/**
-	 * Last width of the view. Used to make sure that full resolution is abandoned as soon as view size changes.
+	 * The color settings (contrast, brightness, saturation, color temperature) for which the color filter was created.
 	 */
-	private int mLastWidth;
+	private final float[] mColorFilterSettings = {1, 0, 1, 0};
 
 	/**
-	 * Thread showing the view in full resolution. The first is the running thread. Another one may be queuing.
+	 * The paint used for drawing the bitmap below the tiles.
 	 */
-	private final List<Thread> mFullResolutionThreads = new ArrayList<>();
+	private final Paint mTileBackgroundPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
 
 	/**
 	 * Callback class to update the GUI elements from the view.
@@ -246,7 +233,7 @@ public class OverlayPinchImageView extends PinchImageView {
 	private GuiElementUpdater mGuiElementUpdater;
 
 	/**
-	 * A String indicating if full resolution image should be automatically loaded or even kept in memory.
+	 * Flag indicating if the image should automatically be displayed in full resolution when zooming in.
 	 */
 	private boolean mFullResolutionFlag;
 
@@ -314,8 +301,13 @@ public class OverlayPinchImageView extends PinchImageView {
 		mRetainFragment = retainFragment;
 		mBitmap = retainFragment.getBitmap();
 		mBitmapSmall = retainFragment.getBitmapSmall();
-		mBitmapFull = retainFragment.getBitmapFullResolution();
-		cleanFullResolutionBitmaps(false);
+		TilePyramid tilePyramid = retainFragment.getTilePyramid();
+		if (tilePyramid != null && !pathName.equals(tilePyramid.getPath())) {
+			retainFragment.setTilePyramid(null);
+			tilePyramid = null;
+		}
+		setTilePyramid(tilePyramid);
+		mIsFullResolutionRequested = false;
 
 		if (mBitmap == null || !pathName.equals(mPathName)) {
 			mHasOverlayPosition = false;
@@ -329,6 +321,14 @@ public class OverlayPinchImageView extends PinchImageView {
 					mBitmap = mEyePhoto.getImageBitmap(mMaxBitmapSize);
 					mBitmapSmall = mEyePhoto.getImageBitmap(MediaStoreUtil.MINI_THUMB_SIZE);
 					mMetadata = mEyePhoto.getImageMetadata();
+					TilePyramid retainedTilePyramid = retainFragment.getTilePyramid();
+					if (retainedTilePyramid == null) {
+						retainedTilePyramid = createTilePyramid(pathName, mMetadata == null ? null : mMetadata.getOrientation());
+						retainFragment.setTilePyramid(retainedTilePyramid);
+					}
+					final TilePyramid newTilePyramid = retainedTilePyramid;
+					prewarmOverlayCache(mMetadata, mMetadata == null || mMetadata.getOverlayColor() == null
+							? mOverlayColor : mMetadata.getOverlayColor());
 					retainFragment.setBitmap(mBitmap);
 					retainFragment.setBitmapSmall(mBitmapSmall);
 					mIsBitmapSet = true;
@@ -395,11 +395,11 @@ public class OverlayPinchImageView extends PinchImageView {
 
 							mCanvasBitmap = Bitmap.createBitmap(mBitmap.getWidth(), mBitmap.getHeight(), Bitmap.Config.ARGB_8888);
 							mCanvas = new Canvas(mCanvasBitmap);
+							setTilePyramid(newTilePyramid);
 							doInitialScaling();
 							updatePinchMode();
 
 							refresh(HIGH);
-							showFullResolutionSnapshot(true);
 						}
 					});
 				}
@@ -416,7 +416,6 @@ public class OverlayPinchImageView extends PinchImageView {
 			doInitialScaling();
 			updatePinchMode();
 			refresh(HIGH);
-			showFullResolutionSnapshot(true);
 			// Update lock status - required in the case that orientation change happened while loading image.
 			if (mMetadata != null && mMetadata.hasOverlayPosition() && mGuiElementUpdater != null // BOOLEAN_EXPRESSION_COMPLEXITY
 					&& !mMetadata.hasFlag(JpegMetadata.FLAG_OVERLAY_SET_BY_CAMERA_ACTIVITY)
@@ -453,7 +452,6 @@ public class OverlayPinchImageView extends PinchImageView {
 		super.doInitialScaling();
 
 		resetOverlayCache();
-		cleanFullResolutionBitmaps(false);
 	}
 
 	/**
@@ -474,30 +472,16 @@ public class OverlayPinchImageView extends PinchImageView {
 			return;
 		}
 
-		if (resolution == FULL) {
-			showFullResolutionSnapshot(true);
-			return;
-		}
-		else if (resolution == HIGH || resolution == LOW) {
-			interruptFullResolutionThread();
-		}
-
 		// Determine overlays to be shown
 		List<Integer> overlayPositions = getOverlayPositions();
 
 		Drawable[] layers = new Drawable[overlayPositions.size() + 1];
-		Bitmap modBitmap;
-
-		// Even in full resolution, first calculate high resolution image.
-		if (resolution == LOW) {
-			// for performance reasons, use only low resolution bitmap while pinching
-			modBitmap = ImageUtil.changeBitmapColors(mBitmapSmall, mContrast, mBrightness, mSaturation, mColorTemperature);
-		}
-		else {
-			modBitmap = ImageUtil.changeBitmapColors(mBitmap, mContrast, mBrightness, mSaturation, mColorTemperature);
-		}
 
-		layers[0] = new BitmapDrawable(getResources(), modBitmap);
+		// For performance reasons, use only low resolution bitmap while pinching.
+		// In full resolution, the tiles of the tile pyramid are drawn above this image.
+		// The colors are changed only while drawing, so that no adjusted copy of the bitmap is required.
+		layers[0] = new BitmapDrawable(getResources(), resolution == LOW ? mBitmapSmall : mBitmap);
+		layers[0].setColorFilter(getColorFilter());
 
 		for (int i = 0; i < overlayPositions.size(); i++) {
 			layers[i + 1] = getOverlayDrawable(overlayPositions.get(i));
@@ -533,26 +517,38 @@ public class OverlayPinchImageView extends PinchImageView {
 		mCanvas.drawColor(Color.BLACK);
 		layerDrawable.draw(mCanvas);
 
-		if (resolution == FULL_HIGH) {
-			showFullResolutionSnapshot(true);
-		}
-		else if (mPartialBitmapFullResolution == null) {
-			setImageBitmap(mCanvasBitmap);
-			super.setMatrix();
-			invalidate();
-		}
-		else {
-			cleanFullResolutionBitmaps(false);
-		}
+		setImageBitmap(mCanvasBitmap);
+		setMatrix();
+		invalidate();
 
 		mNeedsBitmapRefresh = false;
 	}
 
 	/**
-	 * Refresh with high resolution (or full resolution if applicable).
+	 * Get the color filter applying the current color settings. The filter is created again only if the settings have
+	 * changed.
+	 *
+	 * @return The color filter, or null if the colors are unchanged.
+	 */
+	@Nullable
+	private synchronized ColorFilter getColorFilter() {
+		float[] settings = mColorFilterSettings;
+		if (settings[0] != mContrast || settings[1] != mBrightness || settings[2] != mSaturation
+				|| settings[3] != mColorTemperature) { // MAGIC_NUMBER
+			settings[0] = mContrast;
+			settings[1] = mBrightness;
+			settings[2] = mSaturation;
+			settings[3] = mColorTemperature; // MAGIC_NUMBER
+			mColorFilter = ImageUtil.createColorFilter(mContrast, mBrightness, mSaturation, mColorTemperature);
+		}
+		return mColorFilter;
+	}
+
+	/**
+	 * Refresh with high resolution. Full resolution tiles are drawn above, if applicable.
 	 */
 	public final void refresh() {
-		refresh(mFullResolutionFlag ? FULL_HIGH : HIGH);
+		refresh(HIGH);
 	}
 
 	/**
@@ -654,7 +650,6 @@ public class OverlayPinchImageView extends PinchImageView {
 			float bitmapPixelDiameter = mOverlayScaleFactor * OVERLAY_SIZE * OVERLAY_CIRCLE_RATIO;
 			mScaleFactor = Math.min(getWidth(), getHeight()) * 2 * circleRadius / bitmapPixelDiameter;
 			mLastScaleFactor = mScaleFactor;
-			interruptFullResolutionThread();
 			refresh();
 			break;
 		case GUIDE_PUPIL:
@@ -672,7 +667,6 @@ public class OverlayPinchImageView extends PinchImageView {
 			float bitmapPixelDiameter2 = mPupilOverlayScaleFactor * overlaySizeOnBitmap;
 			mScaleFactor = Math.min(getWidth(), getHeight()) * 2 * circleRadius / bitmapPixelDiameter2;
 			mLastScaleFactor = mScaleFactor;
-			interruptFullResolutionThread();
 			refresh();
 			break;
 		case ALLOWED:
@@ -787,19 +781,18 @@ public class OverlayPinchImageView extends PinchImageView {
 		mEyePhoto.cleanCache();
 		mBitmap = ImageUtil.rotateBitmap(mBitmap, rotationAngle);
 		mBitmapSmall = ImageUtil.rotateBitmap(mBitmapSmall, rotationAngle);
-		if (mBitmapFull != null) {
-			mBitmapFull = ImageUtil.rotateBitmap(mBitmapFull, rotationAngle);
+		TilePyramid tilePyramid = getTilePyramid();
+		if (tilePyramid != null) {
+			tilePyramid.rotate(rotationAngle);
 		}
 		mRetainFragment.setBitmap(mBitmap);
 		mRetainFragment.setBitmapSmall(mBitmapSmall);
 		mCanvasBitmap = Bitmap.createBitmap(mBitmap.getWidth(), mBitmap.getHeight(), Bitmap.Config.ARGB_8888);
 		mCanvas = new Canvas(mCanvasBitmap);
 
-		cleanFullResolutionBitmaps(false);
 		doInitialScaling();
 		updatePinchMode();
 		refresh(HIGH);
-		showFullResolutionSnapshot(true);
 	}
 
 	/**
@@ -869,62 +862,50 @@ public class OverlayPinchImageView extends PinchImageView {
 		Drawable overlayDrawable = mOverlayCache[position];
 
 		if (overlayDrawable == null) {
-			int[] overlayTypes = getResources().getIntArray(R.array.overlay_types);
-
-			TypedArray overlaysLeft = getResources().obtainTypedArray(R.array.overlays_left);
-			TypedArray overlaysRight = getResources().obtainTypedArray(R.array.overlays_right);
-
-			if (position < overlayTypes.length) {
-				String origPupilSizeString = getResources().getStringArray(R.array.overlay_pupil_sizes)[position];
-				float origPupilSize = Float.parseFloat(origPupilSizeString);
-
-				Drawable drawable;
-				if (mEyePhoto.getRightLeft().equals(RightLeft.RIGHT)) {
-					drawable = overlaysRight.getDrawable(position);
-				}
-				else {
-					drawable = overlaysLeft.getDrawable(position);
-				}
-
-				Integer targetColor = overlayTypes[position] == 1 ? mOverlayColor : null;
-
-				if (mMetadata == null) {
-					overlayDrawable = getModifiedDrawable(drawable, targetColor, origPupilSize, DEFAULT_PUPIL_SIZE, 0f, 0f);
-				}
-				else {
-					overlayDrawable = getModifiedDrawable(drawable, targetColor, origPupilSize, mMetadata.getPupilSize(),
-							mMetadata.getPupilXOffset(), mMetadata.getPupilYOffset());
-				}
+			Bitmap overlayBitmap;
+			if (mMetadata == null) {
+				overlayBitmap = OverlayCache.getInstance().getOverlayBitmap(position, mEyePhoto.getRightLeft(), mOverlayColor,
+						DEFAULT_PUPIL_SIZE, 0f, 0f);
+			}
+			else {
+				overlayBitmap = OverlayCache.getInstance().getOverlayBitmap(position, mEyePhoto.getRightLeft(), mOverlayColor,
+						mMetadata.getPupilSize(), mMetadata.getPupilXOffset(), mMetadata.getPupilYOffset());
+			}
 
+			if (overlayBitmap != null) {
+				overlayDrawable = new BitmapDrawable(getResources(), overlayBitmap);
 				mOverlayCache[position] = overlayDrawable;
 			}
-			overlaysLeft.recycle();
-			overlaysRight.recycle();
 		}
 		return overlayDrawable;
 	}
 
 	/**
-	 * Create a drawable from a black image drawable, having a changed colour.
+	 * Create the overlays of the overlay buttons in the background, so that they are available when toggled.
 	 *
-	 * @param sourceDrawable The black image drawable
-	 * @param color          The target color
-	 * @param origPupilSize  The pupil size (relative to iris) in the original overlay bitmap.
-	 * @param destPupilSize  The pupil size (relative to iris) in the target overlay bitmap.
-	 * @param pupilOffsetX   The relative x offset of the pupil center
-	 * @param pupilOffsetY   The relative y offset of the pupil center
-	 * @return The modified drawable, with the intended color.
+	 * @param metadata     The metadata of the image.
+	 * @param overlayColor The overlay colour.
 	 */
-	@NonNull
-	private Drawable getModifiedDrawable(@NonNull final Drawable sourceDrawable, @Nullable final Integer color,
-										 final float origPupilSize, @Nullable final Float destPupilSize,
-										 final Float pupilOffsetX, final Float pupilOffsetY) {
-		Bitmap bitmap = ((BitmapDrawable) sourceDrawable).getBitmap();
-		Bitmap colouredBitmap = color == null ? bitmap : ImageUtil.changeBitmapColor(bitmap, color);
-
-		float targetPupilSize = destPupilSize == null ? DEFAULT_PUPIL_SIZE : destPupilSize;
-		Bitmap deformedBitmap = ImageUtil.deformOverlayByPupilSize(colouredBitmap, origPupilSize, targetPupilSize, pupilOffsetX, pupilOffsetY);
-		return new BitmapDrawable(getResources(), deformedBitmap);
+	private void prewarmOverlayCache(@Nullable final JpegMetadata metadata, final int overlayColor) {
+		if (!canHandleOverlays()) {
+			return;
+		}
+		List<Integer> positions = new ArrayList<>();
+		for (int i = 0; i < DisplayImageFragment.OVERLAY_BUTTON_COUNT; i++) {
+			int position = PreferenceUtil.getIndexedSharedPreferenceIntString(R.string.key_indexed_overlaytype, i, -1);
+			if (position >= 0) {
+				positions.add(position);
+			}
+		}
+		positions.add(OVERLAY_PUPIL_INDEX);
+
+		if (metadata == null) {
+			OverlayCache.getInstance().prewarm(positions, mEyePhoto.getRightLeft(), overlayColor, DEFAULT_PUPIL_SIZE, 0f, 0f);
+		}
+		else {
+			OverlayCache.getInstance().prewarm(positions, mEyePhoto.getRightLeft(), overlayColor,
+					metadata.getPupilSize(), metadata.getPupilXOffset(), metadata.getPupilYOffset());
+		}
 	}
 
 	/**
@@ -976,10 +957,9 @@ public class OverlayPinchImageView extends PinchImageView {
 			mColorTemperature = colorTemperature;
 		}
 		mNeedsBitmapRefresh = true;
-		cleanFullResolutionBitmaps(true);
 
 		if (fromSeekbar) {
-			refresh(mPartialBitmapFullResolution == null ? LOW : FULL);
+			refresh(LOW);
 		}
 		else {
 			refresh();
@@ -996,7 +976,7 @@ public class OverlayPinchImageView extends PinchImageView {
 		mNeedsBitmapRefresh = true;
 		resetOverlayCache();
 		mGuiElementUpdater.updateOverlayColorButton(overlayColor);
-		if (getOverlayPositions().size() > 0) {
+		if (isShowingOverlays()) {
 			refresh();
 		}
 	}
@@ -1023,7 +1003,6 @@ public class OverlayPinchImageView extends PinchImageView {
 				mMetadata.setSaturation((Float) null);
 				mMetadata.setColorTemperature((Float) null);
 				mNeedsBitmapRefresh = true;
-				cleanFullResolutionBitmaps(true);
 				mBrightness = 0;
 				mContrast = 1;
 				mSaturation = 1;
@@ -1145,7 +1124,6 @@ public class OverlayPinchImageView extends PinchImageView {
 	@Override
 	protected final boolean handlePointerMove(@NonNull final MotionEvent ev) {
 		if (mPinchMode == PinchMode.ALL) {
-			cleanFullResolutionBitmaps(false);
 			return super.handlePointerMove(ev);
 		}
 		else if (mPinchMode == PinchMode.PUPIL_CENTER) {
@@ -1157,7 +1135,7 @@ public class OverlayPinchImageView extends PinchImageView {
 				mPupilOverlayX = 0;
 				mPupilOverlayY = 0;
 				mIsPupilChanged = true;
-				refresh(mFullResolutionFlag ? FULL : LOW);
+				refresh(LOW);
 				return true;
 			}
 		}
@@ -1265,7 +1243,7 @@ public class OverlayPinchImageView extends PinchImageView {
 			}
 		}
 
-		refresh(mFullResolutionFlag ? FULL : LOW);
+		refresh(LOW);
 		return moved;
 	}
 
@@ -1289,68 +1267,6 @@ public class OverlayPinchImageView extends PinchImageView {
 		return mMetadata;
 	}
 
-	/**
-	 * Create a bitmap containing the current view in full resolution (incl. brightness/contrast).
-	 *
-	 * @return The bitmap in full resolution.
-	 */
-	private Bitmap createFullResolutionBitmap() {
-		if (mBitmap == null) {
-			return null;
-		}
-
-		float leftX = mPosX * mBitmap.getWidth() - (float) getWidth() / 2 / mScaleFactor;
-		float rightX = mPosX * mBitmap.getWidth() + (float) getWidth() / 2 / mScaleFactor;
-		float upperY = mPosY * mBitmap.getHeight() - (float) getHeight() / 2 / mScaleFactor;
-		float lowerY = mPosY * mBitmap.getHeight() + (float) getHeight() / 2 / mScaleFactor;
-
-		// The image part which needs to be displayed
-		float minX = Math.max(0, leftX / mBitmap.getWidth());
-		float maxX = Math.min(1, rightX / mBitmap.getWidth());
-		float minY = Math.max(0, upperY / mBitmap.getHeight());
-		float maxY = Math.min(1, lowerY / mBitmap.getHeight());
-
-		if (maxX <= minX || maxY <= minY) {
-			// Image is outside of the view
-			return null;
-		}
-
-		// The distance of the displayed image from the view borders.
-		int offsetX = Math.round(-Math.min(0, leftX) * mScaleFactor);
-		int offsetY = Math.round(-Math.min(0, upperY) * mScaleFactor);
-		int offsetMaxX = Math.round(Math.max(rightX - mBitmap.getWidth(), 0) * mScaleFactor);
-		int offsetMaxY = Math.round(Math.max(lowerY - mBitmap.getHeight(), 0) * mScaleFactor);
-
-		try {
-			Bitmap bitmapFull = mBitmapFull;
-			if (bitmapFull == null) {
-				bitmapFull = mEyePhoto.getFullBitmap();
-				if (mFullResolutionFlag) {
-					mBitmapFull = bitmapFull;
-					if (mRetainFragment != null) {
-						mRetainFragment.setBitmapFullResolution(bitmapFull);
-					}
-				}
-			}
-			Bitmap partialBitmap =
-					ImageUtil.getPartialBitmap(bitmapFull, minX, maxX, minY, maxY);
-			Bitmap scaledPartialBitmap =
-					Bitmap.createScaledBitmap(partialBitmap, getWidth() - offsetMaxX - offsetX, getHeight()
-							- offsetMaxY
-							- offsetY, false);
-
-			Bitmap bitmapFullResolution = Bitmap.createBitmap(getWidth(), getHeight(), Bitmap.Config.ARGB_8888);
-			Canvas canvas = new Canvas(bitmapFullResolution);
-			canvas.drawBitmap(scaledPartialBitmap, offsetX, offsetY, null);
-
-			return bitmapFullResolution;
-		}
-		catch (Exception e) {
-			// NullPointerExceptions might occur in parallel scenarios.
-			return null;
-		}
-	}
-
 	/**
 	 * Tell the view if it should automatically display in full resolution.
 	 *
@@ -1358,228 +1274,93 @@ public class OverlayPinchImageView extends PinchImageView {
 	 */
 	public final void allowFullResolution(final boolean fullResolutionFlag) {
 		mFullResolutionFlag = fullResolutionFlag;
+		invalidate();
 	}
 
 	/**
-	 * Add the current overlay to the partial Bitmap. (This is done similar to refresh().)
+	 * Get information if overlays are currently displayed.
 	 *
-	 * @param partialBitmap the partial bitmap before applying the overlay
-	 * @return the partial bitmap with overlay.
+	 * @return true if at least one overlay is displayed.
 	 */
-	public final Bitmap addOverlayToPartialBitmap(@NonNull final Bitmap partialBitmap) {
-		List<Integer> overlayPositions = getOverlayPositions();
-		if (overlayPositions.size() == 0) {
-			return partialBitmap;
+	private boolean isShowingOverlays() {
+		if (canHandleOverlays()) {
+			for (boolean showOverlay : mShowOverlay) {
+				if (showOverlay) {
+					return true;
+				}
+			}
 		}
+		return false;
+	}
 
-		Drawable[] layers = new Drawable[overlayPositions.size() + 1];
-
-		layers[0] = new BitmapDrawable(getResources(), partialBitmap);
-
-		for (int i = 0; i < overlayPositions.size(); i++) {
-			layers[i + 1] = getOverlayDrawable(overlayPositions.get(i));
+	/**
+	 * Draw the overlays on a canvas showing the current view. The cached overlay drawables are positioned directly, so
+	 * that drawing in onDraw does not create any objects.
+	 *
+	 * @param canvas the canvas.
+	 * @param width  the width of the canvas.
+	 * @param height the height of the canvas.
+	 */
+	private void drawOverlays(@NonNull final Canvas canvas, final int width, final int height) {
+		if (!canHandleOverlays()) {
+			return;
 		}
-		LayerDrawable layerDrawable = new LayerDrawable(layers);
-
-		// position overlays
-		for (int i = 1; i < layerDrawable.getNumberOfLayers(); i++) {
-			boolean isPupil = overlayPositions.get(i - 1) == OVERLAY_PUPIL_INDEX;
+		for (int position = 0; position < mShowOverlay.length; position++) {
+			if (!mShowOverlay[position]) {
+				continue;
+			}
+			Drawable overlayDrawable = getOverlayDrawable(position);
 
-			if (isPupil) {
+			if (position == OVERLAY_PUPIL_INDEX) {
 				float totalPupilOverlayScaleFactor = mPupilOverlayScaleFactor * mOverlayScaleFactor * OVERLAY_SIZE / 2;
 				float pupilAdjustedOverlayX =
 						mOverlayX + mPupilOverlayX * mOverlayScaleFactor * OVERLAY_SIZE * OVERLAY_CIRCLE_RATIO / mBitmap.getWidth();
 				float pupilAdjustedOverlayY =
 						mOverlayY + mPupilOverlayY * mOverlayScaleFactor * OVERLAY_SIZE * OVERLAY_CIRCLE_RATIO / mBitmap.getHeight();
-				layerDrawable.setLayerInset(i,
+				overlayDrawable.setBounds(
 						(int) (((pupilAdjustedOverlayX - mPosX) * mBitmap.getWidth() - totalPupilOverlayScaleFactor) * mScaleFactor
-								+ (float) partialBitmap.getWidth() / 2),
+								+ (float) width / 2),
 						(int) (((pupilAdjustedOverlayY - mPosY) * mBitmap.getHeight() - totalPupilOverlayScaleFactor) * mScaleFactor
-								+ (float) partialBitmap.getHeight() / 2),
-						(int) (((mPosX - pupilAdjustedOverlayX) * mBitmap.getWidth() - totalPupilOverlayScaleFactor) * mScaleFactor
-								+ (float) partialBitmap.getWidth() / 2),
-						(int) (((mPosY - pupilAdjustedOverlayY) * mBitmap.getHeight() - totalPupilOverlayScaleFactor) * mScaleFactor
-								+ (float) partialBitmap.getHeight() / 2));
+								+ (float) height / 2),
+						width - (int) (((mPosX - pupilAdjustedOverlayX) * mBitmap.getWidth() - totalPupilOverlayScaleFactor) * mScaleFactor
+								+ (float) width / 2),
+						height - (int) (((mPosY - pupilAdjustedOverlayY) * mBitmap.getHeight() - totalPupilOverlayScaleFactor) * mScaleFactor
+								+ (float) height / 2));
 			}
 			else {
-				layerDrawable.setLayerInset(i,
+				overlayDrawable.setBounds(
 						(int) (((mOverlayX - mPosX) * mBitmap.getWidth() - OVERLAY_SIZE / 2 * mOverlayScaleFactor) * mScaleFactor
-								+ (float) partialBitmap.getWidth() / 2),
+								+ (float) width / 2),
 						(int) (((mOverlayY - mPosY) * mBitmap.getHeight() - OVERLAY_SIZE / 2 * mOverlayScaleFactor) * mScaleFactor
-								+ (float) partialBitmap.getHeight() / 2),
-						(int) (((mPosX - mOverlayX) * mBitmap.getWidth() - OVERLAY_SIZE / 2 * mOverlayScaleFactor) * mScaleFactor
-								+ (float) partialBitmap.getWidth() / 2),
-						(int) (((mPosY - mOverlayY) * mBitmap.getHeight() - OVERLAY_SIZE / 2 * mOverlayScaleFactor) * mScaleFactor
-								+ (float) partialBitmap.getHeight() / 2));
+								+ (float) height / 2),
+						width - (int) (((mPosX - mOverlayX) * mBitmap.getWidth() - OVERLAY_SIZE / 2 * mOverlayScaleFactor) * mScaleFactor
+								+ (float) width / 2),
+						height - (int) (((mPosY - mOverlayY) * mBitmap.getHeight() - OVERLAY_SIZE / 2 * mOverlayScaleFactor) * mScaleFactor
+								+ (float) height / 2));
 			}
+			overlayDrawable.draw(canvas);
 		}
-
-		layerDrawable.setBounds(0, 0, partialBitmap.getWidth(), partialBitmap.getHeight());
-
-		Bitmap canvasBitmap = Bitmap.createBitmap(partialBitmap.getWidth(), partialBitmap.getHeight(), Bitmap.Config.ARGB_8888);
-		Canvas canvas = new Canvas(canvasBitmap);
-		layerDrawable.draw(canvas);
-
-		return canvasBitmap;
 	}
 
 	/**
-	 * Show the current view in full resolution.
-	 *
-	 * @param async A flag indicating if the bitmap creation should happen in a separate thread.
+	 * Show the current view in full resolution, also if this is not done automatically. The tiles of the tile pyramid are
+	 * displayed until the view is touched again.
 	 */
-	public final void showFullResolutionSnapshot(final boolean async) {
-		if (async && !mFullResolutionFlag) {
-			// Do not trigger full resolution thread if flag is configured for manual handling of full resolution.
-			return;
-		}
-
-		Thread fullResolutionThread = new Thread() {
-			@Override
-			public void run() {
-				final Bitmap partialBitmapWithOverlay = getFullResolutionBitmapWithOverlay();
-
-				if (isInterrupted()) {
-					// Do not display the result if the thread has been interrupted.
-					post(new Runnable() {
-						@Override
-						public void run() {
-							cleanFullResolutionBitmaps(false);
-						}
-					});
-				}
-				else {
-					// Make a straight display of this bitmap without any matrix transformation.
-					// Will be reset by regular view as soon as the screen is touched again.
-					post(new Runnable() {
-						@Override
-						public void run() {
-							if (mPartialBitmapFullResolution != null) {
-								setImageBitmap(partialBitmapWithOverlay);
-								mShowingFullResolution = true;
-								setMatrix();
-							}
-						}
-
-					});
-				}
-
-				if (async) {
-					// start next thread in queue
-					synchronized (mFullResolutionThreads) {
-						mFullResolutionThreads.remove(Thread.currentThread());
-						if (mFullResolutionThreads.size() > 0) {
-							mFullResolutionThreads.get(0).start();
-						}
-					}
-				}
-			}
-		};
-
-		if (async) {
-			synchronized (mFullResolutionThreads) {
-				if (mFullResolutionThreads.size() > 1) {
-					// at most two threads in list
-					mFullResolutionThreads.remove(1);
-				}
-				mFullResolutionThreads.add(fullResolutionThread);
-				if (mFullResolutionThreads.size() == 1) {
-					// only start if no thread is running
-					fullResolutionThread.start();
-				}
-			}
-		}
-		else {
-			try {
-				fullResolutionThread.start();
-				fullResolutionThread.join();
-			}
-			catch (InterruptedException e) {
-				// do nothing
-			}
-		}
-
-	}
-
-	/**
-	 * Create the full resolution bitmap including the overlay.
-	 *
-	 * @return The bitmap.
-	 */
-	private Bitmap getFullResolutionBitmapWithOverlay() {
-		if (mPartialBitmapFullResolution == null) {
-			try {
-				mPartialBitmapFullResolution = createFullResolutionBitmap();
-			}
-			catch (OutOfMemoryError e) {
-				Log.e(Application.TAG, "Out of memory while creating full resolution bitmap", e);
-				mPartialBitmapFullResolution = null;
-			}
-
-			if (mPartialBitmapFullResolution == null) {
-				return null;
-			}
-		}
-
-		if (mPartialBitmapFullResolutionWithBrightness == null) {
-			try {
-				mPartialBitmapFullResolutionWithBrightness =
-						ImageUtil.changeBitmapColors(mPartialBitmapFullResolution, mContrast, mBrightness, mSaturation, mColorTemperature);
-			}
-			catch (OutOfMemoryError e) {
-				Log.e(Application.TAG, "Out of memory while creating full resolution bitmap with brightness", e);
-				mPartialBitmapFullResolutionWithBrightness = null;
-			}
-
-			if (mPartialBitmapFullResolutionWithBrightness == null) {
-				return null;
-			}
-		}
-
-		return addOverlayToPartialBitmap(mPartialBitmapFullResolutionWithBrightness);
-	}
-
-	/**
-	 * Clean the cached full resolution bitmaps. In case of full cleaning, a normal resolution snapshot is displayed.
-	 *
-	 * @param onlyBrightness Flag indicating if only the brightness/contrast bitmap is cleaned, but the position is kept.
-	 */
-	private void cleanFullResolutionBitmaps(final boolean onlyBrightness) {
-		mPartialBitmapFullResolutionWithBrightness = null;
-		if (!onlyBrightness) {
-			mPartialBitmapFullResolution = null;
-			if (mShowingFullResolution) {
-				setImageBitmap(mCanvasBitmap);
-				mShowingFullResolution = false;
-				setMatrix();
-			}
-		}
-	}
-
-	/**
-	 * Interrupt the full resolution snapshot creation, if in process.
-	 */
-	private void interruptFullResolutionThread() {
-		synchronized (mFullResolutionThreads) {
-			if (mFullResolutionThreads.size() > 0) {
-				mFullResolutionThreads.get(0).interrupt();
-				if (mFullResolutionThreads.size() > 1) {
-					mFullResolutionThreads.remove(1);
-				}
-			}
-		}
-		cleanFullResolutionBitmaps(false);
+	public final void showFullResolution() {
+		mIsFullResolutionRequested = true;
+		invalidate();
 	}
 
 	/**
-	 * Show normal resolution again after having the full resolution snapshot.
+	 * Show normal resolution again after full resolution has been requested.
 	 */
 	public final void showNormalResolution() {
+		mIsFullResolutionRequested = false;
 		if (mNeedsBitmapRefresh) {
 			refresh(HIGH);
 		}
 		else {
-			interruptFullResolutionThread();
+			invalidate();
 		}
 	}
 
@@ -1592,39 +1373,13 @@ public class OverlayPinchImageView extends PinchImageView {
 	 */
 	public Uri getBitmapUri(final boolean currentView, final String tempFileName) {
 		if (currentView) {
-			return ImageUtil.getUriForFullResolutionBitmap(getFullResolutionBitmapWithOverlay(), tempFileName);
+			return ImageUtil.getUriForFullResolutionBitmap(renderView(), tempFileName);
 		}
 		else {
 			return MediaStoreUtil.getUriFromFile(getEyePhoto().getAbsolutePath());
 		}
 	}
 
-	@Override
-	protected final void setMatrix() {
-		if (mShowingFullResolution) {
-			setImageMatrix(null);
-		}
-		else {
-			super.setMatrix();
-		}
-		invalidate();
-	}
-
-	/**
-	 * Override requestLayout to show normal resolution.
-	 */
-	@Override
-	public final void requestLayout() {
-		if (mBitmap != null && (getWidth() != mLastWidth || getHeight() != mLastHeight)) {
-			// if view size changed, then calculate full resolution image again
-			showNormalResolution();
-			showFullResolutionSnapshot(true);
-		}
-		super.requestLayout();
-		mLastHeight = getHeight();
-		mLastWidth = getWidth();
-	}
-
 	/**
 	 * Store the comment in the image.
 	 *
@@ -1638,12 +1393,44 @@ public class OverlayPinchImageView extends PinchImageView {
 	}
 
 	/**
-	 * Remove cached full bitmap from memory.
+	 * Release the tile pyramid.
 	 */
 	public final void cleanFullBitmap() {
-		mBitmapFull = null;
+		setTilePyramid(null);
 		if (mRetainFragment != null) {
-			mRetainFragment.setBitmapFullResolution(null);
+			mRetainFragment.setTilePyramid(null);
+		}
+	}
+
+	@Override
+	protected final boolean canShowTiles() {
+		return mFullResolutionFlag || mIsFullResolutionRequested;
+	}
+
+	@Nullable
+	@Override
+	protected final ColorFilter getTileColorFilter() {
+		return getColorFilter();
+	}
+
+	/**
+	 * Cover the overlays contained in the displayed bitmap, as the overlays need to be drawn above the tiles.
+	 *
+	 * @param canvas The canvas on which to draw.
+	 */
+	@Override
+	protected final void drawBelowTiles(@NonNull final Canvas canvas) {
+		Bitmap bitmap = mBitmap;
+		if (bitmap != null && isShowingOverlays()) {
+			mTileBackgroundPaint.setColorFilter(getColorFilter());
+			canvas.drawBitmap(bitmap, 0, 0, mTileBackgroundPaint);
+		}
+	}
+
+	@Override
+	protected final void drawAboveTiles(@NonNull final Canvas canvas) {
+		if (mBitmap != null) {
+			drawOverlays(canvas, getWidth(), getHeight());
 		}
 	}
 
@@ -1820,19 +1607,6 @@ public class OverlayPinchImageView extends PinchImageView {
 			this.mRetainbitmapSmall = bitmapSmall;
 		}
 
-		/**
-		 * The full resolution bitmap.
-		 */
-		private Bitmap mRetainBitmapFullResolution;
-
-		private Bitmap getBitmapFullResolution() {
-			return mRetainBitmapFullResolution;
-		}
-
-		private void setBitmapFullResolution(final Bitmap bitmapFullResolution) {
-			this.mRetainBitmapFullResolution = bitmapFullResolution;
-		}
-
 		/**
 		 * Get the retainFragment - search it by the index. If not found, create a new one.
 		 *
@@ -1868,15 +1642,7 @@ public class OverlayPinchImageView extends PinchImageView {
 		/**
 		 * High resolution, as specified in the settings.
 		 */
-		HIGH,
-		/**
-		 * Full resolution.
-		 */
-		FULL,
-		/**
-		 * Full resolution, but high resolution should be prepared.
-		 */
-		FULL_HIGH
+		HIGH
 	}
 
 	/**
@@ -7,19 +7,32 @@ import android.app.FragmentManager;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.ColorFilter;
 import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.RectF;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Parcelable;
 import android.util.AttributeSet;
+import android.util.Log;
 import android.view.GestureDetector;
 import android.view.MotionEvent;
 import android.view.ScaleGestureDetector;
 import android.widget.ImageView;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
-import de.jeisfeld.augendiagnoselib.util.imagefile.ImageUtil;
+import de.jeisfeld.augendiagnoselib.Application;
+import de.jeisfeld.augendiagnoselib.util.imagefile.ImageCache;
+import de.jeisfeld.augendiagnoselib.util.imagefile.TilePyramid;
+import de.jeisfeld.augendiagnoselib.util.imagefile.TilePyramid.Tile;
 
 /**
  * A view for displaying an image, allowing moving and resizing with pinching.
@@ -138,6 +151,32 @@ public class PinchImageView extends ImageView {
 
 	// PUBLIC_FIELDS:END
 
+	/**
+	 * The tile pyramid, used for displaying the image file in higher resolution than the bitmap when zooming in.
+	 */
+	@Nullable
+	private volatile TilePyramid mTilePyramid = null;
+
+	/**
+	 * The paint used for drawing the tiles.
+	 */
+	private final Paint mTilePaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+	/**
+	 * Flag indicating if the view is currently rendered into a bitmap, so that missing tiles are loaded synchronously.
+	 */
+	private boolean mIsRenderingView = false;
+
+	/**
+	 * The listener redrawing the view when a tile has been loaded.
+	 */
+	private final Runnable mTileLoadedListener = new Runnable() {
+		@Override
+		public void run() {
+			postInvalidate();
+		}
+	};
+
 	/**
 	 * Standard constructor to be implemented for all views.
 	 *
@@ -189,9 +228,11 @@ public class PinchImageView extends ImageView {
 				cacheIndex);
 		if (!pathName.equals(mPathName)) {
 			retainFragment.setBitmap(null);
+			retainFragment.setTilePyramid(null);
 		}
 
 		mBitmap = retainFragment.getBitmap();
+		mTilePyramid = retainFragment.getTilePyramid();
 
 		if (mBitmap == null) {
 			final Handler handler = new Handler();
@@ -200,9 +241,11 @@ public class PinchImageView extends ImageView {
 			new Thread() {
 				@Override
 				public void run() {
-					mBitmap = ImageUtil.getImageBitmap(pathName, mMaxBitmapSize);
+					mBitmap = ImageCache.getInstance().getImageBitmap(pathName, mMaxBitmapSize);
+					mTilePyramid = createTilePyramid(pathName, null);
 
 					retainFragment.mRetainBitmap = mBitmap;
+					retainFragment.setTilePyramid(mTilePyramid);
 					mPathName = pathName;
 					handler.post(new Runnable() {
 						@Override
@@ -236,6 +279,8 @@ public class PinchImageView extends ImageView {
 		if (imageResource != mImageResource) {
 			retainFragment.setBitmap(null);
 		}
+		retainFragment.setTilePyramid(null);
+		mTilePyramid = null;
 
 		mBitmap = retainFragment.getBitmap();
 
@@ -275,12 +320,55 @@ public class PinchImageView extends ImageView {
 	public final void setImage(final Bitmap bitmap) {
 		// do not use retainFragment in this case - only used on CameraActivity, which is landscape only.
 		mBitmap = bitmap;
+		mTilePyramid = null;
 		super.setImageBitmap(mBitmap);
 		mIsBitmapSet = true;
 		mInitialized = false;
 		doInitialScaling();
 	}
 
+	/**
+	 * Create the tile pyramid of an image file. As this opens the image file, it should not be called in the UI thread.
+	 *
+	 * @param pathName    The pathname of the image
+	 * @param orientation The EXIF orientation in which the image is displayed. If null, it is read from the file.
+	 * @return The tile pyramid, or null if the image cannot be decoded in tiles.
+	 */
+	@Nullable
+	protected static TilePyramid createTilePyramid(@NonNull final String pathName, @Nullable final Short orientation) {
+		try {
+			return new TilePyramid(pathName, orientation);
+		}
+		catch (IOException e) {
+			Log.w(Application.TAG, "Cannot create tile pyramid for " + pathName + ": " + e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Get the tile pyramid used for displaying the image in higher resolution than the bitmap.
+	 *
+	 * @return The tile pyramid, or null if there is none.
+	 */
+	@Nullable
+	protected final TilePyramid getTilePyramid() {
+		return mTilePyramid;
+	}
+
+	/**
+	 * Set the tile pyramid used for displaying the image in higher resolution than the bitmap.
+	 *
+	 * @param tilePyramid The tile pyramid, or null if only the bitmap should be displayed.
+	 */
+	protected final void setTilePyramid(@Nullable final TilePyramid tilePyramid) {
+		TilePyramid previousTilePyramid = mTilePyramid;
+		if (previousTilePyramid != null && previousTilePyramid != tilePyramid) {
+			previousTilePyramid.cancelRequests();
+		}
+		mTilePyramid = tilePyramid;
+		postInvalidate();
+	}
+
 	/**
 	 * Return the natural scale factor that fits the image into the view.
 	 *
@@ -369,6 +457,147 @@ public class PinchImageView extends ImageView {
 		}
 	}
 
+	@Override
+	protected final void onDraw(@NonNull final Canvas canvas) {
+		super.onDraw(canvas);
+		TilePyramid tilePyramid = mTilePyramid;
+		Bitmap bitmap = mBitmap;
+		if (tilePyramid != null && bitmap != null) {
+			if (mIsRenderingView || canShowTiles()) {
+				drawTiles(canvas, tilePyramid, bitmap);
+			}
+			else {
+				tilePyramid.cancelRequests();
+			}
+		}
+	}
+
+	/**
+	 * Render the current view into a bitmap. The tiles of the tile pyramid are drawn also if they are currently not shown,
+	 * and tiles which are not yet loaded are loaded synchronously.
+	 *
+	 * @return The bitmap containing the current view.
+	 */
+	@NonNull
+	protected final Bitmap renderView() {
+		Bitmap viewBitmap = Bitmap.createBitmap(getWidth(), getHeight(), Bitmap.Config.ARGB_8888);
+		Canvas canvas = new Canvas(viewBitmap);
+		canvas.drawColor(Color.BLACK);
+		mIsRenderingView = true;
+		try {
+			draw(canvas);
+		}
+		finally {
+			mIsRenderingView = false;
+		}
+		return viewBitmap;
+	}
+
+	/**
+	 * Check if the tiles may currently be drawn over the bitmap.
+	 *
+	 * @return true if the tiles may be drawn.
+	 */
+	// OVERRIDABLE
+	protected boolean canShowTiles() {
+		return true;
+	}
+
+	/**
+	 * Get the color filter applied when drawing the tiles.
+	 *
+	 * @return The color filter, or null if the colors are unchanged.
+	 */
+	// OVERRIDABLE
+	@Nullable
+	protected ColorFilter getTileColorFilter() {
+		return null;
+	}
+
+	/**
+	 * Draw below the tiles, if tiles are drawn. The canvas is in the coordinates of the image matrix.
+	 *
+	 * @param canvas The canvas on which to draw.
+	 */
+	// OVERRIDABLE
+	protected void drawBelowTiles(@NonNull final Canvas canvas) {
+		// do nothing
+	}
+
+	/**
+	 * Draw above the tiles, if tiles are drawn. The canvas is in view coordinates.
+	 *
+	 * @param canvas The canvas on which to draw.
+	 */
+	// OVERRIDABLE
+	protected void drawAboveTiles(@NonNull final Canvas canvas) {
+		// do nothing
+	}
+
+	/**
+	 * Draw the visible tiles of the tile pyramid over the bitmap, if the bitmap does not provide the required
+	 * resolution. Missing tiles are loaded in the background, and loading of tiles which are no longer visible is
+	 * cancelled. Until the tiles are loaded, the bitmap remains visible. When rendering the view into a bitmap, missing tiles
+	 * are loaded synchronously instead. Subclasses may draw below and above the tiles.
+	 *
+	 * @param canvas      The canvas on which to draw.
+	 * @param tilePyramid The tile pyramid.
+	 * @param bitmap      The bitmap displayed below the tiles.
+	 */
+	private void drawTiles(@NonNull final Canvas canvas, @NonNull final TilePyramid tilePyramid, @NonNull final Bitmap bitmap) {
+		float bitmapScale = (float) bitmap.getWidth() / tilePyramid.getWidth();
+		int level = tilePyramid.getLevel(mScaleFactor * bitmapScale);
+		if ((1 << level) * bitmapScale >= 1) {
+			// The bitmap has sufficient resolution.
+			if (!mIsRenderingView) {
+				tilePyramid.cancelRequests();
+			}
+			return;
+		}
+
+		Matrix displayMatrix = new Matrix();
+		displayMatrix.setScale(bitmapScale, bitmapScale);
+		displayMatrix.postConcat(getImageMatrix());
+		Matrix inverseMatrix = new Matrix();
+		if (!displayMatrix.invert(inverseMatrix)) {
+			return;
+		}
+		RectF visibleRect = new RectF(0, 0, getWidth() - getPaddingLeft() - getPaddingRight(), getHeight() - getPaddingTop() - getPaddingBottom());
+		inverseMatrix.mapRect(visibleRect);
+
+		List<Tile> missingTiles = new ArrayList<>();
+		mTilePaint.setColorFilter(getTileColorFilter());
+		int saveCount = canvas.save();
+		canvas.translate(getPaddingLeft(), getPaddingTop());
+		int imageSaveCount = canvas.save();
+		canvas.concat(getImageMatrix());
+		drawBelowTiles(canvas);
+		canvas.restoreToCount(imageSaveCount);
+		for (Tile tile : tilePyramid.getTiles(level, visibleRect)) {
+			Bitmap tileBitmap = mIsRenderingView ? tilePyramid.getTile(tile) : tilePyramid.getCachedTile(tile);
+			if (tileBitmap == null) {
+				missingTiles.add(tile);
+			}
+			else {
+				canvas.drawBitmap(tileBitmap, tilePyramid.getTileMatrix(tile, tileBitmap, displayMatrix), mTilePaint);
+			}
+		}
+		canvas.restoreToCount(saveCount);
+		drawAboveTiles(canvas);
+		if (!mIsRenderingView) {
+			tilePyramid.requestTiles(missingTiles, mTileLoadedListener);
+		}
+	}
+
+	@Override
+	protected final void onDetachedFromWindow() {
+		super.onDetachedFromWindow();
+		TilePyramid tilePyramid = mTilePyramid;
+		if (tilePyramid != null) {
+			tilePyramid.cancelRequests();
+		}
+	}
+
 	/*
 	 * Method to do the scaling based on pinching.
 	 */
@@ -630,6 +859,34 @@ public class PinchImageView extends ImageView {
 			this.mRetainBitmap = bitmap;
 		}
 
+		/**
+		 * The tile pyramid to be stored.
+		 */
+		@Nullable
+		private TilePyramid mRetainTilePyramid;
+
+		/**
+		 * Get the tile pyramid.
+		 *
+		 * @return The tile pyramid.
+		 */
+		@Nullable
+		public final TilePyramid getTilePyramid() {
+			return mRetainTilePyramid;
+		}
+
+		/**
+		 * Set the tile pyramid. A previously stored tile pyramid is released.
+		 *
+		 * @param tilePyramid The tile pyramid.
+		 */
+		public final void setTilePyramid(@Nullable final TilePyramid tilePyramid) {
+			if (mRetainTilePyramid != null && mRetainTilePyramid != tilePyramid) {
+				mRetainTilePyramid.release();
+			}
+			this.mRetainTilePyramid = tilePyramid;
+		}
+
 		/**
 		 * Get the retainFragment - search it by the index. If not found, create a new one.
 		 *
@@ -652,6 +909,12 @@ public class PinchImageView extends ImageView {
 			super.onCreate(savedInstanceState);
 			setRetainInstance(true);
 		}
+
+		@Override
+		public final void onDestroy() {
+			setTilePyramid(null);
+			super.onDestroy();
+		}
 	}
 
 }
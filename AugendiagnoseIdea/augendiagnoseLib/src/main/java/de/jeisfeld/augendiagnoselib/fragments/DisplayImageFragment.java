@@ -59,6 +59,7 @@ import de.jeisfeld.augendiagnoselib.util.SystemUtil;
 import de.jeisfeld.augendiagnoselib.util.imagefile.EyePhoto.RightLeft;
 import de.jeisfeld.augendiagnoselib.util.imagefile.JpegMetadata;
 import de.jeisfeld.augendiagnoselib.util.imagefile.JpegMetadataUtil;
+import de.jeisfeld.augendiagnoselib.util.imagefile.PupilAndIrisDetector;
 
 import static android.content.res.Configuration.ORIENTATION_LANDSCAPE;
 
@@ -617,7 +618,7 @@ public class DisplayImageFragment extends Fragment implements GuiElementUpdater,
 			mClarityButton.setOnClickListener(new OnClickListener() {
 				@Override
 				public void onClick(final View v) {
-					mImageView.showFullResolutionSnapshot(false);
+					mImageView.showFullResolution();
 					DialogUtil.displayTip(requireActivity(), R.string.message_tip_clarity, R.string.key_tip_clarity);
 				}
 			});
@@ -1281,6 +1282,8 @@ public class DisplayImageFragment extends Fragment implements GuiElementUpdater,
 	 */
 	public final void initializeImages() {
 		mImageView.setImage(mFile, getActivity(), mImageIndex);
+		// The displayed photo should get its iris position first.
+		PupilAndIrisDetector.prioritizeIrisDetection(mFile);
 
 		if (mImageView.getEyePhoto().getRightLeft() == null && mRightLeft != null) {
 			mImageView.getEyePhoto().setRightLeft(mRightLeft);
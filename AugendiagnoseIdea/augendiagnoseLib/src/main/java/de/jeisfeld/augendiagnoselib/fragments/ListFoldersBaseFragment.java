@@ -16,15 +16,8 @@ import android.widget.EditText;
 import android.widget.ListView;
 
 import java.io.File;
-import java.io.FileFilter;
-import java.text.CollationKey;
-import java.text.Collator;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -38,6 +31,7 @@ import de.jeisfeld.augendiagnoselib.util.PreferenceUtil;
 import de.jeisfeld.augendiagnoselib.util.SystemUtil;
 import de.jeisfeld.augendiagnoselib.util.imagefile.EyePhoto;
 import de.jeisfeld.augendiagnoselib.util.imagefile.FileUtil;
+import de.jeisfeld.augendiagnoselib.util.imagefile.PhotoCatalogue;
 
 /**
  * Base listFoldersFragment to display the list of subfolders of a folder Abstract class - child classes determine the
@@ -120,7 +114,7 @@ public abstract class ListFoldersBaseFragment extends Fragment {
 		editTextSearch.addTextChangedListener(new TextWatcher() {
 			@Override
 			public void onTextChanged(@NonNull final CharSequence s, final int start, final int before, final int count) {
-				mDirectoryListAdapter.getFilter().filter(s.toString());
+				filterList(s.toString());
 			}
 
 			@Override
@@ -152,88 +146,65 @@ public abstract class ListFoldersBaseFragment extends Fragment {
 			// fill initial adapter
 			mDirectoryListAdapter = new ArrayAdapter<>(getActivity(), R.layout.adapter_list_names, folderNames);
 			mListView.setAdapter(mDirectoryListAdapter);
-			mListView.setTextFilterEnabled(true);
 		}
 		else {
 			// update existing adapter
-			mDirectoryListAdapter.clear();
-			mDirectoryListAdapter.addAll(folderNames);
 			if (getView() != null) {
-				mDirectoryListAdapter.getFilter().filter(((EditText) getView().findViewById(R.id.searchName)).getText());
+				filterList(((EditText) getView().findViewById(R.id.searchName)).getText().toString());
+			}
+			else {
+				mDirectoryListAdapter.clear();
+				mDirectoryListAdapter.addAll(folderNames);
 			}
-			mDirectoryListAdapter.notifyDataSetChanged();
 		}
 
 		getActivity().findViewById(R.id.textViewNoImages).setVisibility(folderNames.size() == 0 ? View.VISIBLE : View.GONE);
 	}
 
 	/**
-	 * Get the list of subfolders, using getFileNameForSorting() for ordering.
+	 * Display the names matching a search string. The names are taken from the index of the photo catalogue.
+	 *
+	 * @param searchString The search string.
+	 */
+	private void filterList(@NonNull final String searchString) {
+		List<String> folderNames = getFolderNames(mParentFolder, searchString);
+		mDirectoryListAdapter.setNotifyOnChange(false);
+		mDirectoryListAdapter.clear();
+		mDirectoryListAdapter.addAll(folderNames);
+		mDirectoryListAdapter.notifyDataSetChanged();
+	}
+
+	/**
+	 * Get the list of subfolders, sorted by name or last name.
 	 *
 	 * @param parentFolder The parent folder.
 	 * @return The list of subfolders.
 	 */
 	@NonNull
 	public static List<String> getFolderNames(@NonNull final File parentFolder) {
-		File[] folders = parentFolder.listFiles(new FileFilter() {
-			@Override
-			public boolean accept(@NonNull final File pathname) {
-				return pathname.isDirectory();
-			}
-		});
-
-		List<String> folderNames = new ArrayList<>();
-		if (folders == null) {
-			return folderNames;
-		}
-
-		Collator collator = Collator.getInstance();
-		final Map<File, CollationKey> collationMap = new HashMap<>();
-		for (File folder : folders) {
-			collationMap.put(folder, collator.getCollationKey(getFilenameForSorting(folder)));
-		}
-
-		Arrays.sort(folders, new Comparator<File>() {
-			@Override
-			public int compare(final File f1, final File f2) {
-				return collationMap.get(f1).compareTo(collationMap.get(f2));
-			}
-		});
-
-		for (File f : folders) {
-			folderNames.add(f.getName());
-		}
-
-		if (Application.getAuthorizationLevel() == AuthorizationLevel.TRIAL_ACCESS
-				&& folderNames.size() > TRIAL_MAX_NAMES) {
-			folderNames = folderNames.subList(0, TRIAL_MAX_NAMES);
-		}
-
-		return folderNames;
+		return getFolderNames(parentFolder, null);
 	}
 
 	/**
-	 * Helper method to return the name of the file for sorting. Allows sorting by last name, and giving precedence to
-	 * iris topography folders.
+	 * Get the list of subfolders having a name part starting with the search string, sorted by name or last name. The
+	 * names are served from the photo catalogue.
 	 *
-	 * @param f The file
-	 * @return The name for Sorting
+	 * @param parentFolder The parent folder.
+	 * @param searchString The search string.
+	 * @return The list of subfolders.
 	 */
 	@NonNull
-	private static String getFilenameForSorting(@NonNull final File f) {
-		String name = f.getName();
-
-		boolean sortByLastName = PreferenceUtil.getSharedPreferenceBoolean(R.string.key_sort_by_last_name);
-		if (sortByLastName) {
-			int index = name.lastIndexOf(' ');
-			if (index >= 0) {
-				String firstName = name.substring(0, index);
-				String lastName = name.substring(index + 1);
-				name = lastName + " " + firstName;
+	public static List<String> getFolderNames(@NonNull final File parentFolder, @Nullable final String searchString) {
+		List<String> folderNames = PhotoCatalogue.getInstance().getNames(parentFolder, searchString);
+
+		if (Application.getAuthorizationLevel() == AuthorizationLevel.TRIAL_ACCESS) {
+			List<String> allFolderNames = searchString == null ? folderNames : PhotoCatalogue.getInstance().getNames(parentFolder, null);
+			if (allFolderNames.size() > TRIAL_MAX_NAMES) {
+				folderNames.retainAll(new ArrayList<>(allFolderNames.subList(0, TRIAL_MAX_NAMES)));
 			}
 		}
 
-		return name;
+		return folderNames;
 	}
 
 	/**
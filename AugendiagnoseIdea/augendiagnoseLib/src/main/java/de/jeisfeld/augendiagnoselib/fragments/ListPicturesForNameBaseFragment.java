@@ -11,6 +11,7 @@ import android.widget.TextView;
 import java.io.File;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
@@ -20,7 +21,7 @@ import de.jeisfeld.augendiagnoselib.R;
 import de.jeisfeld.augendiagnoselib.util.DialogUtil;
 import de.jeisfeld.augendiagnoselib.util.imagefile.EyePhoto;
 import de.jeisfeld.augendiagnoselib.util.imagefile.EyePhotoPair;
-import de.jeisfeld.augendiagnoselib.util.imagefile.ImageUtil;
+import de.jeisfeld.augendiagnoselib.util.imagefile.PhotoCatalogue;
 
 /**
  * Base listFoldersFragment to display the pictures in an eye photo folder (in pairs) Abstract class - child classes
@@ -116,11 +117,7 @@ public abstract class ListPicturesForNameBaseFragment extends Fragment {
 			}
 		});
 
-		File[] files = folder.listFiles(new ImageUtil.ImageFileFilter());
-
-		if (files == null) {
-			return new EyePhotoPair[0];
-		}
+		List<File> files = PhotoCatalogue.getInstance().getPhotoFiles(folder.getParentFile(), folder.getName());
 
 		for (File f : files) {
 			EyePhoto eyePhoto = new EyePhoto(f);
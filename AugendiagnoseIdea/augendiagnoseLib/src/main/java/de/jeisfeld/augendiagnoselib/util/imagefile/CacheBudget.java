@@ -0,0 +1,65 @@
+package de.jeisfeld.augendiagnoselib.util.imagefile;
+
+/**
+ * The memory budget of the bitmap caches. All caches together may use a quarter of the available memory, which is
+ * shared between the caches by weight.
+ */
+enum CacheBudget {
+	/**
+	 * The bitmaps of the ImageCache.
+	 */
+	IMAGES(4), // MAGIC_NUMBER
+	/**
+	 * The tiles of the TilePyramid.
+	 */
+	PYRAMID_TILES(3), // MAGIC_NUMBER
+	/**
+	 * The overlays of the OverlayCache.
+	 */
+	OVERLAYS(1);
+
+	/**
+	 * The fraction of the available memory which may be used by all caches together.
+	 */
+	private static final int MEMORY_FRACTION = 4;
+	/**
+	 * The number of bytes per kilobyte.
+	 */
+	private static final int KILOBYTE = 1024;
+
+	/**
+	 * The weight of the cache in the budget.
+	 */
+	private final int mWeight;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param weight The weight of the cache in the budget.
+	 */
+	CacheBudget(final int weight) {
+		mWeight = weight;
+	}
+
+	/**
+	 * Get the maximum size of all caches together.
+	 *
+	 * @return The maximum size in kilobytes.
+	 */
+	static int getTotalSizeKb() {
+		return (int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / KILOBYTE / MEMORY_FRACTION);
+	}
+
+	/**
+	 * Get the maximum size of the cache.
+	 *
+	 * @return The maximum size in kilobytes.
+	 */
+	int getMaxSizeKb() {
+		int totalWeight = 0;
+		for (CacheBudget budget : values()) {
+			totalWeight += budget.mWeight;
+		}
+		return (int) ((long) getTotalSizeKb() * mWeight / totalWeight);
+	}
+}
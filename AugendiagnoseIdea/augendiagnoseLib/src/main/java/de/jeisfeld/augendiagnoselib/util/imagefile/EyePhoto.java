@@ -522,23 +522,25 @@ public class EyePhoto {
 	}
 
 	/**
-	 * Calculate a bitmap of this photo and store it for later retrieval.
+	 * Calculate a bitmap of this photo and store it for later retrieval. The bitmap is taken from the shared image cache
+	 * if available there.
 	 *
 	 * @param maxSize the target size of the bitmap
 	 */
 	public final synchronized void precalculateImageBitmap(final int maxSize) {
 		if (maxSize != mCachedSize || mCachedBitmap == null) {
-			mCachedBitmap = ImageUtil.getImageBitmap(getAbsolutePath(), maxSize);
+			mCachedBitmap = ImageCache.getInstance().getImageBitmap(getAbsolutePath(), maxSize);
 			mCachedSize = maxSize;
 		}
 	}
 
 	/**
-	 * Clean the cached bitmap.
+	 * Clean the cached bitmap, also from the shared image cache.
 	 */
 	public final synchronized void cleanCache() {
 		mCachedBitmap = null;
 		mCachedSize = 0;
+		ImageCache.getInstance().remove(getAbsolutePath());
 	}
 
 	/**
@@ -552,15 +554,6 @@ public class EyePhoto {
 		return mCachedBitmap;
 	}
 
-	/**
-	 * Retrieve a bitmap of this photo in full resolution.
-	 *
-	 * @return The bitmap.
-	 */
-	public final Bitmap getFullBitmap() {
-		return ImageUtil.getImageBitmap(getAbsolutePath(), 0);
-	}
-
 	/**
 	 * Get the metadata stored in the file.
 	 *
@@ -193,6 +193,9 @@ public final class FileUtil {
 	 * @return True if successfully deleted.
 	 */
 	public static boolean deleteFile(@NonNull final File file) {
+		PupilAndIrisDetector.notifyFileDelete(file.getAbsolutePath());
+		ImageCache.getInstance().remove(file.getAbsolutePath());
+
 		// First try the normal deletion.
 		if (file.delete()) {
 			return true;
@@ -250,12 +253,16 @@ public final class FileUtil {
 				success = copyFile(source, target);
 			}
 			if (success) {
+				// Inform before deleting the source, so that a pending iris detection is not cancelled.
+				PupilAndIrisDetector.notifyFileRename(source.getAbsolutePath(), target.getAbsolutePath());
 				success = deleteFile(source);
 			}
 		}
 
 		if (success) {
 			PupilAndIrisDetector.notifyFileRename(source.getAbsolutePath(), target.getAbsolutePath());
+			ImageCache.getInstance().remove(source.getAbsolutePath());
+			ImageCache.getInstance().remove(target.getAbsolutePath());
 		}
 
 		return success;
@@ -0,0 +1,163 @@
+package de.jeisfeld.augendiagnoselib.util.imagefile;
+
+import android.graphics.Bitmap;
+import android.util.Log;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import de.jeisfeld.augendiagnoselib.Application;
+
+/**
+ * Cache of decoded image bitmaps, shared by all eye photos. Bitmaps are cached per file path and size, and the least
+ * recently used bitmaps are evicted if the total size exceeds a fraction of the available memory.
+ */
+public final class ImageCache {
+	/**
+	 * The number of bytes per kilobyte.
+	 */
+	private static final int KILOBYTE = 1024;
+	/**
+	 * The tag for logging.
+	 */
+	private static final String TAG = Application.TAG + ".IC";
+
+	/**
+	 * The singleton instance.
+	 */
+	private static volatile ImageCache mSingleton;
+
+	/**
+	 * The cached bitmaps, by path and size. Sizes are counted in kilobytes.
+	 */
+	private final LruCache<String, Bitmap> mBitmaps;
+
+	/**
+	 * Create the cache.
+	 */
+	private ImageCache() {
+		int maxSizeKb = CacheBudget.IMAGES.getMaxSizeKb();
+		mBitmaps = new LruCache<String, Bitmap>(maxSizeKb) {
+			@Override
+			protected int sizeOf(final String key, final Bitmap value) {
+				return Math.max(1, value.getAllocationByteCount() / KILOBYTE);
+			}
+		};
+	}
+
+	/**
+	 * Get the cache instance.
+	 *
+	 * @return The cache.
+	 */
+	public static ImageCache getInstance() {
+		if (mSingleton == null) {
+			synchronized (ImageCache.class) {
+				if (mSingleton == null) {
+					mSingleton = new ImageCache();
+				}
+			}
+		}
+		return mSingleton;
+	}
+
+	/**
+	 * Get a bitmap of an image file, decoding it if it is not cached.
+	 *
+	 * @param path    The file path of the image.
+	 * @param maxSize The maximum size of the bitmap.
+	 * @return The bitmap.
+	 */
+	@Nullable
+	public Bitmap getImageBitmap(@NonNull final String path, final int maxSize) {
+		String key = getKey(path, maxSize);
+		Bitmap bitmap = mBitmaps.get(key);
+		if (bitmap == null) {
+			bitmap = ImageUtil.getImageBitmap(path, maxSize);
+			if (bitmap != null) {
+				mBitmaps.put(key, bitmap);
+			}
+		}
+		return bitmap;
+	}
+
+	/**
+	 * Remove all bitmaps of an image file from the cache, e.g. after the file was changed or deleted.
+	 *
+	 * @param path The file path of the image.
+	 */
+	public void remove(final String path) {
+		String prefix = path + "|";
+		for (String key : mBitmaps.snapshot().keySet()) {
+			if (key.startsWith(prefix)) {
+				mBitmaps.remove(key);
+			}
+		}
+	}
+
+	/**
+	 * Get the number of cache hits.
+	 *
+	 * @return The hit count.
+	 */
+	public int getHitCount() {
+		return mBitmaps.hitCount();
+	}
+
+	/**
+	 * Get the number of cache misses.
+	 *
+	 * @return The miss count.
+	 */
+	public int getMissCount() {
+		return mBitmaps.missCount();
+	}
+
+	/**
+	 * Get the number of evicted bitmaps.
+	 *
+	 * @return The eviction count.
+	 */
+	public int getEvictionCount() {
+		return mBitmaps.evictionCount();
+	}
+
+	/**
+	 * Log the cache statistics, if the cache has been created.
+	 */
+	public static void logStatistics() {
+		ImageCache cache = mSingleton;
+		if (cache != null) {
+			Log.i(TAG, "Image cache: " + cache.mBitmaps.size() + " of " + cache.mBitmaps.maxSize() + " kB, hits " + cache.getHitCount()
+					+ ", misses " + cache.getMissCount() + ", evictions " + cache.getEvictionCount());
+		}
+	}
+
+	/**
+	 * Release memory of the cache, if the cache has been created.
+	 *
+	 * @param releaseAll If true, all bitmaps are released. Otherwise, the cache is trimmed to half of its maximum size.
+	 */
+	public static void trimMemory(final boolean releaseAll) {
+		ImageCache cache = mSingleton;
+		if (cache != null) {
+			if (releaseAll) {
+				cache.mBitmaps.evictAll();
+			}
+			else {
+				cache.mBitmaps.trimToSize(cache.mBitmaps.maxSize() / 2);
+			}
+		}
+	}
+
+	/**
+	 * Get the cache key of a bitmap.
+	 *
+	 * @param path    The file path of the image.
+	 * @param maxSize The maximum size of the bitmap.
+	 * @return The cache key.
+	 */
+	private static String getKey(final String path, final int maxSize) {
+		return path + "|" + maxSize;
+	}
+}
@@ -12,6 +12,7 @@ import android.graphics.ColorMatrixColorFilter;
 import android.graphics.LightingColorFilter;
 import android.graphics.Matrix;
 import android.graphics.Paint;
+import android.graphics.RectF;
 import android.net.Uri;
 import android.util.Log;
 import android.webkit.MimeTypeMap;
@@ -113,7 +114,7 @@ public final class ImageUtil {
 	 * @param path The file path of the image
 	 * @return the orientation stored in the exif data.
 	 */
-	private static int getExifOrientation(@NonNull final String path) {
+	static int getExifOrientation(@NonNull final String path) {
 		try {
 			ExifInterface exif = new ExifInterface(path);
 			int orientation = exif.getAttributeInt(ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_UNDEFINED);
@@ -137,7 +138,7 @@ public final class ImageUtil {
 	 * @param exifOrientation The orientation as stored in the exif data.
 	 * @return the rotation in degrees.
 	 */
-	private static int convertExifOrientationToRotation(final int exifOrientation) {
+	static int convertExifOrientationToRotation(final int exifOrientation) {
 		switch (exifOrientation) {
 		case ExifInterface.ORIENTATION_ROTATE_270:
 			return ROTATION_270;
@@ -150,6 +151,24 @@ public final class ImageUtil {
 		}
 	}
 
+	/**
+	 * Get the matrix mapping the stored image to the displayed image, which is rotated according to the EXIF orientation.
+	 *
+	 * @param exifOrientation The orientation as stored in the exif data.
+	 * @param width           The width of the stored image.
+	 * @param height          The height of the stored image.
+	 * @return The matrix.
+	 */
+	@NonNull
+	static Matrix getOrientationMatrix(final int exifOrientation, final int width, final int height) {
+		Matrix matrix = new Matrix();
+		matrix.setRotate(convertExifOrientationToRotation(exifOrientation));
+		RectF bounds = new RectF(0, 0, width, height);
+		matrix.mapRect(bounds);
+		matrix.postTranslate(-bounds.left, -bounds.top);
+		return matrix;
+	}
+
 	/**
 	 * Get the EXIF angle after rotating the image.
 	 *
@@ -328,26 +347,6 @@ public final class ImageUtil {
 		}
 	}
 
-	/**
-	 * Retrieve a part of a bitmap in full resolution.
-	 *
-	 * @param fullBitmap The bitmap from which to get the part.
-	 * @param minX       The minimum X position to retrieve.
-	 * @param maxX       The maximum X position to retrieve.
-	 * @param minY       The minimum Y position to retrieve.
-	 * @param maxY       The maximum Y position to retrieve.
-	 * @return The bitmap.
-	 */
-	public static Bitmap getPartialBitmap(@NonNull final Bitmap fullBitmap, final float minX, final float maxX,
-										  final float minY,
-										  final float maxY) {
-
-		return Bitmap.createBitmap(fullBitmap, Math.round(minX * fullBitmap.getWidth()),
-				Math.round(minY * fullBitmap.getHeight()),
-				Math.round((maxX - minX) * fullBitmap.getWidth()),
-				Math.round((maxY - minY) * fullBitmap.getHeight()));
-	}
-
 	/**
 	 * Utility to retrieve the sample size for BitmapFactory.decodeFile.
 	 *
@@ -397,19 +396,19 @@ public final class ImageUtil {
 	}
 
 	/**
-	 * Update contrast and brightness of a bitmap.
+	 * Create a color filter changing contrast, brightness, saturation and color temperature when drawing a bitmap.
 	 *
-	 * @param bmp              input bitmap
 	 * @param contrast         0..infinity - 1 is default
 	 * @param brightness       -1..1 - 0 is default
 	 * @param saturation       1/3..infinity - 1 is default
 	 * @param colorTemperature -1..1 - 0 is default
-	 * @return new bitmap
+	 * @return the color filter, or null if the colors are unchanged.
 	 */
-	public static Bitmap changeBitmapColors(@NonNull final Bitmap bmp, final float contrast, final float brightness,
-											final float saturation, final float colorTemperature) {
+	@Nullable
+	public static ColorFilter createColorFilter(final float contrast, final float brightness, final float saturation,
+												final float colorTemperature) {
 		if (contrast == 1 && brightness == 0 && saturation == 1 && colorTemperature == 0) {
-			return bmp;
+			return null;
 		}
 
 		// some baseCalculations for the mapping matrix
@@ -430,15 +429,7 @@ public final class ImageUtil {
 				factorRed * oppositeSaturation, factorGreen * oppositeSaturation, factorBlue * saturation, 0, offset, //
 				0, 0, 0, 1, 0});
 
-		Bitmap ret = Bitmap.createBitmap(bmp.getWidth(), bmp.getHeight(), bmp.getConfig());
-
-		Canvas canvas = new Canvas(ret);
-
-		Paint paint = new Paint();
-		paint.setColorFilter(new ColorMatrixColorFilter(cm));
-		canvas.drawBitmap(bmp, 0, 0, paint);
-
-		return ret;
+		return new ColorMatrixColorFilter(cm);
 	}
 
 	/**
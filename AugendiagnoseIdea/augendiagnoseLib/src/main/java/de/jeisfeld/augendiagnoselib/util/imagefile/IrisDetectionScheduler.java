@@ -0,0 +1,408 @@
+package de.jeisfeld.augendiagnoselib.util.imagefile;
+
+import android.os.Process;
+import android.util.Log;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import androidx.annotation.NonNull;
+import de.jeisfeld.augendiagnoselib.Application;
+
+/**
+ * Scheduler for the background iris detection. Runs the detection jobs on a bounded pool of worker threads, preferring
+ * prioritized jobs, coalescing duplicate requests and following renames and deletions of the files in process.
+ */
+public final class IrisDetectionScheduler {
+	/**
+	 * The maximum number of worker threads. Each job decodes only a sampled image of the size of the biggest search resolution
+	 * and the full resolution of the iris region, so memory does not limit the number of jobs. But each job spreads its
+	 * candidate evaluation over the processors, so that more jobs would only compete for the same processors and the storage,
+	 * while two jobs still overlap the decoding of one file with the evaluation of another.
+	 */
+	private static final int MAX_THREADS = 2;
+	/**
+	 * The tag for logging.
+	 */
+	private static final String TAG = Application.TAG + ".IDS";
+
+	/**
+	 * The singleton instance.
+	 */
+	private static volatile IrisDetectionScheduler mSingleton;
+
+	/**
+	 * The executor running the detection jobs.
+	 */
+	private final ThreadPoolExecutor mExecutor;
+	/**
+	 * The number of threads each job uses for evaluating candidates, so that the jobs together use the available processors.
+	 */
+	private final int mParallelism;
+	/**
+	 * The jobs which are queued or running, by their current file path.
+	 */
+	private final ConcurrentMap<String, DetectionJob> mJobs = new ConcurrentHashMap<>();
+	/**
+	 * The sequence number of the last submitted job.
+	 */
+	private final AtomicLong mSequenceNumber = new AtomicLong();
+
+	/**
+	 * The number of submitted jobs.
+	 */
+	private final AtomicLong mSubmittedCount = new AtomicLong();
+	/**
+	 * The number of requests merged into a job already queued or running.
+	 */
+	private final AtomicLong mCoalescedCount = new AtomicLong();
+	/**
+	 * The number of successfully completed jobs.
+	 */
+	private final AtomicLong mCompletedCount = new AtomicLong();
+	/**
+	 * The number of failed jobs.
+	 */
+	private final AtomicLong mFailedCount = new AtomicLong();
+	/**
+	 * The number of jobs cancelled due to deletion of the file.
+	 */
+	private final AtomicLong mCancelledCount = new AtomicLong();
+	/**
+	 * The summed up waiting time of the jobs in the queue, in milliseconds.
+	 */
+	private final AtomicLong mTotalLatency = new AtomicLong();
+	/**
+	 * The maximum waiting time of a job in the queue, in milliseconds.
+	 */
+	private final AtomicLong mMaxLatency = new AtomicLong();
+	/**
+	 * The summed up processing time of the jobs, in milliseconds.
+	 */
+	private final AtomicLong mTotalProcessingTime = new AtomicLong();
+
+	/**
+	 * Create the scheduler.
+	 */
+	private IrisDetectionScheduler() {
+		int processorCount = Runtime.getRuntime().availableProcessors();
+		int threadCount = Math.max(1, Math.min(MAX_THREADS, processorCount - 1));
+		mParallelism = Math.max(1, processorCount / threadCount);
+		mExecutor = new ThreadPoolExecutor(threadCount, threadCount, 0, TimeUnit.MILLISECONDS,
+				new PriorityBlockingQueue<Runnable>(), new DetectionThreadFactory());
+	}
+
+	/**
+	 * Get the scheduler instance.
+	 *
+	 * @return The scheduler.
+	 */
+	public static IrisDetectionScheduler getInstance() {
+		if (mSingleton == null) {
+			synchronized (IrisDetectionScheduler.class) {
+				if (mSingleton == null) {
+					mSingleton = new IrisDetectionScheduler();
+				}
+			}
+		}
+		return mSingleton;
+	}
+
+	/**
+	 * Get the number of threads each job uses for evaluating candidates.
+	 *
+	 * @return The parallelism.
+	 */
+	public int getParallelism() {
+		return mParallelism;
+	}
+
+	/**
+	 * Submit the iris detection for a file. If a job for this file is already queued or running, the request is merged into
+	 * it.
+	 *
+	 * @param path     The path of the file.
+	 * @param priority Flag indicating if the job should run before non-prioritized jobs.
+	 */
+	public synchronized void submit(@NonNull final String path, final boolean priority) {
+		if (mJobs.containsKey(path)) {
+			mCoalescedCount.incrementAndGet();
+			if (priority) {
+				prioritize(path);
+			}
+			return;
+		}
+
+		DetectionJob job = new DetectionJob(path, priority, mSequenceNumber.incrementAndGet());
+		mJobs.put(path, job);
+		mSubmittedCount.incrementAndGet();
+		mExecutor.execute(job);
+	}
+
+	/**
+	 * Move the job for a file, if queued, ahead of all non-prioritized jobs.
+	 *
+	 * @param path The path of the file.
+	 */
+	public synchronized void prioritize(final String path) {
+		DetectionJob job = path == null ? null : mJobs.get(path);
+		// The job needs to be re-inserted, as the queue order is fixed on insertion.
+		if (job != null && !job.mPriority && mExecutor.remove(job)) {
+			job.mPriority = true;
+			mExecutor.execute(job);
+		}
+	}
+
+	/**
+	 * Inform about the move of a file, so that a pending result is applied to the moved file.
+	 *
+	 * @param oldPath The old file path.
+	 * @param newPath The new file path.
+	 */
+	public synchronized void notifyFileRename(final String oldPath, final String newPath) {
+		DetectionJob job = mJobs.remove(oldPath);
+		if (job != null) {
+			job.mPath = newPath;
+			mJobs.put(newPath, job);
+		}
+	}
+
+	/**
+	 * Inform about the deletion of a file, so that its job is cancelled.
+	 *
+	 * @param path The path of the file.
+	 */
+	public synchronized void notifyFileDelete(final String path) {
+		DetectionJob job = mJobs.remove(path);
+		if (job != null) {
+			job.mCancelled = true;
+			mExecutor.remove(job);
+			mCancelledCount.incrementAndGet();
+			Log.v(TAG, "Cancelled iris detection for " + path);
+		}
+	}
+
+	/**
+	 * Remove a job which is finished.
+	 *
+	 * @param job The job.
+	 */
+	private synchronized void removeJob(final DetectionJob job) {
+		mJobs.remove(job.mPath, job);
+	}
+
+	/**
+	 * Get the number of jobs waiting in the queue.
+	 *
+	 * @return The queue depth.
+	 */
+	public int getQueueDepth() {
+		return mExecutor.getQueue().size();
+	}
+
+	/**
+	 * Get the number of jobs currently running.
+	 *
+	 * @return The number of running jobs.
+	 */
+	public int getRunningCount() {
+		return mExecutor.getActiveCount();
+	}
+
+	/**
+	 * Get the number of submitted jobs.
+	 *
+	 * @return The count.
+	 */
+	public long getSubmittedCount() {
+		return mSubmittedCount.get();
+	}
+
+	/**
+	 * Get the number of requests merged into an existing job.
+	 *
+	 * @return The count.
+	 */
+	public long getCoalescedCount() {
+		return mCoalescedCount.get();
+	}
+
+	/**
+	 * Get the number of successfully completed jobs.
+	 *
+	 * @return The count.
+	 */
+	public long getCompletedCount() {
+		return mCompletedCount.get();
+	}
+
+	/**
+	 * Get the number of failed jobs.
+	 *
+	 * @return The count.
+	 */
+	public long getFailedCount() {
+		return mFailedCount.get();
+	}
+
+	/**
+	 * Get the number of cancelled jobs.
+	 *
+	 * @return The count.
+	 */
+	public long getCancelledCount() {
+		return mCancelledCount.get();
+	}
+
+	/**
+	 * Get the maximum waiting time of a job in the queue.
+	 *
+	 * @return The maximum latency in milliseconds.
+	 */
+	public long getMaxLatency() {
+		return mMaxLatency.get();
+	}
+
+	/**
+	 * Get the average waiting time of the jobs in the queue.
+	 *
+	 * @return The average latency in milliseconds.
+	 */
+	public long getAverageLatency() {
+		long count = mCompletedCount.get() + mFailedCount.get();
+		return count == 0 ? 0 : mTotalLatency.get() / count;
+	}
+
+	/**
+	 * Get the average processing time of the jobs.
+	 *
+	 * @return The average processing time in milliseconds.
+	 */
+	public long getAverageProcessingTime() {
+		long count = mCompletedCount.get() + mFailedCount.get();
+		return count == 0 ? 0 : mTotalProcessingTime.get() / count;
+	}
+
+	/**
+	 * A job for the iris detection of a single file.
+	 */
+	final class DetectionJob implements Runnable, Comparable<DetectionJob> {
+		/**
+		 * The current path of the file.
+		 */
+		private volatile String mPath;
+		/**
+		 * Flag indicating if the job is prioritized.
+		 */
+		private volatile boolean mPriority;
+		/**
+		 * Flag indicating if the job is cancelled.
+		 */
+		private volatile boolean mCancelled = false;
+		/**
+		 * The sequence number of the job, defining the order within the same priority.
+		 */
+		private final long mSequence;
+		/**
+		 * The submission timestamp.
+		 */
+		private final long mSubmissionTime = System.currentTimeMillis();
+
+		/**
+		 * Create a detection job.
+		 *
+		 * @param path     The path of the file.
+		 * @param priority The priority flag.
+		 * @param sequence The sequence number.
+		 */
+		private DetectionJob(final String path, final boolean priority, final long sequence) {
+			mPath = path;
+			mPriority = priority;
+			mSequence = sequence;
+		}
+
+		/**
+		 * Get the current path of the file, following renames.
+		 *
+		 * @return The path.
+		 */
+		String getPath() {
+			return mPath;
+		}
+
+		/**
+		 * Get information if the job has been cancelled.
+		 *
+		 * @return true if cancelled.
+		 */
+		boolean isCancelled() {
+			return mCancelled;
+		}
+
+		@Override
+		public void run() {
+			if (mCancelled) {
+				return;
+			}
+			long startTime = System.currentTimeMillis();
+			long latency = startTime - mSubmissionTime;
+			try {
+				if (PupilAndIrisDetector.determineAndStoreIrisPosition(this)) {
+					mCompletedCount.incrementAndGet();
+				}
+				else {
+					mFailedCount.incrementAndGet();
+				}
+			}
+			finally {
+				long processingTime = System.currentTimeMillis() - startTime;
+				mTotalLatency.addAndGet(latency);
+				mTotalProcessingTime.addAndGet(processingTime);
+				long maxLatency = mMaxLatency.get();
+				while (latency > maxLatency && !mMaxLatency.compareAndSet(maxLatency, latency)) {
+					maxLatency = mMaxLatency.get();
+				}
+				removeJob(this);
+				Log.v(TAG, "Iris detection for " + mPath + ": latency " + latency + " ms, processing " + processingTime
+						+ " ms, queue depth " + getQueueDepth());
+			}
+		}
+
+		@Override
+		public int compareTo(@NonNull final DetectionJob other) {
+			if (mPriority != other.mPriority) {
+				return mPriority ? -1 : 1;
+			}
+			return Long.compare(mSequence, other.mSequence);
+		}
+	}
+
+	/**
+	 * Factory for the worker threads, running with background priority.
+	 */
+	private static final class DetectionThreadFactory implements ThreadFactory {
+		/**
+		 * The number of created threads.
+		 */
+		private final AtomicInteger mThreadCount = new AtomicInteger();
+
+		@Override
+		public Thread newThread(@NonNull final Runnable runnable) {
+			Thread thread = new Thread("IrisDetection-" + mThreadCount.incrementAndGet()) {
+				@Override
+				public void run() {
+					Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+					runnable.run();
+				}
+			};
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
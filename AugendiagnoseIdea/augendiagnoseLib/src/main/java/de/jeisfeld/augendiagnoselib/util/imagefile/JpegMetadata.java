@@ -496,6 +496,40 @@ public final class JpegMetadata implements Parcelable {
 		return (mFlags & flag) != 0;
 	}
 
+	/**
+	 * Create a copy of the metadata, which may be changed independently.
+	 *
+	 * @return The copy.
+	 */
+	@NonNull
+	public JpegMetadata copy() {
+		JpegMetadata copy = new JpegMetadata();
+		copy.mTitle = mTitle;
+		copy.mDescription = mDescription;
+		copy.mSubject = mSubject;
+		copy.mComment = mComment;
+		copy.mPerson = mPerson;
+		copy.mXCenter = mXCenter;
+		copy.mYCenter = mYCenter;
+		copy.mOverlayScaleFactor = mOverlayScaleFactor;
+		copy.mXPosition = mXPosition;
+		copy.mYPosition = mYPosition;
+		copy.mZoomFactor = mZoomFactor;
+		copy.mRightLeft = mRightLeft;
+		copy.mBrightness = mBrightness;
+		copy.mContrast = mContrast;
+		copy.mSaturation = mSaturation;
+		copy.mColorTemperature = mColorTemperature;
+		copy.mPupilSize = mPupilSize;
+		copy.mPupilXOffset = mPupilXOffset;
+		copy.mPupilYOffset = mPupilYOffset;
+		copy.mOverlayColor = mOverlayColor;
+		copy.mFlags = mFlags;
+		copy.mOrientation = mOrientation;
+		copy.mOrganizeDate = mOrganizeDate == null ? null : new Date(mOrganizeDate.getTime());
+		return copy;
+	}
+
 	@Override
 	public String toString() {
 		StringBuilder str = new StringBuilder();
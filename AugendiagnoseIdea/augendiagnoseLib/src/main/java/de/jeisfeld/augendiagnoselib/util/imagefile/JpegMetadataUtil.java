@@ -11,8 +11,6 @@ import org.apache.commons.imaging.ImageWriteException;
 import org.apache.commons.imaging.Imaging;
 import org.apache.commons.imaging.common.IImageMetadata;
 import org.apache.commons.imaging.formats.jpeg.JpegImageMetadata;
-import org.apache.commons.imaging.formats.jpeg.exif.ExifRewriter;
-import org.apache.commons.imaging.formats.jpeg.xmp.JpegXmpRewriter;
 import org.apache.commons.imaging.formats.tiff.TiffField;
 import org.apache.commons.imaging.formats.tiff.TiffImageMetadata;
 import org.apache.commons.imaging.formats.tiff.constants.ExifTagConstants;
@@ -23,13 +21,9 @@ import org.apache.commons.imaging.formats.tiff.taginfos.TagInfo;
 import org.apache.commons.imaging.formats.tiff.taginfos.TagInfoShort;
 import org.apache.commons.imaging.formats.tiff.write.TiffOutputDirectory;
 import org.apache.commons.imaging.formats.tiff.write.TiffOutputSet;
-import org.apache.commons.imaging.util.IoUtils;
 
-import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.util.List;
 
 import androidx.annotation.NonNull;
@@ -131,24 +125,54 @@ public final class JpegMetadataUtil {
 				return ExifInterface.ORIENTATION_UNDEFINED;
 			}
 
-			TiffField field = tiffImageMetadata.findField(TiffTagConstants.TIFF_TAG_ORIENTATION);
+			return getExifOrientation(tiffImageMetadata);
+		}
+		catch (Exception e) {
+			return ExifInterface.ORIENTATION_UNDEFINED;
+		}
+	}
+
+	/**
+	 * Retrieve the orientation from the EXIF data read by a segment reader.
+	 *
+	 * @param reader the reader of the file.
+	 * @return the orientation value.
+	 */
+	private static int getExifOrientation(@NonNull final JpegSegmentRewriter reader) {
+		try {
+			return getExifOrientation(reader.getExifMetadata());
+		}
+		catch (Exception e) {
+			return ExifInterface.ORIENTATION_UNDEFINED;
+		}
+	}
+
+	/**
+	 * Retrieve the orientation from EXIF data.
+	 *
+	 * @param tiffImageMetadata the EXIF data.
+	 * @return the orientation value.
+	 * @throws ImageReadException thrown if the orientation cannot be read.
+	 */
+	private static int getExifOrientation(@Nullable final TiffImageMetadata tiffImageMetadata) throws ImageReadException {
+		if (tiffImageMetadata == null) {
+			return ExifInterface.ORIENTATION_UNDEFINED;
+		}
+
+		TiffField field = tiffImageMetadata.findField(TiffTagConstants.TIFF_TAG_ORIENTATION);
+		if (field != null) {
+			return field.getIntValue();
+		}
+		else {
+			TagInfo tagInfo = new TagInfoShort("Orientation", 274, 1, TiffDirectoryType.TIFF_DIRECTORY_IFD0); // MAGIC_NUMBER
+			field = tiffImageMetadata.findField(tagInfo);
 			if (field != null) {
 				return field.getIntValue();
 			}
 			else {
-				TagInfo tagInfo = new TagInfoShort("Orientation", 274, 1, TiffDirectoryType.TIFF_DIRECTORY_IFD0); // MAGIC_NUMBER
-				field = tiffImageMetadata.findField(tagInfo);
-				if (field != null) {
-					return field.getIntValue();
-				}
-				else {
-					return ExifInterface.ORIENTATION_UNDEFINED;
-				}
+				return ExifInterface.ORIENTATION_UNDEFINED;
 			}
 		}
-		catch (Exception e) {
-			return ExifInterface.ORIENTATION_UNDEFINED;
-		}
 	}
 
 	/**
@@ -177,13 +201,8 @@ public final class JpegMetadataUtil {
 		File file = new File(jpegImageFileName);
 		String mimeType;
 		try {
-			int dotIndex = jpegImageFileName.lastIndexOf(".");
-			if (dotIndex < 0) {
-				throw new IOException("File " + jpegImageFileName + " has no valid extension");
-			}
-			String extension = jpegImageFileName.substring(dotIndex + 1);
-			if (!"image/jpeg".equals(MimeTypeMap.getSingleton().getMimeTypeFromExtension(extension))) {
-				throw new IOException("Bad extension " + extension + " - can handle metadata only for image/jpeg.");
+			if (!hasJpegExtension(jpegImageFileName)) {
+				throw new IOException("File " + jpegImageFileName + " has no JPEG extension - can handle metadata only for image/jpeg.");
 			}
 
 			mimeType = Imaging.getImageInfo(file).getMimeType();
@@ -197,7 +216,19 @@ public final class JpegMetadataUtil {
 	}
 
 	/**
-	 * Retrieve the relevant metadata of an image file.
+	 * Check if a file name has the extension of a JPEG file. This does not access the file.
+	 *
+	 * @param jpegImageFileName the file name.
+	 * @return true if the extension belongs to image/jpeg.
+	 */
+	public static boolean hasJpegExtension(@NonNull final String jpegImageFileName) {
+		int dotIndex = jpegImageFileName.lastIndexOf(".");
+		return dotIndex >= 0
+				&& "image/jpeg".equals(MimeTypeMap.getSingleton().getMimeTypeFromExtension(jpegImageFileName.substring(dotIndex + 1)));
+	}
+
+	/**
+	 * Retrieve the relevant metadata of an image file. The file is read only up to the start of the image data.
 	 *
 	 * @param jpegImageFileName the file for which metadata should be retrieved.
 	 * @return the metadata of the file.
@@ -206,12 +237,11 @@ public final class JpegMetadataUtil {
 	 */
 	@NonNull
 	public static JpegMetadata getMetadata(@NonNull final String jpegImageFileName) throws ImageReadException, IOException {
-		checkJpeg(jpegImageFileName);
 		JpegMetadata result = new JpegMetadata();
-		final File imageFile = new File(jpegImageFileName);
+		JpegSegmentRewriter reader = new JpegSegmentRewriter(new File(jpegImageFileName));
 
 		// Retrieve XMP data
-		String xmpString = Imaging.getXmpXml(imageFile);
+		String xmpString = reader.getXmpXml();
 		XmpHandler parser = new XmpHandler(xmpString);
 
 		// Standard fields are pre-filled with custom data
@@ -238,7 +268,7 @@ public final class JpegMetadataUtil {
 		result.setPupilXOffset(parser.getJeItem(XmpHandler.ITEM_PUPIL_X_OFFSET));
 		result.setPupilYOffset(parser.getJeItem(XmpHandler.ITEM_PUPIL_Y_OFFSET));
 		result.setFlags(parser.getJeInt(XmpHandler.ITEM_FLAGS));
-		result.setOrientation((short) getExifOrientation(imageFile));
+		result.setOrientation((short) getExifOrientation(reader));
 
 		// For standard fields, use custom data only if there is no other data.
 		if (result.getDescription() == null) {
@@ -259,16 +289,8 @@ public final class JpegMetadataUtil {
 
 		// Retrieve EXIF data
 		try {
-			final IImageMetadata metadata = Imaging.getMetadata(imageFile);
-
-			TiffImageMetadata tiffImageMetadata;
-			if (metadata instanceof JpegImageMetadata) {
-				tiffImageMetadata = ((JpegImageMetadata) metadata).getExif();
-			}
-			else if (metadata instanceof TiffImageMetadata) {
-				tiffImageMetadata = (TiffImageMetadata) metadata;
-			}
-			else {
+			TiffImageMetadata tiffImageMetadata = reader.getExifMetadata();
+			if (tiffImageMetadata == null) {
 				return result;
 			}
 
@@ -320,7 +342,8 @@ public final class JpegMetadataUtil {
 	}
 
 	/**
-	 * Change metadata of the image (EXIF and XMP as far as applicable).
+	 * Change metadata of the image (EXIF and XMP as far as applicable). If only the XMP data changes and fits into the
+	 * padding of the existing XMP packet, then it is patched in place. Otherwise, the file is rewritten in a single pass.
 	 *
 	 * @param jpegImageFileName the file for which metadata should be changed.
 	 * @param metadata          the new metadata.
@@ -332,99 +355,40 @@ public final class JpegMetadataUtil {
 	public static void changeMetadata(@NonNull final String jpegImageFileName, @NonNull final JpegMetadata metadata) throws IOException,
 			ImageReadException, ImageWriteException, XMPException {
 		if (changeJpegAllowed()) {
-			checkJpeg(jpegImageFileName);
-			changeXmpMetadata(jpegImageFileName, metadata);
-
-			if (changeExifAllowed()) {
-				try {
-					changeExifMetadata(jpegImageFileName, metadata);
-				}
-				catch (Exception e) {
-					throw new ExifStorageException(e);
-				}
-			}
-		}
-	}
-
-	/**
-	 * Change the EXIF metadata.
-	 *
-	 * @param jpegImageFileName the file for which metadata should be changed.
-	 * @param metadata          the new metadata
-	 * @throws ImageReadException  thrown if the metadata cannot be read.
-	 * @throws ImageWriteException thrown if the metadata cannot be written.
-	 * @throws IOException         thrown in case of other errors while reading metadata.
-	 */
-	@SuppressWarnings("resource")
-	private static void changeExifMetadata(@NonNull final String jpegImageFileName, @NonNull final JpegMetadata metadata)
-			throws IOException, ImageReadException, ImageWriteException {
-		File jpegImageFile = new File(jpegImageFileName);
-		File tempFile = FileUtil.getTempFile(jpegImageFile);
-
-		verifyTempFile(tempFile);
-
-		OutputStream os = null;
-		try {
-			TiffOutputSet outputSet = null;
-
-			// note that metadata might be null if no metadata is found.
-			final IImageMetadata imageMetadata = Imaging.getMetadata(jpegImageFile);
-			final JpegImageMetadata jpegMetadata = (JpegImageMetadata) imageMetadata;
-			if (jpegMetadata != null) {
-				// note that exif might be null if no Exif metadata is found.
-				final TiffImageMetadata exif = jpegMetadata.getExif();
-
-				if (exif != null) {
-					outputSet = exif.getOutputSet();
-				}
-			}
-
-			if (outputSet == null) {
-				outputSet = new TiffOutputSet();
-			}
-
-			final TiffOutputDirectory rootDirectory = outputSet.getOrCreateRootDirectory();
-			final TiffOutputDirectory exifDirectory = outputSet.getOrCreateExifDirectory();
+			File jpegImageFile = new File(jpegImageFileName);
+			File tempFile = FileUtil.getTempFile(jpegImageFile);
 
-			if (metadata.getTitle() != null) {
-				rootDirectory.removeField(MicrosoftTagConstants.EXIF_TAG_XPTITLE);
-				rootDirectory.add(MicrosoftTagConstants.EXIF_TAG_XPTITLE, metadata.getTitle());
-
-				rootDirectory.removeField(TiffTagConstants.TIFF_TAG_IMAGE_DESCRIPTION);
-				rootDirectory.add(TiffTagConstants.TIFF_TAG_IMAGE_DESCRIPTION, metadata.getTitle());
-			}
-
-			if (metadata.getComment() != null) {
-				rootDirectory.removeField(MicrosoftTagConstants.EXIF_TAG_XPCOMMENT);
-				rootDirectory.add(MicrosoftTagConstants.EXIF_TAG_XPCOMMENT, metadata.getComment());
-				exifDirectory.removeField(ExifTagConstants.EXIF_TAG_USER_COMMENT);
-				exifDirectory.add(ExifTagConstants.EXIF_TAG_USER_COMMENT, metadata.getComment());
-			}
+			JpegSegmentRewriter rewriter = new JpegSegmentRewriter(jpegImageFile);
+			String xmpString = getChangedXmpString(rewriter.getXmpXml(), metadata);
+			boolean changeExif = changeExifAllowed() && !isExifUpToDate(rewriter, metadata);
 
-			if (metadata.getSubject() != null) {
-				rootDirectory.removeField(MicrosoftTagConstants.EXIF_TAG_XPSUBJECT);
-				rootDirectory.add(MicrosoftTagConstants.EXIF_TAG_XPSUBJECT, metadata.getSubject());
+			if (!changeExif && rewriter.updateXmpInPlace(xmpString)) {
+				return;
 			}
 
-			if (metadata.getOrientation() != null) {
-				rootDirectory.removeField(TiffTagConstants.TIFF_TAG_ORIENTATION);
-				rootDirectory.add(TiffTagConstants.TIFF_TAG_ORIENTATION, metadata.getOrientation());
-			}
+			verifyTempFile(tempFile);
+			rewriter.setXmpXml(xmpString);
 
-			int retryCount = 0;
-			do {
+			ExifStorageException exifStorageException = null;
+			if (changeExif) {
 				try {
-					os = new FileOutputStream(tempFile);
-					os = new BufferedOutputStream(os);
-					new ExifRewriter().updateExifMetadataLossless(jpegImageFile, os, outputSet);
+					// note that the output set is null if no EXIF metadata is found.
+					TiffOutputSet outputSet = rewriter.getExifOutputSet();
+					if (outputSet == null) {
+						outputSet = new TiffOutputSet();
+					}
+					changeExifMetadata(outputSet, metadata);
+					rewriter.setExif(outputSet);
 				}
 				catch (Exception e) {
-					Log.w(Application.TAG, "Error storing EXIF data lossless - try lossy approach");
-					os = new FileOutputStream(tempFile);
-					os = new BufferedOutputStream(os);
-					new ExifRewriter().updateExifMetadataLossy(jpegImageFile, os, outputSet);
+					// The XMP data is stored nevertheless.
+					exifStorageException = new ExifStorageException(e);
 				}
-				IoUtils.closeQuietly(true, os);
+			}
+
+			int retryCount = 0;
+			do {
+				rewriter.write(tempFile);
 				retryCount++;
 			}
 			while (tempFile.length() == 0 && retryCount < 2);
@@ -433,91 +397,145 @@ public final class JpegMetadataUtil {
 				throw new IOException("Failed to rename file " + tempFile.getAbsolutePath() + " to "
 						+ jpegImageFileName);
 			}
+
+			if (exifStorageException != null) {
+				throw exifStorageException;
+			}
 		}
-		finally {
-			IoUtils.closeQuietly(false, os);
+	}
+
+	/**
+	 * Check if the EXIF data of the file already contains the metadata, so that it does not need to be changed.
+	 *
+	 * @param rewriter the rewriter of the file.
+	 * @param metadata the new metadata.
+	 * @return true if the EXIF data contains the metadata.
+	 */
+	private static boolean isExifUpToDate(@NonNull final JpegSegmentRewriter rewriter, @NonNull final JpegMetadata metadata) {
+		try {
+			TiffImageMetadata exif = rewriter.getExifMetadata();
+			if (exif == null) {
+				return false;
+			}
+			if (metadata.getOrientation() != null) {
+				TiffField orientation = exif.findField(TiffTagConstants.TIFF_TAG_ORIENTATION);
+				if (orientation == null || orientation.getIntValue() != metadata.getOrientation()) {
+					return false;
+				}
+			}
+			return hasExifValue(exif, MicrosoftTagConstants.EXIF_TAG_XPTITLE, metadata.getTitle())
+					&& hasExifValue(exif, TiffTagConstants.TIFF_TAG_IMAGE_DESCRIPTION, metadata.getTitle())
+					&& hasExifValue(exif, MicrosoftTagConstants.EXIF_TAG_XPCOMMENT, metadata.getComment())
+					&& hasExifValue(exif, ExifTagConstants.EXIF_TAG_USER_COMMENT, metadata.getComment())
+					&& hasExifValue(exif, MicrosoftTagConstants.EXIF_TAG_XPSUBJECT, metadata.getSubject());
+		}
+		catch (Exception e) {
+			return false;
 		}
+	}
 
+	/**
+	 * Check if an EXIF field has a certain value.
+	 *
+	 * @param exif    the EXIF data.
+	 * @param tagInfo the tag of the field.
+	 * @param value   the value. Null values are not stored and hence always match.
+	 * @return true if the field has the value.
+	 * @throws ImageReadException thrown if the field cannot be read.
+	 */
+	private static boolean hasExifValue(@NonNull final TiffImageMetadata exif, @NonNull final TagInfo tagInfo, @Nullable final String value)
+			throws ImageReadException {
+		if (value == null) {
+			return true;
+		}
+		TiffField field = exif.findField(tagInfo);
+		return field != null && value.equals(field.getStringValue());
 	}
 
 	/**
-	 * Change the XMP metadata.
+	 * Change the EXIF metadata.
 	 *
-	 * @param jpegImageFileName the file for which metadata should be changed.
-	 * @param metadata          the new metadata.
-	 * @throws ImageReadException  thrown if the metadata cannot be read.
+	 * @param outputSet the EXIF data to be changed.
+	 * @param metadata  the new metadata
 	 * @throws ImageWriteException thrown if the metadata cannot be written.
-	 * @throws IOException         thrown in case of other errors while reading metadata.
-	 * @throws XMPException        thrown in case of issues with XML handling.
 	 */
-	@SuppressWarnings("resource")
-	private static void changeXmpMetadata(@NonNull final String jpegImageFileName, @NonNull final JpegMetadata metadata)
-			throws IOException,
-			ImageReadException, ImageWriteException, XMPException {
-		File jpegImageFile = new File(jpegImageFileName);
-		File tempFile = FileUtil.getTempFile(jpegImageFile);
+	private static void changeExifMetadata(@NonNull final TiffOutputSet outputSet, @NonNull final JpegMetadata metadata)
+			throws ImageWriteException {
+		final TiffOutputDirectory rootDirectory = outputSet.getOrCreateRootDirectory();
+		final TiffOutputDirectory exifDirectory = outputSet.getOrCreateExifDirectory();
 
-		verifyTempFile(tempFile);
+		if (metadata.getTitle() != null) {
+			rootDirectory.removeField(MicrosoftTagConstants.EXIF_TAG_XPTITLE);
+			rootDirectory.add(MicrosoftTagConstants.EXIF_TAG_XPTITLE, metadata.getTitle());
 
-		OutputStream os = null;
-		try {
-			final String xmpString = Imaging.getXmpXml(jpegImageFile);
-
-			XmpHandler parser = new XmpHandler(xmpString);
-
-			if (changeExifAllowed()) {
-				// Change standard fields only if EXIF allowed
-				parser.setDcTitle(metadata.getTitle());
-				parser.setDcDescription(metadata.getDescription());
-				parser.setDcSubject(metadata.getSubject());
-				parser.setUserComment(metadata.getComment());
-				parser.setMicrosoftPerson(metadata.getPerson());
-			}
+			rootDirectory.removeField(TiffTagConstants.TIFF_TAG_IMAGE_DESCRIPTION);
+			rootDirectory.add(TiffTagConstants.TIFF_TAG_IMAGE_DESCRIPTION, metadata.getTitle());
+		}
 
-			parser.setJeItem(XmpHandler.ITEM_TITLE, metadata.getTitle());
-			parser.setJeItem(XmpHandler.ITEM_DESCRIPTION, metadata.getDescription());
-			parser.setJeItem(XmpHandler.ITEM_SUBJECT, metadata.getSubject());
-			parser.setJeItem(XmpHandler.ITEM_COMMENT, metadata.getComment());
-			parser.setJeItem(XmpHandler.ITEM_PERSON, metadata.getPerson());
-
-			parser.setJeItem(XmpHandler.ITEM_X_CENTER, metadata.getXCenterString());
-			parser.setJeItem(XmpHandler.ITEM_Y_CENTER, metadata.getYCenterString());
-			parser.setJeItem(XmpHandler.ITEM_OVERLAY_SCALE_FACTOR, metadata.getOverlayScaleFactorString());
-			parser.setJeItem(XmpHandler.ITEM_X_POSITION, metadata.getXPositionString());
-			parser.setJeItem(XmpHandler.ITEM_Y_POSITION, metadata.getYPositionString());
-			parser.setJeItem(XmpHandler.ITEM_ZOOM_FACTOR, metadata.getZoomFactorString());
-			parser.setJeDate(XmpHandler.ITEM_ORGANIZE_DATE, metadata.getOrganizeDate());
-			parser.setJeItem(XmpHandler.ITEM_RIGHT_LEFT, metadata.getRightLeftString());
-			parser.setJeItem(XmpHandler.ITEM_BRIGHTNESS, metadata.getBrightnessString());
-			parser.setJeItem(XmpHandler.ITEM_CONTRAST, metadata.getContrastString());
-			parser.setJeItem(XmpHandler.ITEM_SATURATION, metadata.getSaturationString());
-			parser.setJeItem(XmpHandler.ITEM_COLOR_TEMPERATURE, metadata.getColorTemperatureString());
-			parser.setJeItem(XmpHandler.ITEM_OVERLAY_COLOR, metadata.getOverlayColorString());
-			parser.setJeItem(XmpHandler.ITEM_PUPIL_SIZE, metadata.getPupilSizeString());
-			parser.setJeItem(XmpHandler.ITEM_PUPIL_X_OFFSET, metadata.getPupilXOffsetString());
-			parser.setJeItem(XmpHandler.ITEM_PUPIL_Y_OFFSET, metadata.getPupilYOffsetString());
-			parser.setJeInt(XmpHandler.ITEM_FLAGS, metadata.getFlags());
+		if (metadata.getComment() != null) {
+			rootDirectory.removeField(MicrosoftTagConstants.EXIF_TAG_XPCOMMENT);
+			rootDirectory.add(MicrosoftTagConstants.EXIF_TAG_XPCOMMENT, metadata.getComment());
+			exifDirectory.removeField(ExifTagConstants.EXIF_TAG_USER_COMMENT);
+			exifDirectory.add(ExifTagConstants.EXIF_TAG_USER_COMMENT, metadata.getComment());
+		}
 
-			int retryCount = 0;
-			do {
-				os = new FileOutputStream(tempFile);
-				os = new BufferedOutputStream(os);
+		if (metadata.getSubject() != null) {
+			rootDirectory.removeField(MicrosoftTagConstants.EXIF_TAG_XPSUBJECT);
+			rootDirectory.add(MicrosoftTagConstants.EXIF_TAG_XPSUBJECT, metadata.getSubject());
+		}
 
-				new JpegXmpRewriter().updateXmpXml(jpegImageFile, os, parser.getXmpString());
+		if (metadata.getOrientation() != null) {
+			rootDirectory.removeField(TiffTagConstants.TIFF_TAG_ORIENTATION);
+			rootDirectory.add(TiffTagConstants.TIFF_TAG_ORIENTATION, metadata.getOrientation());
+		}
+	}
 
-				IoUtils.closeQuietly(true, os);
-				retryCount++;
-			}
-			while (tempFile.length() == 0 && retryCount < 2);
+	/**
+	 * Change the XMP metadata.
+	 *
+	 * @param xmpString the existing XMP data, or null if there is none.
+	 * @param metadata  the new metadata.
+	 * @return the changed XMP data.
+	 * @throws XMPException thrown in case of issues with XML handling.
+	 */
+	@NonNull
+	private static String getChangedXmpString(@Nullable final String xmpString, @NonNull final JpegMetadata metadata) throws XMPException {
+		XmpHandler parser = new XmpHandler(xmpString);
 
-			if (!FileUtil.moveFile(tempFile, jpegImageFile)) {
-				throw new IOException("Failed to rename file " + tempFile.getAbsolutePath() + " to "
-						+ jpegImageFileName);
-			}
-		}
-		finally {
-			IoUtils.closeQuietly(false, os);
-		}
+		if (changeExifAllowed()) {
+			// Change standard fields only if EXIF allowed
+			parser.setDcTitle(metadata.getTitle());
+			parser.setDcDescription(metadata.getDescription());
+			parser.setDcSubject(metadata.getSubject());
+			parser.setUserComment(metadata.getComment());
+			parser.setMicrosoftPerson(metadata.getPerson());
+		}
+
+		parser.setJeItem(XmpHandler.ITEM_TITLE, metadata.getTitle());
+		parser.setJeItem(XmpHandler.ITEM_DESCRIPTION, metadata.getDescription());
+		parser.setJeItem(XmpHandler.ITEM_SUBJECT, metadata.getSubject());
+		parser.setJeItem(XmpHandler.ITEM_COMMENT, metadata.getComment());
+		parser.setJeItem(XmpHandler.ITEM_PERSON, metadata.getPerson());
+
+		parser.setJeItem(XmpHandler.ITEM_X_CENTER, metadata.getXCenterString());
+		parser.setJeItem(XmpHandler.ITEM_Y_CENTER, metadata.getYCenterString());
+		parser.setJeItem(XmpHandler.ITEM_OVERLAY_SCALE_FACTOR, metadata.getOverlayScaleFactorString());
+		parser.setJeItem(XmpHandler.ITEM_X_POSITION, metadata.getXPositionString());
+		parser.setJeItem(XmpHandler.ITEM_Y_POSITION, metadata.getYPositionString());
+		parser.setJeItem(XmpHandler.ITEM_ZOOM_FACTOR, metadata.getZoomFactorString());
+		parser.setJeDate(XmpHandler.ITEM_ORGANIZE_DATE, metadata.getOrganizeDate());
+		parser.setJeItem(XmpHandler.ITEM_RIGHT_LEFT, metadata.getRightLeftString());
+		parser.setJeItem(XmpHandler.ITEM_BRIGHTNESS, metadata.getBrightnessString());
+		parser.setJeItem(XmpHandler.ITEM_CONTRAST, metadata.getContrastString());
+		parser.setJeItem(XmpHandler.ITEM_SATURATION, metadata.getSaturationString());
+		parser.setJeItem(XmpHandler.ITEM_COLOR_TEMPERATURE, metadata.getColorTemperatureString());
+		parser.setJeItem(XmpHandler.ITEM_OVERLAY_COLOR, metadata.getOverlayColorString());
+		parser.setJeItem(XmpHandler.ITEM_PUPIL_SIZE, metadata.getPupilSizeString());
+		parser.setJeItem(XmpHandler.ITEM_PUPIL_X_OFFSET, metadata.getPupilXOffsetString());
+		parser.setJeItem(XmpHandler.ITEM_PUPIL_Y_OFFSET, metadata.getPupilYOffsetString());
+		parser.setJeInt(XmpHandler.ITEM_FLAGS, metadata.getFlags());
+
+		return parser.getXmpString();
 	}
 
 	/**
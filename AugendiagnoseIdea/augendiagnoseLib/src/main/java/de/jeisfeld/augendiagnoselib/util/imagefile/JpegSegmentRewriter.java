@@ -0,0 +1,577 @@
+package de.jeisfeld.augendiagnoselib.util.imagefile;
+
+import android.util.Log;
+
+import org.apache.commons.imaging.ImageReadException;
+import org.apache.commons.imaging.ImageWriteException;
+import org.apache.commons.imaging.ImagingConstants;
+import org.apache.commons.imaging.formats.tiff.TiffImageMetadata;
+import org.apache.commons.imaging.formats.tiff.TiffImageParser;
+import org.apache.commons.imaging.formats.tiff.write.TiffImageWriterLossless;
+import org.apache.commons.imaging.formats.tiff.write.TiffImageWriterLossy;
+import org.apache.commons.imaging.formats.tiff.write.TiffOutputSet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import de.jeisfeld.augendiagnoselib.Application;
+
+/**
+ * Rewriter of the EXIF and XMP segments of a JPEG file. The marker segments are scanned once, and the file is written
+ * in a single pass, replacing the EXIF and XMP segments and transferring all other data unchanged between the file
+ * channels. XMP packets are written with padding, so that later changes of the XMP data can be patched in place.
+ */
+final class JpegSegmentRewriter {
+	/**
+	 * The tag for logging.
+	 */
+	private static final String TAG = Application.TAG + ".JSR";
+	/**
+	 * The byte preceding each marker.
+	 */
+	private static final int MARKER_PREFIX = 0xFF;
+	/**
+	 * The start of image marker.
+	 */
+	private static final int SOI_MARKER = 0xD8;
+	/**
+	 * The end of image marker.
+	 */
+	private static final int EOI_MARKER = 0xD9;
+	/**
+	 * The start of scan marker, after which the compressed image data follows.
+	 */
+	private static final int SOS_MARKER = 0xDA;
+	/**
+	 * The APP0 marker, used for JFIF.
+	 */
+	private static final int APP0_MARKER = 0xE0;
+	/**
+	 * The APP1 marker, used for EXIF and XMP.
+	 */
+	private static final int APP1_MARKER = 0xE1;
+	/**
+	 * The APP15 marker.
+	 */
+	private static final int APP15_MARKER = 0xEF;
+	/**
+	 * The length of marker and segment length.
+	 */
+	private static final int SEGMENT_HEADER_LENGTH = 4;
+	/**
+	 * The maximum segment length, including the length bytes.
+	 */
+	private static final int MAX_SEGMENT_LENGTH = 0xFFFF;
+	/**
+	 * The identifier of the EXIF segment.
+	 */
+	private static final byte[] EXIF_IDENTIFIER = {'E', 'x', 'i', 'f', 0, 0};
+	/**
+	 * The identifier of the XMP segment.
+	 */
+	private static final byte[] XMP_IDENTIFIER = "http://ns.adobe.com/xap/1.0/\0".getBytes(StandardCharsets.US_ASCII);
+	/**
+	 * The start of the XMP packet trailer.
+	 */
+	private static final String XMP_PACKET_END = "<?xpacket end=";
+	/**
+	 * The XMP packet trailer indicating that the packet may be changed in place.
+	 */
+	private static final String XMP_PACKET_END_WRITABLE = "<?xpacket end=\"w\"?>";
+	/**
+	 * The number of padding bytes reserved in XMP packets, as recommended by the XMP specification.
+	 */
+	private static final int XMP_PADDING = 2048;
+	/**
+	 * The length of the lines of the XMP padding.
+	 */
+	private static final int XMP_PADDING_LINE_LENGTH = 100;
+
+	/**
+	 * The JPEG file.
+	 */
+	private final File mFile;
+	/**
+	 * The length of the JPEG file.
+	 */
+	private long mFileLength;
+	/**
+	 * The marker segments before the image data.
+	 */
+	private final List<Segment> mSegments = new ArrayList<>();
+	/**
+	 * The position of the image data, which is copied unchanged.
+	 */
+	private long mImageDataPosition;
+	/**
+	 * The TIFF data of the EXIF segment, or null if there is none.
+	 */
+	private byte[] mExifData = null;
+	/**
+	 * The parsed EXIF data, or null if not yet parsed.
+	 */
+	private TiffImageMetadata mExifMetadata = null;
+	/**
+	 * The XMP data, or null if there is none.
+	 */
+	private String mXmpXml = null;
+	/**
+	 * The first XMP segment, or null if there is none.
+	 */
+	private Segment mXmpSegment = null;
+	/**
+	 * The number of XMP segments.
+	 */
+	private int mXmpSegmentCount = 0;
+	/**
+	 * The new content of the EXIF segment, or null if it is not changed.
+	 */
+	private byte[] mNewExifSegment = null;
+	/**
+	 * The new content of the XMP segment, or null if it is not changed.
+	 */
+	private byte[] mNewXmpSegment = null;
+
+	/**
+	 * Create a rewriter for a JPEG file, scanning its marker segments.
+	 *
+	 * @param file         The JPEG file.
+	 * @throws IOException thrown if the file cannot be read or is no valid JPEG file.
+	 */
+	JpegSegmentRewriter(@NonNull final File file) throws IOException {
+		mFile = file;
+		try (FileInputStream input = new FileInputStream(file); FileChannel channel = input.getChannel()) {
+			mFileLength = channel.size();
+			byte[] header = read(channel, 0, 2);
+			if ((header[0] & 0xFF) != MARKER_PREFIX || (header[1] & 0xFF) != SOI_MARKER) { // MAGIC_NUMBER
+				throw new NoJpegException("File " + file.getName() + " is no JPEG file.");
+			}
+
+			long position = 2;
+			while (position + SEGMENT_HEADER_LENGTH <= mFileLength) {
+				byte[] segmentHeader = read(channel, position, SEGMENT_HEADER_LENGTH);
+				if ((segmentHeader[0] & 0xFF) != MARKER_PREFIX) { // MAGIC_NUMBER
+					throw new IOException("Invalid JPEG marker at position " + position + " of file " + file.getName());
+				}
+				int marker = segmentHeader[1] & 0xFF; // MAGIC_NUMBER
+				if (marker == MARKER_PREFIX) {
+					// fill byte
+					position++;
+					continue;
+				}
+				if (marker == SOS_MARKER || marker == EOI_MARKER) {
+					break;
+				}
+				int length = ((segmentHeader[2] & 0xFF) << 8) | (segmentHeader[3] & 0xFF); // MAGIC_NUMBER
+				Segment segment = new Segment(marker, position, 2 + length);
+
+				if (marker == APP1_MARKER) {
+					byte[] data = read(channel, position + SEGMENT_HEADER_LENGTH, length - 2);
+					if (startsWith(data, EXIF_IDENTIFIER)) {
+						segment.mIsExif = true;
+						if (mExifData == null) {
+							mExifData = Arrays.copyOfRange(data, EXIF_IDENTIFIER.length, data.length);
+						}
+					}
+					else if (startsWith(data, XMP_IDENTIFIER)) {
+						segment.mIsXmp = true;
+						mXmpSegmentCount++;
+						if (mXmpXml == null) {
+							mXmpSegment = segment;
+							mXmpXml = new String(data, XMP_IDENTIFIER.length, data.length - XMP_IDENTIFIER.length, StandardCharsets.UTF_8);
+						}
+					}
+				}
+
+				mSegments.add(segment);
+				position += segment.mLength;
+			}
+			mImageDataPosition = Math.min(position, mFileLength);
+		}
+	}
+
+	/**
+	 * Get the XMP data of the file.
+	 *
+	 * @return The XMP data, or null if there is none.
+	 */
+	@Nullable
+	String getXmpXml() {
+		return mXmpXml;
+	}
+
+	/**
+	 * Get the EXIF data of the file.
+	 *
+	 * @return The EXIF data, or null if there is none.
+	 * @throws ImageReadException thrown if the EXIF data cannot be parsed.
+	 * @throws IOException        thrown in case of other errors while parsing.
+	 */
+	@Nullable
+	TiffImageMetadata getExifMetadata() throws ImageReadException, IOException {
+		if (mExifMetadata == null && mExifData != null) {
+			Map<String, Object> params = new HashMap<>();
+			params.put(ImagingConstants.PARAM_KEY_READ_THUMBNAILS, Boolean.TRUE);
+			mExifMetadata = (TiffImageMetadata) new TiffImageParser().getMetadata(mExifData, params);
+		}
+		return mExifMetadata;
+	}
+
+	/**
+	 * Get the EXIF data of the file as output set which may be modified.
+	 *
+	 * @return The output set, or null if there is no EXIF data.
+	 * @throws ImageReadException  thrown if the EXIF data cannot be parsed.
+	 * @throws ImageWriteException thrown if the output set cannot be created.
+	 * @throws IOException         thrown in case of other errors while parsing.
+	 */
+	@Nullable
+	TiffOutputSet getExifOutputSet() throws ImageReadException, ImageWriteException, IOException {
+		TiffImageMetadata exifMetadata = getExifMetadata();
+		return exifMetadata == null ? null : exifMetadata.getOutputSet();
+	}
+
+	/**
+	 * Set the new XMP data. The XMP packet is padded, as far as the segment size allows.
+	 *
+	 * @param xmpXml               The XMP data.
+	 * @throws ImageWriteException thrown if the XMP data does not fit into a segment.
+	 */
+	void setXmpXml(@NonNull final String xmpXml) throws ImageWriteException {
+		int maxPacketLength = MAX_SEGMENT_LENGTH - 2 - XMP_IDENTIFIER.length;
+		byte[] xmpBytes = createXmpPacket(xmpXml, -1);
+		if (xmpBytes != null && xmpBytes.length <= maxPacketLength) {
+			xmpBytes = createXmpPacket(xmpXml, Math.min(xmpBytes.length + XMP_PADDING, maxPacketLength));
+		}
+		else {
+			xmpBytes = xmpXml.getBytes(StandardCharsets.UTF_8);
+		}
+		if (xmpBytes.length > maxPacketLength) {
+			throw new ImageWriteException("XMP data of file " + mFile.getName() + " is too large: " + xmpBytes.length + " bytes");
+		}
+		byte[] segment = new byte[XMP_IDENTIFIER.length + xmpBytes.length];
+		System.arraycopy(XMP_IDENTIFIER, 0, segment, 0, XMP_IDENTIFIER.length);
+		System.arraycopy(xmpBytes, 0, segment, XMP_IDENTIFIER.length, xmpBytes.length);
+		mNewXmpSegment = segment;
+	}
+
+	/**
+	 * Replace the XMP data within the padding of the existing XMP packet, without rewriting the file. This is possible
+	 * only if the file has a single writable XMP packet with enough padding.
+	 *
+	 * @param xmpXml       The XMP data.
+	 * @return true if the XMP data has been replaced.
+	 * @throws IOException thrown in case of errors while writing.
+	 */
+	boolean updateXmpInPlace(@NonNull final String xmpXml) throws IOException {
+		if (mXmpSegmentCount != 1 || !mXmpXml.contains(XMP_PACKET_END_WRITABLE)) {
+			return false;
+		}
+		int packetLength = mXmpSegment.mLength - SEGMENT_HEADER_LENGTH - XMP_IDENTIFIER.length;
+		byte[] xmpBytes = createXmpPacket(xmpXml, packetLength);
+		if (xmpBytes == null) {
+			return false;
+		}
+
+		try (RandomAccessFile file = new RandomAccessFile(mFile, "rw"); FileChannel channel = file.getChannel()) {
+			if (channel.size() != mFileLength) {
+				return false;
+			}
+			ByteBuffer buffer = ByteBuffer.wrap(xmpBytes);
+			long position = mXmpSegment.mPosition + SEGMENT_HEADER_LENGTH + XMP_IDENTIFIER.length;
+			while (buffer.hasRemaining()) {
+				position += channel.write(buffer, position);
+			}
+		}
+		catch (FileNotFoundException e) {
+			// file is not writable directly.
+			return false;
+		}
+		mXmpXml = xmpXml;
+		return true;
+	}
+
+	/**
+	 * Set the new EXIF data. The existing EXIF data is updated lossless if possible.
+	 *
+	 * @param outputSet            The EXIF data.
+	 * @throws ImageWriteException thrown if the EXIF data cannot be written or does not fit into a segment.
+	 * @throws IOException         thrown in case of other errors while writing.
+	 */
+	void setExif(@NonNull final TiffOutputSet outputSet) throws ImageWriteException, IOException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		os.write(EXIF_IDENTIFIER);
+		if (mExifData == null) {
+			new TiffImageWriterLossy(outputSet.byteOrder).write(os, outputSet);
+		}
+		else {
+			try {
+				new TiffImageWriterLossless(outputSet.byteOrder, mExifData).write(os, outputSet);
+			}
+			catch (Exception e) {
+				Log.w(TAG, "Error storing EXIF data lossless - try lossy approach");
+				os.reset();
+				os.write(EXIF_IDENTIFIER);
+				new TiffImageWriterLossy(outputSet.byteOrder).write(os, outputSet);
+			}
+		}
+		if (os.size() + 2 > MAX_SEGMENT_LENGTH) {
+			throw new ImageWriteException("EXIF data of file " + mFile.getName() + " is too large: " + os.size() + " bytes");
+		}
+		mNewExifSegment = os.toByteArray();
+	}
+
+	/**
+	 * Write the file with the new EXIF and XMP data. Missing EXIF data is inserted at the beginning, after a JFIF
+	 * segment. Missing XMP data is inserted after the last application segment.
+	 *
+	 * @param targetFile   The file to be written. Must be different from the source file.
+	 * @throws IOException thrown in case of errors while writing.
+	 */
+	void write(@NonNull final File targetFile) throws IOException {
+		boolean hasExif = false;
+		boolean hasXmp = false;
+		int exifInsertIndex = 0;
+		int xmpInsertIndex = 0;
+		for (int i = 0; i < mSegments.size(); i++) {
+			Segment segment = mSegments.get(i);
+			hasExif |= segment.mIsExif;
+			hasXmp |= segment.mIsXmp;
+			if (segment.mMarker >= APP0_MARKER && segment.mMarker <= APP15_MARKER) {
+				xmpInsertIndex = i + 1;
+			}
+		}
+		if (!mSegments.isEmpty() && mSegments.get(0).mMarker == APP0_MARKER) {
+			exifInsertIndex = 1;
+		}
+		boolean exifPending = mNewExifSegment != null;
+		boolean xmpPending = mNewXmpSegment != null;
+
+		try (FileInputStream input = new FileInputStream(mFile);
+				FileChannel source = input.getChannel();
+				FileOutputStream output = new FileOutputStream(targetFile);
+				FileChannel target = output.getChannel()) {
+			transfer(source, 0, 2, target);
+
+			for (int i = 0; i <= mSegments.size(); i++) {
+				if (exifPending && !hasExif && i == exifInsertIndex) {
+					writeSegment(target, mNewExifSegment);
+					exifPending = false;
+				}
+				if (xmpPending && !hasXmp && i == xmpInsertIndex) {
+					writeSegment(target, mNewXmpSegment);
+					xmpPending = false;
+				}
+				if (i == mSegments.size()) {
+					break;
+				}
+
+				Segment segment = mSegments.get(i);
+				if (segment.mIsExif && mNewExifSegment != null) {
+					// The first EXIF segment is replaced, further ones are removed.
+					if (exifPending) {
+						writeSegment(target, mNewExifSegment);
+						exifPending = false;
+					}
+				}
+				else if (segment.mIsXmp && mNewXmpSegment != null) {
+					if (xmpPending) {
+						writeSegment(target, mNewXmpSegment);
+						xmpPending = false;
+					}
+				}
+				else {
+					transfer(source, segment.mPosition, segment.mLength, target);
+				}
+			}
+
+			transfer(source, mImageDataPosition, mFileLength - mImageDataPosition, target);
+		}
+	}
+
+	/**
+	 * Create an XMP packet of a given length, by replacing the padding before the packet trailer.
+	 *
+	 * @param xmpXml       The XMP data.
+	 * @param packetLength The length of the packet in bytes, or -1 for the packet without padding.
+	 * @return The packet, or null if the XMP data has no packet trailer or does not fit into the given length.
+	 */
+	@Nullable
+	private static byte[] createXmpPacket(@NonNull final String xmpXml, final int packetLength) {
+		int trailerIndex = xmpXml.lastIndexOf(XMP_PACKET_END);
+		if (trailerIndex < 0) {
+			return null;
+		}
+		int contentIndex = trailerIndex;
+		while (contentIndex > 0 && Character.isWhitespace(xmpXml.charAt(contentIndex - 1))) {
+			contentIndex--;
+		}
+		byte[] content = (xmpXml.substring(0, contentIndex) + "\n").getBytes(StandardCharsets.UTF_8);
+		byte[] trailer = xmpXml.substring(trailerIndex).getBytes(StandardCharsets.UTF_8);
+		int paddingLength = packetLength < 0 ? 0 : packetLength - content.length - trailer.length;
+		if (paddingLength < 0) {
+			return null;
+		}
+
+		byte[] packet = new byte[content.length + paddingLength + trailer.length];
+		System.arraycopy(content, 0, packet, 0, content.length);
+		for (int i = 0; i < paddingLength; i++) {
+			packet[content.length + i] = (byte) ((i + 1) % XMP_PADDING_LINE_LENGTH == 0 ? '\n' : ' ');
+		}
+		System.arraycopy(trailer, 0, packet, content.length + paddingLength, trailer.length);
+		return packet;
+	}
+
+	/**
+	 * Read bytes from a channel.
+	 *
+	 * @param channel      The channel.
+	 * @param position     The start position.
+	 * @param length       The number of bytes.
+	 * @return The bytes.
+	 * @throws IOException thrown if the bytes cannot be read.
+	 */
+	@NonNull
+	private byte[] read(@NonNull final FileChannel channel, final long position, final int length) throws IOException {
+		if (length < 0 || position + length > mFileLength) {
+			throw new IOException("Invalid JPEG segment at position " + position + " of file " + mFile.getName());
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new IOException("Unexpected end of file " + mFile.getName());
+			}
+		}
+		return buffer.array();
+	}
+
+	/**
+	 * Transfer bytes unchanged from the source channel to the target channel.
+	 *
+	 * @param source       The source channel.
+	 * @param position     The start position in the source channel.
+	 * @param count        The number of bytes.
+	 * @param target       The target channel.
+	 * @throws IOException thrown in case of errors while copying.
+	 */
+	private static void transfer(@NonNull final FileChannel source, final long position, final long count, @NonNull final FileChannel target)
+			throws IOException {
+		long transferred = 0;
+		while (transferred < count) {
+			long bytes = source.transferTo(position + transferred, count - transferred, target);
+			if (bytes <= 0) {
+				throw new IOException("Failed to copy JPEG data");
+			}
+			transferred += bytes;
+		}
+	}
+
+	/**
+	 * Write an APP1 segment.
+	 *
+	 * @param target       The target channel.
+	 * @param data         The segment data, including the identifier.
+	 * @throws IOException thrown in case of errors while writing.
+	 */
+	private static void writeSegment(@NonNull final FileChannel target, @NonNull final byte[] data) throws IOException {
+		int length = data.length + 2;
+		ByteBuffer buffer = ByteBuffer.allocate(SEGMENT_HEADER_LENGTH + data.length);
+		buffer.put((byte) MARKER_PREFIX).put((byte) APP1_MARKER).putShort((short) length).put(data);
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			target.write(buffer);
+		}
+	}
+
+	/**
+	 * Check if data starts with a given identifier.
+	 *
+	 * @param data       The data.
+	 * @param identifier The identifier.
+	 * @return true if the data starts with the identifier.
+	 */
+	private static boolean startsWith(@NonNull final byte[] data, @NonNull final byte[] identifier) {
+		if (data.length < identifier.length) {
+			return false;
+		}
+		for (int i = 0; i < identifier.length; i++) {
+			if (data[i] != identifier[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * A marker segment before the image data.
+	 */
+	private static final class Segment {
+		/**
+		 * The marker.
+		 */
+		private final int mMarker;
+		/**
+		 * The position of the segment in the file.
+		 */
+		private final long mPosition;
+		/**
+		 * The length of the segment, including the marker.
+		 */
+		private final int mLength;
+		/**
+		 * Flag indicating if this is an EXIF segment.
+		 */
+		private boolean mIsExif = false;
+		/**
+		 * Flag indicating if this is an XMP segment.
+		 */
+		private boolean mIsXmp = false;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param marker   The marker.
+		 * @param position The position of the segment in the file.
+		 * @param length   The length of the segment, including the marker.
+		 */
+		private Segment(final int marker, final long position, final int length) {
+			mMarker = marker;
+			mPosition = position;
+			mLength = length;
+		}
+	}
+
+	/**
+	 * Exception indicating that a file is no JPEG file, as it does not start with the start of image marker.
+	 */
+	static final class NoJpegException extends IOException {
+		/**
+		 * The serial version id.
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Standard constructor, passing the message.
+		 *
+		 * @param message The message.
+		 */
+		private NoJpegException(final String message) {
+			super(message);
+		}
+	}
+}
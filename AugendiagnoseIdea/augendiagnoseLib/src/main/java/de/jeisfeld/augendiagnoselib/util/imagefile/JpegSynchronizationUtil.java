@@ -1,12 +1,18 @@
 package de.jeisfeld.augendiagnoselib.util.imagefile;
 
-import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
+import android.util.LruCache;
 
+import java.io.File;
 import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import androidx.annotation.NonNull;
-import androidx.annotation.Nullable;
 import de.jeisfeld.augendiagnoselib.Application;
 import de.jeisfeld.augendiagnoselib.R;
 import de.jeisfeld.augendiagnoselib.util.DialogUtil;
@@ -14,9 +20,35 @@ import de.jeisfeld.augendiagnoselib.util.imagefile.JpegMetadataUtil.ExifStorageE
 
 /**
  * Utility class to help storing metadata in jpg files in a synchronized way, preventing to store the same file twice in
- * parallel.
+ * parallel. Metadata are written behind by a bounded pool of workers. Requests on the same file which are not yet started
+ * are coalesced, so that only the last one is written. Metadata read from files is cached as long as the file is unchanged.
  */
 public final class JpegSynchronizationUtil {
+	/**
+	 * The number of worker threads writing metadata.
+	 */
+	private static final int WORKER_COUNT = 2;
+	/**
+	 * The maximum number of files waiting to be written. Further requests wait until there is space in the queue. Requests from
+	 * the UI thread, which must not wait, are rejected instead.
+	 */
+	private static final int MAX_QUEUED_REQUESTS = 64;
+	/**
+	 * The number of writes after which the statistics are logged.
+	 */
+	private static final int STATISTICS_INTERVAL = 100;
+	/**
+	 * Factor for converting nanoseconds into milliseconds.
+	 */
+	private static final double NANOS_PER_MILLI = 1000000.0;
+	/**
+	 * The maximum number of files for which metadata is cached.
+	 */
+	private static final int METADATA_CACHE_SIZE = 500;
+	/**
+	 * The tag for logging.
+	 */
+	private static final String TAG = Application.TAG + ".JSU";
 
 	/**
 	 * Hide default constructor.
@@ -25,65 +57,123 @@ public final class JpegSynchronizationUtil {
 		throw new UnsupportedOperationException();
 	}
 
+	/**
+	 * The lock for the request maps and statistics.
+	 */
+	private static final Object LOCK = new Object();
+	/**
+	 * The executor writing the metadata.
+	 */
+	private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(WORKER_COUNT);
+
 	/**
 	 * Storage for currently running save tasks.
 	 */
-	private static final HashMap<String, JpegMetadata> RUNNING_SAVE_REQUESTS = new HashMap<>();
+	private static final Map<String, JpegMetadata> RUNNING_SAVE_REQUESTS = new HashMap<>();
 	/**
 	 * Storage for queued save tasks.
 	 */
-	private static final HashMap<String, JpegMetadata> QUEUED_SAVE_REQUESTS = new HashMap<>();
+	private static final Map<String, JpegMetadata> QUEUED_SAVE_REQUESTS = new HashMap<>();
+
 	/**
-	 * The tag for logging.
+	 * The metadata read from files, by path.
 	 */
-	private static final String TAG = Application.TAG + ".JSU";
+	private static final LruCache<String, CachedMetadata> METADATA_CACHE = new LruCache<>(METADATA_CACHE_SIZE);
+	/**
+	 * Counter of cache invalidations, preventing that metadata read before an invalidation is cached.
+	 */
+	private static long mCacheGeneration = 0;
+
+	/**
+	 * The number of successful writes.
+	 */
+	private static int mWriteCount = 0;
+	/**
+	 * The number of failed writes.
+	 */
+	private static int mFailureCount = 0;
+	/**
+	 * The number of requests replaced by a later request on the same file.
+	 */
+	private static int mCoalescedCount = 0;
+	/**
+	 * The number of requests rejected due to a full queue.
+	 */
+	private static int mRejectedCount = 0;
+	/**
+	 * The total duration of all writes in nanoseconds.
+	 */
+	private static long mTotalWriteTime = 0;
+	/**
+	 * The maximum duration of a write in nanoseconds.
+	 */
+	private static long mMaxWriteTime = 0;
 
 	/**
 	 * This method handles a request to retrieve metadata for a file. If there is no running async task to update
 	 * metadata for this file, then the data is taken directly from the file. Otherwise, it is taken from the last
-	 * metadata to be stored for this file.
+	 * metadata to be stored for this file. Metadata read from the file is cached until the file changes, and a copy is
+	 * returned.
 	 *
 	 * @param pathname the path of the jpg file.
 	 * @return null for non-JPEG files. The metadata from the file if readable. Otherwise empty metadata.
 	 */
 	public static JpegMetadata getJpegMetadata(@NonNull final String pathname) {
 		JpegMetadata cachedMetadata = null;
+		File file = new File(pathname);
+		long lastModified = file.lastModified();
+		long length = file.length();
+		long cacheGeneration;
 
-		try {
-			JpegMetadataUtil.checkJpeg(pathname);
-		}
-		catch (Exception e) {
-			Log.w(TAG, e.getMessage());
-			return null;
-		}
-
-		synchronized (JpegSynchronizationUtil.class) {
+		synchronized (LOCK) {
 			if (QUEUED_SAVE_REQUESTS.containsKey(pathname)) {
 				cachedMetadata = QUEUED_SAVE_REQUESTS.get(pathname);
 			}
 			else if (RUNNING_SAVE_REQUESTS.containsKey(pathname)) {
 				cachedMetadata = RUNNING_SAVE_REQUESTS.get(pathname);
 			}
+			else {
+				CachedMetadata cacheEntry = METADATA_CACHE.get(pathname);
+				if (cacheEntry != null && cacheEntry.mLastModified == lastModified && cacheEntry.mLength == length) {
+					return cacheEntry.mMetadata.copy();
+				}
+			}
+			cacheGeneration = mCacheGeneration;
 		}
 
 		if (cachedMetadata != null) {
 			Log.i(TAG, "Retrieve cached metadata for file " + pathname);
 			return cachedMetadata;
 		}
-		else {
-			try {
-				return JpegMetadataUtil.getMetadata(pathname);
-			}
-			catch (Exception e) {
-				Log.e(TAG, "Failed to retrieve metadata for file " + pathname, e);
-				return new JpegMetadata();
+
+		if (!JpegMetadataUtil.hasJpegExtension(pathname)) {
+			Log.w(TAG, "File " + pathname + " has no JPEG extension - can handle metadata only for image/jpeg.");
+			return null;
+		}
+
+		try {
+			JpegMetadata metadata = JpegMetadataUtil.getMetadata(pathname);
+			synchronized (LOCK) {
+				if (cacheGeneration == mCacheGeneration) {
+					METADATA_CACHE.put(pathname, new CachedMetadata(metadata.copy(), lastModified, length));
+				}
 			}
+			return metadata;
+		}
+		catch (JpegSegmentRewriter.NoJpegException e) {
+			Log.w(TAG, e.getMessage());
+			return null;
+		}
+		catch (Exception e) {
+			Log.e(TAG, "Failed to retrieve metadata for file " + pathname, e);
+			return new JpegMetadata();
 		}
 	}
 
 	/**
-	 * This method handles a request to update metadata on a file. If no such request on the file is in process, then an
-	 * async task is started to update the metadata. Otherwise, it is put on the queue.
+	 * This method handles a request to update metadata on a file. If there is already a queued request on the file, then
+	 * it is replaced. Otherwise, the request is queued. If the queue is full, the method waits until there is space. If
+	 * called in the UI thread, the request is rejected instead, and an error is displayed.
 	 *
 	 * @param pathname the path of the jpg file.
 	 * @param metadata the metadata.
@@ -97,112 +187,280 @@ public final class JpegSynchronizationUtil {
 			return;
 		}
 
-		synchronized (JpegSynchronizationUtil.class) {
-			if (RUNNING_SAVE_REQUESTS.containsKey(pathname)) {
+		synchronized (LOCK) {
+			// The UI thread does not wait.
+			boolean mayWait = Looper.myLooper() != Looper.getMainLooper();
+			while (mayWait && isQueueFull(pathname)) {
+				try {
+					LOCK.wait();
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+			}
+
+			if (isQueueFull(pathname)) {
+				mRejectedCount++;
+				Log.w(TAG, "Rejected to save file " + pathname + ", as the save queue is full.");
+				new Handler(Looper.getMainLooper()).post(new Runnable() {
+					@Override
+					public void run() {
+						DialogUtil.displayToast(Application.getAppContext(), R.string.message_dialog_failed_to_store_metadata, pathname);
+					}
+				});
+				return;
+			}
+
+			invalidateCache(pathname);
+			if (QUEUED_SAVE_REQUESTS.containsKey(pathname)) {
 				QUEUED_SAVE_REQUESTS.put(pathname, metadata);
+				mCoalescedCount++;
+				return;
 			}
-			else {
-				triggerJpegSaverTask(pathname, metadata);
+
+			QUEUED_SAVE_REQUESTS.put(pathname, metadata);
+			if (!RUNNING_SAVE_REQUESTS.containsKey(pathname)) {
+				EXECUTOR.execute(new SaveTask(pathname));
+			}
+		}
+	}
+
+	/**
+	 * Check if the queue has no space for a request on a file. Must be called within the lock.
+	 *
+	 * @param pathname The path of the jpg file.
+	 * @return true if the request can neither be queued nor replace a queued request.
+	 */
+	private static boolean isQueueFull(@NonNull final String pathname) {
+		return !QUEUED_SAVE_REQUESTS.containsKey(pathname) && QUEUED_SAVE_REQUESTS.size() >= MAX_QUEUED_REQUESTS;
+	}
+
+	/**
+	 * Get information if there is an image in the process of being saved or waiting to be saved.
+	 *
+	 * @return true if an image is currently saved.
+	 */
+	public static boolean isSaving() {
+		synchronized (LOCK) {
+			return RUNNING_SAVE_REQUESTS.size() > 0 || QUEUED_SAVE_REQUESTS.size() > 0;
+		}
+	}
+
+	/**
+	 * Wait until all running and pending save requests are finished.
+	 *
+	 * @param timeout The maximum time to wait in milliseconds.
+	 * @return true if all requests are finished.
+	 */
+	public static boolean flush(final long timeout) {
+		long endTime = System.currentTimeMillis() + timeout;
+		synchronized (LOCK) {
+			while (isSaving()) {
+				long remainingTime = endTime - System.currentTimeMillis();
+				if (remainingTime <= 0) {
+					return false;
+				}
+				try {
+					LOCK.wait(remainingTime);
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return false;
+				}
 			}
+			return true;
 		}
 	}
 
 	/**
-	 * Do cleanup from the last JpegSaverTask and trigger the next task on the same file, if existing.
+	 * Save the last queued metadata of a file.
 	 *
 	 * @param pathname The path of the jpg file.
 	 */
-	private static void triggerNextFromQueue(final String pathname) {
-		synchronized (JpegSynchronizationUtil.class) {
+	private static void save(final String pathname) {
+		JpegMetadata metadata;
+		synchronized (LOCK) {
+			metadata = QUEUED_SAVE_REQUESTS.remove(pathname);
+			if (metadata == null) {
+				return;
+			}
+			RUNNING_SAVE_REQUESTS.put(pathname, metadata);
+			LOCK.notifyAll();
+		}
+
+		Log.d(TAG, "Starting to save file " + pathname);
+		long startTime = System.nanoTime();
+		boolean success;
+		try {
+			JpegMetadataUtil.changeMetadata(pathname, metadata);
+			Log.d(TAG, "Successfully saved file " + pathname);
+			success = true;
+		}
+		catch (final Exception e) {
+			final int messageResource;
+			if (e instanceof ExifStorageException) {
+				Log.e(TAG, "Failed to save file " + pathname, e);
+				messageResource = R.string.message_dialog_failed_to_store_exif;
+			}
+			else {
+				Log.e(TAG, "Failed to store EXIF data for file " + pathname, e);
+				messageResource = R.string.message_dialog_failed_to_store_metadata;
+			}
+			new Handler(Looper.getMainLooper()).post(new Runnable() {
+				@Override
+				public void run() {
+					DialogUtil.displayToast(Application.getAppContext(), messageResource, pathname);
+				}
+			});
+			success = false;
+		}
+		long writeTime = System.nanoTime() - startTime;
+
+		boolean logStatistics = false;
+		synchronized (LOCK) {
 			RUNNING_SAVE_REQUESTS.remove(pathname);
+			invalidateCache(pathname);
 			if (QUEUED_SAVE_REQUESTS.containsKey(pathname)) {
 				Log.i(TAG, "Executing queued store request for file " + pathname);
-				JpegMetadata newMetadata = QUEUED_SAVE_REQUESTS.get(pathname);
-				QUEUED_SAVE_REQUESTS.remove(pathname);
-				triggerJpegSaverTask(pathname, newMetadata);
+				EXECUTOR.execute(new SaveTask(pathname));
+			}
+			if (success) {
+				mWriteCount++;
+				mTotalWriteTime += writeTime;
+				mMaxWriteTime = Math.max(mMaxWriteTime, writeTime);
+				logStatistics = mWriteCount % STATISTICS_INTERVAL == 0;
 			}
+			else {
+				mFailureCount++;
+			}
+			LOCK.notifyAll();
+		}
+		if (logStatistics) {
+			Log.i(TAG, getStatistics());
 		}
 	}
 
 	/**
-	 * Utility method to start the JpegSaverTask so save a jpg file with metadata.
+	 * Remove the cached metadata of a file. Must be called within the lock.
 	 *
-	 * @param pathname the path of the jpg file.
-	 * @param metadata the metadata.
+	 * @param pathname The path of the jpg file.
 	 */
-	private static void triggerJpegSaverTask(final String pathname, final JpegMetadata metadata) {
-		RUNNING_SAVE_REQUESTS.put(pathname, metadata);
-		JpegSaverTask task = new JpegSaverTask(pathname, metadata);
-		task.execute();
+	private static void invalidateCache(@NonNull final String pathname) {
+		METADATA_CACHE.remove(pathname);
+		mCacheGeneration++;
 	}
 
 	/**
-	 * Get information if there is an image in the process of being saved.
+	 * Get the number of files waiting to be written.
 	 *
-	 * @return true if an image is currently saved.
+	 * @return The queue length.
 	 */
-	public static boolean isSaving() {
-		return RUNNING_SAVE_REQUESTS.size() > 0;
+	public static int getQueueLength() {
+		synchronized (LOCK) {
+			return QUEUED_SAVE_REQUESTS.size();
+		}
+	}
+
+	/**
+	 * Get the number of successful writes.
+	 *
+	 * @return The number of writes.
+	 */
+	public static int getWriteCount() {
+		synchronized (LOCK) {
+			return mWriteCount;
+		}
+	}
+
+	/**
+	 * Get the number of failed writes.
+	 *
+	 * @return The number of failures.
+	 */
+	public static int getFailureCount() {
+		synchronized (LOCK) {
+			return mFailureCount;
+		}
 	}
 
 	/**
-	 * Task to save a JPEG file asynchronously with changed metadata.
+	 * Get the average duration of a successful write.
+	 *
+	 * @return The average write latency in milliseconds.
 	 */
-	private static final class JpegSaverTask extends AsyncTask<Void, Void, Exception> {
+	public static double getAverageWriteLatency() {
+		synchronized (LOCK) {
+			return mTotalWriteTime / NANOS_PER_MILLI / Math.max(1, mWriteCount);
+		}
+	}
+
+	/**
+	 * Get the write statistics as text.
+	 *
+	 * @return The statistics.
+	 */
+	public static String getStatistics() {
+		synchronized (LOCK) {
+			return String.format(Locale.ENGLISH,
+					"Saved %d files, failed %d, coalesced %d, rejected %d, queued %d. Write latency average %.1f ms, max %.1f ms",
+					mWriteCount, mFailureCount, mCoalescedCount, mRejectedCount, QUEUED_SAVE_REQUESTS.size(), getAverageWriteLatency(),
+					mMaxWriteTime / NANOS_PER_MILLI);
+		}
+	}
+
+	/**
+	 * Metadata read from a file, together with the file properties at the time of reading.
+	 */
+	private static final class CachedMetadata {
 		/**
-		 * The path of the jpg file.
+		 * The metadata.
 		 */
-		private final String mPathname;
+		private final JpegMetadata mMetadata;
 		/**
-		 * The changed metadata.
+		 * The modification time of the file.
 		 */
-		private final JpegMetadata mMetadata;
+		private final long mLastModified;
+		/**
+		 * The length of the file.
+		 */
+		private final long mLength;
 
 		/**
-		 * Constructor for the task.
+		 * Constructor.
 		 *
-		 * @param pathname the path of the jpg file.
-		 * @param metadata the metadata.
+		 * @param metadata     The metadata.
+		 * @param lastModified The modification time of the file.
+		 * @param length       The length of the file.
 		 */
-		private JpegSaverTask(final String pathname, final JpegMetadata metadata) {
-			this.mPathname = pathname;
-			this.mMetadata = metadata;
+		private CachedMetadata(final JpegMetadata metadata, final long lastModified, final long length) {
+			mMetadata = metadata;
+			mLastModified = lastModified;
+			mLength = length;
 		}
+	}
 
-		@Override
-		protected void onPreExecute() {
-			Log.d(TAG, "Starting thread to save file " + mPathname);
-		}
+	/**
+	 * Task to save the last queued metadata of a file.
+	 */
+	private static final class SaveTask implements Runnable {
+		/**
+		 * The path of the jpg file.
+		 */
+		private final String mPathname;
 
-		@Override
-		protected Exception doInBackground(final Void... nothing) {
-			try {
-				JpegMetadataUtil.changeMetadata(mPathname, mMetadata);
-				return null;
-			}
-			catch (Exception e) {
-				return e;
-			}
+		/**
+		 * Constructor for the task.
+		 *
+		 * @param pathname the path of the jpg file.
+		 */
+		private SaveTask(final String pathname) {
+			mPathname = pathname;
 		}
 
 		@Override
-		protected void onPostExecute(@Nullable final Exception e) {
-			if (e != null) {
-				if (e instanceof ExifStorageException) {
-					Log.e(TAG, "Failed to save file " + mPathname, e);
-					DialogUtil.displayToast(Application.getAppContext(),
-							R.string.message_dialog_failed_to_store_exif, mPathname);
-				}
-				else {
-					Log.e(TAG, "Failed to store EXIF data for file " + mPathname, e);
-					DialogUtil.displayToast(Application.getAppContext(),
-							R.string.message_dialog_failed_to_store_metadata, mPathname);
-				}
-			}
-			else {
-				Log.d(TAG, "Successfully saved file " + mPathname);
-			}
-			triggerNextFromQueue(mPathname);
+		public void run() {
+			save(mPathname);
 		}
 	}
 }
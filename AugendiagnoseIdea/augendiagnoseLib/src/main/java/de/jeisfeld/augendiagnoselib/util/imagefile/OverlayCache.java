@@ -0,0 +1,269 @@
+package de.jeisfeld.augendiagnoselib.util.imagefile;
+
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.util.Log;
+import android.util.LruCache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import de.jeisfeld.augendiagnoselib.Application;
+import de.jeisfeld.augendiagnoselib.R;
+import de.jeisfeld.augendiagnoselib.components.OverlayPinchImageView;
+import de.jeisfeld.augendiagnoselib.fragments.DisplayImageFragment;
+import de.jeisfeld.augendiagnoselib.util.imagefile.EyePhoto.RightLeft;
+
+/**
+ * Cache of overlay bitmaps, shared by all views. Overlays are cached per overlay index, side, colour and pupil
+ * position, and the least recently used overlays are evicted if the total size exceeds a fraction of the available
+ * memory. Pupil size and offsets are rounded, so that small changes of the pupil reuse the cached overlay. Overlays
+ * which are not deformed by the pupil are cached independently of the pupil position.
+ */
+public final class OverlayCache {
+	/**
+	 * The number of bytes per kilobyte.
+	 */
+	private static final int KILOBYTE = 1024;
+	/**
+	 * The number of bytes per pixel of the overlay bitmaps.
+	 */
+	private static final int BYTES_PER_PIXEL = 4;
+	/**
+	 * The number of eyes for which overlays are displayed at the same time.
+	 */
+	private static final int EYE_COUNT = 2;
+	/**
+	 * The number of steps per unit to which pupil size and offsets are rounded.
+	 */
+	private static final int PUPIL_STEPS = 500;
+	/**
+	 * The tag for logging.
+	 */
+	private static final String TAG = Application.TAG + ".OC";
+
+	/**
+	 * The executor for prewarming the cache.
+	 */
+	private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor();
+
+	/**
+	 * The singleton instance.
+	 */
+	private static volatile OverlayCache mSingleton;
+
+	/**
+	 * The cached overlays, by overlay index, side, colour and pupil position. Sizes are counted in kilobytes.
+	 */
+	private final LruCache<String, Bitmap> mOverlays;
+	/**
+	 * The locks of the overlays currently being created, so that each overlay is created only once.
+	 */
+	private final ConcurrentHashMap<String, Object> mLocks = new ConcurrentHashMap<>();
+	/**
+	 * The types of the overlays. Overlays of type 1 are shown in the overlay colour.
+	 */
+	private final int[] mOverlayTypes;
+	/**
+	 * The pupil sizes of the original overlays.
+	 */
+	private final float[] mOrigPupilSizes;
+
+	/**
+	 * Create the cache.
+	 */
+	private OverlayCache() {
+		// The overlays of all overlay buttons and the pupil overlay are prewarmed for both eyes. Keep at most half of the
+		// total budget, so that the images still can be cached.
+		int prewarmSizeKb = (DisplayImageFragment.OVERLAY_BUTTON_COUNT + 1) * EYE_COUNT
+				* (OverlayPinchImageView.OVERLAY_SIZE * OverlayPinchImageView.OVERLAY_SIZE * BYTES_PER_PIXEL / KILOBYTE);
+		int maxSizeKb = Math.max(CacheBudget.OVERLAYS.getMaxSizeKb(), Math.min(prewarmSizeKb, CacheBudget.getTotalSizeKb() / 2));
+		mOverlays = new LruCache<String, Bitmap>(maxSizeKb) {
+			@Override
+			protected int sizeOf(final String key, final Bitmap value) {
+				return Math.max(1, value.getAllocationByteCount() / KILOBYTE);
+			}
+		};
+
+		Resources resources = Application.getAppContext().getResources();
+		mOverlayTypes = resources.getIntArray(R.array.overlay_types);
+		String[] origPupilSizeStrings = resources.getStringArray(R.array.overlay_pupil_sizes);
+		mOrigPupilSizes = new float[origPupilSizeStrings.length];
+		for (int i = 0; i < origPupilSizeStrings.length; i++) {
+			mOrigPupilSizes[i] = Float.parseFloat(origPupilSizeStrings[i]);
+		}
+	}
+
+	/**
+	 * Get the cache instance.
+	 *
+	 * @return The cache.
+	 */
+	public static OverlayCache getInstance() {
+		if (mSingleton == null) {
+			synchronized (OverlayCache.class) {
+				if (mSingleton == null) {
+					mSingleton = new OverlayCache();
+				}
+			}
+		}
+		return mSingleton;
+	}
+
+	/**
+	 * Get an overlay bitmap, creating it if it is not cached.
+	 *
+	 * @param position     The index of the overlay.
+	 * @param rightLeft    The side of the eye.
+	 * @param color        The overlay colour, used for one-coloured overlays.
+	 * @param pupilSize    The pupil size (relative to iris). If null, the default pupil size is used.
+	 * @param pupilOffsetX The relative x offset of the pupil center.
+	 * @param pupilOffsetY The relative y offset of the pupil center.
+	 * @return The overlay bitmap, or null if there is no overlay of this index.
+	 */
+	@Nullable
+	public Bitmap getOverlayBitmap(final int position, @NonNull final RightLeft rightLeft, final int color, @Nullable final Float pupilSize,
+								   @Nullable final Float pupilOffsetX, @Nullable final Float pupilOffsetY) {
+		if (position < 0 || position >= mOverlayTypes.length) {
+			return null;
+		}
+		Integer targetColor = mOverlayTypes[position] == 1 ? color : null;
+		float targetPupilSize = roundPupilValue(pupilSize == null ? OverlayPinchImageView.DEFAULT_PUPIL_SIZE : pupilSize);
+		float targetOffsetX = roundPupilValue(pupilOffsetX == null ? 0 : pupilOffsetX);
+		float targetOffsetY = roundPupilValue(pupilOffsetY == null ? 0 : pupilOffsetY);
+		String key;
+		if (mOrigPupilSizes[position] == 0) {
+			// The overlay is not deformed by the pupil, so that it can be shared across pupil positions.
+			key = String.format(Locale.ENGLISH, "%d|%s|%s", position, rightLeft, targetColor);
+		}
+		else {
+			key = String.format(Locale.ENGLISH, "%d|%s|%s|%.3f|%.3f|%.3f", position, rightLeft, targetColor,
+					targetPupilSize, targetOffsetX, targetOffsetY);
+		}
+
+		Bitmap bitmap = mOverlays.get(key);
+		if (bitmap != null) {
+			return bitmap;
+		}
+
+		Object lock = new Object();
+		Object existingLock = mLocks.putIfAbsent(key, lock);
+		if (existingLock != null) {
+			lock = existingLock;
+		}
+		synchronized (lock) {
+			// The overlay may have been created while waiting for the lock.
+			bitmap = mOverlays.get(key);
+			if (bitmap == null) {
+				bitmap = createOverlayBitmap(position, rightLeft, targetColor, targetPupilSize, targetOffsetX, targetOffsetY);
+				if (bitmap != null) {
+					mOverlays.put(key, bitmap);
+				}
+			}
+			mLocks.remove(key, lock);
+		}
+		return bitmap;
+	}
+
+	/**
+	 * Create the overlays in the background, so that they can be shown without delay. Prewarming stops if further overlays
+	 * would not fit into the cache, so that it does not evict overlays which are in use.
+	 *
+	 * @param positions    The indices of the overlays.
+	 * @param rightLeft    The side of the eye.
+	 * @param color        The overlay colour, used for one-coloured overlays.
+	 * @param pupilSize    The pupil size (relative to iris). If null, the default pupil size is used.
+	 * @param pupilOffsetX The relative x offset of the pupil center.
+	 * @param pupilOffsetY The relative y offset of the pupil center.
+	 */
+	public void prewarm(@NonNull final List<Integer> positions, @NonNull final RightLeft rightLeft, final int color,
+						@Nullable final Float pupilSize, @Nullable final Float pupilOffsetX, @Nullable final Float pupilOffsetY) {
+		final List<Integer> positionsCopy = new ArrayList<>(positions);
+		EXECUTOR.execute(new Runnable() {
+			@Override
+			public void run() {
+				for (int position : positionsCopy) {
+					Bitmap bitmap = getOverlayBitmap(position, rightLeft, color, pupilSize, pupilOffsetX, pupilOffsetY);
+					if (bitmap != null && mOverlays.size() + bitmap.getAllocationByteCount() / KILOBYTE > mOverlays.maxSize()) {
+						Log.i(TAG, "Stopped prewarming overlays, as the cache is full.");
+						return;
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Log the cache statistics, if the cache has been created.
+	 */
+	public static void logStatistics() {
+		OverlayCache cache = mSingleton;
+		if (cache != null) {
+			Log.i(TAG, "Overlay cache: " + cache.mOverlays.size() + " of " + cache.mOverlays.maxSize() + " kB, hits "
+					+ cache.mOverlays.hitCount() + ", misses " + cache.mOverlays.missCount() + ", evictions " + cache.mOverlays.evictionCount());
+		}
+	}
+
+	/**
+	 * Release memory of the cache, if the cache has been created.
+	 *
+	 * @param releaseAll If true, all overlays are released. Otherwise, the cache is trimmed to half of its maximum size.
+	 */
+	public static void trimMemory(final boolean releaseAll) {
+		OverlayCache cache = mSingleton;
+		if (cache != null) {
+			if (releaseAll) {
+				cache.mOverlays.evictAll();
+			}
+			else {
+				cache.mOverlays.trimToSize(cache.mOverlays.maxSize() / 2);
+			}
+		}
+	}
+
+	/**
+	 * Create an overlay bitmap from the resource, changing colour and pupil position.
+	 *
+	 * @param position     The index of the overlay.
+	 * @param rightLeft    The side of the eye.
+	 * @param color        The target colour. If null, the colour is not changed.
+	 * @param pupilSize    The pupil size (relative to iris).
+	 * @param pupilOffsetX The relative x offset of the pupil center.
+	 * @param pupilOffsetY The relative y offset of the pupil center.
+	 * @return The overlay bitmap.
+	 */
+	@Nullable
+	private Bitmap createOverlayBitmap(final int position, @NonNull final RightLeft rightLeft, @Nullable final Integer color,
+									   final float pupilSize, final float pupilOffsetX, final float pupilOffsetY) {
+		Resources resources = Application.getAppContext().getResources();
+		TypedArray overlays = resources.obtainTypedArray(rightLeft == RightLeft.RIGHT ? R.array.overlays_right : R.array.overlays_left);
+		Drawable drawable = overlays.getDrawable(position);
+		overlays.recycle();
+		if (!(drawable instanceof BitmapDrawable)) {
+			return null;
+		}
+
+		Bitmap bitmap = ((BitmapDrawable) drawable).getBitmap();
+		Bitmap colouredBitmap = color == null ? bitmap : ImageUtil.changeBitmapColor(bitmap, color);
+		return ImageUtil.deformOverlayByPupilSize(colouredBitmap, mOrigPupilSizes[position], pupilSize, pupilOffsetX, pupilOffsetY);
+	}
+
+	/**
+	 * Round a pupil size or offset to the steps used in the cache.
+	 *
+	 * @param value The value.
+	 * @return The rounded value.
+	 */
+	private static float roundPupilValue(final float value) {
+		return (float) Math.round(value * PUPIL_STEPS) / PUPIL_STEPS;
+	}
+}
@@ -0,0 +1,472 @@
+package de.jeisfeld.augendiagnoselib.util.imagefile;
+
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import de.jeisfeld.augendiagnoselib.Application;
+import de.jeisfeld.augendiagnoselib.R;
+import de.jeisfeld.augendiagnoselib.util.PreferenceUtil;
+
+/**
+ * Catalogue of the names and photo files in the eye photo folder. The catalogue is persisted in the cache directory and
+ * kept in sync by comparing the modification times of the folders, so that folders are listed again only after they have
+ * changed. Names are searched via an in-memory index of their parts.
+ */
+public final class PhotoCatalogue {
+	/**
+	 * The name of the file storing the catalogue.
+	 */
+	private static final String CATALOGUE_FILE_NAME = "catalogue.txt";
+
+	/**
+	 * The time in milliseconds after a modification in which further modifications may not change the modification time.
+	 * Folders modified this recently are listed on every access.
+	 */
+	private static final long MODIFICATION_TIME_GRANULARITY = 2000;
+
+	/**
+	 * The separator of the fields in the catalogue file.
+	 */
+	private static final String SEPARATOR = "\t";
+
+	/**
+	 * The tag for logging.
+	 */
+	private static final String TAG = Application.TAG + ".PC";
+
+	/**
+	 * The executor for storing the catalogue in the background.
+	 */
+	private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor();
+
+	/**
+	 * The singleton instance.
+	 */
+	private static volatile PhotoCatalogue mSingleton;
+
+	/**
+	 * The eye photo folder.
+	 */
+	@Nullable
+	private File mRootFolder = null;
+
+	/**
+	 * The modification time of the eye photo folder when it was last listed.
+	 */
+	private long mRootLastModified = 0;
+
+	/**
+	 * The names in the catalogue.
+	 */
+	private final Map<String, NameEntry> mNames = new HashMap<>();
+
+	/**
+	 * The index of name parts.
+	 */
+	private final NameTrie mNameTrie = new NameTrie();
+
+	/**
+	 * The sorted names, or null if they need to be sorted.
+	 */
+	@Nullable
+	private List<String> mSortedNames = null;
+
+	/**
+	 * The positions of the names in the sorted list.
+	 */
+	private final Map<String, Integer> mSortPositions = new HashMap<>();
+
+	/**
+	 * The sort order used for the sorted names.
+	 */
+	private boolean mSortByLastName = false;
+
+	/**
+	 * The lower case search string of the last search.
+	 */
+	@Nullable
+	private String mLastSearchString = null;
+
+	/**
+	 * The sorted result of the last search, or null if it is outdated.
+	 */
+	@Nullable
+	private List<String> mLastResult = null;
+
+	/**
+	 * Hide default constructor.
+	 */
+	private PhotoCatalogue() {
+	}
+
+	/**
+	 * Get the catalogue instance.
+	 *
+	 * @return The catalogue.
+	 */
+	@NonNull
+	public static PhotoCatalogue getInstance() {
+		if (mSingleton == null) {
+			synchronized (PhotoCatalogue.class) {
+				if (mSingleton == null) {
+					mSingleton = new PhotoCatalogue();
+				}
+			}
+		}
+		return mSingleton;
+	}
+
+	/**
+	 * Get the names in the eye photo folder which have a name part starting with the given search string, sorted for
+	 * display.
+	 *
+	 * @param rootFolder   The eye photo folder.
+	 * @param searchString The search string (case insensitive).
+	 * @return The matching names.
+	 */
+	@NonNull
+	public synchronized List<String> getNames(@NonNull final File rootFolder, @Nullable final String searchString) {
+		refresh(rootFolder);
+		List<String> sortedNames = getSortedNames();
+		if (searchString == null || searchString.length() == 0) {
+			return new ArrayList<>(sortedNames);
+		}
+
+		String prefix = searchString.toLowerCase();
+		Set<String> matches = mNameTrie.getNames(prefix);
+		List<String> result;
+		if (mLastResult != null && mLastSearchString != null && prefix.startsWith(mLastSearchString)) {
+			// The search is narrowed, so filter the last result, keeping its order.
+			result = new ArrayList<>();
+			for (String name : mLastResult) {
+				if (matches.contains(name)) {
+					result.add(name);
+				}
+			}
+		}
+		else {
+			result = new ArrayList<>(matches);
+			Collections.sort(result, new Comparator<String>() {
+				@Override
+				public int compare(final String name1, final String name2) {
+					return mSortPositions.get(name1).compareTo(mSortPositions.get(name2));
+				}
+			});
+		}
+		mLastSearchString = prefix;
+		mLastResult = result;
+		return new ArrayList<>(result);
+	}
+
+	/**
+	 * Get the image files in the folder of a name.
+	 *
+	 * @param rootFolder The eye photo folder.
+	 * @param name       The name.
+	 * @return The photo files.
+	 */
+	@NonNull
+	public synchronized List<File> getPhotoFiles(@NonNull final File rootFolder, @NonNull final String name) {
+		refresh(rootFolder);
+		NameEntry entry = mNames.get(name);
+		if (entry == null) {
+			return new ArrayList<>();
+		}
+
+		File folder = new File(rootFolder, name);
+		long lastModified = folder.lastModified();
+		if (entry.mFileNames == null || lastModified != entry.mLastModified || isRecent(lastModified)) {
+			File[] files = folder.listFiles(new ImageUtil.ImageFileFilter());
+			String[] fileNames = new String[files == null ? 0 : files.length];
+			for (int i = 0; i < fileNames.length; i++) {
+				fileNames[i] = files[i].getName();
+			}
+			boolean changed = lastModified != entry.mLastModified || !Arrays.equals(fileNames, entry.mFileNames);
+			entry.mFileNames = fileNames;
+			entry.mLastModified = lastModified;
+			if (changed) {
+				store();
+			}
+		}
+
+		List<File> files = new ArrayList<>();
+		for (String fileName : entry.mFileNames) {
+			files.add(new File(folder, fileName));
+		}
+		return files;
+	}
+
+	/**
+	 * Update the list of names if the eye photo folder has changed.
+	 *
+	 * @param rootFolder The eye photo folder.
+	 */
+	private void refresh(@NonNull final File rootFolder) {
+		if (!rootFolder.equals(mRootFolder)) {
+			clear();
+			mRootFolder = rootFolder;
+			load();
+		}
+
+		long lastModified = rootFolder.lastModified();
+		if (lastModified == mRootLastModified && !isRecent(lastModified)) {
+			return;
+		}
+
+		String[] folderNameArray = rootFolder.list();
+		Set<String> folderNames = new HashSet<>();
+		if (folderNameArray != null) {
+			for (String folderName : folderNameArray) {
+				if (mNames.containsKey(folderName) || new File(rootFolder, folderName).isDirectory()) {
+					folderNames.add(folderName);
+				}
+			}
+		}
+		boolean changed = false;
+		for (String name : new ArrayList<>(mNames.keySet())) {
+			if (!folderNames.contains(name)) {
+				removeName(name);
+				changed = true;
+			}
+		}
+		for (String name : folderNames) {
+			if (!mNames.containsKey(name)) {
+				addName(name, new NameEntry());
+				changed = true;
+			}
+		}
+		if (changed || lastModified != mRootLastModified) {
+			mRootLastModified = lastModified;
+			store();
+		}
+	}
+
+	/**
+	 * Get the sorted list of names, sorting them if required.
+	 *
+	 * @return The sorted names.
+	 */
+	@NonNull
+	private List<String> getSortedNames() {
+		boolean sortByLastName = PreferenceUtil.getSharedPreferenceBoolean(R.string.key_sort_by_last_name);
+		if (mSortedNames != null && sortByLastName == mSortByLastName) {
+			return mSortedNames;
+		}
+
+		Collator collator = Collator.getInstance();
+		for (Map.Entry<String, NameEntry> nameEntry : mNames.entrySet()) {
+			NameEntry entry = nameEntry.getValue();
+			if (entry.mCollationKey == null || sortByLastName != mSortByLastName) {
+				entry.mCollationKey = collator.getCollationKey(getNameForSorting(nameEntry.getKey(), sortByLastName));
+			}
+		}
+		List<String> sortedNames = new ArrayList<>(mNames.keySet());
+		Collections.sort(sortedNames, new Comparator<String>() {
+			@Override
+			public int compare(final String name1, final String name2) {
+				return mNames.get(name1).mCollationKey.compareTo(mNames.get(name2).mCollationKey);
+			}
+		});
+
+		mSortPositions.clear();
+		for (int i = 0; i < sortedNames.size(); i++) {
+			mSortPositions.put(sortedNames.get(i), i);
+		}
+		mSortedNames = Collections.unmodifiableList(sortedNames);
+		mSortByLastName = sortByLastName;
+		mLastResult = null;
+		return mSortedNames;
+	}
+
+	/**
+	 * Helper method to return the name for sorting.
+	 *
+	 * @param name           The name.
+	 * @param sortByLastName Flag indicating if names should be sorted by last name.
+	 * @return The name for sorting.
+	 */
+	@NonNull
+	private static String getNameForSorting(@NonNull final String name, final boolean sortByLastName) {
+		if (sortByLastName) {
+			int index = name.lastIndexOf(' ');
+			if (index >= 0) {
+				String firstName = name.substring(0, index);
+				String lastName = name.substring(index + 1);
+				return lastName + " " + firstName;
+			}
+		}
+		return name;
+	}
+
+	/**
+	 * Check if a modification time is so recent that further modifications may not be visible.
+	 *
+	 * @param lastModified The modification time.
+	 * @return true if the modification time is recent.
+	 */
+	private static boolean isRecent(final long lastModified) {
+		return System.currentTimeMillis() - lastModified < MODIFICATION_TIME_GRANULARITY;
+	}
+
+	/**
+	 * Add a name to the catalogue and the name index.
+	 *
+	 * @param name  The name.
+	 * @param entry The catalogue entry of the name.
+	 */
+	private void addName(@NonNull final String name, @NonNull final NameEntry entry) {
+		mNames.put(name, entry);
+		mNameTrie.add(name);
+		mSortedNames = null;
+	}
+
+	/**
+	 * Remove a name from the catalogue and the name index.
+	 *
+	 * @param name The name.
+	 */
+	private void removeName(@NonNull final String name) {
+		mNames.remove(name);
+		mNameTrie.remove(name);
+		mSortedNames = null;
+	}
+
+	/**
+	 * Clear the catalogue.
+	 */
+	private void clear() {
+		mNames.clear();
+		mNameTrie.clear();
+		mSortedNames = null;
+		mRootLastModified = 0;
+	}
+
+	/**
+	 * Get the file storing the catalogue.
+	 *
+	 * @return The catalogue file.
+	 */
+	@NonNull
+	private static File getCatalogueFile() {
+		return new File(Application.getAppContext().getCacheDir(), CATALOGUE_FILE_NAME);
+	}
+
+	/**
+	 * Load the catalogue from the catalogue file, if it belongs to the current eye photo folder.
+	 */
+	private void load() {
+		File catalogueFile = getCatalogueFile();
+		if (!catalogueFile.exists() || mRootFolder == null) {
+			return;
+		}
+		try (BufferedReader reader =
+					 new BufferedReader(new InputStreamReader(new FileInputStream(catalogueFile), StandardCharsets.UTF_8))) {
+			String[] header = reader.readLine().split(SEPARATOR);
+			if (!header[0].equals(mRootFolder.getAbsolutePath())) {
+				return;
+			}
+			long rootLastModified = Long.parseLong(header[1]);
+
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] fields = line.split(SEPARATOR);
+				NameEntry entry = new NameEntry();
+				entry.mLastModified = Long.parseLong(fields[1]);
+				if (entry.mLastModified != 0) {
+					entry.mFileNames = Arrays.copyOfRange(fields, 2, fields.length);
+				}
+				addName(fields[0], entry);
+			}
+			mRootLastModified = rootLastModified;
+		}
+		catch (IOException | RuntimeException e) {
+			Log.w(TAG, "Could not read photo catalogue", e);
+			clear();
+		}
+	}
+
+	/**
+	 * Store the catalogue in the catalogue file in the background.
+	 */
+	private void store() {
+		if (mRootFolder == null) {
+			return;
+		}
+		StringBuilder builder = new StringBuilder();
+		builder.append(mRootFolder.getAbsolutePath()).append(SEPARATOR).append(mRootLastModified).append('\n');
+		for (Map.Entry<String, NameEntry> nameEntry : mNames.entrySet()) {
+			NameEntry entry = nameEntry.getValue();
+			builder.append(nameEntry.getKey()).append(SEPARATOR).append(entry.mFileNames == null ? 0 : entry.mLastModified);
+			if (entry.mFileNames != null) {
+				for (String fileName : entry.mFileNames) {
+					builder.append(SEPARATOR).append(fileName);
+				}
+			}
+			builder.append('\n');
+		}
+		final String content = builder.toString();
+
+		EXECUTOR.execute(new Runnable() {
+			@Override
+			public void run() {
+				File catalogueFile = getCatalogueFile();
+				File tempFile = new File(catalogueFile.getParentFile(), CATALOGUE_FILE_NAME + ".tmp");
+				try (BufferedWriter writer =
+							 new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tempFile), StandardCharsets.UTF_8))) {
+					writer.write(content);
+				}
+				catch (IOException e) {
+					Log.w(TAG, "Could not store photo catalogue", e);
+					return;
+				}
+				if (!tempFile.renameTo(catalogueFile)) {
+					Log.w(TAG, "Could not store photo catalogue");
+				}
+			}
+		});
+	}
+
+	/**
+	 * The catalogue entry of a name.
+	 */
+	private static final class NameEntry {
+		/**
+		 * The modification time of the folder when it was last listed.
+		 */
+		private long mLastModified = 0;
+		/**
+		 * The names of the photo files in the folder, or null if the folder has not yet been listed.
+		 */
+		@Nullable
+		private String[] mFileNames = null;
+		/**
+		 * The collation key of the name for sorting, or null if not yet determined.
+		 */
+		@Nullable
+		private CollationKey mCollationKey = null;
+	}
+}
@@ -0,0 +1,534 @@
+package de.jeisfeld.augendiagnoselib.util.imagefile;
+
+import android.graphics.Bitmap;
+import android.graphics.Bitmap.CompressFormat;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Matrix;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.util.Log;
+import android.util.LruCache;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.exifinterface.media.ExifInterface;
+import de.jeisfeld.augendiagnoselib.Application;
+
+/**
+ * A pyramid of image tiles for deep zoom into an image file. Level 0 contains the image in full resolution, and each
+ * further level halves the resolution. Tiles are created lazily from the image file, stored on disk in the cache
+ * folder, and kept in a memory cache shared by all pyramids. Loading of tiles happens in the background and may be
+ * cancelled if the tiles are no longer visible.
+ */
+public final class TilePyramid {
+	/**
+	 * The size of the tiles in pixels.
+	 */
+	private static final int TILE_SIZE = 256;
+	/**
+	 * The maximum size of the tile folder on disk in bytes.
+	 */
+	private static final long DISK_CACHE_SIZE = 100L * 1024 * 1024; // MAGIC_NUMBER
+	/**
+	 * The quality of the tiles stored on disk.
+	 */
+	private static final int JPEG_QUALITY = 90;
+	/**
+	 * The number of threads loading tiles.
+	 */
+	private static final int LOADER_COUNT = 2;
+	/**
+	 * The number of bytes per kilobyte.
+	 */
+	private static final int KILOBYTE = 1024;
+	/**
+	 * The name of the tile folder within the cache folder.
+	 */
+	private static final String TILE_FOLDER = "tiles";
+	/**
+	 * The tag for logging.
+	 */
+	private static final String TAG = Application.TAG + ".TP";
+
+	/**
+	 * The tiles of all pyramids, by image file version, level and position. Sizes are counted in kilobytes.
+	 */
+	private static final LruCache<String, Bitmap> TILE_CACHE =
+			new LruCache<String, Bitmap>(CacheBudget.PYRAMID_TILES.getMaxSizeKb()) {
+				@Override
+				protected int sizeOf(final String key, final Bitmap value) {
+					return Math.max(1, value.getAllocationByteCount() / KILOBYTE);
+				}
+			};
+	/**
+	 * The executor loading the tiles.
+	 */
+	private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(LOADER_COUNT);
+
+	/**
+	 * The path of the image file.
+	 */
+	@NonNull
+	private final String mPath;
+	/**
+	 * The folder where the tiles of this image are stored.
+	 */
+	@NonNull
+	private final File mTileFolder;
+	/**
+	 * The prefix of the memory cache keys of the tiles, identifying the version of the image file by path, modification
+	 * date and size.
+	 */
+	@NonNull
+	private final String mKeyPrefix;
+	/**
+	 * The decoder of the image file.
+	 */
+	@NonNull
+	private final BitmapRegionDecoder mDecoder;
+	/**
+	 * The width of the stored image, without rotation.
+	 */
+	private final int mRawWidth;
+	/**
+	 * The height of the stored image, without rotation.
+	 */
+	private final int mRawHeight;
+	/**
+	 * The EXIF orientation in which the image is displayed.
+	 */
+	private volatile int mOrientation;
+	/**
+	 * The highest level, on which the image fits into one tile.
+	 */
+	private final int mMaxLevel;
+	/**
+	 * The tiles currently being loaded, by key.
+	 */
+	private final Map<String, Future<?>> mPendingTiles = new HashMap<>();
+
+	/**
+	 * Create a tile pyramid for an image file. As this opens the image file, it should not be called in the UI thread.
+	 *
+	 * @param path        The path of the image file.
+	 * @param orientation The EXIF orientation in which the image is displayed. If null, it is read from the file.
+	 * @throws IOException thrown if the file cannot be decoded.
+	 */
+	public TilePyramid(@NonNull final String path, @Nullable final Short orientation) throws IOException {
+		mPath = path;
+		mDecoder = BitmapRegionDecoder.newInstance(path, false);
+		mRawWidth = mDecoder.getWidth();
+		mRawHeight = mDecoder.getHeight();
+		int exifOrientation = orientation == null ? ImageUtil.getExifOrientation(path) : orientation;
+		mOrientation = ImageUtil.convertExifOrientationToRotation(exifOrientation) == 0 ? ExifInterface.ORIENTATION_NORMAL : exifOrientation;
+
+		int maxLevel = 0;
+		while (Math.max(mRawWidth, mRawHeight) > TILE_SIZE << maxLevel) {
+			maxLevel++;
+		}
+		mMaxLevel = maxLevel;
+
+		File file = new File(path);
+		long lastModified = file.lastModified();
+		long length = file.length();
+		mKeyPrefix = path + "|" + lastModified + "|" + length;
+		mTileFolder = new File(getTileBaseFolder(),
+				Integer.toHexString(path.hashCode()) + "_" + Long.toHexString(lastModified) + "_" + Long.toHexString(length));
+		if (mTileFolder.exists()) {
+			// noinspection ResultOfMethodCallIgnored
+			mTileFolder.setLastModified(System.currentTimeMillis());
+		}
+		else {
+			trimDiskCache();
+			// noinspection ResultOfMethodCallIgnored
+			mTileFolder.mkdirs();
+		}
+	}
+
+	/**
+	 * Get the path of the image file.
+	 *
+	 * @return The path.
+	 */
+	@NonNull
+	public String getPath() {
+		return mPath;
+	}
+
+	/**
+	 * Rotate the displayed image. The tiles stay valid, as they refer to the stored image.
+	 *
+	 * @param rotationAngle The EXIF style rotation angle.
+	 */
+	public void rotate(final short rotationAngle) {
+		mOrientation = ImageUtil.getRotatedExifAngle((short) mOrientation, rotationAngle);
+	}
+
+	/**
+	 * Get the width of the displayed image in full resolution.
+	 *
+	 * @return The width.
+	 */
+	public int getWidth() {
+		return isRotatedByQuarter() ? mRawHeight : mRawWidth;
+	}
+
+	/**
+	 * Get the height of the displayed image in full resolution.
+	 *
+	 * @return The height.
+	 */
+	public int getHeight() {
+		return isRotatedByQuarter() ? mRawWidth : mRawHeight;
+	}
+
+	/**
+	 * Check if the displayed image is rotated by 90 or 270 degrees, so that width and height are swapped.
+	 *
+	 * @return true if width and height are swapped.
+	 */
+	private boolean isRotatedByQuarter() {
+		return ImageUtil.convertExifOrientationToRotation(mOrientation) % 180 != 0; // MAGIC_NUMBER
+	}
+
+	/**
+	 * Get the matrix mapping the stored image to the displayed image.
+	 *
+	 * @return The matrix.
+	 */
+	@NonNull
+	private Matrix getRawToDisplay() {
+		return ImageUtil.getOrientationMatrix(mOrientation, mRawWidth, mRawHeight);
+	}
+
+	/**
+	 * Get the level of the pyramid which should be used for a scale.
+	 *
+	 * @param scale The number of displayed pixels per image pixel in full resolution.
+	 * @return The level providing at least the required resolution.
+	 */
+	public int getLevel(final float scale) {
+		int level = 0;
+		while (level < mMaxLevel && scale * (2 << level) <= 1) {
+			level++;
+		}
+		return level;
+	}
+
+	/**
+	 * Get the tiles of a level which cover a part of the displayed image.
+	 *
+	 * @param level       The level.
+	 * @param displayRect The part of the displayed image in full resolution coordinates.
+	 * @return The tiles.
+	 */
+	@NonNull
+	public List<Tile> getTiles(final int level, @NonNull final RectF displayRect) {
+		Matrix displayToRaw = new Matrix();
+		getRawToDisplay().invert(displayToRaw);
+		RectF rawRect = new RectF();
+		displayToRaw.mapRect(rawRect, displayRect);
+
+		int tileExtent = TILE_SIZE << level;
+		int minColumn = Math.max(0, (int) Math.floor(rawRect.left / tileExtent));
+		int maxColumn = Math.min((mRawWidth - 1) / tileExtent, (int) Math.floor(rawRect.right / tileExtent));
+		int minRow = Math.max(0, (int) Math.floor(rawRect.top / tileExtent));
+		int maxRow = Math.min((mRawHeight - 1) / tileExtent, (int) Math.floor(rawRect.bottom / tileExtent));
+
+		List<Tile> tiles = new ArrayList<>();
+		for (int row = minRow; row <= maxRow; row++) {
+			for (int column = minColumn; column <= maxColumn; column++) {
+				tiles.add(new Tile(level, column, row));
+			}
+		}
+		return tiles;
+	}
+
+	/**
+	 * Get a tile from the memory cache.
+	 *
+	 * @param tile The tile.
+	 * @return The bitmap of the tile, or null if it is not loaded.
+	 */
+	@Nullable
+	public Bitmap getCachedTile(@NonNull final Tile tile) {
+		return TILE_CACHE.get(getKey(tile));
+	}
+
+	/**
+	 * Get a tile from the memory cache, or load it synchronously if it is not cached. As this may decode the image file,
+	 * it should be used only if the tile is required immediately.
+	 *
+	 * @param tile The tile.
+	 * @return The bitmap of the tile, or null if it cannot be loaded.
+	 */
+	@Nullable
+	public Bitmap getTile(@NonNull final Tile tile) {
+		String key = getKey(tile);
+		Bitmap bitmap = TILE_CACHE.get(key);
+		if (bitmap == null) {
+			bitmap = loadTile(tile);
+			if (bitmap != null) {
+				TILE_CACHE.put(key, bitmap);
+			}
+		}
+		return bitmap;
+	}
+
+	/**
+	 * Get the matrix for drawing a tile.
+	 *
+	 * @param tile          The tile.
+	 * @param bitmap        The bitmap of the tile.
+	 * @param displayMatrix The matrix mapping the displayed image in full resolution to the target.
+	 * @return The matrix mapping the bitmap of the tile to the target.
+	 */
+	@NonNull
+	public Matrix getTileMatrix(@NonNull final Tile tile, @NonNull final Bitmap bitmap, @NonNull final Matrix displayMatrix) {
+		Rect rawRect = getRawRect(tile);
+		Matrix matrix = new Matrix();
+		matrix.setScale((float) rawRect.width() / bitmap.getWidth(), (float) rawRect.height() / bitmap.getHeight());
+		matrix.postTranslate(rawRect.left, rawRect.top);
+		matrix.postConcat(getRawToDisplay());
+		matrix.postConcat(displayMatrix);
+		return matrix;
+	}
+
+	/**
+	 * Load tiles in the background. Pending loads of other tiles of this pyramid are cancelled.
+	 *
+	 * @param tiles    The tiles to be loaded.
+	 * @param listener A listener called whenever a tile has been loaded. It is called in the background thread.
+	 */
+	public void requestTiles(@NonNull final List<Tile> tiles, @Nullable final Runnable listener) {
+		Set<String> keys = new HashSet<>();
+		for (Tile tile : tiles) {
+			keys.add(getKey(tile));
+		}
+
+		synchronized (mPendingTiles) {
+			Iterator<Entry<String, Future<?>>> iterator = mPendingTiles.entrySet().iterator();
+			while (iterator.hasNext()) {
+				Entry<String, Future<?>> entry = iterator.next();
+				if (!keys.contains(entry.getKey())) {
+					entry.getValue().cancel(false);
+					iterator.remove();
+				}
+			}
+
+			for (final Tile tile : tiles) {
+				final String key = getKey(tile);
+				if (!mPendingTiles.containsKey(key) && TILE_CACHE.get(key) == null) {
+					mPendingTiles.put(key, EXECUTOR.submit(new Runnable() {
+						@Override
+						public void run() {
+							Bitmap bitmap = loadTile(tile);
+							synchronized (mPendingTiles) {
+								mPendingTiles.remove(key);
+							}
+							if (bitmap != null) {
+								TILE_CACHE.put(key, bitmap);
+								if (listener != null) {
+									listener.run();
+								}
+							}
+						}
+					}));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Cancel all pending loads of tiles of this pyramid.
+	 */
+	public void cancelRequests() {
+		requestTiles(new ArrayList<Tile>(), null);
+	}
+
+	/**
+	 * Cancel all pending loads and release the decoder. Tiles remain in the caches.
+	 */
+	public void release() {
+		cancelRequests();
+		mDecoder.recycle();
+	}
+
+	/**
+	 * Release memory of the tile cache. The tiles remain stored on disk.
+	 *
+	 * @param releaseAll If true, all tiles are released. Otherwise, the cache is trimmed to half of its maximum size.
+	 */
+	public static void trimMemory(final boolean releaseAll) {
+		if (releaseAll) {
+			TILE_CACHE.evictAll();
+		}
+		else {
+			TILE_CACHE.trimToSize(TILE_CACHE.maxSize() / 2);
+		}
+	}
+
+	/**
+	 * Load a tile from disk, or decode it from the image file if it is not yet stored.
+	 *
+	 * @param tile The tile.
+	 * @return The bitmap of the tile.
+	 */
+	@Nullable
+	private Bitmap loadTile(@NonNull final Tile tile) {
+		File tileFile = new File(mTileFolder, tile.mLevel + "_" + tile.mColumn + "_" + tile.mRow + ".jpg");
+		if (tileFile.exists()) {
+			Bitmap bitmap = BitmapFactory.decodeFile(tileFile.getAbsolutePath());
+			if (bitmap != null) {
+				return bitmap;
+			}
+		}
+
+		BitmapFactory.Options options = new BitmapFactory.Options();
+		options.inSampleSize = 1 << tile.mLevel;
+		Bitmap bitmap;
+		try {
+			bitmap = mDecoder.decodeRegion(getRawRect(tile), options);
+		}
+		catch (IllegalArgumentException | IllegalStateException e) {
+			// decoder might have been released in parallel.
+			Log.w(TAG, "Failed to decode tile of " + mPath + ": " + e.getMessage());
+			return null;
+		}
+		if (bitmap == null) {
+			return null;
+		}
+
+		// Write to temporary file first, so that parallel readers never see incomplete tiles.
+		File tempFile = new File(mTileFolder, tileFile.getName() + ".tmp" + Thread.currentThread().getId());
+		try (FileOutputStream stream = new FileOutputStream(tempFile)) {
+			bitmap.compress(CompressFormat.JPEG, JPEG_QUALITY, stream);
+		}
+		catch (IOException e) {
+			Log.w(TAG, "Failed to store tile of " + mPath + ": " + e.getMessage());
+		}
+		if (!tempFile.renameTo(tileFile)) {
+			// noinspection ResultOfMethodCallIgnored
+			tempFile.delete();
+		}
+		return bitmap;
+	}
+
+	/**
+	 * Get the area of a tile in the stored image.
+	 *
+	 * @param tile The tile.
+	 * @return The area.
+	 */
+	@NonNull
+	private Rect getRawRect(@NonNull final Tile tile) {
+		int tileExtent = TILE_SIZE << tile.mLevel;
+		return new Rect(tile.mColumn * tileExtent, tile.mRow * tileExtent,
+				Math.min((tile.mColumn + 1) * tileExtent, mRawWidth), Math.min((tile.mRow + 1) * tileExtent, mRawHeight));
+	}
+
+	/**
+	 * Get the cache key of a tile.
+	 *
+	 * @param tile The tile.
+	 * @return The key.
+	 */
+	@NonNull
+	private String getKey(@NonNull final Tile tile) {
+		return mKeyPrefix + "|" + tile.mLevel + "|" + tile.mColumn + "|" + tile.mRow;
+	}
+
+	/**
+	 * Get the folder containing the tile folders of all images.
+	 *
+	 * @return The folder.
+	 */
+	@NonNull
+	private static File getTileBaseFolder() {
+		return new File(Application.getAppContext().getCacheDir(), TILE_FOLDER);
+	}
+
+	/**
+	 * Delete the least recently used tile folders if the tiles on disk exceed the maximum size.
+	 */
+	private static void trimDiskCache() {
+		File[] folders = getTileBaseFolder().listFiles();
+		if (folders == null) {
+			return;
+		}
+		Arrays.sort(folders, new Comparator<File>() {
+			@Override
+			public int compare(final File file1, final File file2) {
+				return Long.compare(file2.lastModified(), file1.lastModified());
+			}
+		});
+
+		long totalSize = 0;
+		for (File folder : folders) {
+			File[] tileFiles = folder.listFiles();
+			if (tileFiles == null) {
+				continue;
+			}
+			for (File tileFile : tileFiles) {
+				totalSize += tileFile.length();
+			}
+			if (totalSize > DISK_CACHE_SIZE) {
+				for (File tileFile : tileFiles) {
+					// noinspection ResultOfMethodCallIgnored
+					tileFile.delete();
+				}
+				// noinspection ResultOfMethodCallIgnored
+				folder.delete();
+			}
+		}
+	}
+
+	/**
+	 * A tile of the pyramid.
+	 */
+	public static final class Tile {
+		/**
+		 * The level of the tile.
+		 */
+		private final int mLevel;
+		/**
+		 * The column of the tile.
+		 */
+		private final int mColumn;
+		/**
+		 * The row of the tile.
+		 */
+		private final int mRow;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param level  The level of the tile.
+		 * @param column The column of the tile.
+		 * @param row    The row of the tile.
+		 */
+		private Tile(final int level, final int column, final int row) {
+			mLevel = level;
+			mColumn = column;
+			mRow = row;
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package de.jeisfeld.irisdetection;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Adapter providing an AWT image to the detection, used by the regression suite and the benchmarks. Scaling is done by
+ * nearest neighbour, as on the other platforms.
+ */
+public final class AwtDetectionImage implements DetectionImage {
+	/**
+	 * The image.
+	 */
+	private final BufferedImage mImage;
+
+	/**
+	 * Create the adapter for an image.
+	 *
+	 * @param image The image.
+	 */
+	public AwtDetectionImage(final BufferedImage image) {
+		mImage = image;
+	}
+
+	@Override
+	public int getWidth() {
+		return mImage.getWidth();
+	}
+
+	@Override
+	public int getHeight() {
+		return mImage.getHeight();
+	}
+
+	@Override
+	public ArgbRaster[] getScaledRasters(final int[] maxSizes) {
+		int width = mImage.getWidth();
+		int height = mImage.getHeight();
+		ArgbRaster[] rasters = new ArgbRaster[maxSizes.length];
+		for (int i = 0; i < maxSizes.length; i++) {
+			int maxSize = maxSizes[i];
+			if (width <= maxSize && height <= maxSize) {
+				rasters[i] = getRegionRaster(0, 0, width, height);
+				continue;
+			}
+			int targetWidth = width > height ? maxSize : width * maxSize / height;
+			int targetHeight = width > height ? height * maxSize / width : maxSize;
+			int[] pixels = new int[targetWidth * targetHeight];
+			for (int y = 0; y < targetHeight; y++) {
+				for (int x = 0; x < targetWidth; x++) {
+					pixels[y * targetWidth + x] = mImage.getRGB(x * width / targetWidth, y * height / targetHeight);
+				}
+			}
+			rasters[i] = new ArgbRaster(targetWidth, targetHeight, pixels);
+		}
+		return rasters;
+	}
+
+	@Override
+	public ArgbRaster getRegionRaster(final int left, final int top, final int right, final int bottom) {
+		int width = right - left;
+		int height = bottom - top;
+		int[] pixels = mImage.getRGB(left, top, width, height, null, 0, width);
+		return new ArgbRaster(width, height, pixels);
+	}
+}
@@ -0,0 +1,92 @@
+package de.jeisfeld.irisdetection;
+
+/**
+ * A raster of pixels in ARGB format, stored row by row.
+ */
+public final class ArgbRaster {
+	/**
+	 * The width of the raster.
+	 */
+	private final int mWidth;
+	/**
+	 * The height of the raster.
+	 */
+	private final int mHeight;
+	/**
+	 * The pixels, stored row by row.
+	 */
+	private final int[] mPixels;
+
+	/**
+	 * Create a raster.
+	 *
+	 * @param width The width of the raster.
+	 * @param height The height of the raster.
+	 * @param pixels The pixels in ARGB format, stored row by row.
+	 */
+	public ArgbRaster(final int width, final int height, final int[] pixels) {
+		if (pixels.length < width * height) {
+			throw new IllegalArgumentException("Pixel array of size " + pixels.length + " is too small for raster " + width + "x" + height);
+		}
+		mWidth = width;
+		mHeight = height;
+		mPixels = pixels;
+	}
+
+	/**
+	 * Get the width of the raster.
+	 *
+	 * @return The width.
+	 */
+	public int getWidth() {
+		return mWidth;
+	}
+
+	/**
+	 * Get the height of the raster.
+	 *
+	 * @return The height.
+	 */
+	public int getHeight() {
+		return mHeight;
+	}
+
+	/**
+	 * Get the pixels of the raster, stored row by row.
+	 *
+	 * @return The pixels.
+	 */
+	public int[] getPixels() {
+		return mPixels;
+	}
+
+	/**
+	 * Get the red component of an ARGB color.
+	 *
+	 * @param color The color.
+	 * @return The red component (in the interval [0,255]).
+	 */
+	public static int red(final int color) {
+		return (color >> 16) & 0xFF; // MAGIC_NUMBER
+	}
+
+	/**
+	 * Get the green component of an ARGB color.
+	 *
+	 * @param color The color.
+	 * @return The green component (in the interval [0,255]).
+	 */
+	public static int green(final int color) {
+		return (color >> 8) & 0xFF; // MAGIC_NUMBER
+	}
+
+	/**
+	 * Get the blue component of an ARGB color.
+	 *
+	 * @param color The color.
+	 * @return The blue component (in the interval [0,255]).
+	 */
+	public static int blue(final int color) {
+		return color & 0xFF; // MAGIC_NUMBER
+	}
+}
@@ -0,0 +1,46 @@
+package de.jeisfeld.irisdetection;
+
+import java.io.IOException;
+
+/**
+ * An image on which pupil and iris are detected. Implemented by the platform specific adapters, which provide the pixels as
+ * ARGB rasters.
+ */
+public interface DetectionImage {
+	/**
+	 * Get the width of the image in full resolution.
+	 *
+	 * @return The width.
+	 */
+	int getWidth();
+
+	/**
+	 * Get the height of the image in full resolution.
+	 *
+	 * @return The height.
+	 */
+	int getHeight();
+
+	/**
+	 * Get the image downscaled to several sizes. Each raster has the aspect ratio of the image, with the bigger dimension equal
+	 * to the given size. Images smaller than the given size are not enlarged. Implementations should decode the image only once
+	 * for all sizes.
+	 *
+	 * @param maxSizes The sizes, in increasing order.
+	 * @return The rasters for these sizes.
+	 * @throws IOException thrown if the image cannot be read.
+	 */
+	ArgbRaster[] getScaledRasters(int[] maxSizes) throws IOException;
+
+	/**
+	 * Get a region of the image in full resolution.
+	 *
+	 * @param left The x coordinate of the left end of the region (inclusive).
+	 * @param top The y coordinate of the upper end of the region (inclusive).
+	 * @param right The x coordinate of the right end of the region (exclusive).
+	 * @param bottom The y coordinate of the lower end of the region (exclusive).
+	 * @return The region.
+	 * @throws IOException thrown if the image cannot be read.
+	 */
+	ArgbRaster getRegionRaster(int left, int top, int right, int bottom) throws IOException;
+}
@@ -0,0 +1,1674 @@
+package de.jeisfeld.irisdetection;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Class that serves to detect the pupil and iris within an eye photo. The detection works on plain ARGB rasters, so that it
+ * can be used on any platform providing a {@link DetectionImage}. Brightnesses are normalised to the interval [0,2], in which
+ * the constants of the detection have been tuned.
+ */
+public final class PupilAndIrisDetector {
+	/**
+	 * The resolution of the image when searching for a point within the pupil.
+	 */
+	private static final int[] PUPIL_SEARCH_RESOLUTIONS = {100, 200, 600};
+	/**
+	 * The size of the maximum change distance from one zone (pupil/iris/outer) to the next, relative to the image size.
+	 */
+	private static final float MAX_LEAP_WIDTH = 0.05f;
+	/**
+	 * The minimum brightness difference accepted as a leap.
+	 */
+	private static final float MIN_LEAP_DIFF = 0.05f;
+	/**
+	 * The minimum pupil radius, relative to the image size.
+	 */
+	private static final float MIN_PUPIL_RADIUS = 0.04f;
+	/**
+	 * The minimum distance between iris and pupil, relative to the image size.
+	 */
+	private static final float MIN_IRIS_PUPIL_DISTANCE = 0.1f;
+	/**
+	 * The maximum steps of position refinement that should be done at each resolution.
+	 */
+	private static final int MAX_REFINEMENT_STEPS = 5;
+	/**
+	 * The brightness of the pupil assumed when calculating the leaps.
+	 */
+	private static final float ASSUMED_PUPIL_BRIGHTNESS = 0.3f;
+	/**
+	 * The maximum value of a color byte.
+	 */
+	private static final double MAX_BYTE_VALUE = 255.0;
+	/**
+	 * The minimum white quota expected outside the iris.
+	 */
+	private static final float MIN_WHITE_QUOTA = 0.3f;
+	/**
+	 * The secondary minimum white quota expected outside the iris.
+	 */
+	private static final float MIN_WHITE_QUOTA2 = 0.7f;
+	/**
+	 * The minimum black quota expected within the pupil.
+	 */
+	private static final float MIN_BLACK_QUOTA = 0.7f;
+	/**
+	 * The maximum black quota expected outside the pupil.
+	 */
+	private static final float MAX_BLACK_QUOTA = 0.3f;
+	/**
+	 * The vertical range where iris boundary points should be searched for.
+	 */
+	private static final float IRIS_BOUNDARY_SEARCH_RANGE = 0.7f;
+	/**
+	 * The uncertainty of the positions of the iris boundary points.
+	 */
+	private static final float IRIS_BOUNDARY_UNCERTAINTY_FACTOR = 0.2f;
+	/**
+	 * The minimum range considered when determining the iris boundary.
+	 */
+	private static final float IRIS_BOUNDARY_MIN_RANGE = 0.02f;
+	/**
+	 * Factor by which the range is changed with each retry after a search failure.
+	 */
+	private static final float IRIS_BOUNDARY_RETRY_FACTOR = 0.7f;
+	/**
+	 * The quota of points that are allowed to be too bright in the iris or too dark outside the iris.
+	 */
+	private static final float IRIS_BOUNDARY_WRONG_BRIGHTNESS_QUOTA = 0.2f;
+	/**
+	 * The quota of points around the center considered for determining the vertical center.
+	 */
+	private static final float IRIS_BOUNDARY_POINTS_CONSIDERED_FOR_YCENTER = 0.3f;
+	/**
+	 * The minimum number of boundary points needed to refine the iris position.
+	 */
+	private static final float IRIS_BOUNDARY_MIN_BOUNDARY_POINTS = 10;
+	/**
+	 * The quantile parameters used in the circle statistics. In fast mode, only these quantiles are determined.
+	 */
+	private static final float[] QUANTILE_PARAMETERS = {MAX_BLACK_QUOTA, MIN_BLACK_QUOTA, 1 - MIN_WHITE_QUOTA, 1 - MIN_WHITE_QUOTA2};
+	/**
+	 * The number of histogram bins used for determining quantiles in fast mode.
+	 */
+	private static final int HISTOGRAM_SIZE = 256;
+	/**
+	 * The minimum number of candidates evaluated by a task of the parallel search.
+	 */
+	private static final int CANDIDATES_PER_TASK = 16;
+	/**
+	 * The factor for converting a circle brightness (in the interval [0,2]) into a histogram bin.
+	 */
+	private static final float HISTOGRAM_SCALE = (HISTOGRAM_SIZE - 1) / 2f;
+	/**
+	 * The maximum brightness in units of color bytes.
+	 */
+	private static final int MAX_BRIGHTNESS_UNITS = 510;
+	/**
+	 * The number of float values which the brightness calculation can give for the same brightness in units of color bytes. They
+	 * differ from the brightness divided by 255 by -1 to +2 units in the last place.
+	 */
+	private static final int BRIGHTNESS_ROUNDING_VARIANTS = 4;
+	/**
+	 * The offset of the rounding variant within a brightness code.
+	 */
+	private static final int BRIGHTNESS_ROUNDING_OFFSET = 1;
+	/**
+	 * The brightnesses (in the interval [0,2]) for all brightness codes.
+	 */
+	private static final float[] BRIGHTNESS_VALUES = createBrightnessValues();
+
+	/**
+	 * The fork-join pool used for parallel evaluation of candidates. It is created once with one thread per processor and shared
+	 * by all detections, which limit their own parallelism by the number of tasks they submit.
+	 */
+	private static ForkJoinPool mForkJoinPool = null;
+
+	/**
+	 * The number of points on the boundaries of circles of sizes 0 - 2000.
+	 */
+	private static final int[] CIRCLE_SIZES = {1, 8, 12, 16, 32, 28, 40, 40, 48, 68, 56, 72, 68, 88, 88, 84, 112, 112, 112, 116,
+			112, 144, 140, 144, 144, 168, 164, 160, 184, 172, 200, 192, 188, 208, 224, 224, 228, 224, 248, 236,
+			264, 248, 264, 276, 264, 288, 276, 304, 304, 312, 316, 320, 344, 316, 336, 352, 340, 376, 336, 392,
+			380, 368, 400, 364, 440, 400, 424, 420, 416, 448, 428, 432, 480, 444, 472, 456, 488, 500, 472, 496,
+			492, 536, 512, 512, 516, 552, 544, 540, 536, 584, 556, 576, 568, 592, 580, 592, 600, 612, 664, 592,
+			640, 596, 664, 672, 620, 664, 656, 680, 692, 672, 720, 668, 704, 704, 716, 744, 728, 728, 724, 736,
+			776, 772, 768, 792, 760, 780, 776, 832, 788, 816, 800, 812, 848, 832, 856, 828, 880, 848, 844, 888,
+			896, 888, 876, 864, 936, 932, 920, 904, 944, 956, 912, 968, 916, 992, 960, 948, 992, 1008, 1008, 972,
+			976, 1048, 1004, 1048, 1008, 1048, 1052, 1016, 1064, 1076, 1088, 1088, 1020, 1112, 1096, 1088, 1116, 1088, 1152, 1116,
+			1144, 1128, 1152, 1148, 1144, 1144, 1172, 1192, 1184, 1180, 1168, 1232, 1192, 1220, 1216, 1240, 1236, 1256, 1216, 1280,
+			1228, 1248, 1288, 1260, 1312, 1248, 1304, 1292, 1328, 1344, 1276, 1320, 1352, 1324, 1376, 1296, 1392, 1372, 1320, 1432,
+			1356, 1424, 1384, 1376, 1380, 1448, 1440, 1412, 1432, 1448, 1444, 1456, 1448, 1488, 1460, 1456, 1472, 1492, 1520, 1496,
+			1488, 1524, 1496, 1536, 1556, 1536, 1576, 1512, 1564, 1536, 1608, 1572, 1584, 1568, 1596, 1624, 1608, 1624, 1612, 1624,
+			1656, 1596, 1688, 1648, 1664, 1644, 1624, 1728, 1700, 1696, 1688, 1676, 1736, 1680, 1736, 1732, 1720, 1776, 1716, 1728,
+			1816, 1760, 1780, 1728, 1816, 1788, 1768, 1808, 1824, 1852, 1792, 1832, 1844, 1864, 1848, 1820, 1840, 1872, 1896, 1860,
+			1848, 1960, 1876, 1936, 1840, 1992, 1924, 1856, 1960, 1948, 1976, 1944, 1908, 2024, 1944, 2000, 1956, 1944, 2096, 1956,
+			2040, 1992, 2040, 2028, 2016, 2056, 2076, 2056, 2056, 1996, 2144, 2080, 2072, 2076, 2072, 2160, 2076, 2128, 2120, 2144,
+			2148, 2104, 2192, 2132, 2192, 2168, 2120, 2180, 2184, 2240, 2188, 2168, 2248, 2188, 2256, 2200, 2256, 2244, 2200, 2304,
+			2252, 2304, 2272, 2272, 2276, 2280, 2320, 2308, 2296, 2352, 2292, 2352, 2264, 2424, 2348, 2344, 2360, 2364, 2384, 2368,
+			2376, 2420, 2392, 2400, 2364, 2416, 2488, 2432, 2452, 2392, 2480, 2484, 2464, 2440, 2476, 2496, 2440, 2496, 2516, 2496,
+			2584, 2444, 2568, 2528, 2552, 2548, 2480, 2664, 2492, 2616, 2552, 2556, 2664, 2536, 2600, 2612, 2592, 2688, 2556, 2656,
+			2656, 2600, 2684, 2616, 2760, 2636, 2640, 2680, 2660, 2744, 2696, 2688, 2740, 2704, 2768, 2708, 2768, 2720, 2744, 2748,
+			2712, 2880, 2756, 2800, 2728, 2832, 2764, 2824, 2840, 2844, 2832, 2784, 2812, 2904, 2840, 2856, 2820, 2872, 2920, 2876,
+			2936, 2808, 2976, 2932, 2848, 2944, 2908, 2992, 2896, 2876, 3024, 2944, 3040, 2924, 2960, 3024, 2932, 3016, 2968, 3024,
+			3052, 2976, 3088, 3004, 3088, 3048, 3008, 3116, 3048, 3048, 3084, 3096, 3112, 3044, 3096, 3080, 3184, 3116, 3088, 3144,
+			3172, 3176, 3120, 3128, 3204, 3176, 3200, 3100, 3272, 3200, 3180, 3224, 3128, 3336, 3196, 3216, 3256, 3244, 3288, 3200,
+			3272, 3340, 3248, 3328, 3244, 3288, 3304, 3260, 3368, 3296, 3384, 3356, 3288, 3360, 3388, 3392, 3360, 3328, 3388, 3376,
+			3416, 3372, 3424, 3408, 3416, 3412, 3440, 3488, 3420, 3424, 3400, 3476, 3552, 3432, 3496, 3476, 3472, 3504, 3452, 3592,
+			3480, 3576, 3492, 3536, 3608, 3492, 3608, 3480, 3572, 3608, 3568, 3624, 3588, 3608, 3584, 3508, 3736, 3648, 3624, 3620,
+			3568, 3776, 3604, 3672, 3640, 3736, 3668, 3648, 3664, 3772, 3688, 3712, 3676, 3768, 3736, 3744, 3764, 3672, 3800, 3764,
+			3752, 3744, 3856, 3756, 3792, 3816, 3804, 3848, 3776, 3788, 3896, 3832, 3856, 3820, 3896, 3848, 3828, 3912, 3848, 3960,
+			3900, 3840, 3896, 3924, 3944, 3928, 3888, 4028, 3944, 3952, 3916, 3976, 3984, 3956, 4000, 3976, 4032, 3964, 3976, 3984,
+			4084, 4024, 4024, 4016, 4116, 4040, 4088, 3996, 4096, 4080, 4052, 4136, 4056, 4184, 4084, 4048, 4128, 4140, 4176, 4104,
+			4136, 4172, 4128, 4240, 4108, 4232, 4192, 4124, 4200, 4200, 4272, 4172, 4192, 4232, 4212, 4328, 4256, 4216, 4332, 4168,
+			4296, 4244, 4360, 4312, 4248, 4292, 4296, 4352, 4324, 4304, 4312, 4372, 4336, 4384, 4320, 4412, 4344, 4408, 4308, 4464,
+			4416, 4376, 4436, 4392, 4440, 4380, 4464, 4416, 4484, 4488, 4384, 4456, 4524, 4512, 4512, 4380, 4584, 4440, 4568, 4492,
+			4432, 4624, 4500, 4576, 4600, 4520, 4588, 4536, 4544, 4628, 4544, 4640, 4548, 4640, 4624, 4544, 4668, 4632, 4664, 4628,
+			4616, 4688, 4688, 4692, 4608, 4672, 4732, 4672, 4664, 4732, 4736, 4696, 4768, 4652, 4760, 4784, 4732, 4800, 4696, 4832,
+			4732, 4728, 4824, 4804, 4832, 4768, 4732, 4936, 4800, 4856, 4788, 4856, 4912, 4796, 4928, 4848, 4880, 4884, 4800, 4928,
+			4908, 4968, 4872, 4840, 5036, 4896, 4968, 4900, 4984, 5008, 4868, 4984, 4984, 5008, 4988, 4928, 5064, 5004, 5064, 4976,
+			5000, 5092, 4968, 5032, 5052, 5168, 5048, 5012, 5064, 5104, 5136, 5044, 5064, 5184, 5092, 5144, 5024, 5136, 5212, 5112,
+			5200, 5028, 5280, 5192, 5176, 5204, 5120, 5264, 5124, 5232, 5264, 5172, 5256, 5152, 5216, 5348, 5224, 5328, 5172, 5320,
+			5272, 5304, 5260, 5304, 5328, 5308, 5320, 5320, 5308, 5368, 5296, 5376, 5316, 5360, 5408, 5308, 5480, 5328, 5392, 5348,
+			5416, 5480, 5356, 5440, 5384, 5440, 5516, 5328, 5592, 5372, 5520, 5472, 5412, 5608, 5456, 5480, 5460, 5504, 5592, 5468,
+			5528, 5560, 5544, 5524, 5536, 5592, 5596, 5560, 5576, 5476, 5680, 5600, 5576, 5540, 5712, 5664, 5540, 5696, 5656, 5632,
+			5676, 5568, 5768, 5676, 5728, 5640, 5596, 5776, 5664, 5768, 5684, 5752, 5736, 5684, 5744, 5768, 5832, 5700, 5720, 5856,
+			5732, 5816, 5760, 5800, 5844, 5752, 5880, 5748, 5928, 5808, 5796, 5856, 5864, 5832, 5932, 5768, 6024, 5820, 5920, 5832,
+			5928, 5996, 5848, 5928, 5876, 6056, 5904, 5916, 5944, 5976, 6016, 5932, 5968, 6040, 5980, 6088, 5888, 6024, 6004, 6008,
+			6104, 5932, 6168, 6008, 6000, 6132, 6024, 6192, 6012, 6056, 6168, 6036, 6136, 6088, 6128, 6148, 6040, 6208, 6116, 6216,
+			6176, 6056, 6164, 6240, 6224, 6196, 6128, 6264, 6164, 6216, 6192, 6272, 6236, 6232, 6168, 6284, 6304, 6264, 6304, 6164,
+			6304, 6344, 6268, 6296, 6304, 6316, 6304, 6296, 6432, 6380, 6344, 6280, 6292, 6464, 6344, 6416, 6332, 6424, 6432, 6292,
+			6488, 6392, 6408, 6420, 6408, 6496, 6436, 6528, 6392, 6420, 6576, 6384, 6536, 6436, 6504, 6584, 6420, 6536, 6592, 6472,
+			6588, 6432, 6624, 6524, 6512, 6640, 6524, 6632, 6608, 6528, 6580, 6680, 6624, 6540, 6592, 6664, 6648, 6644, 6592, 6760,
+			6604, 6672, 6616, 6728, 6732, 6624, 6760, 6644, 6776, 6728, 6644, 6712, 6728, 6800, 6756, 6616, 6904, 6764, 6752, 6768,
+			6760, 6820, 6800, 6840, 6796, 6808, 6792, 6804, 6840, 6944, 6808, 6876, 6840, 6880, 6860, 6864, 6912, 6944, 6884, 6832,
+			6936, 6900, 7024, 6840, 6844, 6984, 7024, 6952, 6988, 6920, 7008, 6948, 7008, 6960, 7104, 6964, 6952, 7016, 6956, 7160,
+			7016, 7024, 7004, 7104, 7088, 7012, 7080, 7176, 6980, 7168, 7016, 7192, 7116, 7064, 7160, 7036, 7232, 7168, 7096, 7172,
+			7128, 7248, 7108, 7104, 7312, 7108, 7256, 7176, 7216, 7332, 7160, 7192, 7252, 7216, 7256, 7224, 7332, 7272, 7296, 7236,
+			7256, 7328, 7384, 7300, 7248, 7376, 7292, 7384, 7288, 7316, 7448, 7240, 7368, 7380, 7368, 7480, 7260, 7408, 7464, 7392,
+			7468, 7336, 7496, 7404, 7416, 7384, 7484, 7592, 7424, 7424, 7492, 7512, 7464, 7460, 7496, 7552, 7520, 7500, 7408, 7696,
+			7468, 7600, 7472, 7560, 7588, 7600, 7640, 7524, 7608, 7616, 7500, 7704, 7616, 7616, 7604, 7480, 7816, 7572, 7696, 7640,
+			7688, 7740, 7576, 7704, 7692, 7776, 7656, 7636, 7816, 7672, 7776, 7700, 7656, 7864, 7660, 7800, 7728, 7856, 7812, 7680,
+			7840, 7812, 7792, 7840, 7684, 7952, 7808, 7800, 7892, 7784, 7928, 7836, 7848, 7848, 7904, 7932, 7840, 7840, 7940, 8000,
+			7848, 7936, 7940, 7936, 7960, 7844, 7960, 8008, 7924, 8112, 7864, 8064, 7916, 7992, 8088, 7932, 8136, 7872, 8064, 8132,
+			7920, 8168, 7972, 8016, 8176, 8004, 8128, 8024, 8144, 8132, 7992, 8144, 8196, 8176, 8080, 8048, 8188, 8120, 8256, 8060,
+			8224, 8176, 8192, 8180, 8096, 8352, 8164, 8136, 8240, 8204, 8336, 8184, 8248, 8268, 8144, 8312, 8236, 8328, 8320, 8288,
+			8292, 8160, 8464, 8308, 8352, 8232, 8316, 8368, 8344, 8384, 8316, 8376, 8376, 8308, 8488, 8392, 8352, 8420, 8312, 8496,
+			8364, 8456, 8424, 8380, 8520, 8400, 8504, 8484, 8496, 8480, 8396, 8552, 8504, 8528, 8444, 8400, 8624, 8548, 8512, 8496,
+			8672, 8484, 8488, 8600, 8516, 8696, 8520, 8548, 8688, 8584, 8656, 8532, 8560, 8840, 8524, 8688, 8496, 8736, 8708, 8592,
+			8696, 8716, 8648, 8720, 8628, 8792, 8664, 8712, 8700, 8656, 8872, 8700, 8744, 8704, 8784, 8732, 8728, 8816, 8836, 8816,
+			8736, 8808, 8868, 8816, 8816, 8780, 8888, 8784, 8804, 8928, 8784, 8984, 8788, 8792, 9000, 8916, 8952, 8864, 8824, 8996,
+			8840, 9040, 8844, 9024, 8920, 8900, 8944, 8912, 9104, 8916, 9048, 8920, 9004, 9096, 8960, 8984, 9060, 8856, 9176, 9004,
+			9112, 9072, 8992, 9060, 9008, 9200, 9148, 9080, 9032, 9116, 9088, 9208, 9008, 9212, 9088, 9144, 9140, 9168, 9208, 9152,
+			9116, 9144, 9296, 9132, 9288, 9096, 9236, 9264, 9128, 9232, 9236, 9328, 9280, 9116, 9432, 9104, 9360, 9244, 9224, 9424,
+			9236, 9320, 9288, 9316, 9400, 9272, 9272, 9412, 9376, 9384, 9244, 9440, 9416, 9296, 9396, 9344, 9496, 9404, 9400, 9368,
+			9464, 9516, 9384, 9384, 9484, 9480, 9448, 9372, 9528, 9448, 9544, 9500, 9416, 9664, 9436, 9584, 9432, 9584, 9508, 9520,
+			9600, 9556, 9592, 9544, 9476, 9680, 9576, 9648, 9516, 9648, 9648, 9580, 9616, 9664, 9624, 9620, 9592, 9664, 9700, 9720,
+			9648, 9568, 9852, 9592, 9800, 9660, 9704, 9808, 9636, 9696, 9792, 9792, 9812, 9648, 9744, 9764, 9840, 9760, 9696, 9884,
+			9768, 9848, 9772, 9928, 9800, 9772, 9872, 9784, 9904, 9828, 9888, 9840, 9868, 9928, 9824, 9896, 10044, 9832, 9968, 9756,
+			10008, 9976, 9804, 10072, 9896, 10064, 9900, 9968, 10000, 9980, 10040, 9888, 9992, 10140, 9952, 10048, 9956, 10056, 10080, 10000,
+			10100, 10064, 10080, 10036, 10056, 10088, 10124, 10112, 10040, 10112, 10164, 10104, 10176, 10028, 10280, 10088, 10072, 10196, 10152,
+			10304, 10092, 10168, 10152, 10156, 10328, 10200, 10160, 10308, 10160, 10240, 10172, 10352, 10232, 10288, 10220, 10264, 10384, 10236,
+			10312, 10216, 10296, 10364, 10304, 10312, 10420, 10304, 10304, 10236, 10464, 10376, 10320, 10380, 10352, 10440, 10300, 10440, 10464,
+			10456, 10428, 10328, 10416, 10492, 10512, 10360, 10348, 10624, 10408, 10520, 10404, 10528, 10544, 10420, 10544, 10480, 10624, 10524,
+			10376, 10608, 10436, 10664, 10504, 10432, 10836, 10440, 10704, 10492, 10568, 10728, 10484, 10648, 10648, 10576, 10740, 10488, 10744,
+			10684, 10600, 10632, 10608, 10804, 10648, 10648, 10668, 10672, 10816, 10660, 10736, 10720, 10760, 10692, 10760, 10768, 10844, 10712,
+			10696, 10760, 10844, 10776, 10808, 10708, 10904, 10688, 10844, 10904, 10848, 10928, 10708, 10800, 10784, 10972, 10976, 10784, 10920,
+			10884, 10840, 11040, 10748, 11064, 10888, 10840, 10980, 10904, 11088, 10868, 10920, 10976, 10876, 11120, 10896, 11008, 11028, 10872,
+			11120, 10932, 11112, 11064, 11040, 10980, 11008, 11104, 11028, 11040, 11144, 11052, 11072, 11040, 11224, 11116, 11088, 11096, 11028,
+			11216, 11120, 11160, 11092, 11120, 11248, 11068, 11224, 11200, 11200, 11212, 11040, 11352, 11220, 11240, 11112, 11156, 11384, 11200,
+			11256, 11212, 11192, 11408, 11204, 11272, 11328, 11288, 11332, 11176, 11384, 11332, 11248, 11416, 11220, 11464, 11360, 11328, 11300,
+			11416, 11360, 11356, 11400, 11368, 11392, 11428, 11424, 11480, 11340, 11432, 11392, 11380, 11616, 11400, 11480, 11348, 11600, 11512,
+			11428, 11544, 11424, 11584, 11412, 11488, 11624, 11468, 11616, 11496, 11584, 11524, 11512, 11640, 11508, 11600, 11640, 11468, 11616,
+			11696, 11632, 11612, 11448, 11808, 11620, 11712, 11608, 11616, 11700, 11592, 11744, 11548, 11792, 11720, 11588, 11704, 11808, 11760,
+			11724, 11640, 11784, 11716, 11776, 11680, 11824, 11796, 11704, 11784, 11724, 11968, 11736, 11792, 11780, 11808, 11856, 11860, 11808,
+			11944, 11764, 11856, 11840, 11920, 11964, 11728, 11856, 11860, 12024, 11992, 11792, 11916, 11968, 11936, 11844, 11944, 12048, 11916,
+			11960, 11928, 11976, 11988, 12048, 11968, 11956, 12080, 12032, 11992, 11956, 12104, 12104, 11948, 12008, 12080, 12068, 12128, 11960,
+			12192, 12020, 12192, 12104, 12012, 12296, 11992, 12176, 12028, 12112, 12296, 12060, 12184, 12232, 12072, 12324, 11952, 12328, 12196,
+			12184, 12168, 12140, 12384, 12160, 12200, 12268, 12264, 12264, 12292, 12184, 12352, 12224, 12308, 12168, 12408, 12348, 12240, 12336,
+			12260, 12376, 12368, 12288, 12316, 12472, 12328, 12292, 12408, 12440, 12392, 12300, 12296, 12544, 12356, 12520, 12384, 12432, 12412,
+			12408, 12472, 12380, 12584, 12456, 12404, 12472, 12512, 12528, 12476, 12344, 12656, 12452, 12528, 12592, 12560, 12564, 12480, 12608,
+			12492, 12640};
+
+	/**
+	 * The width of the image to be analyzed.
+	 */
+	private int mWidth;
+	/**
+	 * The height of the image to be analyzed.
+	 */
+	private int mHeight;
+	/**
+	 * The image to be analyzed.
+	 */
+	private DetectionImage mImage;
+	/**
+	 * The brightness planes of the image in the resolutions of PUPIL_SEARCH_RESOLUTIONS.
+	 */
+	private BrightnessPlane[] mPlanes = new BrightnessPlane[PUPIL_SEARCH_RESOLUTIONS.length];
+
+	/**
+	 * The way in which quantiles of circle brightnesses are determined.
+	 */
+	private QuantileMode mQuantileMode;
+
+	/**
+	 * The calibration of the brightness dependent constants.
+	 */
+	private Calibration mCalibration;
+
+	/**
+	 * The number of threads used for evaluating candidates.
+	 */
+	private int mParallelism;
+
+	/**
+	 * The horizontal center of the pupil (in the interval [0,1]).
+	 */
+	private float mPupilXCenter = 0;
+
+	/**
+	 * Get the horizontal center of the pupil (in the interval [0,1]).
+	 *
+	 * @return The horizontal center of the pupil (in the interval [0,1]).
+	 */
+	public float getPupilXCenter() {
+		return mPupilXCenter;
+	}
+
+	/**
+	 * The vertical center of the pupil (in the interval [0,1]).
+	 */
+	private float mPupilYCenter = 0;
+
+	/**
+	 * Get the vertical center of the pupil (in the interval [0,1]).
+	 *
+	 * @return The vertical center of the pupil (in the interval [0,1]).
+	 */
+	public float getPupilYCenter() {
+		return mPupilYCenter;
+	}
+
+	/**
+	 * The radius of the pupil (in the interval [0,1], relative to the minimum of width and height).
+	 */
+	private float mPupilRadius = 0;
+
+	/**
+	 * Get the radius of the pupil (in the interval [0,1], relative to the minimum of width and height).
+	 *
+	 * @return The radius of the pupil (in the interval [0,1], relative to the minimum of width and height).
+	 */
+	public float getPupilRadius() {
+		return mPupilRadius;
+	}
+
+	/**
+	 * The horizontal center of the iris (in the interval [0,1]).
+	 */
+	private float mIrisXCenter = 0;
+
+	/**
+	 * Get the horizontal center of the iris (in the interval [0,1]).
+	 *
+	 * @return The horizontal center of the iris (in the interval [0,1]).
+	 */
+	public float getIrisXCenter() {
+		return mIrisXCenter;
+	}
+
+	/**
+	 * The vertical center of the iris (in the interval [0,1]).
+	 */
+	private float mIrisYCenter = 0;
+
+	/**
+	 * Get the vertical center of the iris (in the interval [0,1]).
+	 *
+	 * @return The vertical center of the iris (in the interval [0,1]).
+	 */
+	public float getIrisYCenter() {
+		return mIrisYCenter;
+	}
+
+	/**
+	 * The radius of the iris (in the interval [0,1], relative to the minimum of width and height).
+	 */
+	private float mIrisRadius = 0;
+
+	/**
+	 * Get the radius of the iris (in the interval [0,1], relative to the minimum of width and height).
+	 *
+	 * @return The radius of the iris (in the interval [0,1], relative to the minimum of width and height).
+	 */
+	public float getIrisRadius() {
+		return mIrisRadius;
+	}
+
+	/**
+	 * Create a detector for a certain image.
+	 *
+	 * @param image The image to be analyzed.
+	 * @throws IOException thrown if the image cannot be read.
+	 */
+	public PupilAndIrisDetector(final DetectionImage image) throws IOException {
+		this(image, QuantileMode.EXACT, 1);
+	}
+
+	/**
+	 * Create a detector for a certain image.
+	 *
+	 * @param image The image to be analyzed.
+	 * @param quantileMode The way in which quantiles of circle brightnesses are determined.
+	 * @param parallelism The number of threads used for evaluating candidates. Values up to 1 mean sequential evaluation.
+	 * @throws IOException thrown if the image cannot be read.
+	 */
+	public PupilAndIrisDetector(final DetectionImage image, final QuantileMode quantileMode, final int parallelism) throws IOException {
+		this(image, quantileMode, parallelism, Calibration.FX);
+	}
+
+	/**
+	 * Create a detector for a certain image.
+	 *
+	 * @param image The image to be analyzed.
+	 * @param quantileMode The way in which quantiles of circle brightnesses are determined.
+	 * @param parallelism The number of threads used for evaluating candidates. Values up to 1 mean sequential evaluation.
+	 * @param calibration The calibration of the brightness dependent constants.
+	 * @throws IOException thrown if the image cannot be read.
+	 */
+	public PupilAndIrisDetector(final DetectionImage image, final QuantileMode quantileMode, final int parallelism,
+			final Calibration calibration) throws IOException {
+		this(image, quantileMode, parallelism, calibration, true);
+	}
+
+	/**
+	 * Create a detector for a certain image, optionally without running the detection. This allows to run the phases of the
+	 * detection separately.
+	 *
+	 * @param image The image to be analyzed.
+	 * @param quantileMode The way in which quantiles of circle brightnesses are determined.
+	 * @param parallelism The number of threads used for evaluating candidates. Values up to 1 mean sequential evaluation.
+	 * @param calibration The calibration of the brightness dependent constants.
+	 * @param detect Flag indicating if the detection should be run.
+	 * @throws IOException thrown if the image cannot be read.
+	 */
+	PupilAndIrisDetector(final DetectionImage image, final QuantileMode quantileMode, final int parallelism, final Calibration calibration,
+			final boolean detect) throws IOException {
+		mImage = image;
+		mWidth = image.getWidth();
+		mHeight = image.getHeight();
+		mQuantileMode = quantileMode;
+		mCalibration = calibration;
+		mParallelism = parallelism;
+
+		ArgbRaster[] rasters = image.getScaledRasters(PUPIL_SEARCH_RESOLUTIONS);
+		for (int i = 0; i < PUPIL_SEARCH_RESOLUTIONS.length; i++) {
+			mPlanes[i] = new BrightnessPlane(rasters[i]);
+			rasters[i] = null;
+		}
+
+		if (detect) {
+			detect();
+		}
+	}
+
+	/**
+	 * Run all phases of the detection.
+	 *
+	 * @throws IOException thrown if the image cannot be read.
+	 */
+	private void detect() throws IOException {
+		determineInitialParameterValues();
+		for (int i = 1; i < PUPIL_SEARCH_RESOLUTIONS.length; i++) {
+			int resolution = PUPIL_SEARCH_RESOLUTIONS[i];
+			refinePupilPosition(i);
+			if (resolution >= mWidth && resolution >= mHeight) {
+				break;
+			}
+		}
+		mPlanes = null;
+		refineIrisPosition();
+	}
+
+	/**
+	 * Find initial values of pupil center and pupil and iris radius.
+	 */
+	void determineInitialParameterValues() {
+		BrightnessPlane brightnessPlane = mPlanes[0];
+		int width = brightnessPlane.mWidth;
+		int height = brightnessPlane.mHeight;
+		List<PupilCenterInfo> pupilCenterInfoList = new ArrayList<>();
+
+		for (int x = width / 4; x < width * 3 / 4; x++) { // MAGIC_NUMBER
+			for (int y = height / 4; y < height * 3 / 4; y++) { // MAGIC_NUMBER
+				PupilCenterInfo pupilCenterInfo =
+						new PupilCenterInfo(brightnessPlane, x, y, PupilCenterInfo.Phase.INITIAL, mQuantileMode, mCalibration);
+				pupilCenterInfoList.add(pupilCenterInfo);
+			}
+		}
+
+		PupilCenterInfo bestPupilCenter = findBestPupilCenter(pupilCenterInfoList, 0, Integer.MAX_VALUE, 0);
+		if (bestPupilCenter != null) {
+			mPupilXCenter = (float) bestPupilCenter.mXCenter / width;
+			mPupilYCenter = (float) bestPupilCenter.mYCenter / height;
+			mPupilRadius = (float) bestPupilCenter.mPupilRadius / Math.max(width, height);
+			mIrisXCenter = mPupilXCenter;
+			mIrisYCenter = mPupilYCenter;
+			mIrisRadius = (float) bestPupilCenter.mIrisRadius / Math.max(width, height);
+		}
+	}
+
+	/**
+	 * Refine the pupil position based on the previously found position and a higher resolution.
+	 *
+	 * @param resolutionIndex The index of the resolution within PUPIL_SEARCH_RESOLUTIONS.
+	 */
+	void refinePupilPosition(final int resolutionIndex) {
+		int resolution = PUPIL_SEARCH_RESOLUTIONS[resolutionIndex];
+		BrightnessPlane brightnessPlane = mPlanes[resolutionIndex];
+		int width = brightnessPlane.mWidth;
+		int height = brightnessPlane.mHeight;
+		List<PupilCenterInfo> pupilCenterInfoList = new ArrayList<>();
+
+		int pupilXCenter = (int) Math.round(toPixels(mPupilXCenter, width));
+		int pupilYCenter = (int) Math.round(toPixels(mPupilYCenter, height));
+		int pupilRadius = (int) Math.round(toPixels(mPupilRadius, Math.max(width, height)));
+
+		boolean isStable = false;
+
+		for (int step = 0; step < MAX_REFINEMENT_STEPS && !isStable; step++) {
+			int firstNewCandidate = pupilCenterInfoList.size();
+			for (int x = pupilXCenter - 1; x <= pupilXCenter + 1; x++) {
+				for (int y = pupilYCenter - 1; y <= pupilYCenter + 1; y++) {
+					PupilCenterInfo pupilCenterInfo = new PupilCenterInfo(brightnessPlane, x, y, PupilCenterInfo.Phase.PUPIL_REFINEMENT,
+							mQuantileMode, mCalibration);
+					pupilCenterInfoList.add(pupilCenterInfo);
+				}
+			}
+
+			PupilCenterInfo bestPupilCenter = findBestPupilCenter(pupilCenterInfoList, firstNewCandidate,
+					(int) (pupilRadius + MAX_REFINEMENT_STEPS + MAX_LEAP_WIDTH * resolution), pupilRadius);
+
+			isStable = bestPupilCenter == null
+					|| (bestPupilCenter.mXCenter == pupilXCenter && bestPupilCenter.mYCenter == pupilYCenter
+					&& bestPupilCenter.mPupilRadius == pupilRadius);
+			if (bestPupilCenter != null) {
+				pupilXCenter = bestPupilCenter.mXCenter;
+				pupilYCenter = bestPupilCenter.mYCenter;
+				pupilRadius = bestPupilCenter.mPupilRadius;
+			}
+		}
+
+		mPupilXCenter = (float) pupilXCenter / width;
+		mPupilYCenter = (float) pupilYCenter / height;
+		mPupilRadius = (float) pupilRadius / Math.max(width, height);
+	}
+
+	/**
+	 * Evaluate pupil center candidates and determine the best one. The candidates are evaluated in parallel if a parallelism
+	 * bigger than 1 is configured, split into at most as many tasks as the parallelism. In case of equal leap values, the first
+	 * candidate in the list is preferred, so that the result does not depend on the parallelism.
+	 *
+	 * @param pupilCenterInfoList The candidates.
+	 * @param firstNewCandidate The index of the first candidate for which circle info still needs to be collected.
+	 * @param maxRelevantRadius The maximal circle radius considered when collecting circle info.
+	 * @param baseRadius the base radius to be used in refinement phases.
+	 * @return The best candidate.
+	 */
+	private PupilCenterInfo findBestPupilCenter(final List<PupilCenterInfo> pupilCenterInfoList, final int firstNewCandidate,
+			final int maxRelevantRadius, final int baseRadius) {
+		int candidateCount = pupilCenterInfoList.size();
+		if (mParallelism > 1 && candidateCount > CANDIDATES_PER_TASK) {
+			int taskCount = Math.min(mParallelism, (candidateCount + CANDIDATES_PER_TASK - 1) / CANDIDATES_PER_TASK);
+			getForkJoinPool().invoke(new CandidateEvaluation(pupilCenterInfoList, firstNewCandidate, maxRelevantRadius,
+					baseRadius, 0, candidateCount, taskCount));
+		}
+		else {
+			evaluateCandidates(pupilCenterInfoList, firstNewCandidate, maxRelevantRadius, baseRadius, 0, pupilCenterInfoList.size());
+		}
+
+		float maxLeapValue = Float.MIN_VALUE;
+		PupilCenterInfo bestPupilCenter = null;
+		for (PupilCenterInfo pupilCenterInfo : pupilCenterInfoList) {
+			if (pupilCenterInfo.mLeapValue > maxLeapValue) {
+				maxLeapValue = pupilCenterInfo.mLeapValue;
+				bestPupilCenter = pupilCenterInfo;
+			}
+		}
+		return bestPupilCenter;
+	}
+
+	/**
+	 * Evaluate a range of pupil center candidates.
+	 *
+	 * @param pupilCenterInfoList The candidates.
+	 * @param firstNewCandidate The index of the first candidate for which circle info still needs to be collected.
+	 * @param maxRelevantRadius The maximal circle radius considered when collecting circle info.
+	 * @param baseRadius the base radius to be used in refinement phases.
+	 * @param fromIndex The start index of the range (inclusive).
+	 * @param toIndex The end index of the range (exclusive).
+	 */
+	private static void evaluateCandidates(final List<PupilCenterInfo> pupilCenterInfoList, final int firstNewCandidate,
+			final int maxRelevantRadius, final int baseRadius, final int fromIndex, final int toIndex) {
+		for (int i = fromIndex; i < toIndex; i++) {
+			PupilCenterInfo pupilCenterInfo = pupilCenterInfoList.get(i);
+			if (i >= firstNewCandidate) {
+				pupilCenterInfo.collectCircleInfo(maxRelevantRadius);
+			}
+			pupilCenterInfo.calculateStatistics(baseRadius);
+		}
+	}
+
+	/**
+	 * Get the fork-join pool used for parallel evaluation of candidates.
+	 *
+	 * @return The pool.
+	 */
+	private static synchronized ForkJoinPool getForkJoinPool() {
+		if (mForkJoinPool == null) {
+			mForkJoinPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+		}
+		return mForkJoinPool;
+	}
+
+	/**
+	 * Convert a relative position or radius into pixels, with the precision of the platform given by the calibration.
+	 *
+	 * @param relativeValue The relative value (in the interval [0,1]).
+	 * @param size The image size to which the value refers.
+	 * @return The value in pixels, not yet rounded.
+	 */
+	private double toPixels(final float relativeValue, final int size) {
+		return mCalibration.mDoubleSizes ? relativeValue * (double) size : relativeValue * size;
+	}
+
+	/**
+	 * Refine the iris position based on the previously found position. Only the region of the image which is searched for
+	 * the iris boundary is decoded in full resolution.
+	 *
+	 * @throws IOException thrown if the region cannot be decoded.
+	 */
+	void refineIrisPosition() throws IOException {
+		int width = mWidth;
+		int height = mHeight;
+		int xCenter = (int) toPixels(mIrisXCenter, width);
+		int yCenter = (int) toPixels(mIrisYCenter, height);
+		int radius = (int) toPixels(mIrisRadius, Math.max(width, height));
+
+		int xRange = radius + Math.round(IRIS_BOUNDARY_UNCERTAINTY_FACTOR * radius);
+		int yRange = (int) (radius * IRIS_BOUNDARY_SEARCH_RANGE);
+		int left = Math.max(xCenter - xRange, 0);
+		int right = Math.min(xCenter + xRange + 1, width);
+		int top = Math.max(yCenter - yRange, 0);
+		int bottom = Math.min(yCenter + yRange + 1, height);
+		if (radius <= 0 || left >= right || top >= bottom) {
+			return;
+		}
+
+		IrisBoundary irisBoundary = new IrisBoundary(mImage.getRegionRaster(left, top, right, bottom), left, top, xCenter, yCenter, radius);
+
+		irisBoundary.analyzeBoundary();
+
+		mIrisXCenter = (float) irisBoundary.mXCenter / width;
+		mIrisYCenter = (float) irisBoundary.mYCenter / height;
+		mIrisRadius = (float) irisBoundary.mRadius / Math.max(width, height);
+	}
+
+	/**
+	 * The collected info about the circles around a potential pupil center.
+	 */
+	private static final class PupilCenterInfo {
+		/**
+		 * The x coordinate of the center.
+		 */
+		private int mXCenter;
+		/**
+		 * The y coordinate of the center.
+		 */
+		private int mYCenter;
+		/**
+		 * The calculated pupil radius for this center.
+		 */
+		private int mPupilRadius = 0;
+		/**
+		 * The calculated iris radius for this center.
+		 */
+		private int mIrisRadius = 0;
+		/**
+		 * The brightnesses of the image.
+		 */
+		private BrightnessPlane mBrightnessPlane;
+		/**
+		 * The phase in which the info is used.
+		 */
+		private Phase mPhase;
+		/**
+		 * The way in which quantiles of circle brightnesses are determined.
+		 */
+		private QuantileMode mQuantileMode;
+		/**
+		 * The brightness of the pupil assumed when calculating the leaps.
+		 */
+		private float mAssumedPupilBrightness;
+		/**
+		 * The brightness unit of the constants.
+		 */
+		private float mBrightnessUnit;
+
+		/**
+		 * The information about the circles around this point, indexed by radius.
+		 */
+		private CircleInfo[] mCircleInfos = new CircleInfo[0];
+		/**
+		 * The number of circles around this point.
+		 */
+		private int mCircleCount = 0;
+
+		/**
+		 * The brightness leap value for this center.
+		 */
+		private float mLeapValue = Float.MIN_VALUE;
+
+		/**
+		 * Create a PupilCenterInfo with certain coordinates.
+		 *
+		 * @param brightnessPlane the brightnesses of the image.
+		 * @param xCoord The x coordinate.
+		 * @param yCoord The y coordinate.
+		 * @param phase The phase in which the info is used.
+		 * @param quantileMode The way in which quantiles of circle brightnesses are determined.
+		 * @param calibration The calibration of the brightness dependent constants.
+		 */
+		private PupilCenterInfo(final BrightnessPlane brightnessPlane, final int xCoord, final int yCoord, final Phase phase,
+				final QuantileMode quantileMode, final Calibration calibration) {
+			mXCenter = xCoord;
+			mYCenter = yCoord;
+			mBrightnessPlane = brightnessPlane;
+			mPhase = phase;
+			mQuantileMode = quantileMode;
+			mBrightnessUnit = calibration.mBrightnessUnit;
+			mAssumedPupilBrightness = ASSUMED_PUPIL_BRIGHTNESS * mBrightnessUnit;
+		}
+
+		/**
+		 * Collect the information of all circles around the center.
+		 *
+		 * @param maxRelevantRadius The maximal circle radius considered
+		 */
+		private void collectCircleInfo(final int maxRelevantRadius) {
+			int width = mBrightnessPlane.mWidth;
+			int maxPossibleRadius = Math.min(
+					Math.min(width - 1 - mXCenter, mXCenter),
+					Math.min(mBrightnessPlane.mHeight - 1 - mYCenter, mYCenter));
+			int maxRadius = Math.min(maxRelevantRadius, maxPossibleRadius);
+			if (maxRadius < 0) {
+				return;
+			}
+
+			RingTable ringTable = RingTable.getInstance(maxRadius);
+			int entryCount = ringTable.getEntryCount(maxRadius);
+			int centerIndex = mYCenter * width + mXCenter;
+			short[] brightnesses = mBrightnessPlane.mBrightnesses;
+			int[] histogram = mQuantileMode == QuantileMode.FAST ? new int[HISTOGRAM_SIZE] : null;
+			mCircleInfos = new CircleInfo[maxRadius + 2];
+
+			// The table is sorted by distance, so the pixels of each circle are visited consecutively.
+			CircleInfo circleInfo = null;
+			for (int i = 0; i < entryCount; i++) {
+				if (ringTable.mSquareDistances[i] <= maxRadius) {
+					int radius = ringTable.mRings[i];
+					if (circleInfo == null || circleInfo.mRadius != radius) {
+						if (circleInfo != null) {
+							circleInfo.finishCollection();
+						}
+						circleInfo = new CircleInfo(radius, histogram);
+						mCircleInfos[radius] = circleInfo;
+						mCircleCount = radius + 1;
+					}
+					circleInfo.addBrightness(
+							BRIGHTNESS_VALUES[brightnesses[centerIndex + ringTable.mYOffsets[i] * width + ringTable.mXOffsets[i]]]);
+				}
+			}
+			if (circleInfo != null) {
+				circleInfo.finishCollection();
+			}
+		}
+
+		/**
+		 * Do statistical calculations after all brightnesses are available.
+		 *
+		 * @param baseRadius the base radius to be used in refinement phases.
+		 */
+		private void calculateStatistics(final int baseRadius) {
+			// Base calculations for each circle.
+			for (int i = 0; i < mCircleCount; i++) {
+				mCircleInfos[i].calculateStatistics();
+			}
+
+			int resolution = Math.max(mBrightnessPlane.mWidth, mBrightnessPlane.mHeight);
+			int maxRadius = mPhase == Phase.INITIAL
+					? mCircleCount - 1
+					: Math.min(mCircleCount - 1, baseRadius + MAX_REFINEMENT_STEPS + (int) (MAX_LEAP_WIDTH * resolution));
+			int minRadius = mPhase == Phase.INITIAL ? 0
+					: Math.max(0, baseRadius - MAX_REFINEMENT_STEPS - (int) (MAX_LEAP_WIDTH * resolution));
+
+			// Calculate the minimum of medians outside each circle.
+			float innerQuantileSum = 0;
+			float[] innerDarkness = new float[mCircleCount];
+
+			for (int i = minRadius; i <= maxRadius; i++) {
+				float currentQuantile = mCircleInfos[i].getQuantile(MIN_BLACK_QUOTA);
+				innerQuantileSum += currentQuantile * i;
+				innerDarkness[i] = i == 0 ? 0 : 2 * innerQuantileSum / (i * (i + 1));
+			}
+
+			List<CircleInfo> relevantPupilCircles = new ArrayList<>();
+			List<CircleInfo> relevantIrisCircles = new ArrayList<>();
+			maxRadius = mPhase == Phase.INITIAL
+					? mCircleCount - 2
+					: Math.min(mCircleCount - 2, baseRadius + MAX_REFINEMENT_STEPS);
+			minRadius = mPhase == Phase.INITIAL ? (int) (resolution * MIN_PUPIL_RADIUS)
+					: Math.max(1, baseRadius - MAX_REFINEMENT_STEPS);
+
+			if (mPhase == Phase.INITIAL || mPhase == Phase.PUPIL_REFINEMENT) {
+				// determine pupil leap
+				for (int i = minRadius; i <= maxRadius; i++) {
+					float pupilLeapValue = 0;
+					int maxLeapDistance = Math.min(Math.round(MAX_LEAP_WIDTH * resolution),
+							Math.min(i / 2, (mCircleCount - 1 - i) / 2));
+					for (int j = 1; j <= maxLeapDistance; j++) {
+						float diff = mPhase == Phase.INITIAL
+								? (mAssumedPupilBrightness + getMinMaxQuantile(MAX_BLACK_QUOTA, i + j, i + j + maxLeapDistance, false))
+								/ (mAssumedPupilBrightness
+								+ getMinMaxQuantile(MIN_BLACK_QUOTA, i - j - Math.min(maxLeapDistance, Math.max(j, 2)), i - j, true))
+								- 1
+								: (mAssumedPupilBrightness + getMinMaxQuantile(MAX_BLACK_QUOTA, i + j, i + j + maxLeapDistance, false))
+								/ (mAssumedPupilBrightness
+								+ getMinMaxQuantile(MIN_BLACK_QUOTA, i - Math.min(maxLeapDistance, Math.max(j, 2)), i, true))
+								- 1;
+						if (diff > MIN_LEAP_DIFF) {
+							// prefer big jumps in small radius difference.
+							float newLeapValue = (float) (diff / Math.pow(j, 0.8)); // MAGIC_NUMBER
+							if (newLeapValue > pupilLeapValue) {
+								pupilLeapValue = newLeapValue;
+							}
+						}
+					}
+					if (pupilLeapValue > 0) {
+						CircleInfo circleInfo = mCircleInfos[i];
+						// prefer big, dark circles
+						circleInfo.mPupilLeapValue = (float) (Math.sqrt(i) * pupilLeapValue / innerDarkness[i]);
+						relevantPupilCircles.add(circleInfo);
+					}
+				}
+			}
+
+			if (mPhase == Phase.INITIAL || mPhase == Phase.IRIS_REFINEMENT) {
+				// determine iris leap
+				for (int i = minRadius; i <= maxRadius; i++) {
+					float irisLeapValue = 0;
+					float irisQuantileSum = 0;
+					int maxLeapDistance = Math.min(Math.round(MAX_LEAP_WIDTH * resolution),
+							Math.min(i, mCircleCount - 1 - i));
+					for (int j = 1; j <= maxLeapDistance; j++) {
+						irisQuantileSum +=
+								(mCircleInfos[i + j].getQuantile(1 - MIN_WHITE_QUOTA)
+										- mCircleInfos[i - j].getQuantile(1 - MIN_WHITE_QUOTA)
+										+ mCircleInfos[i + j].getQuantile(1 - MIN_WHITE_QUOTA2)
+										- mCircleInfos[i - j].getQuantile(1 - MIN_WHITE_QUOTA2))
+										/ (2 * Math.sqrt(j));
+						if (irisQuantileSum > 0) {
+							// prefer big jumps in small radius difference.
+							float newLeapValue = irisQuantileSum / j;
+							if (newLeapValue > irisLeapValue) {
+								irisLeapValue = newLeapValue;
+							}
+						}
+					}
+					if (irisLeapValue > 0) {
+						CircleInfo circleInfo = mCircleInfos[i];
+						// prefer big radius in order to prevent selection of small spots.
+						// prefer dark inner area
+						circleInfo.mIrisLeapValue = irisLeapValue;
+						relevantIrisCircles.add(circleInfo);
+					}
+				}
+			}
+
+			switch (mPhase) {
+			case INITIAL:
+				for (CircleInfo pupilCircleInfo : relevantPupilCircles) {
+					for (CircleInfo irisCircleInfo : relevantIrisCircles) {
+						if (irisCircleInfo.mRadius - pupilCircleInfo.mRadius >= resolution
+								* MIN_IRIS_PUPIL_DISTANCE) {
+							float newLeapValue = pupilCircleInfo.mPupilLeapValue * (mBrightnessUnit + irisCircleInfo.mIrisLeapValue);
+							if (newLeapValue > mLeapValue) {
+								mLeapValue = newLeapValue;
+								mPupilRadius = pupilCircleInfo.mRadius;
+								mIrisRadius = irisCircleInfo.mRadius;
+							}
+						}
+					}
+				}
+				break;
+			case PUPIL_REFINEMENT:
+				for (CircleInfo pupilCircleInfo : relevantPupilCircles) {
+					float newLeapValue = pupilCircleInfo.mPupilLeapValue;
+					if (newLeapValue > mLeapValue) {
+						mLeapValue = newLeapValue;
+						mPupilRadius = pupilCircleInfo.mRadius;
+					}
+				}
+				break;
+			case IRIS_REFINEMENT:
+			default:
+				for (CircleInfo irisCircleInfo : relevantIrisCircles) {
+					float newLeapValue = irisCircleInfo.mIrisLeapValue;
+					if (newLeapValue > mLeapValue) {
+						mLeapValue = newLeapValue;
+						mIrisRadius = irisCircleInfo.mRadius;
+					}
+				}
+				break;
+			}
+		}
+
+		/**
+		 * Get the minimum p-quantile for a certain set of radii.
+		 *
+		 * @param p The quantile parameter.
+		 * @param fromRadius The start radius.
+		 * @param toRadius The end radius.
+		 * @param max if true, the maximum is returned, otherwise the minimum.
+		 * @return The minimum quantile.
+		 */
+		private float getMinMaxQuantile(final float p, final int fromRadius, final int toRadius, final boolean max) {
+			float result = max ? Float.MIN_VALUE : Float.MAX_VALUE;
+			for (int radius = fromRadius; radius <= toRadius; radius++) {
+				float newValue = mCircleInfos[radius].getQuantile(p);
+				if ((!max && newValue < result) || (max && newValue > result)) {
+					result = newValue;
+				}
+			}
+			return result;
+		}
+
+		/**
+		 * The phase in which the algorithm is.
+		 */
+		private enum Phase {
+			/**
+			 * Initial positioning of pupil and iris.
+			 */
+			INITIAL,
+			/**
+			 * Refinement of pupil position.
+			 */
+			PUPIL_REFINEMENT,
+			/**
+			 * Refinement of iris position.
+			 */
+			IRIS_REFINEMENT
+		}
+	}
+
+	/**
+	 * Class for storing information about a circle of points.
+	 */
+	private static final class CircleInfo {
+		/**
+		 * Create a pixelInfo with certain coordinates.
+		 *
+		 * @param radius The radius.
+		 * @param histogram The histogram used for collecting the brightnesses in fast mode, or null in exact mode.
+		 */
+		private CircleInfo(final int radius, final int[] histogram) {
+			mRadius = radius;
+			if (histogram == null) {
+				mBrightnesses = new float[CIRCLE_SIZES[radius]];
+			}
+			else {
+				mHistogram = histogram;
+			}
+			mCurrentIndex = 0;
+		}
+
+		/**
+		 * The radius.
+		 */
+		private int mRadius;
+		/**
+		 * The brightnesses (only in exact mode).
+		 */
+		private float[] mBrightnesses;
+		/**
+		 * The current index on the brightness array.
+		 */
+		private int mCurrentIndex;
+		/**
+		 * The histogram of brightnesses while collecting them (only in fast mode).
+		 */
+		private int[] mHistogram;
+		/**
+		 * The lowest histogram bin in use.
+		 */
+		private int mMinBin = HISTOGRAM_SIZE;
+		/**
+		 * The highest histogram bin in use.
+		 */
+		private int mMaxBin = -1;
+		/**
+		 * The quantiles for the parameters QUANTILE_PARAMETERS (only in fast mode).
+		 */
+		private float[] mQuantiles;
+
+		/**
+		 * The brightness leap at this radius used for pupil identification.
+		 */
+		private float mPupilLeapValue;
+		/**
+		 * The brightness leap at this radius used for iris identification.
+		 */
+		private float mIrisLeapValue;
+
+		/**
+		 * Add a brightness to the information of this circle.
+		 *
+		 * @param brightness the brightness.
+		 */
+		private void addBrightness(final float brightness) {
+			if (mHistogram == null) {
+				mBrightnesses[mCurrentIndex++] = brightness;
+			}
+			else {
+				int bin = Math.round(brightness * HISTOGRAM_SCALE);
+				mHistogram[bin]++;
+				mMinBin = Math.min(mMinBin, bin);
+				mMaxBin = Math.max(mMaxBin, bin);
+				mCurrentIndex++;
+			}
+		}
+
+		/**
+		 * Finish the collection of brightnesses. In fast mode, the quantiles are determined from the histogram, and the
+		 * histogram is cleared for the next circle.
+		 */
+		private void finishCollection() {
+			if (mHistogram == null) {
+				return;
+			}
+			// Points of the circle outside the analyzed square count with brightness 0, as in exact mode.
+			int size = CIRCLE_SIZES[mRadius];
+			if (size > mCurrentIndex) {
+				mHistogram[0] += size - mCurrentIndex;
+				mMinBin = 0;
+			}
+
+			mQuantiles = new float[QUANTILE_PARAMETERS.length];
+			for (int i = 0; i < QUANTILE_PARAMETERS.length; i++) {
+				int index = (int) (size * QUANTILE_PARAMETERS[i]);
+				int bin = mMinBin;
+				int count = mHistogram[bin];
+				while (count <= index) {
+					count += mHistogram[++bin];
+				}
+				mQuantiles[i] = bin / HISTOGRAM_SCALE;
+			}
+
+			Arrays.fill(mHistogram, mMinBin, mMaxBin + 1, 0);
+			mHistogram = null;
+		}
+
+		/**
+		 * Do statistical calculations after all brightnesses are available. Here, only sorting is required.
+		 */
+		private void calculateStatistics() {
+			if (mBrightnesses != null) {
+				Arrays.sort(mBrightnesses);
+			}
+		}
+
+		/**
+		 * Get the p-quantile of the brightnesses. Prerequisite: calculateStatistics must have been run before.
+		 *
+		 * @param p the quantile parameter.
+		 * @return the p-quantile of the brightnesses (not considering equality).
+		 */
+		private float getQuantile(final float p) {
+			if (mQuantiles == null) {
+				return mBrightnesses[(int) (mBrightnesses.length * p)];
+			}
+			for (int i = 0; i < QUANTILE_PARAMETERS.length; i++) {
+				if (QUANTILE_PARAMETERS[i] == p) {
+					return mQuantiles[i];
+				}
+			}
+			throw new IllegalArgumentException("Quantile " + p + " is not available in fast mode.");
+		}
+	}
+
+	/**
+	 * Create the brightness values for all brightness codes.
+	 *
+	 * @return The brightness values.
+	 */
+	private static float[] createBrightnessValues() {
+		float[] brightnessValues = new float[(MAX_BRIGHTNESS_UNITS + 1) * BRIGHTNESS_ROUNDING_VARIANTS];
+		for (int code = 0; code < brightnessValues.length; code++) {
+			int baseBits = Float.floatToIntBits((float) (code / BRIGHTNESS_ROUNDING_VARIANTS / MAX_BYTE_VALUE));
+			int variant = code % BRIGHTNESS_ROUNDING_VARIANTS - BRIGHTNESS_ROUNDING_OFFSET;
+			brightnessValues[code] = Float.intBitsToFloat(Math.max(0, baseBits + variant));
+		}
+		return brightnessValues;
+	}
+
+	/**
+	 * Encode a brightness into two bytes. The code consists of the brightness in units of color bytes and the rounding variant
+	 * of the float brightness, so that BRIGHTNESS_VALUES gives back the float brightness exactly.
+	 *
+	 * @param units The brightness in units of color bytes (in the interval [0,510]).
+	 * @param brightness The brightness (in the interval [0,2]), calculated from the same color.
+	 * @return The brightness code.
+	 */
+	private static short encodeBrightness(final int units, final float brightness) {
+		int baseBits = Float.floatToIntBits((float) (units / MAX_BYTE_VALUE));
+		return (short) (units * BRIGHTNESS_ROUNDING_VARIANTS + Float.floatToIntBits(brightness) - baseBits + BRIGHTNESS_ROUNDING_OFFSET);
+	}
+
+	/**
+	 * Convert a color component into the interval [0,1]. The value is rounded to float precision, as in the JavaFX Color, so
+	 * that brightnesses are bit-identical to the former calculation from JavaFX colors.
+	 *
+	 * @param component The color component (in the interval [0,255]).
+	 * @return The color component (in the interval [0,1]).
+	 */
+	private static double getColorComponent(final int component) {
+		return (float) (component / MAX_BYTE_VALUE);
+	}
+
+	/**
+	 * The brightnesses of an image as used for the circle statistics, stored as brightness codes in order to save memory.
+	 */
+	private static final class BrightnessPlane {
+		/**
+		 * The width of the image.
+		 */
+		private int mWidth;
+		/**
+		 * The height of the image.
+		 */
+		private int mHeight;
+		/**
+		 * The brightness codes, stored row by row.
+		 */
+		private short[] mBrightnesses;
+
+		/**
+		 * Determine the brightnesses of an image.
+		 *
+		 * @param raster The image.
+		 */
+		private BrightnessPlane(final ArgbRaster raster) {
+			mWidth = raster.getWidth();
+			mHeight = raster.getHeight();
+			int[] pixels = raster.getPixels();
+			mBrightnesses = new short[mWidth * mHeight];
+			for (int i = 0; i < mBrightnesses.length; i++) {
+				mBrightnesses[i] = getBrightnessCode(pixels[i]);
+			}
+		}
+
+		/**
+		 * Get the brightness code of a color.
+		 *
+		 * @param color The color
+		 * @return The brightness code.
+		 */
+		private static short getBrightnessCode(final int color) {
+			int redByte = ArgbRaster.red(color);
+			int greenByte = ArgbRaster.green(color);
+			int blueByte = ArgbRaster.blue(color);
+			double red = getColorComponent(redByte);
+			double green = getColorComponent(greenByte);
+			double blue = getColorComponent(blueByte);
+			float min = (float) Math.min(Math.min(red, green), blue);
+			float sum = (float) (red + green + blue);
+			// Ensure that colors count more than dark grey, but white counts more then colors.
+			return encodeBrightness(redByte + greenByte + blueByte - Math.min(Math.min(redByte, greenByte), blueByte), sum - min);
+		}
+	}
+
+	/**
+	 * Lookup table assigning pixel offsets around a center to the circle they belong to. The offsets are sorted by
+	 * distance, so that the pixels of each circle are consecutive and the pixels of a disc form a prefix of the table.
+	 */
+	private static final class RingTable {
+		/**
+		 * The cached table. It is replaced by a bigger one if a bigger radius is requested.
+		 */
+		private static volatile RingTable mInstance = null;
+
+		/**
+		 * The maximum radius covered by this table.
+		 */
+		private final int mMaxRadius;
+		/**
+		 * The horizontal offsets from the center.
+		 */
+		private final int[] mXOffsets;
+		/**
+		 * The vertical offsets from the center.
+		 */
+		private final int[] mYOffsets;
+		/**
+		 * The circle to which each offset belongs (its rounded distance from the center).
+		 */
+		private final int[] mRings;
+		/**
+		 * The maximum of horizontal and vertical distance of each offset.
+		 */
+		private final int[] mSquareDistances;
+		/**
+		 * For each radius r, the number of offsets whose squared distance is at most (r+1)^2.
+		 */
+		private final int[] mEntryCounts;
+
+		/**
+		 * Create the table for a certain radius.
+		 *
+		 * @param maxRadius The maximum radius covered by the table.
+		 */
+		private RingTable(final int maxRadius) {
+			mMaxRadius = maxRadius;
+			int diameter = 2 * maxRadius + 1;
+			int size = diameter * diameter;
+
+			// Sort by squared distance, keeping the position in the lower bits.
+			long[] sortKeys = new long[size];
+			for (int position = 0; position < size; position++) {
+				int x = position / diameter - maxRadius;
+				int y = position % diameter - maxRadius;
+				sortKeys[position] = ((long) (x * x + y * y) << Integer.SIZE) | position;
+			}
+			Arrays.sort(sortKeys);
+
+			mXOffsets = new int[size];
+			mYOffsets = new int[size];
+			mRings = new int[size];
+			mSquareDistances = new int[size];
+			mEntryCounts = new int[maxRadius + 1];
+			int radius = 0;
+			for (int i = 0; i < size; i++) {
+				long d2 = sortKeys[i] >>> Integer.SIZE;
+				int position = (int) sortKeys[i];
+				mXOffsets[i] = position / diameter - maxRadius;
+				mYOffsets[i] = position % diameter - maxRadius;
+				mRings[i] = (int) Math.round(Math.sqrt(d2));
+				mSquareDistances[i] = Math.max(Math.abs(mXOffsets[i]), Math.abs(mYOffsets[i]));
+				while (radius <= maxRadius && d2 > (long) (radius + 1) * (radius + 1)) {
+					mEntryCounts[radius++] = i;
+				}
+			}
+			while (radius <= maxRadius) {
+				mEntryCounts[radius++] = size;
+			}
+		}
+
+		/**
+		 * Get a table covering at least a certain radius.
+		 *
+		 * @param radius The radius.
+		 * @return The table.
+		 */
+		private static RingTable getInstance(final int radius) {
+			RingTable ringTable = mInstance;
+			if (ringTable == null || ringTable.mMaxRadius < radius) {
+				ringTable = new RingTable(ringTable == null ? radius : Math.max(radius, 2 * ringTable.mMaxRadius));
+				mInstance = ringTable;
+			}
+			return ringTable;
+		}
+
+		/**
+		 * Get the number of leading table entries relevant for a disc of a certain radius. Within these entries, only
+		 * those with square distance up to the radius belong to the disc.
+		 *
+		 * @param radius The radius.
+		 * @return The number of relevant entries.
+		 */
+		private int getEntryCount(final int radius) {
+			return radius < 0 ? 0 : mEntryCounts[radius];
+		}
+	}
+
+	/**
+	 * Class for collecting information about the iris boundary.
+	 */
+	private static final class IrisBoundary {
+		/**
+		 * The brightness codes of the searched region of the image, stored row by row.
+		 */
+		private short[] mBrightnesses;
+		/**
+		 * The x coordinate of the left end of the region.
+		 */
+		private int mLeft;
+		/**
+		 * The y coordinate of the upper end of the region.
+		 */
+		private int mTop;
+		/**
+		 * The width of the region.
+		 */
+		private int mWidth;
+		/**
+		 * The height of the region.
+		 */
+		private int mHeight;
+
+		/**
+		 * The x coordinate of the center.
+		 */
+		private int mXCenter;
+		/**
+		 * The y coordinate of the center.
+		 */
+		private int mYCenter;
+		/**
+		 * The iris radius.
+		 */
+		private int mRadius;
+
+		/**
+		 * The points on the left side of the iris boundary (map from y to x coordinate).
+		 */
+		private Map<Integer, Integer> mLeftPoints = new HashMap<>();
+		/**
+		 * The points on the right side of the iris boundary (map from y to x coordinate).
+		 */
+		private Map<Integer, Integer> mRightPoints = new HashMap<>();
+
+		/**
+		 * Initialize the IrisBoundary.
+		 *
+		 * @param region The region of the image to be searched.
+		 * @param left the x coordinate of the left end of the region within the image.
+		 * @param top the y coordinate of the upper end of the region within the image.
+		 * @param xCenter the initial x coordinate of the center.
+		 * @param yCenter the initial y coordinate of the center.
+		 * @param radius the initial iris radius.
+		 */
+		private IrisBoundary(final ArgbRaster region, final int left, final int top, final int xCenter, final int yCenter, final int radius) {
+			mLeft = left;
+			mTop = top;
+			mWidth = region.getWidth();
+			mHeight = region.getHeight();
+			int[] pixels = region.getPixels();
+			mBrightnesses = new short[mWidth * mHeight];
+			for (int i = 0; i < mBrightnesses.length; i++) {
+				mBrightnesses[i] = getBrightnessCode(pixels[i]);
+			}
+
+			mXCenter = xCenter;
+			mYCenter = yCenter;
+			mRadius = radius;
+		}
+
+		/**
+		 * Search points on the iris boundary.
+		 */
+		private void determineBoundaryPoints() {
+			for (int yCoord = mYCenter; yCoord <= mYCenter + mRadius * IRIS_BOUNDARY_SEARCH_RANGE && yCoord < mTop + mHeight; yCoord++) {
+				determineBoundaryPoints(yCoord);
+			}
+
+			for (int yCoord = mYCenter - 1; yCoord >= mYCenter - mRadius * IRIS_BOUNDARY_SEARCH_RANGE && yCoord >= mTop; yCoord--) {
+				determineBoundaryPoints(yCoord);
+			}
+		}
+
+		/**
+		 * Determine the boundary points for a certain y coordinate.
+		 *
+		 * @param yCoord The y coordinate for which to find the boundary points.
+		 * @return true if a boundary point has been found.
+		 */
+		private boolean determineBoundaryPoints(final int yCoord) {
+			int xDistanceRange = Math.round(IRIS_BOUNDARY_UNCERTAINTY_FACTOR * mRadius);
+			int xDistanceMinRange = Math.round(IRIS_BOUNDARY_MIN_RANGE * mRadius);
+			boolean found = false;
+
+			while (!found && xDistanceRange >= xDistanceMinRange) {
+				found = determineBoundaryPoints(yCoord, xDistanceRange);
+				xDistanceRange *= IRIS_BOUNDARY_RETRY_FACTOR;
+			}
+			return found;
+		}
+
+		/**
+		 * Determine the boundary points for a certain y coordinate.
+		 *
+		 * @param yCoord The y coordinate for which to find the boundary points.
+		 * @param xDistanceRange the horizontal range which is considered.
+		 * @return true if a boundary point has been found.
+		 */
+		private boolean determineBoundaryPoints(final int yCoord, final int xDistanceRange) {
+			int yDiff = yCoord - mYCenter;
+			if (Math.abs(yDiff) > IRIS_BOUNDARY_SEARCH_RANGE * mRadius) {
+				return false;
+			}
+
+			int expectedXDistance = (int) Math.round(Math.sqrt(mRadius * mRadius - yDiff * yDiff));
+
+			// Left side - calculate average brightness
+			float brightnessSum = 0;
+			int leftBoundary = Math.max(mXCenter - expectedXDistance - xDistanceRange, mLeft);
+			int rightBoundary = Math.min(mXCenter - expectedXDistance + xDistanceRange, mLeft + mWidth - 1);
+			for (int x = leftBoundary; x <= rightBoundary; x++) {
+				brightnessSum += getBrightness(x, yCoord);
+			}
+			float avgBrightness = brightnessSum / (2 * xDistanceRange + 1);
+
+			// Left side - find transition from light to dark
+			int leftCounter = 0;
+			int rightCounter = 0;
+			while (leftBoundary < rightBoundary) {
+				if (rightCounter > leftCounter) {
+					if (getBrightness(leftBoundary++, yCoord) < avgBrightness) {
+						leftCounter++;
+					}
+				}
+				else {
+					if (getBrightness(rightBoundary--, yCoord) > avgBrightness) {
+						rightCounter++;
+					}
+				}
+			}
+			if (leftCounter > IRIS_BOUNDARY_WRONG_BRIGHTNESS_QUOTA * xDistanceRange) {
+				return false;
+			}
+
+			// Right side - calculate average brightness
+			float brightnessSum2 = 0;
+			int leftBoundary2 = Math.max(mXCenter + expectedXDistance - xDistanceRange, mLeft);
+			int rightBoundary2 = Math.min(mXCenter + expectedXDistance + xDistanceRange, mLeft + mWidth - 1);
+			for (int x = leftBoundary2; x <= rightBoundary2; x++) {
+				brightnessSum2 += getBrightness(x, yCoord);
+			}
+			float avgBrightness2 = brightnessSum2 / (2 * xDistanceRange + 1);
+
+			// Right side - find transition from light to dark
+			int leftCounter2 = 0;
+			int rightCounter2 = 0;
+			while (leftBoundary2 < rightBoundary2) {
+				if (leftCounter2 > rightCounter2) {
+					if (getBrightness(rightBoundary2--, yCoord) < avgBrightness2) {
+						rightCounter2++;
+					}
+				}
+				else {
+					if (getBrightness(leftBoundary2++, yCoord) > avgBrightness2) {
+						leftCounter2++;
+					}
+				}
+			}
+			if (rightCounter2 > IRIS_BOUNDARY_WRONG_BRIGHTNESS_QUOTA * xDistanceRange) {
+				return false;
+			}
+
+			mLeftPoints.put(yCoord, rightBoundary);
+			mRightPoints.put(yCoord, leftBoundary2);
+			return true;
+		}
+
+		/**
+		 * Determine the iris center and radius from the iris boundary points.
+		 */
+		private void analyzeBoundary() {
+			determineBoundaryPoints();
+			if (mLeftPoints.size() > IRIS_BOUNDARY_MIN_BOUNDARY_POINTS) {
+				determineXCenter();
+				determineYCenter();
+				determineRadius();
+			}
+		}
+
+		/**
+		 * Determine the x center from the boundary points.
+		 */
+		private void determineXCenter() {
+			// Determine x center as median of the boundary mid points
+			List<Integer> xSumValues = new ArrayList<>();
+			for (Integer yCoord : mLeftPoints.keySet()) {
+				xSumValues.add(mLeftPoints.get(yCoord) + mRightPoints.get(yCoord));
+			}
+
+			Collections.sort(xSumValues);
+
+			mXCenter = xSumValues.get(xSumValues.size() / 2) / 2;
+		}
+
+		/**
+		 * Determine the y center from the boundary points, knowing the x center.
+		 */
+		private void determineYCenter() {
+			// Consider the sum of left and right distance.
+			Map<Integer, List<Integer>> distanceSums = new HashMap<>();
+			for (Integer y : mLeftPoints.keySet()) {
+				int sum = mRightPoints.get(y) - mLeftPoints.get(y);
+				List<Integer> listForSum = distanceSums.get(sum);
+				if (listForSum == null) {
+					listForSum = new ArrayList<>();
+					distanceSums.put(sum, listForSum);
+				}
+				listForSum.add(y);
+			}
+
+			// Sort distances in descending order
+			List<Integer> distances = new ArrayList<>(distanceSums.keySet());
+			Collections.sort(distances);
+			Collections.reverse(distances);
+
+			int count = 0;
+			int sum = 0;
+			int countUntil = (int) (IRIS_BOUNDARY_POINTS_CONSIDERED_FOR_YCENTER * mLeftPoints.size());
+			for (Integer distance : distances) {
+				for (int y : distanceSums.get(distance)) {
+					sum += y;
+					count++;
+				}
+				if (count >= countUntil) {
+					break;
+				}
+			}
+
+			mYCenter = sum / count;
+		}
+
+		/**
+		 * Determine the radius from boundary points, after center is known.
+		 */
+		private void determineRadius() {
+			float sum = 0;
+			for (Integer y : mLeftPoints.keySet()) {
+				int yDistance = y - mYCenter;
+				int xDistance = mLeftPoints.get(y) - mXCenter;
+				sum += Math.sqrt(xDistance * xDistance + yDistance * yDistance);
+			}
+			for (Integer y : mRightPoints.keySet()) {
+				int yDistance = y - mYCenter;
+				int xDistance = mRightPoints.get(y) - mXCenter;
+				sum += Math.sqrt(xDistance * xDistance + yDistance * yDistance);
+			}
+
+			mRadius = Math.round(sum / (2 * mLeftPoints.size()));
+		}
+
+		/**
+		 * Get the brightness value of a point of the image.
+		 *
+		 * @param x The x coordinate within the image.
+		 * @param y The y coordinate within the image.
+		 * @return The brightness value.
+		 */
+		private float getBrightness(final int x, final int y) {
+			return BRIGHTNESS_VALUES[mBrightnesses[(y - mTop) * mWidth + x - mLeft]];
+		}
+
+		/**
+		 * Get the brightness code of a color.
+		 *
+		 * @param color The color
+		 * @return The brightness code.
+		 */
+		private static short getBrightnessCode(final int color) {
+			int blueByte = ArgbRaster.blue(color);
+			int minByte = Math.min(Math.min(ArgbRaster.red(color), ArgbRaster.green(color)), blueByte);
+			double red = getColorComponent(ArgbRaster.red(color));
+			double green = getColorComponent(ArgbRaster.green(color));
+			double blue = getColorComponent(blueByte);
+			// Blue seems to be particulary helpful in the separation.
+			return encodeBrightness(minByte + blueByte, (float) (Math.min(Math.min(red, green), blue) + blue));
+		}
+
+	}
+
+	/**
+	 * Task for evaluating a range of pupil center candidates within a fork-join pool. The range is split into the given number
+	 * of subtasks, so that the task does not occupy more threads of the shared pool than this number.
+	 */
+	private static final class CandidateEvaluation extends RecursiveAction {
+		/**
+		 * The serial version UID.
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * The candidates.
+		 */
+		private final transient List<PupilCenterInfo> mPupilCenterInfoList;
+		/**
+		 * The index of the first candidate for which circle info still needs to be collected.
+		 */
+		private final int mFirstNewCandidate;
+		/**
+		 * The maximal circle radius considered when collecting circle info.
+		 */
+		private final int mMaxRelevantRadius;
+		/**
+		 * The base radius to be used in refinement phases.
+		 */
+		private final int mBaseRadius;
+		/**
+		 * The start index of the range (inclusive).
+		 */
+		private final int mFromIndex;
+		/**
+		 * The end index of the range (exclusive).
+		 */
+		private final int mToIndex;
+		/**
+		 * The number of subtasks into which the range is split.
+		 */
+		private final int mTaskCount;
+
+		/**
+		 * Create a task for evaluating a range of candidates.
+		 *
+		 * @param pupilCenterInfoList The candidates.
+		 * @param firstNewCandidate The index of the first candidate for which circle info still needs to be collected.
+		 * @param maxRelevantRadius The maximal circle radius considered when collecting circle info.
+		 * @param baseRadius the base radius to be used in refinement phases.
+		 * @param fromIndex The start index of the range (inclusive).
+		 * @param toIndex The end index of the range (exclusive).
+		 * @param taskCount The number of subtasks into which the range is split.
+		 */
+		private CandidateEvaluation(final List<PupilCenterInfo> pupilCenterInfoList, final int firstNewCandidate,
+				final int maxRelevantRadius, final int baseRadius, final int fromIndex, final int toIndex, final int taskCount) {
+			mPupilCenterInfoList = pupilCenterInfoList;
+			mFirstNewCandidate = firstNewCandidate;
+			mMaxRelevantRadius = maxRelevantRadius;
+			mBaseRadius = baseRadius;
+			mFromIndex = fromIndex;
+			mToIndex = toIndex;
+			mTaskCount = taskCount;
+		}
+
+		@Override
+		protected void compute() {
+			if (mTaskCount <= 1) {
+				evaluateCandidates(mPupilCenterInfoList, mFirstNewCandidate, mMaxRelevantRadius, mBaseRadius, mFromIndex, mToIndex);
+			}
+			else {
+				int firstTaskCount = mTaskCount / 2;
+				int middleIndex = mFromIndex + (int) ((long) (mToIndex - mFromIndex) * firstTaskCount / mTaskCount);
+				invokeAll(
+						new CandidateEvaluation(mPupilCenterInfoList, mFirstNewCandidate, mMaxRelevantRadius, mBaseRadius,
+								mFromIndex, middleIndex, firstTaskCount),
+						new CandidateEvaluation(mPupilCenterInfoList, mFirstNewCandidate, mMaxRelevantRadius, mBaseRadius,
+								middleIndex, mToIndex, mTaskCount - firstTaskCount));
+			}
+		}
+	}
+
+	/**
+	 * The calibration of the constants which are added to brightnesses or brightness leaps, i.e. the brightness unit in which
+	 * these constants are given, and the precision of the conversion of positions into pixels. All other parts of the detection
+	 * compare brightnesses only relative to each other.
+	 */
+	public enum Calibration {
+		/**
+		 * The calibration of the JavaFX application, in which the constants have been tuned.
+		 */
+		FX(1f, true),
+		/**
+		 * The calibration of the Android app, which has applied the constants to brightnesses in the interval [0,510]. This keeps
+		 * the detection results of the app.
+		 */
+		ANDROID((float) (1 / MAX_BYTE_VALUE), false);
+
+		/**
+		 * The brightness unit of the constants.
+		 */
+		private final float mBrightnessUnit;
+		/**
+		 * Flag indicating if relative positions are converted into pixels in double precision, as the JavaFX application did
+		 * with its double image sizes. The Android app used float precision with its int bitmap sizes.
+		 */
+		private final boolean mDoubleSizes;
+
+		/**
+		 * Create a calibration.
+		 *
+		 * @param brightnessUnit The brightness unit of the constants.
+		 * @param doubleSizes Flag indicating if relative positions are converted into pixels in double precision.
+		 */
+		Calibration(final float brightnessUnit, final boolean doubleSizes) {
+			mBrightnessUnit = brightnessUnit;
+			mDoubleSizes = doubleSizes;
+		}
+	}
+
+	/**
+	 * The way in which quantiles of circle brightnesses are determined.
+	 */
+	public enum QuantileMode {
+		/**
+		 * Exact quantiles, determined by sorting the brightnesses of each circle.
+		 */
+		EXACT,
+		/**
+		 * Approximate quantiles, determined from a histogram of the brightnesses of each circle.
+		 */
+		FAST
+	}
+}
@@ -0,0 +1,245 @@
+package de.jeisfeld.irisdetection.regression;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+
+import de.jeisfeld.irisdetection.AwtDetectionImage;
+import de.jeisfeld.irisdetection.DetectionImage;
+import de.jeisfeld.irisdetection.PupilAndIrisDetector;
+import de.jeisfeld.irisdetection.PupilAndIrisDetector.Calibration;
+import de.jeisfeld.irisdetection.PupilAndIrisDetector.QuantileMode;
+
+/**
+ * Regression and benchmark suite for the pupil and iris detection, runnable in a plain JVM. It runs the detection on all
+ * JPEG files of a corpus folder, reports the durations, and compares the results with a baseline file.
+ *
+ * <p>Usage: DetectionRegressionSuite &lt;corpus folder&gt; &lt;baseline file&gt; [--record] [--reference] [--fast] [--android]
+ * [--parallelism=n] [--iterations=n]. With --record, the baseline file is written instead of being checked. With --android, the
+ * detection uses the calibration of the Android app. With --reference, the detection of the app before the extraction into
+ * this module is run instead (see {@link ReferenceDetector}).
+ *
+ * <p>The corpus in src/regression/corpus contains two real eye photos and synthetic eye photos with varying iris colour, pupil
+ * size and position, lighting gradient, eyelids and noise. Its baselines are baseline.csv for the JavaFX calibration and
+ * baseline-android.csv for the Android calibration. They are recorded with --reference, so that the exact quantile mode is
+ * checked against the results of the original detection in the apps.
+ */
+public final class DetectionRegressionSuite {
+	/**
+	 * The maximum deviation of a result value from the baseline which is not reported as regression in exact quantile mode. This
+	 * only covers the rounding of the baseline file, as the exact mode has to give the same results as the original detection.
+	 */
+	private static final float EXACT_TOLERANCE = 0.00001f;
+	/**
+	 * The maximum deviation of a result value from the baseline which is not reported as regression in fast quantile mode.
+	 */
+	private static final float FAST_TOLERANCE = 0.002f;
+	/**
+	 * The number of result values per image.
+	 */
+	private static final int RESULT_COUNT = 6;
+	/**
+	 * Factor for converting nanoseconds into milliseconds.
+	 */
+	private static final double NANOS_PER_MILLI = 1000000.0;
+
+	/**
+	 * Hide default constructor.
+	 */
+	private DetectionRegressionSuite() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Run the suite.
+	 *
+	 * @param args The command line arguments.
+	 * @throws IOException thrown if corpus or baseline cannot be read.
+	 */
+	public static void main(final String[] args) throws IOException {
+		List<String> arguments = Arrays.asList(args);
+		if (args.length < 2) {
+			System.err.println("Usage: DetectionRegressionSuite <corpus folder> <baseline file> [--record] [--reference] [--fast] "
+					+ "[--android] [--parallelism=n] [--iterations=n]");
+			System.exit(2);
+		}
+		File corpus = new File(args[0]);
+		File baselineFile = new File(args[1]);
+		boolean record = arguments.contains("--record");
+		boolean reference = arguments.contains("--reference");
+		QuantileMode quantileMode = arguments.contains("--fast") ? QuantileMode.FAST : QuantileMode.EXACT;
+		float tolerance = quantileMode == QuantileMode.FAST ? FAST_TOLERANCE : EXACT_TOLERANCE;
+		Calibration calibration = arguments.contains("--android") ? Calibration.ANDROID : Calibration.FX;
+		int parallelism = getIntArgument(arguments, "--parallelism=", 1);
+		int iterations = getIntArgument(arguments, "--iterations=", 1);
+
+		File[] files = corpus.listFiles((dir, name) -> name.toLowerCase(Locale.ROOT).matches(".*\\.jpe?g"));
+		if (files == null || files.length == 0) {
+			System.err.println("No JPEG files found in " + corpus.getAbsolutePath());
+			System.exit(2);
+		}
+		Arrays.sort(files);
+
+		Map<String, float[]> baseline = record || !baselineFile.exists() ? new HashMap<>() : readBaseline(baselineFile);
+		Map<String, float[]> results = new HashMap<>();
+		int regressions = 0;
+		double totalMillis = 0;
+
+		for (File file : files) {
+			BufferedImage bufferedImage = ImageIO.read(file);
+			if (bufferedImage == null) {
+				System.err.println("Cannot read " + file.getName());
+				continue;
+			}
+			DetectionImage image = new AwtDetectionImage(bufferedImage);
+
+			float[] result = null;
+			long minNanos = Long.MAX_VALUE;
+			for (int i = 0; i < iterations; i++) {
+				long start = System.nanoTime();
+				result = reference ? ReferenceDetector.detect(image, calibration) : detect(image, quantileMode, parallelism, calibration);
+				minNanos = Math.min(minNanos, System.nanoTime() - start);
+			}
+			double millis = minNanos / NANOS_PER_MILLI;
+			totalMillis += millis;
+			results.put(file.getName(), result);
+
+			float[] expected = baseline.get(file.getName());
+			boolean deviates = expected != null && deviates(expected, result, tolerance);
+			String status = expected == null ? "NEW" : deviates ? "REGRESSION" : "OK";
+			if (deviates) {
+				regressions++;
+			}
+			System.out.println(String.format(Locale.ROOT, "%-10s %-40s %5dx%-5d %9.1f ms %s", status, file.getName(),
+					bufferedImage.getWidth(), bufferedImage.getHeight(), millis, format(result)));
+		}
+
+		System.out.println(String.format(Locale.ROOT, "%d images, total %.1f ms, average %.1f ms, %d regressions", results.size(),
+				totalMillis, totalMillis / Math.max(1, results.size()), regressions));
+
+		if (record) {
+			writeBaseline(baselineFile, results);
+			System.out.println("Baseline written to " + baselineFile.getAbsolutePath());
+		}
+		else if (regressions > 0) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Run the detection of this module on an image.
+	 *
+	 * @param image The image.
+	 * @param quantileMode The way in which quantiles of circle brightnesses are determined.
+	 * @param parallelism The number of threads used for evaluating candidates.
+	 * @param calibration The calibration of the brightness dependent constants.
+	 * @return The pupil center, pupil radius, iris center and iris radius.
+	 * @throws IOException thrown if the image cannot be read.
+	 */
+	private static float[] detect(final DetectionImage image, final QuantileMode quantileMode, final int parallelism,
+			final Calibration calibration) throws IOException {
+		PupilAndIrisDetector detector = new PupilAndIrisDetector(image, quantileMode, parallelism, calibration);
+		return new float[] {detector.getPupilXCenter(), detector.getPupilYCenter(), detector.getPupilRadius(),
+				detector.getIrisXCenter(), detector.getIrisYCenter(), detector.getIrisRadius()};
+	}
+
+	/**
+	 * Get an integer argument of the form name=value.
+	 *
+	 * @param arguments The arguments.
+	 * @param prefix The argument name including "=".
+	 * @param defaultValue The value if the argument is not given.
+	 * @return The value.
+	 */
+	private static int getIntArgument(final List<String> arguments, final String prefix, final int defaultValue) {
+		for (String argument : arguments) {
+			if (argument.startsWith(prefix)) {
+				return Integer.parseInt(argument.substring(prefix.length()));
+			}
+		}
+		return defaultValue;
+	}
+
+	/**
+	 * Check if a result deviates from the expected result.
+	 *
+	 * @param expected The expected result.
+	 * @param result The result.
+	 * @param tolerance The maximum deviation of a value which is accepted.
+	 * @return true if some value deviates by more than the tolerance.
+	 */
+	private static boolean deviates(final float[] expected, final float[] result, final float tolerance) {
+		for (int i = 0; i < RESULT_COUNT; i++) {
+			if (Math.abs(expected[i] - result[i]) > tolerance) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Format a result as comma separated values.
+	 *
+	 * @param result The result.
+	 * @return The formatted result.
+	 */
+	private static String format(final float[] result) {
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < result.length; i++) {
+			if (i > 0) {
+				builder.append(',');
+			}
+			builder.append(String.format(Locale.ROOT, "%.5f", result[i]));
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Read the baseline file.
+	 *
+	 * @param baselineFile The baseline file.
+	 * @return The expected results by file name.
+	 * @throws IOException thrown if the file cannot be read.
+	 */
+	private static Map<String, float[]> readBaseline(final File baselineFile) throws IOException {
+		Map<String, float[]> baseline = new HashMap<>();
+		for (String line : Files.readAllLines(baselineFile.toPath(), StandardCharsets.UTF_8)) {
+			String[] parts = line.split(",");
+			if (parts.length == RESULT_COUNT + 1) {
+				float[] values = new float[RESULT_COUNT];
+				for (int i = 0; i < RESULT_COUNT; i++) {
+					values[i] = Float.parseFloat(parts[i + 1]);
+				}
+				baseline.put(parts[0], values);
+			}
+		}
+		return baseline;
+	}
+
+	/**
+	 * Write the baseline file.
+	 *
+	 * @param baselineFile The baseline file.
+	 * @param results The results by file name.
+	 * @throws IOException thrown if the file cannot be written.
+	 */
+	private static void writeBaseline(final File baselineFile, final Map<String, float[]> results) throws IOException {
+		String[] names = results.keySet().toArray(new String[0]);
+		Arrays.sort(names);
+		try (PrintWriter writer = new PrintWriter(baselineFile, StandardCharsets.UTF_8.name())) {
+			for (String name : names) {
+				writer.println(name + "," + format(results.get(name)));
+			}
+		}
+	}
+}
@@ -0,0 +1,66 @@
+package de.jeisfeld.irisdetection.regression;
+
+import java.io.IOException;
+
+import de.jeisfeld.irisdetection.DetectionImage;
+import de.jeisfeld.irisdetection.PupilAndIrisDetector.Calibration;
+
+/**
+ * Base class of the reference detectors. These are ports of the pupil and iris detection as it was implemented in the apps
+ * before it was extracted into the irisDetection module. They keep the arithmetic of the original code and are only used for
+ * recording the baselines against which the module is checked.
+ */
+abstract class ReferenceDetector {
+	/**
+	 * The resolution of the image when searching for a point within the pupil.
+	 */
+	protected static final int[] PUPIL_SEARCH_RESOLUTIONS = {100, 200, 600};
+	/**
+	 * The maximum circle size covered by CIRCLE_SIZES.
+	 */
+	private static final int MAX_CIRCLE_SIZE = 2000;
+	/**
+	 * The number of points on the boundaries of circles of sizes 0 - 2000, i.e. the number of pixels whose rounded distance
+	 * from the center is the circle size. The original code contained this as constant table.
+	 */
+	protected static final int[] CIRCLE_SIZES = calculateCircleSizes();
+
+	/**
+	 * Get the detection result.
+	 *
+	 * @return The pupil center, pupil radius, iris center and iris radius.
+	 */
+	abstract float[] getResult();
+
+	/**
+	 * Run the reference detection of a platform on an image.
+	 *
+	 * @param image The image.
+	 * @param calibration The calibration indicating the platform.
+	 * @return The detection result.
+	 * @throws IOException thrown if the image cannot be read.
+	 */
+	static float[] detect(final DetectionImage image, final Calibration calibration) throws IOException {
+		ReferenceDetector detector = calibration == Calibration.ANDROID ? new AndroidReferenceDetector(image) : new FxReferenceDetector(image);
+		return detector.getResult();
+	}
+
+	/**
+	 * Calculate the number of points on the boundaries of circles.
+	 *
+	 * @return The number of points for each circle size.
+	 */
+	private static int[] calculateCircleSizes() {
+		int[] circleSizes = new int[MAX_CIRCLE_SIZE + 1];
+		int maxDistance = MAX_CIRCLE_SIZE + 1;
+		for (int x = -maxDistance; x <= maxDistance; x++) {
+			for (int y = -maxDistance; y <= maxDistance; y++) {
+				int d = (int) Math.round(Math.sqrt(x * x + y * y));
+				if (d <= MAX_CIRCLE_SIZE) {
+					circleSizes[d]++;
+				}
+			}
+		}
+		return circleSizes;
+	}
+}